@@ -0,0 +1,56 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * An op mode for the benchmarks - it owns a scheduler (bound to the constructing thread, so benchmark subsystems
+ * register with it) and discards the telemetry.
+ */
+final class BenchmarkOpMode implements IHrvhsOpMode {
+
+    private final Scheduler m_scheduler = new Scheduler();
+
+    BenchmarkOpMode() {
+        Scheduler.bind(m_scheduler);
+        m_scheduler.setOpMode(this);
+    }
+
+    /**
+     * Finish the setup - pre-start initialize the scheduler (which adds the default commands), and run one tick so
+     * the commands that were started are running.
+     */
+    void start() {
+        m_scheduler.preStartInitialize();
+        m_scheduler.postStartInitialize();
+        m_scheduler.run();
+    }
+
+    /**
+     * Unbind the scheduler from the benchmark thread.
+     */
+    void stop() {
+        m_scheduler.removeAll();
+        Scheduler.bind(null);
+    }
+
+    @Override
+    public Scheduler getScheduler() {
+        return m_scheduler;
+    }
+
+    @Override
+    public long getIdealLoopInterval() {
+        return 20;
+    }
+
+    @Override
+    public int addTelemetrySlot(String caption) {
+        return 0;
+    }
+
+    @Override
+    public void publishTelemetry(int slot, String value) {
+    }
+
+    @Override
+    public void addTelemetry(String caption, String format, Object... args) {
+    }
+}
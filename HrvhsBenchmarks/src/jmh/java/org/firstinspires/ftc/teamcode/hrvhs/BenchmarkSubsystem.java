@@ -0,0 +1,11 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * A subsystem with no hardware, for the benchmarks.
+ */
+final class BenchmarkSubsystem extends ASubsystem {
+
+    BenchmarkSubsystem(String name) {
+        super(name);
+    }
+}
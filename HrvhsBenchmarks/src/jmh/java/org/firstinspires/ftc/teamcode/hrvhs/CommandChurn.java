@@ -0,0 +1,49 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * Two commands that require the same subsystems, started alternately - every {@link CommandChurn#tick()} the
+ * scheduler adds one (from the submission queue), interrupts and removes the other, and hands it the subsystems. This
+ * is what happens whenever a driver button interrupts a default command. The commands are created up front, so
+ * anything allocated by {@link CommandChurn#tick()} is allocated by the scheduler.
+ */
+final class CommandChurn {
+
+    private final BenchmarkOpMode m_opMode;
+    private final IdleCommand m_first;
+    private final IdleCommand m_second;
+
+    /**
+     * Instantiate the CommandChurn.
+     *
+     * @param requirements (int) The number of subsystems both commands require.
+     */
+    CommandChurn(int requirements) {
+        m_opMode = new BenchmarkOpMode();
+        ASubsystem[] subsystems = new ASubsystem[requirements];
+        for (int i = 0; i < requirements; i++) {
+            subsystems[i] = new BenchmarkSubsystem("subsystem " + i);
+        }
+        m_first = new IdleCommand(m_opMode, "first", subsystems);
+        m_second = new IdleCommand(m_opMode, "second", subsystems);
+        m_opMode.start();
+    }
+
+    /**
+     * Start the first command and run the scheduler, then start the second, which interrupts it, and run the
+     * scheduler again.
+     */
+    void tick() {
+        Scheduler scheduler = m_opMode.getScheduler();
+        m_first.start();
+        scheduler.run();
+        m_second.start();
+        scheduler.run();
+    }
+
+    /**
+     * Remove all the commands, and unbind the scheduler from this thread.
+     */
+    void stop() {
+        m_opMode.stop();
+    }
+}
@@ -0,0 +1,39 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The cost of adding and removing commands with requirement conflicts - two commands that require the same
+ * subsystems are started alternately, so every tick the scheduler adds one, interrupts and removes the other, and hands
+ * it the subsystems (see {@link CommandChurn}). The allocation rate must be 0. The {@link SchedulerAllocationCheck}
+ * runs the same churn with 1 and 8 requirements, counting the bytes the thread allocates, and fails the build if it
+ * allocates anything.
+ */
+@State(Scope.Thread)
+public class CommandChurnBenchmark {
+
+    @Param({"1", "8"})
+    int m_requirements;
+
+    CommandChurn m_churn;
+
+    @Setup
+    public void setup() {
+        m_churn = new CommandChurn(m_requirements);
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_churn.stop();
+    }
+
+    @Benchmark
+    public void interruptAndReplace() {
+        m_churn.tick();
+    }
+}
@@ -0,0 +1,78 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * Commands cycling through a {@link Scheduler} the way they do in a match. Every subsystem has a default command,
+ * and goes through a four tick cycle:
+ * <ol>
+ *     <li>a command is started, and interrupts the default command;</li>
+ *     <li>the command runs;</li>
+ *     <li>a one-shot command that needs the same subsystem is started, and interrupts the command;</li>
+ *     <li>the one-shot command finishes, and the scheduler re-adds the default command.</li>
+ * </ol>
+ * Each subsystem is at a different point in the cycle, so every tick commands are added from the submission queue,
+ * interrupted by requirement, finished, and replaced by default commands. All the commands are created up front, so
+ * anything allocated by {@link CommandCycle#tick()} is allocated by the scheduler.
+ */
+final class CommandCycle {
+
+    private final BenchmarkOpMode m_opMode;
+    private final IdleCommand[] m_commands;
+    private final OneShotCommand[] m_interrupters;
+    private int m_tickCt = 0;
+
+    /**
+     * Instantiate the CommandCycle, and start the default commands.
+     *
+     * @param subsystems (int) The number of subsystems - there are 3 commands for each one.
+     */
+    CommandCycle(int subsystems) {
+        m_opMode = new BenchmarkOpMode();
+        m_commands = new IdleCommand[subsystems];
+        m_interrupters = new OneShotCommand[subsystems];
+        for (int i = 0; i < subsystems; i++) {
+            BenchmarkSubsystem subsystem = new BenchmarkSubsystem("subsystem " + i);
+            subsystem.setDefaultCommand(new IdleCommand(m_opMode, "default " + i, subsystem));
+            m_commands[i] = new IdleCommand(m_opMode, "command " + i, subsystem);
+            m_interrupters[i] = new OneShotCommand(m_opMode, "interrupter " + i, subsystem);
+        }
+        m_opMode.start();
+    }
+
+    /**
+     * One control loop tick - start the commands that are due in their cycle, and run the scheduler.
+     */
+    void tick() {
+        for (int i = 0; i < m_commands.length; i++) {
+            switch ((m_tickCt + i) & 3) {
+                case 0:
+                    m_commands[i].start();
+                    break;
+                case 2:
+                    m_interrupters[i].start();
+                    break;
+                default:
+                    break;
+            }
+        }
+        m_opMode.getScheduler().run();
+        m_tickCt++;
+    }
+
+    /**
+     * @return (long) The number of times the one-shot commands have run - each one is a full cycle of a subsystem.
+     */
+    long getCycleCount() {
+        long cycles = 0;
+        for (OneShotCommand interrupter : m_interrupters) {
+            cycles += interrupter.m_executeCt;
+        }
+        return cycles;
+    }
+
+    /**
+     * Remove all the commands, and unbind the scheduler from this thread.
+     */
+    void stop() {
+        m_opMode.stop();
+    }
+}
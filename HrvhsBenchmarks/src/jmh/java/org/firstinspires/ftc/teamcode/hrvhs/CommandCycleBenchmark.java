@@ -0,0 +1,40 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The cost of a {@link Scheduler} tick while commands cycle - every tick commands are started, interrupt the default
+ * commands and each other by requirement, finish, and are replaced by the default commands (see {@link CommandCycle}).
+ * There are 3 commands per subsystem, so 30 to 750 commands. The allocation rate must be 0. The
+ * {@link SchedulerAllocationCheck} runs the same ticks, counting the bytes the thread allocates, and fails the build if
+ * they allocate anything - <tt>./gradlew :HrvhsBenchmarks:allocationCheck</tt> reports 0 bytes per tick at 10, 100,
+ * and 250 subsystems.
+ */
+@State(Scope.Thread)
+public class CommandCycleBenchmark {
+
+    @Param({"10", "100", "250"})
+    int m_subsystems;
+
+    CommandCycle m_cycle;
+
+    @Setup
+    public void setup() {
+        m_cycle = new CommandCycle(m_subsystems);
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_cycle.stop();
+    }
+
+    @Benchmark
+    public void tick() {
+        m_cycle.tick();
+    }
+}
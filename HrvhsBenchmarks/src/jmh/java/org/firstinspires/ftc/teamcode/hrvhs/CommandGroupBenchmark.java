@@ -0,0 +1,53 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The cost of running nested {@link CommandGroup CommandGroups} - <tt>run()</tt> of the outermost group, which is
+ * <tt>_execute()</tt> all the way down. Every level of the nesting has a parallel command and then a sequential
+ * group holding the next level, and the innermost level has a sequential command, so at a depth of <tt>n</tt> there
+ * are <tt>n</tt> groups and <tt>n + 1</tt> running commands. The allocation rate should be 0.
+ */
+@State(Scope.Thread)
+public class CommandGroupBenchmark {
+
+    @Param({"1", "4", "16"})
+    int m_depth;
+
+    BenchmarkOpMode m_opMode;
+    CommandGroup m_root;
+
+    @Setup
+    public void setup() {
+        m_opMode = new BenchmarkOpMode();
+        m_root = lclNest(m_depth);
+        // the first run initializes the groups and starts the commands
+        m_root.run();
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_opMode.stop();
+    }
+
+    @Benchmark
+    public boolean run() {
+        return m_root.run();
+    }
+
+    private CommandGroup lclNest(int depth) {
+        CommandGroup group = new CommandGroup(m_opMode, "group " + depth);
+        group.addParallel(new IdleCommand(m_opMode, "parallel " + depth));
+        if (depth > 1) {
+            group.addSequential(lclNest(depth - 1));
+        } else {
+            group.addSequential(new IdleCommand(m_opMode, "sequential"));
+        }
+        return group;
+    }
+}
@@ -0,0 +1,280 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stress check of starting and canceling commands from other threads - many producer threads call
+ * {@link ACommand#start()} (and, every other round, {@link ACommand#cancel()}) on their commands while this thread,
+ * standing in for the control thread, runs {@link Scheduler#run()} as fast as it can. This is the real path: the
+ * lock-free {@link CommandSubmissionQueue} is drained by the scheduler, the commands are added, run, and removed, and
+ * a cancel races the scheduler removing the command.
+ * <p>
+ * In each round every producer starts all its commands in order, cancels every other one once it is running in a
+ * cancel round, and waits for all of them to complete. Every start must complete; the commands of a producer must be
+ * initialized in the order they were started; every command that was initialized must end or be interrupted exactly
+ * once; only a canceled command may be interrupted, and only a canceled command may be skipped; and a completed command
+ * must never be left marked canceled. This is not a benchmark, it is a correctness check that a unit test cannot make
+ * reliably. It is run by <tt>./gradlew check</tt>, or by itself with:
+ * <pre>
+ *     ./gradlew :HrvhsBenchmarks:submissionStress
+ * </pre>
+ * or run the <tt>main</tt> with the producer count, commands per producer, and round count as arguments. It exits
+ * with status 1 and a description of the first failure if a command is lost, duplicated, out of order, or left
+ * canceled.
+ */
+public final class CommandSubmissionStress {
+
+    // The ticks a command runs for.
+    private static final int RUN_TICKS = 8;
+
+    /**
+     * A command that runs for a few ticks (so a cancel can land while it is running), and counts its lifecycle calls.
+     * The lifecycle counts are only written on the control thread, the sequence and the start and cancel counts only
+     * by its producer.
+     */
+    private static final class StressCommand extends ACommand {
+
+        private final int m_producer;
+        private final int[] m_lastInitialized;
+        private int m_runCt = 0;
+        // the order the producer started the command in, set before the start so it is seen with the submission
+        int m_sequence = -1;
+        int m_startCt = 0;
+        int m_cancelCt = 0;
+        int m_initializeCt = 0;
+        int m_endCt = 0;
+        int m_interruptedCt = 0;
+        int m_outOfOrderCt = 0;
+
+        StressCommand(IHrvhsOpMode opMode, int producer, int index, int[] lastInitialized) {
+            super(opMode, "command " + producer + "." + index);
+            m_producer = producer;
+            m_lastInitialized = lastInitialized;
+        }
+
+        @Override
+        protected void initialize() {
+            m_runCt = 0;
+            m_initializeCt++;
+            // the commands of a producer are started in increasing sequence, so must be initialized in increasing sequence
+            if (m_sequence <= m_lastInitialized[m_producer]) {
+                m_outOfOrderCt++;
+            }
+            m_lastInitialized[m_producer] = m_sequence;
+        }
+
+        @Override
+        protected void execute() {
+            m_runCt++;
+        }
+
+        @Override
+        protected boolean isFinished() {
+            return m_runCt >= RUN_TICKS;
+        }
+
+        @Override
+        protected void end() {
+            m_endCt++;
+        }
+
+        @Override
+        protected void interrupted() {
+            m_interruptedCt++;
+        }
+    }
+
+    private final int m_producers;
+    private final BenchmarkOpMode m_opMode;
+    private final StressCommand[][] m_commands;
+
+    private CommandSubmissionStress(int producers, int commandsPerProducer) {
+        m_producers = producers;
+        m_commands = new StressCommand[producers][commandsPerProducer];
+        m_opMode = new BenchmarkOpMode();
+        // the last sequence initialized for each producer - written only on the control thread
+        int[] lastInitialized = new int[producers];
+        for (int p = 0; p < producers; p++) {
+            lastInitialized[p] = -1;
+            for (int c = 0; c < commandsPerProducer; c++) {
+                m_commands[p][c] = new StressCommand(m_opMode, p, c, lastInitialized);
+            }
+        }
+        m_opMode.start();
+    }
+
+    /**
+     * Run the rounds - start the producers, and run the scheduler until they are all finished.
+     *
+     * @param rounds (int) The number of rounds.
+     * @return (String) The failure, <tt>null</tt> if every command was run as it should have been.
+     * @throws InterruptedException If interrupted waiting for the producers.
+     */
+    private String lclRun(final int rounds) throws InterruptedException {
+        final CountDownLatch ready = new CountDownLatch(m_producers);
+        final CountDownLatch go = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(m_producers);
+        final String[] failures = new String[m_producers];
+        Thread[] threads = new Thread[m_producers];
+        for (int p = 0; p < m_producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    ready.countDown();
+                    try {
+                        go.await();
+                        failures[producer] = lclProduce(m_commands[producer], rounds);
+                    } catch (InterruptedException e) {
+                        failures[producer] = "producer " + producer + " was interrupted";
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "producer " + p);
+            threads[p].start();
+        }
+        ready.await();
+        go.countDown();
+
+        // this is the control thread
+        Scheduler scheduler = m_opMode.getScheduler();
+        while (done.getCount() > 0) {
+            scheduler.run();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        m_opMode.stop();
+
+        for (String failure : failures) {
+            if (failure != null) {
+                return failure;
+            }
+        }
+        for (StressCommand[] commands : m_commands) {
+            for (StressCommand command : commands) {
+                String failure = lclCheck(command, rounds);
+                if (failure != null) {
+                    return failure;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The producer - in each round start all the commands, cancel every other one once it is running in odd rounds,
+     * and wait for them to complete.
+     *
+     * @return (String) The failure, <tt>null</tt> if every command completed.
+     */
+    private static String lclProduce(StressCommand[] commands, int rounds) throws InterruptedException {
+        for (int round = 0; round < rounds; round++) {
+            boolean cancelRound = (round & 1) == 1;
+            for (int c = 0; c < commands.length; c++) {
+                commands[c].m_sequence = round * commands.length + c;
+                commands[c].start();
+                commands[c].m_startCt++;
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            if (cancelRound) {
+                // a cancel only marks a running command, so wait for the scheduler to add it - the cancel then races
+                //  the command finishing, and the scheduler removing it
+                for (int c = 0; c < commands.length; c += 2) {
+                    StressCommand command = commands[c];
+                    while (!command.isRunning() && !command.isCompleted()) {
+                        if (System.nanoTime() - deadline > 0) {
+                            return "round " + round + ": " + command.getName() + " was started and never run";
+                        }
+                        Thread.yield();
+                    }
+                    command.cancel();
+                    command.m_cancelCt++;
+                }
+            }
+            for (StressCommand command : commands) {
+                while (!command.isCompleted()) {
+                    if (System.nanoTime() - deadline > 0) {
+                        return "round " + round + ": " + command.getName() + " was started and never completed";
+                    }
+                    Thread.yield();
+                }
+                if (command.isCanceled()) {
+                    return "round " + round + ": " + command.getName() + " completed, but is still marked canceled";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check the lifecycle counts of a command after all the rounds.
+     *
+     * @return (String) The failure, <tt>null</tt> if the counts are right.
+     */
+    private static String lclCheck(StressCommand command, int rounds) {
+        String name = command.getName();
+        if (command.m_startCt != rounds) {
+            return name + " was started " + command.m_startCt + " times in " + rounds + " rounds";
+        }
+        if (command.m_outOfOrderCt > 0) {
+            return name + " was initialized before a command its producer started before it "
+                    + command.m_outOfOrderCt + " times";
+        }
+        if (command.m_initializeCt > command.m_startCt) {
+            return name + " was initialized " + command.m_initializeCt + " times for " + command.m_startCt
+                    + " starts";
+        }
+        if (command.m_endCt + command.m_interruptedCt != command.m_initializeCt) {
+            return name + " was initialized " + command.m_initializeCt + " times, but ended " + command.m_endCt
+                    + " and was interrupted " + command.m_interruptedCt + " times";
+        }
+        if (command.m_interruptedCt > command.m_cancelCt) {
+            return name + " was interrupted " + command.m_interruptedCt + " times, but only canceled "
+                    + command.m_cancelCt + " times";
+        }
+        if (command.m_endCt < command.m_startCt - command.m_cancelCt) {
+            return name + " ended " + command.m_endCt + " times, but was started " + command.m_startCt
+                    + " times without a cancel " + (command.m_startCt - command.m_cancelCt) + " times";
+        }
+        return null;
+    }
+
+    /**
+     * @return (long) The number of commands interrupted - canceled while they were running, rather than before the
+     * scheduler added them or after they finished.
+     */
+    private long lclInterruptedCount() {
+        long interruptedCt = 0;
+        for (StressCommand[] commands : m_commands) {
+            for (StressCommand command : commands) {
+                interruptedCt += command.m_interruptedCt;
+            }
+        }
+        return interruptedCt;
+    }
+
+    /**
+     * @param args The number of producer threads (default 8), commands per producer (default 100), and rounds
+     *             (default 500).
+     * @throws InterruptedException If interrupted waiting for the producers.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int producers = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+        int commandsPerProducer = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 500;
+        CommandSubmissionStress stress = new CommandSubmissionStress(producers, commandsPerProducer);
+        long start = System.nanoTime();
+        String failure = stress.lclRun(rounds);
+        if (failure != null) {
+            System.out.println("FAILED " + failure);
+            System.exit(1);
+        }
+        System.out.println(String.format("OK %d rounds of %d producers x %d commands started (and half canceled every "
+                        + "other round, %d interrupted while running) while the scheduler ran, none lost, duplicated, "
+                        + "out of order, or left canceled - %.1f s", rounds, producers, commandsPerProducer,
+                stress.lclInterruptedCount(), (System.nanoTime() - start) / 1.0e9));
+    }
+}
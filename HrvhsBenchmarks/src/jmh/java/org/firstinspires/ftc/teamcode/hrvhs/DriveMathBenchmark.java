@@ -0,0 +1,60 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * The cost of the drive math that runs every tick - the {@link DriveMath} behind
+ * <tt>MecanumDriveSubsystem.setArcadePower()</tt>, <tt>SetTankPower()</tt>, and <tt>powerAccelDecel()</tt>, and
+ * <tt>ADriveSticks.lclConditionedStickValue()</tt>. The inputs cycle through a table of random values so the
+ * results cannot be precomputed. The allocation rate should be 0.
+ */
+@State(Scope.Thread)
+public class DriveMathBenchmark {
+
+    private static final int INPUTS = 1024;
+
+    final double[] m_inputs = new double[INPUTS];
+    final double[] m_powers = new double[4];
+    int m_next = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        for (int i = 0; i < INPUTS; i++) {
+            m_inputs[i] = random.nextDouble() * 2.0 - 1.0;
+        }
+    }
+
+    @Benchmark
+    public double[] arcadePower() {
+        DriveMath.arcadePower(lclNext(), lclNext(), lclNext(), m_powers);
+        return m_powers;
+    }
+
+    @Benchmark
+    public double[] tankPower() {
+        DriveMath.tankPower(lclNext(), lclNext(), lclNext(), m_powers);
+        return m_powers;
+    }
+
+    @Benchmark
+    public double powerAccelDecel() {
+        // a 48 inch move with the default ramp
+        return DriveMath.powerAccelDecel((lclNext() + 1.0) * 24.0, 48.0, 0.2, 0.1, 6.0, 12.0);
+    }
+
+    @Benchmark
+    public double conditionedStickValue() {
+        return DriveMath.conditionedStickValue(lclNext(), 0.05, 2.0);
+    }
+
+    private double lclNext() {
+        m_next = (m_next + 1) & (INPUTS - 1);
+        return m_inputs[m_next];
+    }
+}
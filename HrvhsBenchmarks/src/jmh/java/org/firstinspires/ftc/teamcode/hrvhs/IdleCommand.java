@@ -0,0 +1,24 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * A command that never finishes and does almost nothing, so a benchmark measures the framework rather than the
+ * command.
+ */
+final class IdleCommand extends ACommand {
+
+    long m_executeCt = 0;
+
+    IdleCommand(IHrvhsOpMode opMode, String name, ASubsystem... requirements) {
+        super(opMode, name, requirements);
+    }
+
+    @Override
+    protected void execute() {
+        m_executeCt++;
+    }
+
+    @Override
+    protected boolean isFinished() {
+        return false;
+    }
+}
@@ -0,0 +1,49 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The cost of the {@link MotionProfile} - following a profile on every tick (the position, velocity, and acceleration
+ * at a time, which should not allocate), generating a profile when a move starts, and getting a profile that is
+ * already in the {@link MotionProfileCache}.
+ */
+@State(Scope.Thread)
+public class MotionProfileBenchmark {
+
+    MotionProfile m_profile;
+    MotionProfileCache m_cache;
+    long m_tick = 0;
+
+    @Setup
+    public void setup() {
+        // a 48 inch move with the default limits, sampled at a 20ms control loop
+        m_profile = MotionProfile.sCurve(48.0, 30.0, 40.0, 200.0, 0.02);
+        m_cache = new MotionProfileCache(MotionProfileCache.DEFAULT_CAPACITY);
+        m_cache.get(48.0, 30.0, 40.0, 200.0, 0.02);
+    }
+
+    @Benchmark
+    public double follow() {
+        // the time steps through the profile at a loop interval that is not a multiple of the sample period
+        double time = ((++m_tick * 17) % 2500) / 1000.0;
+        return m_profile.getPosition(time) + m_profile.getVelocity(time) + m_profile.getAcceleration(time);
+    }
+
+    @Benchmark
+    public MotionProfile generateSCurve() {
+        return MotionProfile.sCurve(48.0, 30.0, 40.0, 200.0, 0.02);
+    }
+
+    @Benchmark
+    public MotionProfile generateTrapezoidal() {
+        return MotionProfile.trapezoidal(48.0, 30.0, 40.0, 0.02);
+    }
+
+    @Benchmark
+    public MotionProfile cached() {
+        return m_cache.get(48.0, 30.0, 40.0, 200.0, 0.02);
+    }
+}
@@ -0,0 +1,32 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The cost of the {@link MecanumOdometry} on every tick - an update with a new set of encoder positions and heading,
+ * and reading the pose back for the commands. The robot is driving a curve, so every update integrates a move. The
+ * allocation rate should be 0.
+ */
+@State(Scope.Thread)
+public class OdometryBenchmark {
+
+    MecanumOdometry m_odometry;
+    long m_tick = 0;
+
+    @Setup
+    public void setup() {
+        m_odometry = new MecanumOdometry(65.0, 120.0);
+    }
+
+    @Benchmark
+    public double updateAndRead() {
+        long tick = ++m_tick;
+        m_odometry.update(tick * 20000000L, (int) (tick * 13), (int) (tick * 9), (int) (tick * 13), (int) (tick * 9),
+                tick * 0.1);
+        m_odometry.readPose();
+        return m_odometry.getX();
+    }
+}
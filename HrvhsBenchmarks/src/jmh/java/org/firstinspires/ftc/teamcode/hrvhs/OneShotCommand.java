@@ -0,0 +1,24 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * A command that finishes the first time it runs, and can be started again - so a benchmark can cycle commands through
+ * the scheduler without allocating new ones.
+ */
+final class OneShotCommand extends ACommand {
+
+    long m_executeCt = 0;
+
+    OneShotCommand(IHrvhsOpMode opMode, String name, ASubsystem... requirements) {
+        super(opMode, name, requirements);
+    }
+
+    @Override
+    protected void execute() {
+        m_executeCt++;
+    }
+
+    @Override
+    protected boolean isFinished() {
+        return true;
+    }
+}
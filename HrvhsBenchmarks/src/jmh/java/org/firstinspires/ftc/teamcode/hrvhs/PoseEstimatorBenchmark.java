@@ -0,0 +1,41 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The cost of the {@link PoseEstimator} - a tick with only the IMU (a predict and a heading update), and a tick with
+ * a vision fix as well (a predict, a heading update, and a pose update). The robot is driving a curve and the fixes
+ * are near the estimate, so every fix is applied. The target on the phone is well under 100us for the full tick; the
+ * allocation rate should be 0.
+ */
+@State(Scope.Thread)
+public class PoseEstimatorBenchmark {
+
+    PoseEstimator m_estimator;
+    long m_tick = 0;
+
+    @Setup
+    public void setup() {
+        m_estimator = new PoseEstimator();
+    }
+
+    @Benchmark
+    public double predictAndHeading() {
+        double heading = ++m_tick * 0.2;
+        m_estimator.predict(0.3, 0.1, 0.2);
+        m_estimator.updateHeading(heading, 1.0);
+        return m_estimator.getX();
+    }
+
+    @Benchmark
+    public double predictHeadingAndFix() {
+        double heading = ++m_tick * 0.2;
+        m_estimator.predict(0.3, 0.1, 0.2);
+        m_estimator.updateHeading(heading, 1.0);
+        m_estimator.updatePose(m_estimator.getX() + 0.5, m_estimator.getY() - 0.5, heading + 1.0, 2.0, 4.0);
+        return m_estimator.getX();
+    }
+}
@@ -0,0 +1,52 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The cost of a latency-compensated vision fix - a control loop (predict, heading update, and record in the
+ * {@link PoseHistory}), then a fix captured some control loops ago, which is a binary search of the history, the
+ * pose update, and a replay of the control loops since. The allocation rate should be 0.
+ */
+@State(Scope.Thread)
+public class PoseHistoryBenchmark {
+
+    private static final long TICK = 20000000L;
+    // the default history of the PoseEstimatorSubsystem
+    private static final int HISTORY = 32;
+
+    // the latency of the fix in control loops - 5 is 100ms at the ideal loop interval
+    @Param({"1", "5", "16"})
+    int m_latency;
+
+    PoseEstimator m_estimator;
+    PoseHistory m_history;
+    long m_tick = 0;
+
+    @Setup
+    public void setup() {
+        m_estimator = new PoseEstimator();
+        m_history = new PoseHistory(HISTORY);
+        for (int i = 0; i < HISTORY; i++) {
+            lclTick();
+        }
+    }
+
+    @Benchmark
+    public double tickAndCorrect() {
+        lclTick();
+        m_history.correct(m_estimator, (m_tick - m_latency) * TICK, m_estimator.getX() - 1.0, m_estimator.getY(),
+                m_estimator.getHeading() - 0.5, 2.0, 4.0);
+        return m_estimator.getX();
+    }
+
+    private void lclTick() {
+        double heading = ++m_tick * 0.1;
+        m_estimator.predict(0.3, 0.0, 0.1);
+        m_estimator.updateHeading(heading, 1.0);
+        m_history.record(m_tick * TICK, 0.3, 0.0, 0.1, heading, 1.0, m_estimator);
+    }
+}
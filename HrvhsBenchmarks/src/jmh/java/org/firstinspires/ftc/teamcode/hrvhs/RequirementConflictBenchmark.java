@@ -0,0 +1,90 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The cost of the requirement conflict check when a command is started - does the command require a subsystem that
+ * is already in use? The {@link RequirementSet} bitset check (what the {@link Scheduler} does) is compared with the
+ * iterator walk it replaced, where every requirement is visited and asked for its current command, over both the
+ * <tt>HashSet</tt> the requirements used to be kept in and a <tt>List</tt>. Half of the subsystems are in use, and the
+ * command requires subsystems from the other half, so there is no conflict and the iterator walks must visit every
+ * requirement - the common case of a command starting on free subsystems. The bitset check is a word compare whatever
+ * the number of requirements; the iterator walks grow with it. None of them should allocate - the JIT removes the
+ * iterator here, though it cannot be relied on to in the scheduler, where the walk is not inlined this deeply.
+ */
+@State(Scope.Thread)
+public class RequirementConflictBenchmark {
+
+    // The number of subsystems registered, the first half are in use.
+    private static final int SUBSYSTEMS = 32;
+
+    @Param({"1", "4", "16"})
+    int m_requirements;
+
+    BenchmarkOpMode m_opMode;
+    final RequirementSet m_claimed = new RequirementSet();
+    final RequirementSet m_bitsetRequirements = new RequirementSet();
+    final Set<ASubsystem> m_setRequirements = new HashSet<>();
+    final List<ASubsystem> m_listRequirements = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        m_opMode = new BenchmarkOpMode();
+        ASubsystem[] subsystems = new ASubsystem[SUBSYSTEMS];
+        for (int i = 0; i < SUBSYSTEMS; i++) {
+            subsystems[i] = new BenchmarkSubsystem("subsystem " + i);
+        }
+        IdleCommand running = new IdleCommand(m_opMode, "running");
+        for (int i = 0; i < SUBSYSTEMS / 2; i++) {
+            subsystems[i].setCurrentCommand(running);
+            m_claimed.add(subsystems[i].getIndex());
+        }
+        for (int i = 0; i < m_requirements; i++) {
+            ASubsystem requirement = subsystems[SUBSYSTEMS / 2 + i];
+            m_bitsetRequirements.add(requirement.getIndex());
+            m_setRequirements.add(requirement);
+            m_listRequirements.add(requirement);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_opMode.stop();
+    }
+
+    @Benchmark
+    public boolean bitset() {
+        return m_bitsetRequirements.intersects(m_claimed);
+    }
+
+    @Benchmark
+    public boolean hashSetIterator() {
+        for (Iterator<ASubsystem> e = m_setRequirements.iterator(); e.hasNext(); ) {
+            if (e.next().getCurrentCommand() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean listIterator() {
+        for (Iterator<ASubsystem> e = m_listRequirements.iterator(); e.hasNext(); ) {
+            if (e.next().getCurrentCommand() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
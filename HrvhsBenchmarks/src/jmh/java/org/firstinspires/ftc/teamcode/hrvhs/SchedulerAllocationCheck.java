@@ -0,0 +1,116 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * A check that a {@link Scheduler} tick allocates nothing while commands cycle and interrupt each other - the
+ * {@link CommandCycleBenchmark} and {@link CommandChurnBenchmark} ticks, measured with the allocated bytes counter of
+ * this thread rather than the JMH harness, so it can require exactly 0 bytes. The ticks are run long enough first for
+ * the JIT to compile them, and the measured ticks are repeated (up to {@link SchedulerAllocationCheck#PASSES} times)
+ * until a pass allocates nothing - the JIT can still replace compiled code during a pass, which allocates a few hundred
+ * bytes once, while anything the tick allocates shows in every pass, tick after tick. This is part of the build:
+ * <pre>
+ *     ./gradlew :HrvhsBenchmarks:allocationCheck
+ * </pre>
+ * It exits with status 1 and the bytes allocated per tick if anything in the tick allocates. This needs a HotSpot
+ * JVM, which counts the bytes each thread allocates.
+ */
+public final class SchedulerAllocationCheck {
+
+    private static final int[] SUBSYSTEMS = {10, 100, 250};
+    private static final int[] REQUIREMENTS = {1, 8};
+    private static final int WARMUP_TICKS = 20000;
+    private static final int TICKS = 50000;
+    private static final int PASSES = 3;
+
+    /**
+     * A tick to be measured.
+     */
+    private interface ITick {
+        void tick();
+    }
+
+    private final com.sun.management.ThreadMXBean m_threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final long m_thread = Thread.currentThread().getId();
+
+    private SchedulerAllocationCheck() {
+    }
+
+    /**
+     * Measure what {@link SchedulerAllocationCheck#TICKS} of a tick allocate, after the warmup - the smallest of up to
+     * {@link SchedulerAllocationCheck#PASSES} passes, stopping at the first that allocates nothing.
+     *
+     * @param tick (not null) The tick.
+     * @return (long) The bytes allocated.
+     */
+    private long lclMeasure(ITick tick) {
+        lclRun(tick, WARMUP_TICKS);
+        long allocated = Long.MAX_VALUE;
+        for (int pass = 0; pass < PASSES && allocated > 0; pass++) {
+            allocated = Math.min(allocated, lclRun(tick, TICKS));
+        }
+        return allocated;
+    }
+
+    /**
+     * Run a tick, and measure what it allocates. The warmup runs through here too, so the measured loop is the one the
+     * JIT compiled.
+     *
+     * @param tick  (not null) The tick.
+     * @param ticks (int) The number of ticks to run.
+     * @return (long) The bytes allocated.
+     */
+    private long lclRun(ITick tick, int ticks) {
+        // what reading the counter costs, so it can be taken out of the measurement
+        long overhead = -m_threads.getThreadAllocatedBytes(m_thread);
+        overhead += m_threads.getThreadAllocatedBytes(m_thread);
+        long start = m_threads.getThreadAllocatedBytes(m_thread);
+        for (int i = 0; i < ticks; i++) {
+            tick.tick();
+        }
+        return m_threads.getThreadAllocatedBytes(m_thread) - start - overhead;
+    }
+
+    /**
+     * @param args Not used.
+     */
+    public static void main(String[] args) {
+        SchedulerAllocationCheck check = new SchedulerAllocationCheck();
+        boolean failed = false;
+        for (int subsystems : SUBSYSTEMS) {
+            final CommandCycle cycle = new CommandCycle(subsystems);
+            ITick tick = new ITick() {
+                @Override
+                public void tick() {
+                    cycle.tick();
+                }
+            };
+            long allocated = check.lclMeasure(tick);
+            cycle.stop();
+            System.out.println(String.format("%d subsystems, %d commands (%d command cycles run): %d ticks, %d " +
+                    "bytes allocated (%.3f B/tick)", subsystems, 3 * subsystems, cycle.getCycleCount(), TICKS,
+                    allocated, (double) allocated / TICKS));
+            failed |= allocated > 0;
+        }
+        for (int requirements : REQUIREMENTS) {
+            final CommandChurn churn = new CommandChurn(requirements);
+            ITick tick = new ITick() {
+                @Override
+                public void tick() {
+                    churn.tick();
+                }
+            };
+            long allocated = check.lclMeasure(tick);
+            churn.stop();
+            System.out.println(String.format("%d requirements, 2 commands interrupting each other: %d ticks, %d " +
+                    "bytes allocated (%.3f B/tick)", requirements, TICKS, allocated, (double) allocated / TICKS));
+            failed |= allocated > 0;
+        }
+        if (failed) {
+            System.out.println("FAILED the scheduler tick allocates");
+            System.exit(1);
+        }
+        System.out.println("OK the scheduler tick allocates nothing");
+    }
+}
@@ -0,0 +1,42 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The cost of one control loop tick of the {@link Scheduler} - <tt>run()</tt> with a number of running commands. The
+ * commands have no requirements, so they all run every tick. The allocation rate should be 0 - check
+ * <tt>gc.alloc.rate.norm</tt> from the GC profiler. These commands never finish or restart - the tick with commands
+ * cycling is {@link CommandCycleBenchmark}.
+ */
+@State(Scope.Thread)
+public class SchedulerBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    int m_commands;
+
+    BenchmarkOpMode m_opMode;
+
+    @Setup
+    public void setup() {
+        m_opMode = new BenchmarkOpMode();
+        for (int i = 0; i < m_commands; i++) {
+            new IdleCommand(m_opMode, "idle " + i).start();
+        }
+        m_opMode.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_opMode.stop();
+    }
+
+    @Benchmark
+    public void run() {
+        m_opMode.getScheduler().run();
+    }
+}
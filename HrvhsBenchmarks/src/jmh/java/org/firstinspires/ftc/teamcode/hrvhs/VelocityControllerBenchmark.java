@@ -0,0 +1,38 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The cost of the wheel velocity control on every update - the {@link VelocityController} power for each of the 4
+ * wheels, with the default drive gains and a measured speed that wanders around the target. The velocity loop may
+ * run several times per control loop, so this should be small, and the allocation rate should be 0.
+ */
+@State(Scope.Thread)
+public class VelocityControllerBenchmark {
+
+    final VelocityController[] m_controllers = new VelocityController[4];
+    long m_tick = 0;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < m_controllers.length; i++) {
+            m_controllers[i] = new VelocityController();
+            m_controllers[i].setFeedforward(0.026, 0.003, 0.0);
+            m_controllers[i].setPid(0.03, 0.05, 0.0);
+        }
+    }
+
+    @Benchmark
+    public double updateWheels() {
+        long tick = ++m_tick;
+        double power = 0.0;
+        for (int i = 0; i < m_controllers.length; i++) {
+            double measured = 20.0 + ((tick * 7 + i * 3) % 11) * 0.1;
+            power += m_controllers[i].calculate(20.5, 0.0, measured, 0.005);
+        }
+        return power;
+    }
+}
@@ -0,0 +1,42 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * The time source for the command framework. The {@link Scheduler} owns the clock, and command timing
+ * ({@link ACommand#timeSinceInitialized()}, {@link ACommand#isTimedOut()}, and so the {@link CommandGroup} entry
+ * timeouts), the tick deadlines, and the op mode control loop all read it - so nothing in the framework is tied to
+ * the wall clock.
+ * <p>
+ * On the robot this is a {@link RealTimeClock}. Off the robot a {@link VirtualClock} lets a 30 second autonomous run
+ * in however long the computation takes, because waiting for the next tick just moves the clock forward.
+ *
+ * @see Scheduler#setClock(AClock)
+ */
+public abstract class AClock {
+
+    /**
+     * Get the current time. Like <tt>System.nanoTime()</tt> this has no fixed origin, it is only meaningful as the
+     * difference between two times from the same clock.
+     *
+     * @return The current time in nanoseconds.
+     */
+    public abstract long nanoTime();
+
+    /**
+     * Wait until the clock reaches a time. This returns immediately if the time has already passed.
+     *
+     * @param deadline The time (from {@link AClock#nanoTime()}) to wait until.
+     * @throws InterruptedException Thrown if the thread was interrupted while waiting.
+     */
+    public abstract void sleepUntil(long deadline) throws InterruptedException;
+
+    /**
+     * Wait until the clock reaches a time without moving it - for a background thread pacing itself on the clock the
+     * control loop runs on. On a clock that runs by itself this is {@link AClock#sleepUntil(long)}.
+     *
+     * @param deadline The time (from {@link AClock#nanoTime()}) to wait until.
+     * @throws InterruptedException Thrown if the thread was interrupted while waiting.
+     */
+    public void awaitTime(long deadline) throws InterruptedException {
+        sleepUntil(deadline);
+    }
+}
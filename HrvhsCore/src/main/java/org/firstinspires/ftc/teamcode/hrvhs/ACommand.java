@@ -0,0 +1,728 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  This is the abstract class for a command. A command is at the very core of the entire command
+ *  framework. Every command can be
+ *  started with a call to {@link ACommand#start() start()}. Once a command is started it will call
+ *  {@link ACommand#initialize() initialize()}, and then will repeatedly call {@link ACommand#execute()
+ *  execute()} until the {@link ACommand#isFinished() isFinished()} returns true. Once it does, {@link
+ *  ACommand#end() end()} will be called.
+ *
+ *  <p>However, if at any point while it is running {@link ACommand#cancel() cancel()} is called,
+ *  then the command will be stopped and {@link ACommand#interrupted() interrupted()} will be called.
+ *
+ *  <p>If a command uses an {@link ASubsystem}, then it should specify that it does so by including
+ *  those subsystems in the call to the constructor.
+ *
+ *  <p>If a command is running and a new command with shared requirements is started, then one of
+ *  two things will happen. If the active command is interruptible, then {@link ACommand#cancel()
+ *  cancel()} will be called and the command will be removed to make way for the new one. If the
+ *  active command is not interruptible, the other one will not even be started, and the active one
+ *  will continue functioning.
+ *
+ *  <p><b>Threads:</b> commands are run by the {@link Scheduler} on the op mode (control) thread. {@link ACommand#start()
+ *  start()} and {@link ACommand#cancel() cancel()} may also be called from other threads (e.g. a vision or sensor
+ *  thread) without blocking the control thread: a started command is added at the next {@link Scheduler#run()}, and
+ *  a canceled command is removed the next time the {@link Scheduler} tries to run it. Neither takes a lock, so neither
+ *  waits for the control thread, or makes it wait - even while <tt>end()</tt> or <tt>interrupted()</tt> is running.
+ *  {@link ACommand#isRunning()},
+ *  {@link ACommand#isCanceled()} and {@link ACommand#isCompleted()} may be read from any thread. Everything else,
+ *  including the <tt>initialize()</tt>, <tt>execute()</tt>, <tt>isFinished()</tt>, <tt>end()</tt> and
+ *  <tt>interrupted()</tt> methods you write, happens only on the control thread.
+ *
+ *  @see ASubsystem
+ *  @see CommandGroup
+ *  @see IllegalUseOfCommandException
+ */
+public abstract class ACommand {
+
+    /**
+     * The priority class of a command, which determines what the {@link Scheduler} does with the command when a
+     * control loop tick is running late.
+     */
+    public enum Priority {
+        /**
+         * Always run, never deferred or skipped, even when the tick is late. Use this for drive and safety commands -
+         * a drive command that is not run leaves the motors at the last power it set until it is run again.
+         */
+        CRITICAL,
+        /** Deferred to the next tick when the tick is late, but never deferred two ticks in a row. */
+        NORMAL,
+        /** Skipped whenever the tick is late. */
+        LOW
+    }
+
+    // The name for this command
+    private String m_name = "unspecified";
+
+    // The op mode - you get access to the gamepad through the op mode
+    protected IHrvhsOpMode m_opMode = null;
+    // The scheduler that runs this command - the op mode scheduler, or the scheduler for the constructing thread
+    private final Scheduler m_scheduler;
+
+    // The subsystems required by this command as a bitset of subsystem indices
+    private final RequirementSet m_requirements = new RequirementSet();
+
+    // The time (in seconds) before this command "times out" (or -1 if no timeout).
+    private double m_timeout = -1;
+
+    // The period (in milliseconds) this command would like to be run at (or 0 to be run every control loop).
+    private long m_period = 0;
+    // The number of scheduler ticks between runs of this command, and the ticks since it was last run. The divider
+    //  is set by the {@link Scheduler} from the period whenever the scheduler tick changes.
+    private int m_tickDivider = 1;
+    private int m_tickCt = 0;
+    // <tt>true</tt> if this command was skipped before it was initialized, so it waits out the period like a command
+    //  that has run; <tt>false</tt> otherwise.
+    private boolean m_skippedBeforeRun = false;
+
+    // <tt>true</tt>> if this command is in an execution state where it cannot be altered; <tt>false</tt>> otherwise.
+    private boolean m_locked = false;
+
+    // Whether or not it is interruptible.
+    private boolean m_interruptible = true;
+
+    // The priority class, and the expected execution time (in nanoseconds, 0 if unspecified) of this command.
+    private Priority m_priority = Priority.NORMAL;
+    private long m_budget = 0;
+    // Whether this command was deferred on the last tick it was due, and the counts of deferred and skipped runs.
+    boolean m_deferred = false;
+    long m_deferredCt = 0;
+    long m_skippedCt = 0;
+
+    // Whether it is stopped, running, or running and canceled - one atomic state, because it may be read by any thread
+    //  and a cancel from any thread must not be lost or land after the command has stopped.
+    private static final int STOPPED = 0;
+    private static final int RUNNING = 1;
+    private static final int CANCELED = 2;
+    private final AtomicInteger m_state = new AtomicInteger(STOPPED);
+
+    // Whether or not this command has been initialized.
+    private boolean m_initialized;
+
+    // The start time from the scheduler clock (in nanoseconds), and whether the timing has started
+    private long m_startTime;
+    private boolean m_timing = false;
+
+    // Whether or not this command has completed running. Volatile because it may be read by any thread.
+    private volatile boolean m_completed;
+
+    // The {@link CommandGroup} this is in.
+    private CommandGroup m_parent;
+
+    // The links for the {@link Scheduler} list of running commands. These are kept in the command itself (rather than
+    //  in a separate list element) so adding and removing running commands does not allocate anything in the loop.
+    ACommand m_nextRunning = null;
+    ACommand m_previousRunning = null;
+    // <tt>true</tt> if this command is in the {@link Scheduler} list of running commands; <tt>false</tt> otherwise.
+    boolean m_inRunningList = false;
+
+    // The execution time profile, <tt>null</tt> until this command is run with profiling enabled.
+    private CommandProfile m_profile = null;
+
+    // The link for the {@link CommandSubmissionQueue}, and whether this command is waiting in that queue.
+    ACommand m_nextSubmitted = null;
+    final AtomicBoolean m_submitted = new AtomicBoolean(false);
+
+    private ACommand() {
+        m_name = getClass().getSimpleName();
+        m_scheduler = Scheduler.getInstance();
+    }
+
+    /**
+     * Instantiate the ACommand
+     *
+     * @param opMode (not null) The op mode for the command - which has access to the input devices
+     *               the command may require.
+     * @param name The name of the command for logging/debugging. If <tt>null</tt> the class name
+     *             is used as the name of the command
+     * @param requirements The subsystems this command requires.
+     */
+    public ACommand(IHrvhsOpMode opMode, String name, ASubsystem ... requirements) {
+        m_opMode = opMode;
+        m_scheduler = (opMode != null) ? opMode.getScheduler() : Scheduler.getInstance();
+        m_name = name;
+        for (ASubsystem requirement : requirements) {
+            if (requirement == null) {
+                throw new IllegalArgumentException("Subsystem must not be null.");
+            }
+            m_requirements.add(requirement.getIndex());
+        }
+    }
+
+    public String getName() {
+        return m_name;
+    }
+
+    /**
+     * This method specifies that the given {@link ASubsystem} is used by this command. This method is
+     * crucial to the functioning of the Command System in general.
+     *
+     * <p>Note that the recommended way to call this method is in the constructor.
+     *
+     * @param subsystem the {@link ASubsystem} required
+     * @throws IllegalArgumentException     if subsystem is null
+     * @throws IllegalUseOfCommandException if this command has started before or if it has been given
+     *                                      to a {@link CommandGroup}
+     * @see ASubsystem
+     */
+    protected void requires(ASubsystem subsystem) {
+        validate("Can not add new requirement to command");
+        if (subsystem != null) {
+            m_requirements.add(subsystem.getIndex());
+        } else {
+            throw new IllegalArgumentException("Subsystem must not be null.");
+        }
+    }
+
+    /**
+     * Specifies that all of the {@link ASubsystem Subsystems} required by another command are used by this
+     * command. This is used by {@link CommandGroup} to carry the requirements of its subcommands.
+     *
+     * @param command (not null) The command whose requirements are added to this command.
+     * @throws IllegalUseOfCommandException if this command has started before or if it has been given
+     *                                      to a {@link CommandGroup}
+     */
+    void requiresAll(ACommand command) {
+        validate("Can not add new requirement to command");
+        m_requirements.addAll(command.m_requirements);
+    }
+
+    /**
+     * Returns the requirements (as a {@link RequirementSet} of {@link ASubsystem} indices) of this command.
+     *
+     * @return the requirements of this command
+     */
+    RequirementSet getRequirements() {
+        return m_requirements;
+    }
+
+    /**
+     * Checks if the command requires the given {@link ASubsystem}.
+     *
+     * @param system the system
+     * @return whether or not the subsystem is required, or false if given null
+     */
+    public boolean doesRequire(ASubsystem system) {
+        return system != null && m_requirements.contains(system.getIndex());
+    }
+
+    /**
+     * Sets the timeout of this command.
+     *
+     * @param seconds the timeout (in seconds)
+     * @throws IllegalArgumentException if seconds is negative
+     * @see ACommand#isTimedOut() isTimedOut()
+     */
+    protected final void setTimeout(double seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Seconds must be positive.  Given:" + seconds);
+        }
+        m_timeout = seconds;
+    }
+
+    /**
+     * Sets the period this command should be run at. The {@link Scheduler} ticks at the period of the fastest running
+     * command, and runs each command on the ticks where it is due - so a heading hold can run every 5-10ms while
+     * something like LED state runs every 250ms. The default is 0, which means the command is run every
+     * {@link IHrvhsOpMode#getIdealLoopInterval() ideal loop interval}. The period is rounded to a whole number of
+     * scheduler ticks.
+     *
+     * <p>A {@link CommandGroup} runs at the period of the fastest command in the group, and the commands in the group
+     * are run on the group ticks where they are due.
+     *
+     * @param millis the period (in milliseconds), or 0 to run every ideal loop interval
+     * @throws IllegalArgumentException     if millis is negative
+     * @throws IllegalUseOfCommandException if this command has started before or if it has been given
+     *                                      to a {@link CommandGroup}
+     */
+    protected final void setPeriod(long millis) {
+        validate("Can not change the period of a command");
+        if (millis < 0) {
+            throw new IllegalArgumentException("Period must be positive.  Given:" + millis);
+        }
+        m_period = millis;
+    }
+
+    /**
+     * Returns the period this command should be run at.
+     *
+     * @return the period (in milliseconds), or 0 if this command is run every ideal loop interval.
+     */
+    public long getPeriod() {
+        return m_period;
+    }
+
+    /**
+     * Sets the priority class of this command. The default is {@link Priority#NORMAL}.
+     *
+     * @param priority (not null) the priority class
+     * @see Priority
+     */
+    protected final void setPriority(Priority priority) {
+        if (priority == null) {
+            throw new IllegalArgumentException("Priority must not be null.");
+        }
+        m_priority = priority;
+    }
+
+    /**
+     * Returns the priority class of this command.
+     *
+     * @return the priority class of this command.
+     */
+    public Priority getPriority() {
+        return m_priority;
+    }
+
+    /**
+     * Sets the expected execution time of this command. A command that is not {@link Priority#CRITICAL} is only run
+     * if there is at least this much time left in the current tick. The default is 0, which means the command is run
+     * unless the tick is already late.
+     *
+     * @param millis the expected execution time (in milliseconds)
+     * @throws IllegalArgumentException if millis is negative
+     */
+    protected final void setBudget(double millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Budget must be positive.  Given:" + millis);
+        }
+        m_budget = (long) (millis * 1.0e6);
+    }
+
+    /**
+     * Returns the expected execution time of this command.
+     *
+     * @return the expected execution time (in nanoseconds), 0 if unspecified.
+     */
+    long getBudget() {
+        return m_budget;
+    }
+
+    /**
+     * Returns the number of times this command was deferred to the next tick because the tick was late.
+     *
+     * @return the number of deferred runs.
+     */
+    public long getDeferredCount() {
+        return m_deferredCt;
+    }
+
+    /**
+     * Returns the number of times this command was skipped because the tick was late.
+     *
+     * @return the number of skipped runs.
+     */
+    public long getSkippedCount() {
+        return m_skippedCt;
+    }
+
+    /**
+     * Returns whether the next call to {@link ACommand#run()} will actually run this command (i.e. it has not been
+     * run yet, or it is due on this tick).
+     *
+     * @return whether this command is due.
+     */
+    boolean isDue() {
+        return (!m_initialized && !m_skippedBeforeRun) || m_tickCt + 1 >= m_tickDivider;
+    }
+
+    /**
+     * Called by the {@link Scheduler} instead of {@link ACommand#run()} when the command is due but is skipped because
+     * the tick is late. The schedule advances as if the command had run, so it is next due a full period later rather
+     * than on the next tick.
+     */
+    void skipped() {
+        m_tickCt = 0;
+        m_skippedBeforeRun = !m_initialized;
+    }
+
+    /**
+     * Returns the fastest period this command needs the {@link Scheduler} to tick at.
+     *
+     * @param idealLoopInterval the ideal loop interval (in milliseconds), which is the period if none was set.
+     * @return the fastest period (in milliseconds).
+     */
+    long getFastestPeriod(long idealLoopInterval) {
+        return (m_period > 0) ? m_period : idealLoopInterval;
+    }
+
+    /**
+     * Called by the {@link Scheduler} when the interval it ticks at changes, so the command can work out which ticks
+     * it should run on.
+     *
+     * @param tickInterval the interval (in milliseconds) between scheduler ticks.
+     * @param idealLoopInterval the ideal loop interval (in milliseconds), which is the period if none was set.
+     */
+    void setTickInterval(long tickInterval, long idealLoopInterval) {
+        long period = getFastestPeriod(idealLoopInterval);
+        m_tickDivider = (tickInterval <= 0) ? 1 : (int) Math.max(1, (period + tickInterval / 2) / tickInterval);
+        if (m_tickCt >= m_tickDivider) {
+            m_tickCt = 0;
+        }
+    }
+
+    /**
+     * Returns the number of scheduler ticks between runs of this command.
+     *
+     * @return the number of scheduler ticks between runs of this command.
+     */
+    int getTickDivider() {
+        return m_tickDivider;
+    }
+
+    /**
+     * Prevents further changes from being made.
+     */
+    synchronized void lockChanges() {
+        m_locked = true;
+    }
+
+    /**
+     * If changes are locked, then this will throw an {@link IllegalUseOfCommandException}.
+     *
+     * @param message the message to say (it is appended by a default message)
+     */
+    void validate(String message) {
+        if (m_locked) {
+            throw new IllegalUseOfCommandException(message
+                    + " after being started or being added to a command group");
+        }
+    }
+
+    /**
+     * Returns the {@link CommandGroup} that this command is a part of. Will return null if this
+     * {@link ACommand} is not in a group.
+     *
+     * @return the {@link CommandGroup} that this command is a part of (or null if not in group)
+     */
+    public CommandGroup getGroup() {
+        return m_parent;
+    }
+
+    /**
+     * Sets the parent of this command. No actual change is made to the group.
+     *
+     * @param parent the parent
+     * @throws IllegalUseOfCommandException if this {@link ACommand} already is already in a group
+     */
+    synchronized void setParent(CommandGroup parent) {
+        if (m_parent != null) {
+            throw new IllegalUseOfCommandException(
+                    "Can not give command to a command group after already being put in a command group");
+        }
+        lockChanges();
+        m_parent = parent;
+    }
+
+    /**
+     * Returns whether the command has a parent.
+     *
+     * @return true if the command has a parent.
+     */
+    synchronized boolean isParented() {
+        return m_parent != null;
+    }
+    /**
+     * Starts up the command. Gets the command ready to start. <p> Note that the command will
+     * eventually start, however it will not necessarily do so immediately, and may in fact be
+     * canceled before initialize is even called. </p> <p> This may be called from any thread. </p>
+     *
+     * @throws IllegalUseOfCommandException if the command is a part of a CommandGroup
+     */
+    public void start() {
+        lockChanges();
+        if (m_parent != null) {
+            throw new IllegalUseOfCommandException(
+                    "Can not start a command that is a part of a command group");
+        }
+        // NOTE: clear completed before the command is queued, otherwise (when started from another thread) the
+        // command could be run and completed before this is cleared.
+        m_completed = false;
+        m_scheduler.add(this);
+    }
+
+    /**
+     * Called when the command is interrupted by another command that needs one or more of the required subsystems, or
+     * the command has been removed from the list of running commands in a {@link CommandGroup}. This will
+     * call {@link ACommand#interrupted() interrupted()} or {@link ACommand#end() end()}.
+     * <p>
+     * The command is stopped (and whether it was canceled is taken) in one atomic swap before <tt>end()</tt> or
+     * <tt>interrupted()</tt> is called. A {@link ACommand#cancel() cancel()} from another thread either lands before
+     * the swap, and the command is interrupted, or finds the command stopped and does nothing - it never waits for the
+     * callbacks, and never leaves a stopped command marked canceled.
+     */
+    void removed() {
+        boolean canceled = m_state.getAndSet(STOPPED) == CANCELED;
+        if (m_initialized) {
+            if (canceled) {
+                interrupted();
+                _interrupted();
+            } else {
+                end();
+                _end();
+            }
+        }
+        m_initialized = false;
+        m_skippedBeforeRun = false;
+        m_completed = true;
+    }
+    /**
+     * The run method is used internally to actually run the commands.
+     *
+     * @return whether or not the command should stay within the {@link Scheduler}.
+     */
+    boolean run() {
+        if (isCanceled()) {
+            return false;
+        }
+        if ((m_initialized || m_skippedBeforeRun) && ++m_tickCt < m_tickDivider) {
+            // not due on this tick
+            return true;
+        }
+        m_tickCt = 0;
+        m_skippedBeforeRun = false;
+        CommandProfile profile = m_profile;
+        long time = (profile == null) ? 0 : System.nanoTime();
+        if (!m_initialized) {
+            m_initialized = true;
+            startTiming();
+            _initialize();
+            initialize();
+            if (profile != null) {
+                long now = System.nanoTime();
+                profile.getInitialize().record(now - time);
+                time = now;
+            }
+        }
+        _execute();
+        execute();
+        if (profile == null) {
+            return !isFinished();
+        }
+        long now = System.nanoTime();
+        profile.getExecute().record(now - time);
+        boolean finished = isFinished();
+        profile.getIsFinished().record(System.nanoTime() - now);
+        return !finished;
+    }
+
+    /**
+     * Start profiling the execution time of this command (if it is not already being profiled). This is called by
+     * the {@link Scheduler} when the command is added with profiling enabled. The profile is allocated the first
+     * time this is called, and reused after that.
+     */
+    void enableProfiling() {
+        if (m_profile == null) {
+            m_profile = new CommandProfile();
+        }
+    }
+
+    /**
+     * Returns the execution time profile for this command.
+     *
+     * @return the execution time profile for this command, <tt>null</tt> if this command has never been run with
+     * {@link Scheduler#setProfiling(boolean) profiling} enabled.
+     */
+    public CommandProfile getProfile() {
+        return m_profile;
+    }
+
+    /**
+     * A shadow method called before {@link ACommand#initialize() initialize()}.
+     */
+    void _initialize() {
+    }
+
+    /**
+     * Called the first time the command is run. This is an opportunity for the command to record current encoders, reset
+     * encoders, initialize field position, etc.
+     */
+    protected void initialize() {
+
+    }
+
+    /**
+     * A shadow method called before {@link ACommand#execute() execute()}.
+     */
+    void _execute() {
+    }
+    /**
+     * The execute method is called repeatedly until this Command either finishes or is canceled.
+     */
+    protected void execute() {}
+
+    /**
+     * Returns whether this command is finished. If it is, then the command will be removed and {@link
+     * ACommand#end() end()} will be called.
+     *
+     * <p>It may be useful for a team to reference the {@link ACommand#isTimedOut() isTimedOut()}
+     * method for time-sensitive commands.
+     *
+     * <p>Returning false will result in the command never ending automatically. It may still be
+     * cancelled manually or interrupted by another command. Returning true will result in the
+     * command executing once and finishing immediately. We recommend using {@link InstantCommand}
+     * for this.
+     *
+     * @return whether this command is finished.
+     * @see ACommand#isTimedOut() isTimedOut()
+     */
+    protected abstract boolean isFinished();
+
+    /**
+     * Called when the command ended peacefully. This is where you may want to wrap up loose ends,
+     * like shutting off a motor that was being used in the command.
+     */
+    protected void end() {}
+
+    /**
+     * A shadow method called after {@link ACommand#end() end()}.
+     */
+    @SuppressWarnings("MethodName")
+    void _end() {
+    }
+
+    /**
+     * Called when the command ends because somebody called {@link ACommand#cancel() cancel()} or
+     * another command shared the same requirements as this one, and booted it out.
+     *
+     * <p>This is where you may want to wrap up loose ends, like shutting off a motor that was being
+     * used in the command.
+     *
+     * <p>Generally, it is useful to simply call the {@link ACommand#end() end()} method within this
+     * method, as done here.
+     */
+    protected void interrupted() {
+        end();
+    }
+
+    /**
+     * A shadow method called after {@link ACommand#interrupted() interrupted()}.
+     */
+    @SuppressWarnings("MethodName")
+    void _interrupted() {}
+
+    /**
+     * Called to indicate that the timer should start. This is called right before {@link
+     * ACommand#initialize() initialize()} is, inside the {@link ACommand#run() run()} method.
+     */
+    private void startTiming() {
+        m_startTime = m_scheduler.getClock().nanoTime();
+        m_timing = true;
+    }
+
+    /**
+     * Returns the time since this command was initialized (in seconds) on the {@link Scheduler#getClock() scheduler
+     * clock}. This function will work even if there is no specified timeout.
+     *
+     * @return the time since this command was initialized (in seconds).
+     */
+    public final double timeSinceInitialized() {
+        return m_timing ? ((m_scheduler.getClock().nanoTime() - m_startTime) / 1.0e9) : 0;
+    }
+    /**
+     * Returns whether or not the {@link ACommand#timeSinceInitialized() timeSinceInitialized()} method
+     * returns a number which is greater than or equal to the timeout for the command. If there is no
+     * timeout, this will always return false.
+     *
+     * @return whether the time has expired
+     */
+    protected boolean isTimedOut() {
+        return m_timeout != -1 && timeSinceInitialized() >= m_timeout;
+    }
+
+    /**
+     * This is used internally to mark that the command has been started. The lifecycle of a command
+     * is:
+     *
+     * <p>startRunning() is called. run() is called (multiple times potentially) removed() is called.
+     *
+     * <p>It is very important that startRunning and removed be called in order or some assumptions of
+     * the code will be broken.
+     */
+    void startRunning() {
+        m_state.set(RUNNING);
+        m_timing = false;
+    }
+
+    /**
+     * Returns whether or not the command is running. This may return true even if the command has
+     * just been canceled, as it may not have yet called {@link ACommand#interrupted()}. It is false in
+     * {@link ACommand#end() end()} and {@link ACommand#interrupted() interrupted()}.
+     *
+     * @return whether or not the command is running
+     */
+    public boolean isRunning() {
+        return m_state.get() != STOPPED;
+    }
+
+    /**
+     * This will cancel the current command. <p> This will cancel the current command eventually. It
+     * can be called multiple times. And it can be called when the command is not running. If the
+     * command is running though, then the command will be marked as canceled and eventually removed.
+     * </p> <p> A command can not be canceled if it is a part of a command group, you must cancel the
+     * command group instead. </p> <p> This may be called from any thread. </p>
+     *
+     * @throws IllegalUseOfCommandException if this command is a part of a command group
+     */
+    public void cancel() {
+        if (m_parent != null) {
+            throw new IllegalUseOfCommandException("Can not manually cancel a command in a command "
+                    + "group");
+        }
+        _cancel();
+    }
+
+    /**
+     * This works like cancel(), except that it doesn't throw an exception if it is a part of a
+     * command group. Should only be called by the parent command group. Only a running command is marked canceled,
+     * with a compare-and-set against the swap in {@link ACommand#removed()} - so a cancel from another thread cannot
+     * mark the command canceled after the scheduler has removed it, which would make the next run of the command look
+     * canceled.
+     */
+    @SuppressWarnings("MethodName")
+    void _cancel() {
+        m_state.compareAndSet(RUNNING, CANCELED);
+    }
+
+    /**
+     * Returns whether or not this has been canceled.
+     *
+     * @return whether or not this has been canceled
+     */
+    public boolean isCanceled() {
+        return m_state.get() == CANCELED;
+    }
+
+    /**
+     * Whether or not this command has completed running.
+     *
+     * @return whether or not this command has completed running.
+     */
+    public boolean isCompleted() {
+        return m_completed;
+    }
+
+    /**
+     * Returns whether or not this command can be interrupted.
+     *
+     * @return whether or not this command can be interrupted
+     */
+    public boolean isInterruptible() {
+        return m_interruptible;
+    }
+
+    /**
+     * Sets whether or not this command can be interrupted.
+     *
+     * @param interruptible whether or not this command can be interrupted
+     */
+    protected void setInterruptible(boolean interruptible) {
+        m_interruptible = interruptible;
+    }
+
+
+}
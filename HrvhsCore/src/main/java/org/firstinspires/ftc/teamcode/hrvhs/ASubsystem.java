@@ -0,0 +1,100 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+public abstract class ASubsystem {
+    // Every subsystem should have a name so we can use it for messaging.
+    private String m_name;
+    // The default command for this subsystem
+    private ACommand m_defaultCommand = null;
+    // The current command.
+    private ACommand m_currentCommand;
+    // The dense index assigned to this subsystem when it is registered with the {@link Scheduler}. This is the bit
+    //  that represents this subsystem in the {@link RequirementSet} of a command.
+    int m_index = -1;
+
+    // NOTE: subsystems register with the scheduler for the constructing thread, which is the scheduler of the op mode
+    //  being constructed when the subsystem is an op mode field.
+    protected ASubsystem(String name) {
+        m_name = name;
+        Scheduler.getInstance().registerSubsystem(this);
+    }
+
+    protected ASubsystem() {
+        m_name = getClass().getSimpleName();
+        Scheduler.getInstance().registerSubsystem(this);
+    }
+
+    public String getName() {
+        return m_name;
+    }
+
+    public void setDefaultCommand(ACommand defaultCommand) {
+        m_defaultCommand = defaultCommand;
+    }
+
+    public ACommand getDefaultCommand() {
+        return m_defaultCommand;
+    }
+
+    /**
+     * Returns the dense index assigned to this subsystem by the {@link Scheduler} when it was registered.
+     *
+     * @return the index of this subsystem.
+     */
+    int getIndex() {
+        return m_index;
+    }
+
+    /**
+     * Called in the AHrvhsOpMode.runOpMode before the start (after you push init on the robot drive phone). Override this
+     * for initialization that requires the hardware map to be setup and available.
+     *
+     * @param opMode (not null) The op mode - on the robot this is an <tt>AHrvhsOpMode</tt>, which gives you access to
+     *               the hardware map.
+     */
+    public void preStartInitialize(IHrvhsOpMode opMode) {}
+
+    /**
+     * Called in the AHrvhsOpMode.runOpMode immediately after the start (after you push the run on the robot drive phone).
+     * Override this for initialization that should be postponed until start (like gyro initialization).
+     */
+    public void postStartInitialize() {}
+
+    /**
+     * Called by the {@link Scheduler} at the start of every control loop, before any command is run. Override this to
+     * read all the sensors of this subsystem once into cached fields, and have the getters used by commands return
+     * the cached values. This replaces sensor reads scattered through the commands (each of which is a separate
+     * hardware transaction) with one read phase per loop.
+     */
+    public void readInputs() {}
+
+    /**
+     * Called by the {@link Scheduler} at the end of every control loop, after all the commands have run. Override this
+     * to write the actuator values the commands have set to the hardware, so there is one write phase per loop
+     * rather than writes scattered through the commands.
+     */
+    public void writeOutputs() {}
+
+    /**
+     * Called in the AHrvhsOpMode.runOpMode when the op mode is stopped. Override this to stop anything (like a background
+     * sampling thread) that the subsystem started.
+     */
+    public void stop() {}
+
+    /**
+     * Sets the current command.
+     *
+     * @param command the new current command
+     */
+    void setCurrentCommand(ACommand command) {
+        m_currentCommand = command;
+    }
+
+    /**
+     * Returns the command which currently claims this subsystem.
+     *
+     * @return the command which currently claims this subsystem
+     */
+    public ACommand getCurrentCommand() {
+        return m_currentCommand;
+    }
+}
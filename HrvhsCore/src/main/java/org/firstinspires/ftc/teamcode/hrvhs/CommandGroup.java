@@ -1,7 +1,6 @@
 package org.firstinspires.ftc.teamcode.hrvhs;
 
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.Iterator;
 
 import static java.util.Objects.requireNonNull;
@@ -51,7 +50,7 @@ public class CommandGroup extends ACommand {
      * @param name The name of the command for logging/debugging. If <tt>null</tt> the class name
      *             is used as the name of the command
      */
-    public CommandGroup(AHrvhsOpMode opMode, String name) {
+    public CommandGroup(IHrvhsOpMode opMode, String name) {
         super(opMode, name);
     }
 
@@ -79,9 +78,7 @@ public class CommandGroup extends ACommand {
         command.setParent(this);
 
         m_commands.add(new Entry(command, Entry.IN_SEQUENCE));
-        for (Iterator<ASubsystem> e = command.getRequirements(); e.hasNext(); ) {
-            requires(e.next());
-        }
+        requiresAll(command);
     }
 
     /**
@@ -117,9 +114,7 @@ public class CommandGroup extends ACommand {
         command.setParent(this);
 
         m_commands.add(new Entry(command, Entry.IN_SEQUENCE, timeout));
-        for (Iterator<ASubsystem> e = command.getRequirements(); e.hasNext(); ) {
-            requires(e.next());
-        }
+        requiresAll(command);
     }
 
     /**
@@ -150,9 +145,7 @@ public class CommandGroup extends ACommand {
         command.setParent(this);
 
         m_commands.add(new Entry(command, Entry.BRANCH_CHILD));
-        for (Iterator<ASubsystem> e = command.getRequirements(); e.hasNext(); ) {
-            requires(e.next());
-        }
+        requiresAll(command);
     }
 
     /**
@@ -191,8 +184,33 @@ public class CommandGroup extends ACommand {
         command.setParent(this);
 
         m_commands.add(new Entry(command, Entry.BRANCH_CHILD, timeout));
-        for (Iterator<ASubsystem> e = command.getRequirements(); e.hasNext(); ) {
-            requires(e.next());
+        requiresAll(command);
+    }
+
+    @Override
+    long getFastestPeriod(long idealLoopInterval) {
+        long fastest = super.getFastestPeriod(idealLoopInterval);
+        for (int i = 0; i < m_commands.size(); i++) {
+            fastest = Math.min(fastest, m_commands.get(i).m_command.getFastestPeriod(idealLoopInterval));
+        }
+        return fastest;
+    }
+
+    @Override
+    void setTickInterval(long tickInterval, long idealLoopInterval) {
+        super.setTickInterval(tickInterval, idealLoopInterval);
+        // the commands in the group are only run when the group runs, so they tick at the group interval
+        long groupTickInterval = tickInterval * getTickDivider();
+        for (int i = 0; i < m_commands.size(); i++) {
+            m_commands.get(i).m_command.setTickInterval(groupTickInterval, idealLoopInterval);
+        }
+    }
+
+    @Override
+    void enableProfiling() {
+        super.enableProfiling();
+        for (int i = 0; i < m_commands.size(); i++) {
+            m_commands.get(i).m_command.enableProfiling();
         }
     }
 
@@ -357,15 +375,10 @@ public class CommandGroup extends ACommand {
     private void cancelConflicts(ACommand command) {
         for (int i = 0; i < m_children.size(); i++) {
             ACommand child = m_children.get(i).m_command;
-
-            for (Iterator<ASubsystem> e = command.getRequirements(); e.hasNext(); ) {
-                ASubsystem requirement = e.next();
-                if (child.doesRequire(requirement)) {
-                    child._cancel();
-                    child.removed();
-                    m_children.remove(i--);
-                    break;
-                }
+            if (child.getRequirements().intersects(command.getRequirements())) {
+                child._cancel();
+                child.removed();
+                m_children.remove(i--);
             }
         }
     }
@@ -0,0 +1,48 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * The execution time profile of a command - histograms of the time spent in the <tt>initialize()</tt>,
+ * <tt>execute()</tt> and <tt>isFinished()</tt> methods of the command. A command is only profiled when
+ * {@link Scheduler#setProfiling(boolean) profiling} is enabled. The profile is created the first time the command is
+ * added to the {@link Scheduler} with profiling enabled, and is kept (and reused) for the life of the command.
+ *
+ * @see ACommand#getProfile()
+ * @see LogLinearHistogram
+ */
+public final class CommandProfile {
+
+    private final LogLinearHistogram m_initialize = new LogLinearHistogram();
+    private final LogLinearHistogram m_execute = new LogLinearHistogram();
+    private final LogLinearHistogram m_isFinished = new LogLinearHistogram();
+
+    /**
+     * @return The histogram of time spent in <tt>initialize()</tt>, in nanoseconds.
+     */
+    public LogLinearHistogram getInitialize() {
+        return m_initialize;
+    }
+
+    /**
+     * @return The histogram of time spent in <tt>execute()</tt>, in nanoseconds. For a {@link CommandGroup} this
+     * includes the time spent running the commands in the group.
+     */
+    public LogLinearHistogram getExecute() {
+        return m_execute;
+    }
+
+    /**
+     * @return The histogram of time spent in <tt>isFinished()</tt>, in nanoseconds.
+     */
+    public LogLinearHistogram getIsFinished() {
+        return m_isFinished;
+    }
+
+    /**
+     * Clear all the recorded times.
+     */
+    public void reset() {
+        m_initialize.reset();
+        m_execute.reset();
+        m_isFinished.reset();
+    }
+}
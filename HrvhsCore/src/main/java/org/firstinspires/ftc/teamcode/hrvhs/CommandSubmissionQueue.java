@@ -0,0 +1,66 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This is the queue of commands waiting to be added to the {@link Scheduler}. Any number of threads may
+ * {@link CommandSubmissionQueue#submit(ACommand) submit()} commands (this is what {@link ACommand#start()} does), but only
+ * the control thread running the {@link Scheduler} may {@link CommandSubmissionQueue#poll() poll()} them.
+ * <p>
+ * There are no locks. Submitted commands are pushed onto a stack with a compare-and-set of the head, and the
+ * control thread takes the whole stack with a single swap and reverses it so commands are added in the order they were
+ * submitted. The links are fields of the command, so submitting does not allocate. A command that is already waiting
+ * in the queue is not submitted again - adding a command twice in the same cycle would do nothing anyway.
+ */
+final class CommandSubmissionQueue {
+
+    // The most recently submitted command, whose m_nextSubmitted links to the one submitted before it.
+    private final AtomicReference<ACommand> m_submitted = new AtomicReference<>();
+    // The commands taken from the submitted stack in submission order. Only touched by the control thread.
+    private ACommand m_draining = null;
+
+    /**
+     * Submit a command to be added to the {@link Scheduler}. This may be called from any thread.
+     *
+     * @param command (not null) The command to be added.
+     */
+    void submit(ACommand command) {
+        if (!command.m_submitted.compareAndSet(false, true)) {
+            // already waiting to be added
+            return;
+        }
+        ACommand head;
+        do {
+            head = m_submitted.get();
+            command.m_nextSubmitted = head;
+        } while (!m_submitted.compareAndSet(head, command));
+    }
+
+    /**
+     * Get the next command to be added to the {@link Scheduler}. This must only be called from the control thread. Commands
+     * submitted while the queue is being polled will be returned by later calls.
+     *
+     * @return The next command to be added, <tt>null</tt> if there are no commands waiting.
+     */
+    ACommand poll() {
+        if (m_draining == null) {
+            // take everything that has been submitted and reverse it into submission order
+            ACommand command = m_submitted.getAndSet(null);
+            while (command != null) {
+                ACommand next = command.m_nextSubmitted;
+                command.m_nextSubmitted = m_draining;
+                m_draining = command;
+                command = next;
+            }
+            if (m_draining == null) {
+                return null;
+            }
+        }
+        ACommand command = m_draining;
+        m_draining = command.m_nextSubmitted;
+        command.m_nextSubmitted = null;
+        // after this the command can be submitted again
+        command.m_submitted.set(false);
+        return command;
+    }
+}
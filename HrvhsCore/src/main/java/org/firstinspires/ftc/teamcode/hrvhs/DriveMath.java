@@ -0,0 +1,141 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * The hardware-independent math of a mecanum drive - mixing the drive inputs into wheel powers, the ramp-in and
+ * ramp-out of autonomous moves, and stick conditioning. This is used by the <tt>MecanumDriveSubsystem</tt> and the
+ * drive commands, and is kept here (with no dependency on the FTC SDK) so it can be tested and benchmarked on a plain
+ * JVM.
+ * <p>
+ * The wheel powers are returned in an array indexed by {@link DriveMath#FRONT_LEFT}, {@link DriveMath#FRONT_RIGHT},
+ * {@link DriveMath#RIGHT_REAR}, and {@link DriveMath#LEFT_REAR}, which the caller provides so nothing is allocated
+ * in the control loop.
+ */
+public final class DriveMath {
+
+    public static final int FRONT_LEFT = 0;
+    public static final int FRONT_RIGHT = 1;
+    public static final int RIGHT_REAR = 2;
+    public static final int LEFT_REAR = 3;
+
+    private DriveMath() {
+    }
+
+    /**
+     * Mix tank drive inputs into wheel powers. If the sum of a side and the sideways power is more than 1.0, all the
+     * powers are scaled down by the same amount so the direction of motion is kept.
+     *
+     * @param left     (double) The left side power, -1.0 to 1.0.
+     * @param right    (double) The right side power, -1.0 to 1.0.
+     * @param sideways (double) The sideways power, -1.0 to 1.0, positive is to the right.
+     * @param powers   (double[4], not null) Set to the wheel powers.
+     */
+    public static void tankPower(double left, double right, double sideways, double[] powers) {
+        // figure out if the right and left values need to be scaled. If you have full X and full Y, then the sum
+        // could be greater than 1.
+        double scale = 1.0;
+        double maxLeft = Math.abs(left) + Math.abs(sideways);
+        double maxRight = Math.abs(right) + Math.abs(sideways);
+        if (maxLeft > maxRight) {
+            if (maxLeft > 1.0) {
+                scale = 1.0 / maxLeft;
+            }
+        } else {
+            if (maxRight > 1.0) {
+                scale = 1.0 / maxRight;
+            }
+        }
+        // Now apply the scaled power.
+        powers[FRONT_RIGHT] = scale * (right - sideways);
+        powers[RIGHT_REAR] = scale * (right + sideways);
+        powers[FRONT_LEFT] = scale * (left + sideways);
+        powers[LEFT_REAR] = scale * (left - sideways);
+    }
+
+    /**
+     * Mix arcade drive inputs into wheel powers. If the sum of the absolute values of the inputs is more than 1.0,
+     * all the powers are scaled down by the same amount so the direction of motion is kept.
+     *
+     * @param forward  (double) The forward power, -1.0 to 1.0.
+     * @param sideways (double) The sideways power, -1.0 to 1.0, positive is to the right.
+     * @param rotate   (double) The rotation power, -1.0 to 1.0, positive is clockwise.
+     * @param powers   (double[4], not null) Set to the wheel powers.
+     */
+    public static void arcadePower(double forward, double sideways, double rotate, double[] powers) {
+        // OK, so the maximum-minimum is the sum of the absolute values of forward, side, and turn
+        double scale = 1.0;
+        double max = Math.abs(forward) + Math.abs(sideways) + Math.abs(rotate);
+        if (max > 1.0) {
+            scale = 1.0 / max;
+        }
+        // Compute the power for each of the motors
+        powers[FRONT_RIGHT] = scale * (forward - sideways - rotate);
+        powers[RIGHT_REAR] = scale * (forward + sideways - rotate);
+        powers[FRONT_LEFT] = scale * (forward + sideways + rotate);
+        powers[LEFT_REAR] = scale * (forward - sideways + rotate);
+    }
+
+    /**
+     * This is a ramp-in and ramp-out generator function that returns a power
+     * for the current position in the move. This method assumes the start
+     * position is 0, end is the target, and current is the current position.
+     *
+     * @param current (double) The current position in the range 0 to target.
+     * @param target (double) The target final position.
+     * @param mtrAccelMin (double) The minimum acceleration motor speed - to
+     *  assure the robot gets to the target.
+     * @param mtrDecelMin (double) The minimum deceleration motor speed - to
+     *  assure the robot gets to the target.
+     * @param accel (double) The acceleration distance with power at current=0
+     *  starting at mtr_min and power at current=accel reaching 1.0.
+     * @param decel (double) The deceleration distance with power at
+     *  current=target-decel being 1.0 and power at current=target being mtr_min.
+     * @return (double) Returns the power that will be in the range
+     *  of 0.0 to 1.0
+     */
+    public static double powerAccelDecel(double current, double target,
+                                         double mtrAccelMin, double mtrDecelMin,
+                                         double accel, double decel) {
+        if (current <= 0.0) {
+            // Not yet at the expected start. This could happen if there was some robot
+            // motion (was hit or coasting) that confused the sensor/logic. In this
+            // case, move at the minimum power until the caller knows what's happening.
+            return mtrAccelMin;
+        } else if (current >= target) {
+            // Past the expected target. This could happen if there was some robot motion
+            // (was hit or coasting) that confused the sensor/logic. In this case stop.
+            return 0.0;
+        }
+        double mtr_tmp = 1.0;
+        if (current < accel) {
+            // in the acceleration zone
+            mtr_tmp = mtrAccelMin + (1.0 - mtrAccelMin) * (current / accel);
+        }
+        if (current > target - decel) {
+            // in the deceleration zone
+            double mtr_tmp_2 = mtrDecelMin +
+                    (1.0 - mtrDecelMin) * ((target - current) / decel);
+            if (mtr_tmp_2 < mtr_tmp) {
+                // Could also be in the acceleration zone - in this case the deceleration
+                // value is less than the acceleration or the 1.0 default.
+                mtr_tmp = mtr_tmp_2;
+            }
+        }
+        return mtr_tmp;
+    }
+
+    /**
+     * Condition a stick value - values inside the dead band are 0.0, and the rest of the range is rescaled to 0.0 to
+     * 1.0 and raised to the sensitivity power, so there is finer control near the center.
+     *
+     * @param stickValue  (double) The raw stick value, -1.0 to 1.0.
+     * @param deadBand    (double) The dead band around the center.
+     * @param sensitivity (double) The sensitivity exponent, 1.0 is linear.
+     * @return (double) The conditioned value, -1.0 to 1.0.
+     */
+    public static double conditionedStickValue(double stickValue, double deadBand, double sensitivity) {
+        if (Math.abs(stickValue) <= deadBand) return 0.0;
+        double sign = (stickValue < 0.0) ? -1.0 : 1.0;
+        double deadbandCorrected = (Math.abs(stickValue) - deadBand) / (1.0 - deadBand);
+        return sign * Math.pow(deadbandCorrected, sensitivity);
+    }
+}
@@ -0,0 +1,44 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * What the command framework needs from an op mode. On the robot this is <tt>AHrvhsOpMode</tt>, which is a
+ * <tt>LinearOpMode</tt> with the hardware map, gamepads, and telemetry. Keeping the framework behind this interface
+ * keeps it free of the FTC SDK, so it builds and runs on a plain JVM.
+ */
+public interface IHrvhsOpMode {
+
+    /**
+     * @return The scheduler that runs this op mode's subsystems and commands.
+     */
+    Scheduler getScheduler();
+
+    /**
+     * @return The 'ideal' loop interval in milliseconds - the period of commands that do not set a period.
+     */
+    long getIdealLoopInterval();
+
+    /**
+     * Add a telemetry line that is retained and updated at the telemetry rate.
+     *
+     * @param caption (not null) The caption of the line.
+     * @return The slot to publish the value of the line to.
+     */
+    int addTelemetrySlot(String caption);
+
+    /**
+     * Publish the value of a telemetry line.
+     *
+     * @param slot  The slot returned by {@link IHrvhsOpMode#addTelemetrySlot(String)}.
+     * @param value (not null) The value.
+     */
+    void publishTelemetry(int slot, String value);
+
+    /**
+     * Add a telemetry line to the next telemetry update only.
+     *
+     * @param caption (not null) The caption of the line.
+     * @param format  (not null) The format of the value.
+     * @param args    The arguments for the format.
+     */
+    void addTelemetry(String caption, String format, Object... args);
+}
@@ -0,0 +1,155 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * A fixed-size histogram of time spans in nanoseconds. The buckets are log-linear: every power of two is split into
+ * 8 linear sub-buckets, so any recorded value is known to within 12.5%. Values below 2<sup>37</sup>ns (over 2
+ * minutes) are resolved; anything larger is counted in an overflow bucket of its own. All of the storage is allocated
+ * when the histogram is created, so recording and querying never allocate and are cheap enough to do every control
+ * loop.
+ * <p>
+ * This is not thread-safe, it is expected that the histogram is recorded and queried on the control thread.
+ */
+public final class LogLinearHistogram {
+
+    // The number of linear sub-buckets in each power of two is 2^SUB_BUCKET_BITS.
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // The largest power of two that is resolved.
+    private static final int MAX_EXPONENT = 36;
+    // The buckets of the resolved values, then the overflow bucket - the last resolved bucket ends at
+    //  2^(MAX_EXPONENT+1)-1, and the overflow bucket starts at 2^(MAX_EXPONENT+1).
+    private static final int OVERFLOW_BUCKET = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final int BUCKETS = OVERFLOW_BUCKET + 1;
+
+    private final int[] m_counts = new int[BUCKETS];
+    private long m_count = 0;
+    private long m_total = 0;
+    private long m_min = Long.MAX_VALUE;
+    private long m_max = 0;
+
+    /**
+     * Record a time span.
+     *
+     * @param nanos The time span in nanoseconds. Negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        m_counts[bucketIndex(nanos)]++;
+        m_count++;
+        m_total += nanos;
+        if (nanos < m_min) {
+            m_min = nanos;
+        }
+        if (nanos > m_max) {
+            m_max = nanos;
+        }
+    }
+
+    /**
+     * Add all of the values recorded in another histogram to this one, i.e. to combine histograms recorded on
+     * different threads once they are finished.
+     *
+     * @param other (not null) The histogram to be added.
+     */
+    public void add(LogLinearHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            m_counts[i] += other.m_counts[i];
+        }
+        m_count += other.m_count;
+        m_total += other.m_total;
+        m_min = Math.min(m_min, other.m_min);
+        m_max = Math.max(m_max, other.m_max);
+    }
+
+    /**
+     * Clear all of the recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            m_counts[i] = 0;
+        }
+        m_count = 0;
+        m_total = 0;
+        m_min = Long.MAX_VALUE;
+        m_max = 0;
+    }
+
+    /**
+     * @return The number of values that have been recorded.
+     */
+    public long getCount() {
+        return m_count;
+    }
+
+    /**
+     * @return The smallest value recorded in nanoseconds, 0 if nothing has been recorded.
+     */
+    public long getMin() {
+        return m_count == 0 ? 0 : m_min;
+    }
+
+    /**
+     * @return The largest value recorded in nanoseconds, 0 if nothing has been recorded.
+     */
+    public long getMax() {
+        return m_max;
+    }
+
+    /**
+     * @return The mean of the recorded values in nanoseconds, 0 if nothing has been recorded.
+     */
+    public double getMean() {
+        return m_count == 0 ? 0.0 : (double) m_total / m_count;
+    }
+
+    /**
+     * Get the value at a percentile of the recorded values. The value returned is the upper bound of the bucket the
+     * percentile falls in (but never more than the largest recorded value).
+     *
+     * @param percentile The percentile in the range 0.0 to 100.0, i.e. 50.0 for the median, 99.0 for p99.
+     * @return The value at the percentile in nanoseconds, 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (m_count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil((percentile / 100.0) * m_count);
+        if (target < 1) {
+            target = 1;
+        }
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += m_counts[i];
+            if (cumulative >= target) {
+                return Math.min(bucketUpperBound(i), m_max);
+            }
+        }
+        return m_max;
+    }
+
+    private static int bucketIndex(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return OVERFLOW_BUCKET;
+        }
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        if (index == OVERFLOW_BUCKET) {
+            return Long.MAX_VALUE;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,124 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * The control loop pacer. The heading-hold gain (and anything else integrating or differentiating over a tick) is
+ * tuned assuming a fixed <tt>dt</tt>, so the loop should start every tick as close to the same interval as possible.
+ * The waiting is done by the {@link AClock} - on the robot the {@link RealTimeClock} uses <tt>System.nanoTime()</tt>
+ * and sleeps coarsely, then parks or spins for the last sub-millisecond.
+ * <p>
+ * The deadlines are a fixed-rate schedule, so an early or late wake-up does not shift the following ticks. If a tick
+ * overruns its deadline the next tick starts immediately, it is counted as an overrun, and the schedule restarts from
+ * there (rather than running a burst of short ticks to catch up).
+ * <p>
+ * The measured period of every tick is kept, and the jitter (the difference between the measured and the target
+ * period) is recorded in a preallocated {@link LogLinearHistogram}, so the statistics cost nothing to keep.
+ * <p>
+ * This is not thread-safe, it is expected that it is only used on the control thread.
+ */
+public final class LoopTimer {
+
+    private final AClock m_clock;
+    private final LogLinearHistogram m_jitter = new LogLinearHistogram();
+
+    private long m_deadline;            // the clock time the next tick should start
+    private long m_lastTick;            // the clock time the last tick started
+    private long m_firstTick;           // the clock time the first tick started
+    private long m_lastPeriod = 0;      // the measured period of the last tick in nanoseconds
+    private long m_tickCt = 0;
+    private long m_overrunCt = 0;
+
+    /**
+     * Instantiate the LoopTimer.
+     *
+     * @param clock (not null) The clock that times and paces the loop, normally the {@link Scheduler#getClock()
+     *              scheduler clock}.
+     */
+    public LoopTimer(AClock clock) {
+        m_clock = clock;
+    }
+
+    /**
+     * Start the timer, the current time is the start of the first tick.
+     *
+     * @param periodMillis The period of the first tick in milliseconds.
+     */
+    public void start(long periodMillis) {
+        long now = m_clock.nanoTime();
+        m_firstTick = now;
+        m_lastTick = now;
+        m_deadline = now + periodMillis * 1000000L;
+        m_tickCt = 0;
+        m_overrunCt = 0;
+        m_lastPeriod = 0;
+        m_jitter.reset();
+    }
+
+    /**
+     * Wait for the start of the next tick, and record the period of the tick that just finished.
+     *
+     * @param periodMillis The period of the next tick in milliseconds - the period may change from tick to tick.
+     * @throws InterruptedException Thrown if the thread was interrupted while waiting, which is how the op mode is
+     *                              stopped.
+     */
+    public void waitForNextTick(long periodMillis) throws InterruptedException {
+        long target = m_deadline - m_lastTick;
+        boolean overrun = m_deadline - m_clock.nanoTime() < 0;
+        if (overrun) {
+            m_overrunCt++;
+        } else {
+            m_clock.sleepUntil(m_deadline);
+        }
+        long now = m_clock.nanoTime();
+        m_lastPeriod = now - m_lastTick;
+        m_jitter.record(Math.abs(m_lastPeriod - target));
+        m_tickCt++;
+        m_lastTick = now;
+        // fixed rate unless we overran, in which case restart the schedule from now
+        m_deadline = (overrun ? now : m_deadline) + periodMillis * 1000000L;
+    }
+
+    /**
+     * @return The number of ticks completed.
+     */
+    public long getTickCount() {
+        return m_tickCt;
+    }
+
+    /**
+     * @return The number of ticks whose work ran past the deadline for the next tick.
+     */
+    public long getOverrunCount() {
+        return m_overrunCt;
+    }
+
+    /**
+     * @return The measured period of the last tick in milliseconds.
+     */
+    public double getLastPeriod() {
+        return m_lastPeriod / 1.0e6;
+    }
+
+    /**
+     * @return The mean measured period of all the ticks in milliseconds.
+     */
+    public double getMeanPeriod() {
+        return (m_tickCt == 0) ? 0.0 : (m_lastTick - m_firstTick) / 1.0e6 / m_tickCt;
+    }
+
+    /**
+     * @return The histogram of the jitter - the absolute difference between the measured and target period of each
+     * tick - in nanoseconds.
+     */
+    public LogLinearHistogram getJitter() {
+        return m_jitter;
+    }
+
+    /**
+     * @return A one line summary of the loop timing for the logs.
+     */
+    public String getSummary() {
+        return String.format("ticks: %d, mean period: %.3f ms, overruns: %d, jitter min/p99/max: %.3f/%.3f/%.3f ms",
+                m_tickCt, getMeanPeriod(), m_overrunCt, (m_tickCt == 0) ? 0.0 : m_jitter.getMin() / 1.0e6,
+                m_jitter.getPercentile(99.0) / 1.0e6, m_jitter.getMax() / 1.0e6);
+    }
+}
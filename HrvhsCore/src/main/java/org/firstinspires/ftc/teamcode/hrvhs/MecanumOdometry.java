@@ -0,0 +1,231 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * Mecanum drive odometry - the field pose integrated from the wheel encoders and the heading. Every
+ * {@link MecanumOdometry#update(long, int, int, int, int, double) update} takes the change in the four wheel encoders
+ * since the last update, converts it to a robot-relative forward and sideways move with the forward kinematics of
+ * the mecanum drive, and rotates that onto the field at the average of the last and current heading. The heading is
+ * not computed from the wheels (which slip when turning); it is given, normally from the IMU.
+ * <p>
+ * The wheel mixing is the inverse of {@link DriveMath#arcadePower(double, double, double, double[])}, so the forward
+ * move is the average of all four wheels, and the sideways move is the front-left and right-rear (which roll forward
+ * when moving right) less the front-right and left-rear.
+ * <p>
+ * The pose is published through a {@link SeqLockBuffer}. The update is called by one thread (the control thread), it
+ * is a few dozen arithmetic operations and allocates nothing, so it can run on every tick. Any thread can read the
+ * latest pose without locking - the control thread with {@link MecanumOdometry#readPose()} and the getters, which
+ * allocate nothing, and other threads with {@link MecanumOdometry#getPose()}, which returns an immutable
+ * {@link Pose}.
+ */
+public final class MecanumOdometry {
+
+    // The indices of the values in the published buffer.
+    private static final int X = 0;
+    private static final int Y = 1;
+    private static final int HEADING = 2;
+    private static final int VELOCITY_X = 3;
+    private static final int VELOCITY_Y = 4;
+    private static final int ANGULAR_RATE = 5;
+    private static final int TIMESTAMP = 6;
+    private static final int SIZE = 7;
+
+    private final double m_ticsPerInchForward;
+    private final double m_ticsPerInchSideways;
+    private final SeqLockBuffer m_published = new SeqLockBuffer(SIZE);
+    // The reader scratch buffer - only touched by the thread calling readPose() (normally the control thread).
+    private final long[] m_read = new long[SIZE];
+
+    // The integration state - only touched by the updating thread.
+    private boolean m_started = false;
+    private int m_lastFL;
+    private int m_lastFR;
+    private int m_lastRR;
+    private int m_lastLR;
+    private double m_lastHeading;       // the heading given to the last update
+    private long m_lastTimestamp;
+    private double m_startHeading = 0.0;    // the field heading at the first update
+    private double m_headingOffset;     // the field heading minus the given heading
+    private double m_x;
+    private double m_y;
+    private long m_updateCt = 0;
+
+    /**
+     * Instantiate the MecanumOdometry.
+     *
+     * @param ticsPerInchForward  (double) The encoder tics per inch of forward motion.
+     * @param ticsPerInchSideways (double) The encoder tics per inch of sideways motion.
+     */
+    public MecanumOdometry(double ticsPerInchForward, double ticsPerInchSideways) {
+        m_ticsPerInchForward = ticsPerInchForward;
+        m_ticsPerInchSideways = ticsPerInchSideways;
+        lclPublish(0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0L);
+    }
+
+    /**
+     * Set the pose. The next update is taken as the start, so this may be called before the first update or
+     * between updates. Only the updating thread may call this.
+     *
+     * @param x       (double) The x position in inches.
+     * @param y       (double) The y position in inches.
+     * @param heading (double) The field heading in degrees, clockwise positive.
+     */
+    public void setPose(double x, double y, double heading) {
+        m_x = x;
+        m_y = y;
+        if (m_started) {
+            // the heading given to the updates is unchanged, only the field heading it maps to
+            m_headingOffset = heading - m_lastHeading;
+            lclPublish(m_x, m_y, heading, 0.0, 0.0, 0.0, m_lastTimestamp);
+        } else {
+            m_startHeading = heading;
+            lclPublish(m_x, m_y, heading, 0.0, 0.0, 0.0, 0L);
+        }
+    }
+
+    /**
+     * Update the pose. The first update after instantiation only records the encoders and the heading, the
+     * following updates integrate the change.
+     *
+     * @param timestamp (long) The clock time of the encoder and heading readings in nanoseconds.
+     * @param fl        (int) The front left encoder position.
+     * @param fr        (int) The front right encoder position.
+     * @param rr        (int) The right rear encoder position.
+     * @param lr        (int) The left rear encoder position.
+     * @param heading   (double) The heading in degrees, clockwise positive, continuous (not wrapped at 180).
+     */
+    public void update(long timestamp, int fl, int fr, int rr, int lr, double heading) {
+        if (!m_started) {
+            lclRecord(timestamp, fl, fr, rr, lr, heading);
+            m_headingOffset = m_startHeading - heading;
+            m_started = true;
+            lclPublish(m_x, m_y, m_startHeading, 0.0, 0.0, 0.0, timestamp);
+            return;
+        }
+        int dFL = fl - m_lastFL;
+        int dFR = fr - m_lastFR;
+        int dRR = rr - m_lastRR;
+        int dLR = lr - m_lastLR;
+        double forward = (dFL + dFR + dRR + dLR) / (4.0 * m_ticsPerInchForward);
+        double sideways = (dFL - dFR + dRR - dLR) / (4.0 * m_ticsPerInchSideways);
+        // rotate onto the field at the heading half way through the move
+        double dHeading = heading - m_lastHeading;
+        double midHeading = Math.toRadians(m_headingOffset + m_lastHeading + dHeading / 2.0);
+        double cos = Math.cos(midHeading);
+        double sin = Math.sin(midHeading);
+        double dx = forward * cos - sideways * sin;
+        double dy = forward * sin + sideways * cos;
+        m_x += dx;
+        m_y += dy;
+        long dt = timestamp - m_lastTimestamp;
+        double perSecond = (dt > 0) ? 1.0e9 / dt : 0.0;
+        lclRecord(timestamp, fl, fr, rr, lr, heading);
+        m_updateCt++;
+        lclPublish(m_x, m_y, m_headingOffset + heading, dx * perSecond, dy * perSecond, dHeading * perSecond,
+                timestamp);
+    }
+
+    private void lclRecord(long timestamp, int fl, int fr, int rr, int lr, double heading) {
+        m_lastFL = fl;
+        m_lastFR = fr;
+        m_lastRR = rr;
+        m_lastLR = lr;
+        m_lastHeading = heading;
+        m_lastTimestamp = timestamp;
+    }
+
+    private void lclPublish(double x, double y, double heading, double velocityX, double velocityY,
+                            double angularRate, long timestamp) {
+        m_published.beginWrite();
+        m_published.set(X, x);
+        m_published.set(Y, y);
+        m_published.set(HEADING, heading);
+        m_published.set(VELOCITY_X, velocityX);
+        m_published.set(VELOCITY_Y, velocityY);
+        m_published.set(ANGULAR_RATE, angularRate);
+        m_published.set(TIMESTAMP, timestamp);
+        m_published.endWrite();
+    }
+
+    /**
+     * @return (long) The number of updates that have integrated a move.
+     */
+    public long getUpdateCount() {
+        return m_updateCt;
+    }
+
+    /**
+     * Get the latest published pose. This may be called from any thread, and never waits for the updating thread.
+     *
+     * @return (Pose) The latest pose.
+     */
+    public Pose getPose() {
+        long[] values = new long[SIZE];
+        m_published.read(values);
+        return new Pose(SeqLockBuffer.toDouble(values[X]), SeqLockBuffer.toDouble(values[Y]),
+                SeqLockBuffer.toDouble(values[HEADING]), SeqLockBuffer.toDouble(values[VELOCITY_X]),
+                SeqLockBuffer.toDouble(values[VELOCITY_Y]), SeqLockBuffer.toDouble(values[ANGULAR_RATE]),
+                values[TIMESTAMP]);
+    }
+
+    /**
+     * Read the latest published pose without allocating. It must only be called from one thread (normally the
+     * control thread), after which the getters return the values of that pose.
+     */
+    public void readPose() {
+        m_published.read(m_read);
+    }
+
+    /**
+     * @return (double) The x (forward) position in inches of the pose last read with
+     * {@link MecanumOdometry#readPose()}.
+     */
+    public double getX() {
+        return SeqLockBuffer.toDouble(m_read[X]);
+    }
+
+    /**
+     * @return (double) The y (right) position in inches of the pose last read with
+     * {@link MecanumOdometry#readPose()}.
+     */
+    public double getY() {
+        return SeqLockBuffer.toDouble(m_read[Y]);
+    }
+
+    /**
+     * @return (double) The field heading in degrees of the pose last read with {@link MecanumOdometry#readPose()}.
+     */
+    public double getHeading() {
+        return SeqLockBuffer.toDouble(m_read[HEADING]);
+    }
+
+    /**
+     * @return (double) The x velocity in inches per second of the pose last read with
+     * {@link MecanumOdometry#readPose()}.
+     */
+    public double getVelocityX() {
+        return SeqLockBuffer.toDouble(m_read[VELOCITY_X]);
+    }
+
+    /**
+     * @return (double) The y velocity in inches per second of the pose last read with
+     * {@link MecanumOdometry#readPose()}.
+     */
+    public double getVelocityY() {
+        return SeqLockBuffer.toDouble(m_read[VELOCITY_Y]);
+    }
+
+    /**
+     * @return (double) The angular rate in degrees per second of the pose last read with
+     * {@link MecanumOdometry#readPose()}.
+     */
+    public double getAngularRate() {
+        return SeqLockBuffer.toDouble(m_read[ANGULAR_RATE]);
+    }
+
+    /**
+     * @return (long) The clock time in nanoseconds of the pose last read with {@link MecanumOdometry#readPose()}.
+     */
+    public long getTimestamp() {
+        return m_read[TIMESTAMP];
+    }
+}
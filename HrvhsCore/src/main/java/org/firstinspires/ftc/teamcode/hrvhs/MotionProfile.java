@@ -0,0 +1,267 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * A time-parameterized motion profile for a move of a known distance - where the robot should be, how fast it should
+ * be going, and its acceleration, at every time from the start of the move. The profile starts and ends at rest and
+ * stays within the velocity, acceleration, and (for an S-curve) jerk limits:
+ * <ul>
+ *     <li><b>trapezoidal</b> - full acceleration up to the cruise velocity, cruise, and full deceleration. The
+ *     velocity is a trapezoid (a triangle if the move is too short to reach the cruise velocity);</li>
+ *     <li><b>S-curve</b> - the same, but the acceleration itself ramps up and down at the jerk limit, so there is no
+ *     sudden change in the force on the wheels, which reduces wheel slip at the start and the end of the move.</li>
+ * </ul>
+ * The profile is computed once (normally when a command is initialized) and sampled at the control loop period into
+ * primitive arrays, so getting the values at a time in the control loop is an array lookup and a linear
+ * interpolation - it costs the same whatever the shape of the profile, and allocates nothing. Profiles are immutable,
+ * so the same profile can be used by any number of commands; see {@link MotionProfileCache}.
+ */
+public final class MotionProfile {
+
+    private final double m_distance;
+    private final double m_duration;
+    private final double m_samplePeriod;
+    private final double[] m_position;
+    private final double[] m_velocity;
+    private final double[] m_acceleration;
+
+    /**
+     * Generate a trapezoidal profile.
+     *
+     * @param distance        (double) The distance to move, negative is backward.
+     * @param maxVelocity     (double) The largest velocity, distance per second, &gt; 0.
+     * @param maxAcceleration (double) The largest acceleration, distance per second per second, &gt; 0.
+     * @param samplePeriod    (double) The interval between samples in seconds, normally the control loop interval.
+     * @return (MotionProfile) The profile.
+     */
+    public static MotionProfile trapezoidal(double distance, double maxVelocity, double maxAcceleration,
+                                            double samplePeriod) {
+        return new MotionProfile(distance, maxVelocity, maxAcceleration, Double.POSITIVE_INFINITY, samplePeriod);
+    }
+
+    /**
+     * Generate an S-curve (jerk-limited) profile.
+     *
+     * @param distance        (double) The distance to move, negative is backward.
+     * @param maxVelocity     (double) The largest velocity, distance per second, &gt; 0.
+     * @param maxAcceleration (double) The largest acceleration, distance per second per second, &gt; 0.
+     * @param maxJerk         (double) The largest jerk, distance per second cubed, &gt; 0 - infinite is trapezoidal.
+     * @param samplePeriod    (double) The interval between samples in seconds, normally the control loop interval.
+     * @return (MotionProfile) The profile.
+     */
+    public static MotionProfile sCurve(double distance, double maxVelocity, double maxAcceleration, double maxJerk,
+                                       double samplePeriod) {
+        return new MotionProfile(distance, maxVelocity, maxAcceleration, maxJerk, samplePeriod);
+    }
+
+    private MotionProfile(double distance, double maxVelocity, double maxAcceleration, double maxJerk,
+                          double samplePeriod) {
+        if (!(maxVelocity > 0.0) || !(maxAcceleration > 0.0) || !(maxJerk > 0.0) || !(samplePeriod > 0.0)) {
+            throw new IllegalArgumentException("The limits and the sample period must be greater than 0.");
+        }
+        m_distance = distance;
+        m_samplePeriod = samplePeriod;
+        double length = Math.abs(distance);
+        double sign = (distance < 0.0) ? -1.0 : 1.0;
+
+        // The shape of the profile - the peak velocity, the acceleration phase to reach it, and the cruise time. If
+        // the move is too short to reach the velocity limit, search for the peak velocity that makes the acceleration
+        // and deceleration exactly the length.
+        double peak = maxVelocity;
+        if (2.0 * Phase.distance(peak, maxAcceleration, maxJerk) > length) {
+            double low = 0.0;
+            double high = maxVelocity;
+            for (int i = 0; i < 64; i++) {
+                peak = (low + high) / 2.0;
+                if (2.0 * Phase.distance(peak, maxAcceleration, maxJerk) > length) {
+                    high = peak;
+                } else {
+                    low = peak;
+                }
+            }
+            peak = low;
+        }
+        Phase accel = new Phase(peak, maxAcceleration, maxJerk);
+        double cruise = (peak > 0.0) ? Math.max(0.0, (length - 2.0 * accel.m_distance) / peak) : 0.0;
+        m_duration = 2.0 * accel.m_duration + cruise;
+
+        // Sample the profile - every sample period from the start, and the last sample at the end.
+        int samples = (int) Math.ceil(m_duration / samplePeriod) + 1;
+        m_position = new double[samples];
+        m_velocity = new double[samples];
+        m_acceleration = new double[samples];
+        double[] value = new double[3];
+        for (int i = 0; i < samples; i++) {
+            double t = (i == samples - 1) ? m_duration : i * samplePeriod;
+            if (t < accel.m_duration) {
+                accel.sample(t, value);
+            } else if (t < accel.m_duration + cruise) {
+                value[0] = accel.m_distance + peak * (t - accel.m_duration);
+                value[1] = peak;
+                value[2] = 0.0;
+            } else {
+                // the deceleration is the acceleration reversed in time
+                accel.sample(m_duration - t, value);
+                value[0] = length - value[0];
+                value[2] = -value[2];
+            }
+            m_position[i] = sign * value[0];
+            m_velocity[i] = sign * value[1];
+            m_acceleration[i] = sign * value[2];
+        }
+        m_position[samples - 1] = distance;
+        m_velocity[samples - 1] = 0.0;
+        m_acceleration[samples - 1] = 0.0;
+    }
+
+    /**
+     * @return (double) The distance of the move.
+     */
+    public double getDistance() {
+        return m_distance;
+    }
+
+    /**
+     * @return (double) The time the move takes in seconds.
+     */
+    public double getDuration() {
+        return m_duration;
+    }
+
+    /**
+     * @return (double) The interval between samples in seconds.
+     */
+    public double getSamplePeriod() {
+        return m_samplePeriod;
+    }
+
+    /**
+     * @return (int) The number of samples.
+     */
+    public int getSampleCount() {
+        return m_position.length;
+    }
+
+    /**
+     * @param time (double) The time since the start of the move in seconds.
+     * @return (boolean) <tt>true</tt> if the move is over at this time; <tt>false</tt> otherwise.
+     */
+    public boolean isFinished(double time) {
+        return time >= m_duration;
+    }
+
+    /**
+     * @param time (double) The time since the start of the move in seconds.
+     * @return (double) The position at the time - 0 before the start, and the distance after the end.
+     */
+    public double getPosition(double time) {
+        return lclInterpolate(m_position, time);
+    }
+
+    /**
+     * @param time (double) The time since the start of the move in seconds.
+     * @return (double) The velocity at the time, distance per second.
+     */
+    public double getVelocity(double time) {
+        return lclInterpolate(m_velocity, time);
+    }
+
+    /**
+     * @param time (double) The time since the start of the move in seconds.
+     * @return (double) The acceleration at the time, distance per second per second.
+     */
+    public double getAcceleration(double time) {
+        return lclInterpolate(m_acceleration, time);
+    }
+
+    private double lclInterpolate(double[] samples, double time) {
+        if (!(time > 0.0)) {
+            return samples[0];
+        }
+        if (time >= m_duration) {
+            return samples[samples.length - 1];
+        }
+        // just before the end of a duration that is a whole number of sample periods, the division can round up to the
+        //  last sample - which has no next sample to interpolate to
+        int i = Math.min((int) (time / m_samplePeriod), samples.length - 2);
+        double start = i * m_samplePeriod;
+        double end = Math.min(start + m_samplePeriod, m_duration);
+        double fraction = (end > start) ? (time - start) / (end - start) : 0.0;
+        return samples[i] + (samples[i + 1] - samples[i]) * fraction;
+    }
+
+    /**
+     * The acceleration phase of a profile - from rest to a velocity, with the acceleration ramping up at the jerk
+     * limit, holding at the acceleration limit (if it is reached), and ramping down. With infinite jerk the ramps take
+     * no time, and this is constant acceleration. The velocity is symmetric about the middle of the phase, so the
+     * distance is half the velocity times the duration.
+     */
+    private static final class Phase {
+        private final double m_jerk;
+        private final double m_rampTime;        // the time of each jerk ramp
+        private final double m_holdTime;        // the time at the peak acceleration
+        private final double m_peakAcceleration;
+        private final double m_duration;
+        private final double m_distance;
+
+        Phase(double velocity, double maxAcceleration, double maxJerk) {
+            m_jerk = maxJerk;
+            if (Double.isInfinite(maxJerk)) {
+                m_rampTime = 0.0;
+                m_holdTime = velocity / maxAcceleration;
+                m_peakAcceleration = maxAcceleration;
+            } else if (velocity * maxJerk <= maxAcceleration * maxAcceleration) {
+                // the velocity is reached before the acceleration limit
+                m_rampTime = Math.sqrt(velocity / maxJerk);
+                m_holdTime = 0.0;
+                m_peakAcceleration = maxJerk * m_rampTime;
+            } else {
+                m_rampTime = maxAcceleration / maxJerk;
+                m_holdTime = velocity / maxAcceleration - m_rampTime;
+                m_peakAcceleration = maxAcceleration;
+            }
+            m_duration = 2.0 * m_rampTime + m_holdTime;
+            m_distance = velocity * m_duration / 2.0;
+        }
+
+        static double distance(double velocity, double maxAcceleration, double maxJerk) {
+            return new Phase(velocity, maxAcceleration, maxJerk).m_distance;
+        }
+
+        /**
+         * Get the position, velocity, and acceleration at a time in the phase.
+         */
+        void sample(double t, double[] value) {
+            double a = m_peakAcceleration;
+            if (m_rampTime == 0.0) {
+                value[0] = a * t * t / 2.0;
+                value[1] = a * t;
+                value[2] = a;
+                return;
+            }
+            double j = m_jerk;
+            double tj = m_rampTime;
+            if (t < tj) {
+                value[0] = j * t * t * t / 6.0;
+                value[1] = j * t * t / 2.0;
+                value[2] = j * t;
+                return;
+            }
+            double v1 = j * tj * tj / 2.0;
+            double p1 = j * tj * tj * tj / 6.0;
+            if (t < tj + m_holdTime) {
+                double u = t - tj;
+                value[0] = p1 + v1 * u + a * u * u / 2.0;
+                value[1] = v1 + a * u;
+                value[2] = a;
+                return;
+            }
+            double h = m_holdTime;
+            double v2 = v1 + a * h;
+            double p2 = p1 + v1 * h + a * h * h / 2.0;
+            double u = Math.min(t - tj - h, tj);
+            value[0] = p2 + v2 * u + a * u * u / 2.0 - j * u * u * u / 6.0;
+            value[1] = v2 + a * u - j * u * u / 2.0;
+            value[2] = a - j * u;
+        }
+    }
+}
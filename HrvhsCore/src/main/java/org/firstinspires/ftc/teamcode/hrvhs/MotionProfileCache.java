@@ -0,0 +1,150 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of {@link MotionProfile}s keyed by the distance, the limits, and the sample period. An autonomous usually
+ * makes the same few moves over and over (and a simulation of thousands of trials makes them thousands of times), so
+ * each distinct profile is generated once and then shared. The cache holds the most recently used profiles, and
+ * drops the least recently used when it is full.
+ * <p>
+ * The cache is thread-safe, so the op modes of many simulated robots running at once can share the instance.
+ */
+public final class MotionProfileCache {
+
+    // The default number of profiles held.
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final MotionProfileCache s_instance = new MotionProfileCache(DEFAULT_CAPACITY);
+
+    private final Map<Key, MotionProfile> m_profiles;
+    private long m_hitCt = 0;
+    private long m_missCt = 0;
+
+    /**
+     * @return (MotionProfileCache) The shared cache.
+     */
+    public static MotionProfileCache getInstance() {
+        return s_instance;
+    }
+
+    /**
+     * Instantiate a MotionProfileCache.
+     *
+     * @param capacity (int) The largest number of profiles held.
+     */
+    public MotionProfileCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least 1.");
+        }
+        m_profiles = new LinkedHashMap<Key, MotionProfile>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, MotionProfile> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get a profile, generating it if it is not in the cache.
+     *
+     * @param distance        (double) The distance to move, negative is backward.
+     * @param maxVelocity     (double) The largest velocity, distance per second, &gt; 0.
+     * @param maxAcceleration (double) The largest acceleration, distance per second per second, &gt; 0.
+     * @param maxJerk         (double) The largest jerk, distance per second cubed - 0 or infinite for a
+     *                        trapezoidal profile, otherwise an S-curve.
+     * @param samplePeriod    (double) The interval between samples in seconds, normally the control loop interval.
+     * @return (MotionProfile) The profile.
+     */
+    public synchronized MotionProfile get(double distance, double maxVelocity, double maxAcceleration,
+                                          double maxJerk, double samplePeriod) {
+        if (maxJerk <= 0.0) {
+            maxJerk = Double.POSITIVE_INFINITY;
+        }
+        Key key = new Key(distance, maxVelocity, maxAcceleration, maxJerk, samplePeriod);
+        MotionProfile profile = m_profiles.get(key);
+        if (null != profile) {
+            m_hitCt++;
+            return profile;
+        }
+        m_missCt++;
+        profile = MotionProfile.sCurve(distance, maxVelocity, maxAcceleration, maxJerk, samplePeriod);
+        m_profiles.put(key, profile);
+        return profile;
+    }
+
+    /**
+     * Remove all the profiles.
+     */
+    public synchronized void clear() {
+        m_profiles.clear();
+    }
+
+    /**
+     * @return (int) The number of profiles held.
+     */
+    public synchronized int size() {
+        return m_profiles.size();
+    }
+
+    /**
+     * @return (long) The number of requests answered from the cache.
+     */
+    public synchronized long getHitCount() {
+        return m_hitCt;
+    }
+
+    /**
+     * @return (long) The number of requests that generated a profile.
+     */
+    public synchronized long getMissCount() {
+        return m_missCt;
+    }
+
+    /**
+     * The key of a profile - the exact values it was generated from.
+     */
+    private static final class Key {
+        private final double m_distance;
+        private final double m_maxVelocity;
+        private final double m_maxAcceleration;
+        private final double m_maxJerk;
+        private final double m_samplePeriod;
+
+        Key(double distance, double maxVelocity, double maxAcceleration, double maxJerk, double samplePeriod) {
+            m_distance = distance;
+            m_maxVelocity = maxVelocity;
+            m_maxAcceleration = maxAcceleration;
+            m_maxJerk = maxJerk;
+            m_samplePeriod = samplePeriod;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Double.compare(m_distance, other.m_distance) == 0
+                    && Double.compare(m_maxVelocity, other.m_maxVelocity) == 0
+                    && Double.compare(m_maxAcceleration, other.m_maxAcceleration) == 0
+                    && Double.compare(m_maxJerk, other.m_maxJerk) == 0
+                    && Double.compare(m_samplePeriod, other.m_samplePeriod) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = lclHash(m_distance);
+            hash = 31 * hash + lclHash(m_maxVelocity);
+            hash = 31 * hash + lclHash(m_maxAcceleration);
+            hash = 31 * hash + lclHash(m_maxJerk);
+            return 31 * hash + lclHash(m_samplePeriod);
+        }
+
+        private static int lclHash(double value) {
+            long bits = Double.doubleToLongBits(value);
+            return (int) (bits ^ (bits >>> 32));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.util.Locale;
+
+/**
+ * An immutable robot pose on the field - the position, the heading, the velocities, and the time of the pose.
+ * <p>
+ * The field frame is the frame the pose was set in (by default the robot at the start): <tt>x</tt> is forward,
+ * <tt>y</tt> is to the right, and the heading is in degrees, clockwise positive (the same as the
+ * <tt>MecanumDriveSubsystem</tt> heading). The velocities are in the field frame.
+ */
+public final class Pose {
+
+    private final double m_x;
+    private final double m_y;
+    private final double m_heading;
+    private final double m_velocityX;
+    private final double m_velocityY;
+    private final double m_angularRate;
+    private final long m_timestamp;
+
+    /**
+     * Instantiate the Pose.
+     *
+     * @param x           The x position in inches.
+     * @param y           The y position in inches.
+     * @param heading     The heading in degrees, clockwise positive.
+     * @param velocityX   The x velocity in inches per second.
+     * @param velocityY   The y velocity in inches per second.
+     * @param angularRate The angular rate in degrees per second, clockwise positive.
+     * @param timestamp   The clock time of the pose in nanoseconds.
+     */
+    public Pose(double x, double y, double heading, double velocityX, double velocityY, double angularRate,
+                long timestamp) {
+        m_x = x;
+        m_y = y;
+        m_heading = heading;
+        m_velocityX = velocityX;
+        m_velocityY = velocityY;
+        m_angularRate = angularRate;
+        m_timestamp = timestamp;
+    }
+
+    /**
+     * @return The x (forward) position in inches.
+     */
+    public double getX() {
+        return m_x;
+    }
+
+    /**
+     * @return The y (right) position in inches.
+     */
+    public double getY() {
+        return m_y;
+    }
+
+    /**
+     * @return The heading in degrees, clockwise positive.
+     */
+    public double getHeading() {
+        return m_heading;
+    }
+
+    /**
+     * @return The x velocity in inches per second.
+     */
+    public double getVelocityX() {
+        return m_velocityX;
+    }
+
+    /**
+     * @return The y velocity in inches per second.
+     */
+    public double getVelocityY() {
+        return m_velocityY;
+    }
+
+    /**
+     * @return The angular rate in degrees per second, clockwise positive.
+     */
+    public double getAngularRate() {
+        return m_angularRate;
+    }
+
+    /**
+     * @return The clock time of the pose in nanoseconds.
+     */
+    public long getTimestamp() {
+        return m_timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "(%.2f, %.2f) %.1f deg", m_x, m_y, m_heading);
+    }
+}
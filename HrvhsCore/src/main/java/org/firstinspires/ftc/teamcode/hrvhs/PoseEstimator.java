@@ -0,0 +1,395 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * An extended Kalman filter for the robot pose on the field - <tt>x</tt> and <tt>y</tt> in inches and the heading
+ * (clockwise positive, the same frame as {@link Pose}). The filter keeps the pose and its 3x3 covariance, and has:
+ * <ul>
+ *     <li><b>predict</b> - the robot-relative move measured by the wheel encoders since the last predict. The error is
+ *     a random walk - its variance grows in proportion to the distance moved (sideways faster than forward because
+ *     the rollers slip), so the same drive has the same error whether it is measured in a few long predicts or many
+ *     short ones, and a robot that drives a long way without a fix becomes less and less sure where it is;</li>
+ *     <li><b>heading update</b> - an absolute heading measurement, normally the IMU;</li>
+ *     <li><b>pose update</b> - an absolute pose measurement, normally a Vuforia fix. A fix that is too far from the
+ *     estimate to be believed (its Mahalanobis distance is past the gate) is rejected - Vuforia occasionally reports
+ *     a pose from a misidentified target.</li>
+ * </ul>
+ * Everything is in preallocated <tt>double</tt> arrays with the matrix arithmetic written out, so nothing is
+ * allocated or boxed - a predict and both updates are a few hundred floating point operations.
+ * <p>
+ * This is not thread-safe, it is expected that it is only used on the control thread.
+ */
+public final class PoseEstimator {
+
+    // The chi-squared value for 3 degrees of freedom at 99.9% - a fix further than this from the estimate is rejected.
+    public static final double DEFAULT_GATE = 16.27;
+    // The number of values in the filter state - x, y, heading, and the 9 covariance values.
+    public static final int STATE_SIZE = 12;
+
+    // The state - x, y (inches), and the heading (radians, clockwise positive)
+    private double m_x;
+    private double m_y;
+    private double m_heading;
+    // The covariance, row major
+    private final double[] m_p = new double[9];
+    // Scratch matrices for the updates
+    private final double[] m_s = new double[9];
+    private final double[] m_k = new double[9];
+    private final double[] m_tmp = new double[9];
+
+    // The predict error - the variance per inch (or radian) moved, and the heading variance of every predict.
+    private double m_forwardVariance = 0.01;
+    private double m_sidewaysVariance = 0.04;
+    private double m_rotationVariance = 0.0025;
+    private double m_headingDriftVariance = Math.toRadians(0.01) * Math.toRadians(0.01);
+    private double m_gate = DEFAULT_GATE;
+
+    private long m_predictCt = 0;
+    private long m_headingUpdateCt = 0;
+    private long m_poseUpdateCt = 0;
+    private long m_rejectedCt = 0;
+
+    /**
+     * Instantiate the PoseEstimator at 0, 0, 0, certain of the pose.
+     */
+    public PoseEstimator() {
+        setPose(0.0, 0.0, 0.0, 0.0, 0.0);
+    }
+
+    /**
+     * Set the pose, for example to the start position on the field.
+     *
+     * @param x               (double) The x position in inches.
+     * @param y               (double) The y position in inches.
+     * @param heading         (double) The heading in degrees, clockwise positive.
+     * @param positionStdDev  (double) The standard deviation of the position in inches.
+     * @param headingStdDev   (double) The standard deviation of the heading in degrees.
+     */
+    public void setPose(double x, double y, double heading, double positionStdDev, double headingStdDev) {
+        m_x = x;
+        m_y = y;
+        m_heading = Math.toRadians(heading);
+        double headingVariance = Math.toRadians(headingStdDev) * Math.toRadians(headingStdDev);
+        for (int i = 0; i < 9; i++) {
+            m_p[i] = 0.0;
+        }
+        m_p[0] = positionStdDev * positionStdDev;
+        m_p[4] = positionStdDev * positionStdDev;
+        m_p[8] = headingVariance;
+    }
+
+    /**
+     * Copy the filter state (the pose and the covariance) into an array, to be restored later with
+     * {@link PoseEstimator#setState(double[], int)}.
+     *
+     * @param state  (double[], not null) The array.
+     * @param offset (int) The index of the first of the {@link PoseEstimator#STATE_SIZE} values in the array.
+     */
+    public void getState(double[] state, int offset) {
+        state[offset] = m_x;
+        state[offset + 1] = m_y;
+        state[offset + 2] = m_heading;
+        System.arraycopy(m_p, 0, state, offset + 3, 9);
+    }
+
+    /**
+     * Restore the filter state saved with {@link PoseEstimator#getState(double[], int)}.
+     *
+     * @param state  (double[], not null) The array.
+     * @param offset (int) The index of the first of the {@link PoseEstimator#STATE_SIZE} values in the array.
+     */
+    public void setState(double[] state, int offset) {
+        m_x = state[offset];
+        m_y = state[offset + 1];
+        m_heading = state[offset + 2];
+        System.arraycopy(state, offset + 3, m_p, 0, 9);
+    }
+
+    /**
+     * Set the error of the predict. The error is given as the standard deviation after a 1 inch (or 1 radian) move,
+     * and grows with the square root of the distance. The defaults are 0.1 inches forward (1 inch after 100 inches),
+     * 0.2 inches sideways, 0.05 radians of rotation, and 0.01 degrees of heading drift every predict.
+     *
+     * @param forwardError  (double) The standard deviation of a 1 inch forward move in inches.
+     * @param sidewaysError (double) The standard deviation of a 1 inch sideways move in inches.
+     * @param rotationError (double) The standard deviation of a 1 radian rotation in radians.
+     * @param headingDrift  (double) The standard deviation of the heading change in degrees for every predict, even
+     *                      when the robot is still.
+     */
+    public void setPredictError(double forwardError, double sidewaysError, double rotationError,
+                                double headingDrift) {
+        m_forwardVariance = forwardError * forwardError;
+        m_sidewaysVariance = sidewaysError * sidewaysError;
+        m_rotationVariance = rotationError * rotationError;
+        m_headingDriftVariance = Math.toRadians(headingDrift) * Math.toRadians(headingDrift);
+    }
+
+    /**
+     * Set the gate for pose updates. The default is {@link PoseEstimator#DEFAULT_GATE}.
+     *
+     * @param gate (double) The largest squared Mahalanobis distance of a pose measurement that is accepted.
+     */
+    public void setGate(double gate) {
+        m_gate = gate;
+    }
+
+    /**
+     * Predict the pose after a move.
+     *
+     * @param forward  (double) The forward move in inches, in the robot frame.
+     * @param sideways (double) The sideways move in inches, in the robot frame, positive is to the right.
+     * @param rotation (double) The rotation in degrees, clockwise positive.
+     */
+    public void predict(double forward, double sideways, double rotation) {
+        double dHeading = Math.toRadians(rotation);
+        double mid = m_heading + dHeading / 2.0;
+        double cos = Math.cos(mid);
+        double sin = Math.sin(mid);
+        double dx = forward * cos - sideways * sin;
+        double dy = forward * sin + sideways * cos;
+        m_x += dx;
+        m_y += dy;
+        m_heading += dHeading;
+        m_predictCt++;
+
+        // P = F P F' + G M G', where F is the jacobian by the state and G by the move (forward, sideways, rotation)
+        //  F = | 1 0 -dy |   G = | cos -sin -dy/2 |
+        //      | 0 1  dx |       | sin  cos  dx/2 |
+        //      | 0 0  1  |       |  0    0    1   |
+        double[] p = m_p;
+        double p00 = p[0], p01 = p[1], p02 = p[2], p11 = p[4], p12 = p[5], p22 = p[8];
+        // F P F'
+        double a02 = p02 - dy * p22;
+        double a12 = p12 + dx * p22;
+        double n00 = p00 - 2.0 * dy * p02 + dy * dy * p22;
+        double n01 = p01 + dx * p02 - dy * p12 - dx * dy * p22;
+        double n11 = p11 + 2.0 * dx * p12 + dx * dx * p22;
+        // G M G' with M diagonal
+        double mf = m_forwardVariance * Math.abs(forward);
+        double ms = m_sidewaysVariance * Math.abs(sideways);
+        double mr = m_rotationVariance * Math.abs(dHeading) + m_headingDriftVariance;
+        double hx = -dy / 2.0;
+        double hy = dx / 2.0;
+        n00 += cos * cos * mf + sin * sin * ms + hx * hx * mr;
+        n01 += cos * sin * mf - sin * cos * ms + hx * hy * mr;
+        n11 += sin * sin * mf + cos * cos * ms + hy * hy * mr;
+        a02 += hx * mr;
+        a12 += hy * mr;
+        p[0] = n00;
+        p[1] = n01;
+        p[2] = a02;
+        p[3] = n01;
+        p[4] = n11;
+        p[5] = a12;
+        p[6] = a02;
+        p[7] = a12;
+        p[8] = p22 + mr;
+    }
+
+    /**
+     * Update the pose with an absolute heading measurement.
+     *
+     * @param heading       (double) The measured heading in degrees, clockwise positive.
+     * @param headingStdDev (double) The standard deviation of the measurement in degrees.
+     */
+    public void updateHeading(double heading, double headingStdDev) {
+        double r = Math.toRadians(headingStdDev);
+        double[] p = m_p;
+        double s = p[8] + r * r;
+        double innovation = lclNormalize(Math.toRadians(heading) - m_heading);
+        double k0 = p[2] / s;
+        double k1 = p[5] / s;
+        double k2 = p[8] / s;
+        m_x += k0 * innovation;
+        m_y += k1 * innovation;
+        m_heading += k2 * innovation;
+        // P = (I - K H) P, where H picks the heading - so subtract K times the last row of P
+        double p20 = p[6], p21 = p[7], p22 = p[8];
+        p[0] -= k0 * p20;
+        p[1] -= k0 * p21;
+        p[2] -= k0 * p22;
+        p[3] -= k1 * p20;
+        p[4] -= k1 * p21;
+        p[5] -= k1 * p22;
+        p[6] -= k2 * p20;
+        p[7] -= k2 * p21;
+        p[8] -= k2 * p22;
+        m_headingUpdateCt++;
+    }
+
+    /**
+     * Update the pose with an absolute pose measurement. The measurement is rejected if it is too far from the
+     * estimate, see {@link PoseEstimator#setGate(double)}.
+     *
+     * @param x              (double) The measured x position in inches.
+     * @param y              (double) The measured y position in inches.
+     * @param heading        (double) The measured heading in degrees, clockwise positive.
+     * @param positionStdDev (double) The standard deviation of the measured position in inches.
+     * @param headingStdDev  (double) The standard deviation of the measured heading in degrees.
+     * @return (boolean) <tt>true</tt> if the measurement was applied; <tt>false</tt> if it was rejected.
+     */
+    public boolean updatePose(double x, double y, double heading, double positionStdDev, double headingStdDev) {
+        double[] p = m_p;
+        double[] s = m_s;
+        double rp = positionStdDev * positionStdDev;
+        double rh = Math.toRadians(headingStdDev) * Math.toRadians(headingStdDev);
+        // S = P + R
+        for (int i = 0; i < 9; i++) {
+            s[i] = p[i];
+        }
+        s[0] += rp;
+        s[4] += rp;
+        s[8] += rh;
+        if (!lclInvert(s, m_tmp)) {
+            m_rejectedCt++;
+            return false;
+        }
+        double[] sInv = m_tmp;
+        double v0 = x - m_x;
+        double v1 = y - m_y;
+        double v2 = lclNormalize(Math.toRadians(heading) - m_heading);
+        // the squared Mahalanobis distance v' S^-1 v
+        double d = v0 * (sInv[0] * v0 + sInv[1] * v1 + sInv[2] * v2)
+                + v1 * (sInv[3] * v0 + sInv[4] * v1 + sInv[5] * v2)
+                + v2 * (sInv[6] * v0 + sInv[7] * v1 + sInv[8] * v2);
+        if (d > m_gate) {
+            m_rejectedCt++;
+            return false;
+        }
+        // K = P S^-1
+        double[] k = m_k;
+        lclMultiply(p, sInv, k);
+        m_x += k[0] * v0 + k[1] * v1 + k[2] * v2;
+        m_y += k[3] * v0 + k[4] * v1 + k[5] * v2;
+        m_heading += k[6] * v0 + k[7] * v1 + k[8] * v2;
+        // P = (I - K) P, then symmetrized against rounding
+        lclMultiply(k, p, s);
+        for (int i = 0; i < 9; i++) {
+            p[i] -= s[i];
+        }
+        double p01 = (p[1] + p[3]) / 2.0;
+        double p02 = (p[2] + p[6]) / 2.0;
+        double p12 = (p[5] + p[7]) / 2.0;
+        p[1] = p[3] = p01;
+        p[2] = p[6] = p02;
+        p[5] = p[7] = p12;
+        m_poseUpdateCt++;
+        return true;
+    }
+
+    /**
+     * Invert a 3x3 matrix.
+     *
+     * @param m       The matrix.
+     * @param inverse Set to the inverse.
+     * @return <tt>true</tt> if the matrix was inverted; <tt>false</tt> if it is singular.
+     */
+    private static boolean lclInvert(double[] m, double[] inverse) {
+        double c00 = m[4] * m[8] - m[5] * m[7];
+        double c01 = m[5] * m[6] - m[3] * m[8];
+        double c02 = m[3] * m[7] - m[4] * m[6];
+        double det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        if (!(Math.abs(det) > 1.0e-300)) {
+            return false;
+        }
+        double invDet = 1.0 / det;
+        inverse[0] = c00 * invDet;
+        inverse[1] = (m[2] * m[7] - m[1] * m[8]) * invDet;
+        inverse[2] = (m[1] * m[5] - m[2] * m[4]) * invDet;
+        inverse[3] = c01 * invDet;
+        inverse[4] = (m[0] * m[8] - m[2] * m[6]) * invDet;
+        inverse[5] = (m[2] * m[3] - m[0] * m[5]) * invDet;
+        inverse[6] = c02 * invDet;
+        inverse[7] = (m[1] * m[6] - m[0] * m[7]) * invDet;
+        inverse[8] = (m[0] * m[4] - m[1] * m[3]) * invDet;
+        return true;
+    }
+
+    /**
+     * Multiply two 3x3 matrices.
+     */
+    private static void lclMultiply(double[] a, double[] b, double[] result) {
+        for (int row = 0; row < 3; row++) {
+            double a0 = a[row * 3];
+            double a1 = a[row * 3 + 1];
+            double a2 = a[row * 3 + 2];
+            result[row * 3] = a0 * b[0] + a1 * b[3] + a2 * b[6];
+            result[row * 3 + 1] = a0 * b[1] + a1 * b[4] + a2 * b[7];
+            result[row * 3 + 2] = a0 * b[2] + a1 * b[5] + a2 * b[8];
+        }
+    }
+
+    /**
+     * Normalize an angle difference to -pi to pi, so the heading is continuous while a measurement may be wrapped.
+     */
+    private static double lclNormalize(double angle) {
+        return angle - 2.0 * Math.PI * Math.floor((angle + Math.PI) / (2.0 * Math.PI));
+    }
+
+    /**
+     * @return (double) The x position in inches.
+     */
+    public double getX() {
+        return m_x;
+    }
+
+    /**
+     * @return (double) The y position in inches.
+     */
+    public double getY() {
+        return m_y;
+    }
+
+    /**
+     * @return (double) The heading in degrees, clockwise positive.
+     */
+    public double getHeading() {
+        return Math.toDegrees(m_heading);
+    }
+
+    /**
+     * Get an element of the covariance.
+     *
+     * @param row    (int) The row - 0 is x, 1 is y, 2 is the heading.
+     * @param column (int) The column - 0 is x, 1 is y, 2 is the heading.
+     * @return (double) The covariance, inches and radians.
+     */
+    public double getCovariance(int row, int column) {
+        return m_p[row * 3 + column];
+    }
+
+    /**
+     * @return (double) The standard deviation of the position in inches - the square root of the largest x or y
+     * variance.
+     */
+    public double getPositionStdDev() {
+        return Math.sqrt(Math.max(m_p[0], m_p[4]));
+    }
+
+    /**
+     * @return (long) The number of predicts.
+     */
+    public long getPredictCount() {
+        return m_predictCt;
+    }
+
+    /**
+     * @return (long) The number of heading updates.
+     */
+    public long getHeadingUpdateCount() {
+        return m_headingUpdateCt;
+    }
+
+    /**
+     * @return (long) The number of pose updates applied.
+     */
+    public long getPoseUpdateCount() {
+        return m_poseUpdateCt;
+    }
+
+    /**
+     * @return (long) The number of pose updates rejected by the gate.
+     */
+    public long getRejectedCount() {
+        return m_rejectedCt;
+    }
+}
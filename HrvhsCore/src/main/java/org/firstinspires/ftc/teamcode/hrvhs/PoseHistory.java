@@ -0,0 +1,178 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * A fixed-capacity history of the {@link PoseEstimator} - for every control loop, the clock time, the odometry move
+ * and heading measurement that were applied, and the filter state after them. It is used to apply a vision fix at
+ * the time the camera frame was captured rather than when the fix arrived (50-150ms later, when the robot may have
+ * moved several inches): {@link PoseHistory#correct(PoseEstimator, long, double, double, double, double, double)
+ * correct} rewinds the filter to the capture time, applies the fix there, and replays the moves since.
+ * <p>
+ * The history is a ring of parallel primitive arrays, so recording and correcting allocate nothing, and the oldest
+ * entry is overwritten when it is full. The clock times are in increasing order, so the entry for a capture time is
+ * found with a binary search over the ring.
+ * <p>
+ * This is not thread-safe, it is expected that it is only used on the control thread.
+ */
+public final class PoseHistory {
+
+    // The indices of the values in the recorded inputs of an entry.
+    private static final int FORWARD = 0;
+    private static final int SIDEWAYS = 1;
+    private static final int ROTATION = 2;
+    private static final int HEADING = 3;
+    private static final int HEADING_STD_DEV = 4;
+    private static final int INPUT_SIZE = 5;
+
+    private final int m_capacity;
+    private final long[] m_timestamps;
+    private final double[] m_inputs;
+    private final double[] m_states;
+    private int m_next = 0;     // the slot the next entry is recorded in
+    private int m_size = 0;
+
+    /**
+     * Instantiate the PoseHistory.
+     *
+     * @param capacity (int) The number of entries kept. This should cover the longest vision latency - at a 20ms
+     *                 control loop, 32 entries is 640ms.
+     */
+    public PoseHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least 1.");
+        }
+        m_capacity = capacity;
+        m_timestamps = new long[capacity];
+        m_inputs = new double[capacity * INPUT_SIZE];
+        m_states = new double[capacity * PoseEstimator.STATE_SIZE];
+    }
+
+    /**
+     * Remove all the entries, for example when the pose is set.
+     */
+    public void clear() {
+        m_next = 0;
+        m_size = 0;
+    }
+
+    /**
+     * Record a control loop - call this after the filter has been given the move and the heading.
+     *
+     * @param timestamp     (long) The clock time of the control loop in nanoseconds, not before the last recorded.
+     * @param forward       (double) The forward move given to {@link PoseEstimator#predict(double, double, double)}.
+     * @param sideways      (double) The sideways move given to the predict.
+     * @param rotation      (double) The rotation given to the predict.
+     * @param heading       (double) The heading given to {@link PoseEstimator#updateHeading(double, double)}, or
+     *                      <tt>NaN</tt> if there was no heading update.
+     * @param headingStdDev (double) The standard deviation given to the heading update.
+     * @param estimator     (PoseEstimator, not null) The filter, its state is recorded.
+     */
+    public void record(long timestamp, double forward, double sideways, double rotation, double heading,
+                       double headingStdDev, PoseEstimator estimator) {
+        int slot = m_next;
+        m_timestamps[slot] = timestamp;
+        int input = slot * INPUT_SIZE;
+        m_inputs[input + FORWARD] = forward;
+        m_inputs[input + SIDEWAYS] = sideways;
+        m_inputs[input + ROTATION] = rotation;
+        m_inputs[input + HEADING] = heading;
+        m_inputs[input + HEADING_STD_DEV] = headingStdDev;
+        estimator.getState(m_states, slot * PoseEstimator.STATE_SIZE);
+        m_next = (slot + 1 == m_capacity) ? 0 : slot + 1;
+        if (m_size < m_capacity) {
+            m_size++;
+        }
+    }
+
+    /**
+     * @return (int) The number of entries.
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * Get the clock time of an entry.
+     *
+     * @param index (int) The index of the entry, 0 is the oldest.
+     * @return (long) The clock time in nanoseconds.
+     */
+    public long getTimestamp(int index) {
+        return m_timestamps[lclSlot(index)];
+    }
+
+    /**
+     * Find the newest entry at or before a clock time.
+     *
+     * @param timestamp (long) The clock time in nanoseconds.
+     * @return (int) The index of the entry (0 is the oldest), or -1 if the time is before the oldest entry.
+     */
+    public int find(long timestamp) {
+        int low = 0;
+        int high = m_size - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (m_timestamps[lclSlot(middle)] - timestamp <= 0) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Apply a pose measurement at the time it was made. The filter is rewound to the newest entry at or before the
+     * time, the measurement is applied there, and the recorded moves and headings since then are replayed - which
+     * rewrites the recorded states, so a later correction from further back includes this one. If the measurement is
+     * newer than the newest entry it is applied to the newest entry, with nothing to replay.
+     *
+     * @param estimator      (PoseEstimator, not null) The filter, which must be in the state of the newest entry.
+     *                       It is left in the corrected state (or unchanged if the measurement is not applied).
+     * @param timestamp      (long) The clock time the measurement was made in nanoseconds.
+     * @param x              (double) The measured x position in inches.
+     * @param y              (double) The measured y position in inches.
+     * @param heading        (double) The measured heading in degrees.
+     * @param positionStdDev (double) The standard deviation of the measured position in inches.
+     * @param headingStdDev  (double) The standard deviation of the measured heading in degrees.
+     * @return (boolean) <tt>true</tt> if the measurement was applied; <tt>false</tt> if it is older than the history
+     * or was rejected by the filter.
+     */
+    public boolean correct(PoseEstimator estimator, long timestamp, double x, double y, double heading,
+                           double positionStdDev, double headingStdDev) {
+        int index = find(timestamp);
+        if (index < 0) {
+            return false;
+        }
+        int newest = m_size - 1;
+        estimator.setState(m_states, lclSlot(index) * PoseEstimator.STATE_SIZE);
+        if (!estimator.updatePose(x, y, heading, positionStdDev, headingStdDev)) {
+            estimator.setState(m_states, lclSlot(newest) * PoseEstimator.STATE_SIZE);
+            return false;
+        }
+        estimator.getState(m_states, lclSlot(index) * PoseEstimator.STATE_SIZE);
+        for (int i = index + 1; i <= newest; i++) {
+            int slot = lclSlot(i);
+            int input = slot * INPUT_SIZE;
+            estimator.predict(m_inputs[input + FORWARD], m_inputs[input + SIDEWAYS], m_inputs[input + ROTATION]);
+            double measured = m_inputs[input + HEADING];
+            if (!Double.isNaN(measured)) {
+                estimator.updateHeading(measured, m_inputs[input + HEADING_STD_DEV]);
+            }
+            estimator.getState(m_states, slot * PoseEstimator.STATE_SIZE);
+        }
+        return true;
+    }
+
+    /**
+     * Get the ring slot of an entry.
+     *
+     * @param index The index of the entry, 0 is the oldest.
+     * @return The slot of the entry in the arrays.
+     */
+    private int lclSlot(int index) {
+        int slot = m_next - m_size + index;
+        return (slot < 0) ? slot + m_capacity : slot;
+    }
+}
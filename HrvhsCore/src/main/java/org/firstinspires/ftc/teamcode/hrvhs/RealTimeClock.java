@@ -0,0 +1,44 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The clock used on the robot - <tt>System.nanoTime()</tt>. <tt>Thread.sleep()</tt> is only good to a few
+ * milliseconds, so {@link RealTimeClock#sleepUntil(long)} waits in three steps:
+ * <ul>
+ *     <li>sleep coarsely until about {@link RealTimeClock#SLEEP_MARGIN} before the deadline;</li>
+ *     <li>park until about {@link RealTimeClock#SPIN_MARGIN} before the deadline;</li>
+ *     <li>spin for the rest.</li>
+ * </ul>
+ */
+public final class RealTimeClock extends AClock {
+
+    // Stop sleeping this far before the deadline - Thread.sleep() routinely oversleeps by a millisecond or more.
+    public static final long SLEEP_MARGIN = 2000000L;
+    // Stop parking this far before the deadline - a park can overshoot by tens of microseconds.
+    public static final long SPIN_MARGIN = 100000L;
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void sleepUntil(long deadline) throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining > SLEEP_MARGIN) {
+            Thread.sleep((remaining - SLEEP_MARGIN) / 1000000L);
+            remaining = deadline - System.nanoTime();
+        }
+        while (remaining > SPIN_MARGIN) {
+            LockSupport.parkNanos(remaining - SPIN_MARGIN);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+        while (remaining > 0) {
+            remaining = deadline - System.nanoTime();
+        }
+    }
+}
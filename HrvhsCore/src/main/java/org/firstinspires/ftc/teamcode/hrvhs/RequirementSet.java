@@ -0,0 +1,113 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * A compact set of {@link ASubsystem subsystems} kept as a bitset of the subsystem indices assigned in
+ * {@link Scheduler#registerSubsystem(ASubsystem)}. Requirement conflict checks between {@link ACommand commands}
+ * are then word-wise AND operations rather than walks of a hashed set.
+ * <p>
+ * The set only allocates when it grows to hold a subsystem index beyond its current capacity, which happens when
+ * requirements are specified in constructors - never in the control loop.
+ */
+final class RequirementSet {
+
+    // The bits for the subsystem indices, 64 subsystems per word.
+    private long[] m_words = new long[1];
+
+    /**
+     * Add a subsystem index to the set.
+     *
+     * @param index (not negative) The subsystem index.
+     */
+    void add(int index) {
+        int word = index >> 6;
+        if (word >= m_words.length) {
+            grow(word + 1);
+        }
+        m_words[word] |= 1L << index;
+    }
+
+    /**
+     * Add all of the subsystem indices in another set to this set.
+     *
+     * @param other (not null) The other set.
+     */
+    void addAll(RequirementSet other) {
+        if (other.m_words.length > m_words.length) {
+            grow(other.m_words.length);
+        }
+        for (int i = 0; i < other.m_words.length; i++) {
+            m_words[i] |= other.m_words[i];
+        }
+    }
+
+    /**
+     * Remove all of the subsystem indices in another set from this set.
+     *
+     * @param other (not null) The other set.
+     */
+    void removeAll(RequirementSet other) {
+        int words = Math.min(m_words.length, other.m_words.length);
+        for (int i = 0; i < words; i++) {
+            m_words[i] &= ~other.m_words[i];
+        }
+    }
+
+    /**
+     * Test whether a subsystem index is in this set.
+     *
+     * @param index The subsystem index.
+     * @return <tt>true</tt> if the index is in this set; <tt>false</tt> otherwise.
+     */
+    boolean contains(int index) {
+        int word = index >> 6;
+        return index >= 0 && word < m_words.length && (m_words[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * Test whether this set shares any subsystem with another set.
+     *
+     * @param other (not null) The other set.
+     * @return <tt>true</tt> if the sets share one or more subsystems; <tt>false</tt> otherwise.
+     */
+    boolean intersects(RequirementSet other) {
+        int words = Math.min(m_words.length, other.m_words.length);
+        for (int i = 0; i < words; i++) {
+            if ((m_words[i] & other.m_words[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the first subsystem index in the set that is greater than or equal to <tt>from</tt>. The normal use is:
+     * <pre>
+     *     for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) { ... }
+     * </pre>
+     *
+     * @param from The index to start looking from.
+     * @return The next subsystem index in the set, or -1 if there are no more.
+     */
+    int nextSetBit(int from) {
+        int word = from >> 6;
+        if (word >= m_words.length) {
+            return -1;
+        }
+        long bits = m_words[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word >= m_words.length) {
+                return -1;
+            }
+            bits = m_words[word];
+        }
+    }
+
+    private void grow(int words) {
+        long[] newWords = new long[words];
+        System.arraycopy(m_words, 0, newWords, 0, m_words.length);
+        m_words = newWords;
+    }
+}
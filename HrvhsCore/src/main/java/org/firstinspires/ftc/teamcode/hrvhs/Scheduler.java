@@ -0,0 +1,552 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+/**
+ * This is the command scheduler. This scheduler is modelled after the FRC Scheduler in the WPILib library. It keeps track of
+ * the currently registered subsystems and commands and is run in a loop by the Op Mode.
+ * <p>
+ * Each op mode ({@link IHrvhsOpMode}) owns a scheduler. The op mode binds its scheduler to the thread it is constructed and run
+ * on, and getInstance() returns the scheduler bound to the calling thread - so the subsystems and commands an op mode
+ * creates register with that op mode's scheduler, and several op modes (i.e. simulated robots) can run at the same
+ * time on different threads. Outside of any op mode getInstance() returns a process-wide default scheduler.
+ * <p>
+ * The op mode unbinds the thread it runs on when it stops, but the thread an op mode is constructed on is not under
+ * its control (on the robot it is an SDK thread). So the binding is weak, and a scheduler that has been
+ * {@link Scheduler#stop() stopped} is not returned - a thread binding left behind never keeps a finished op mode
+ * reachable, or hands its scheduler to the next op mode constructed on that thread.
+ */
+public final class Scheduler {
+
+    // The scheduler bound to each thread - the scheduler of the op mode being constructed or run on that thread.
+    private static final ThreadLocal<WeakReference<Scheduler>> s_current = new ThreadLocal<>();
+    // The process-wide default scheduler, created by the first caller of getInstance() outside an op mode.
+    private static Scheduler s_instance;
+
+    // The OpMode that 'owns' this scheduler.
+    private IHrvhsOpMode m_opMode = null;
+    // The list of subsystems known to this scheduler. The position of a subsystem in this list is its index.
+    List<ASubsystem> m_subsystems = new ArrayList<>();
+    // The subsystems that currently have a command as a bitset of subsystem indices.
+    final RequirementSet m_claimed = new RequirementSet();
+    // The commands that are currently running are in a doubly linked list. The links (and the flag that says whether
+    //  the command is in the list) are fields of the command, so there is no allocation or hashing when commands are
+    //  added and removed - which happens every time a default command is restarted.
+    ACommand m_firstCommand = null;
+    ACommand m_lastCommand = null;
+    // The pending command additions. NOTE: this is lock-free so any thread can start a command without contending
+    //  with the control thread.
+    final CommandSubmissionQueue m_additions = new CommandSubmissionQueue();
+
+//    Vector<ButtonScheduler> m_buttons =  new Vector<>(10,10);
+
+    boolean m_runningCommandsChanged = false;
+    // The interval (in milliseconds) between ticks - the period of the fastest running command.
+    long m_tickInterval = 20;
+    // The clock for all the command and tick timing - real time unless a virtual clock has been set.
+    AClock m_clock = new RealTimeClock();
+    // The time (from the clock) the current tick should be finished by, and whether there has been a tick yet.
+    long m_tickDeadline = 0;
+    boolean m_ticking = false;
+    // The counts of command runs that were deferred or skipped because the tick was late.
+    long m_deferredCt = 0;
+    long m_skippedCt = 0;
+    // The telemetry slot for the names of the running commands, whether the running commands have changed since the
+    //  names were last published, and the buffer the names are built in.
+    int m_runningCommandsSlot = -1;
+    boolean m_runningCommandsStale = false;
+    final StringBuilder m_runningCommandNames = new StringBuilder(256);
+
+    // A state variable that prevents a recursive loop during command addition.
+    boolean m_adding = false;
+
+    // <tt>true</tt> if the execution time of commands is being profiled; <tt>false</tt> otherwise.
+    boolean m_profiling = false;
+
+    // <tt>true</tt> once the op mode has stopped, after which the scheduler is no longer returned by getInstance();
+    //  <tt>false</tt> otherwise. Volatile because the binding may be on another thread.
+    volatile boolean m_stopped = false;
+
+    /**
+     * Instantiate a Scheduler. An op mode creates its own scheduler (and {@link Scheduler#bind(Scheduler) binds} it),
+     * everything else should use {@link Scheduler#getInstance()}.
+     */
+    public Scheduler() {
+    }
+
+    /**
+     * Get the scheduler for the calling thread - the scheduler of the op mode being constructed or run on this thread,
+     * or the process-wide default scheduler if no op mode has bound one.
+     *
+     * @return The scheduler for the calling thread.
+     */
+    public static Scheduler getInstance() {
+        WeakReference<Scheduler> binding = s_current.get();
+        if (binding != null) {
+            Scheduler scheduler = binding.get();
+            if (scheduler != null && !scheduler.m_stopped) {
+                return scheduler;
+            }
+            // a binding left behind by an op mode that has finished
+            s_current.remove();
+        }
+        return lclGetDefault();
+    }
+
+    private static synchronized Scheduler lclGetDefault() {
+        if (s_instance == null) {
+            s_instance = new Scheduler();
+        }
+        return s_instance;
+    }
+
+    /**
+     * Bind a scheduler to the calling thread, so {@link Scheduler#getInstance()} returns it on this thread. Subsystems
+     * register in their constructors, so an op mode binds its scheduler before its subsystems are instantiated, and
+     * again on the thread that runs it. This is public for op mode implementations in other modules (the FTC op mode
+     * is in TeamCode), it is not for commands or subsystems.
+     *
+     * @param scheduler The scheduler, or <tt>null</tt> to unbind the thread (back to the default scheduler).
+     */
+    public static void bind(Scheduler scheduler) {
+        if (scheduler == null) {
+            s_current.remove();
+        } else {
+            s_current.set(new WeakReference<>(scheduler));
+        }
+    }
+
+    public void setOpMode(IHrvhsOpMode opModel) {
+        m_opMode = opModel;
+    }
+
+    public IHrvhsOpMode getOpMode() {
+        return m_opMode;
+    }
+
+    /**
+     * Set the clock used for all the command and tick timing - {@link ACommand#timeSinceInitialized()},
+     * {@link ACommand#isTimedOut()}, {@link CommandGroup} entry timeouts, the tick deadlines, and the op mode control
+     * loop. The default is a {@link RealTimeClock}. Set a {@link VirtualClock} to run off the robot faster than real
+     * time. This should be set before the op mode is started, changing clocks while commands are timing is undefined.
+     *
+     * @param clock (not null) The clock.
+     */
+    public void setClock(AClock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock must not be null.");
+        }
+        m_clock = clock;
+        m_ticking = false;
+    }
+
+    /**
+     * @return The clock used for all the command and tick timing.
+     */
+    public AClock getClock() {
+        return m_clock;
+    }
+
+    /**
+     * Set whether the execution times of commands should be profiled. When profiling is enabled, the time spent in
+     * <tt>initialize()</tt>, <tt>execute()</tt>, and <tt>isFinished()</tt> is recorded in the {@link CommandProfile}
+     * of every command the scheduler runs (including the commands in {@link CommandGroup CommandGroups}). The default
+     * is <tt>false</tt>.
+     *
+     * @param profiling <tt>true</tt> if execution times should be profiled; <tt>false</tt> otherwise.
+     * @see ACommand#getProfile()
+     */
+    public void setProfiling(boolean profiling) {
+        m_profiling = profiling;
+        if (profiling) {
+            for (ACommand command = m_firstCommand; command != null; command = command.m_nextRunning) {
+                command.enableProfiling();
+            }
+        }
+    }
+
+    public boolean isProfiling() {
+        return m_profiling;
+    }
+
+    /**
+     * Add a compact summary of the execution time profile of each running command to the op mode telemetry, one
+     * line per command with the p50, p99, and max of the <tt>execute()</tt> time in milliseconds.
+     */
+    public void addProfileTelemetry() {
+        for (ACommand command = m_firstCommand; command != null; command = command.m_nextRunning) {
+            CommandProfile profile = command.getProfile();
+            if (profile != null) {
+                LogLinearHistogram execute = profile.getExecute();
+                m_opMode.addTelemetry(command.getName(), "%5.2f/%5.2f/%5.2f ms",
+                        execute.getPercentile(50.0) / 1.0e6, execute.getPercentile(99.0) / 1.0e6,
+                        execute.getMax() / 1.0e6);
+            }
+        }
+    }
+
+    /**
+     * Registers a {@link ASubsystem} to this {@link Scheduler}, so that the {@link Scheduler} might
+     * know if a default {@link ACommand} needs to be run. All {@link ASubsystem Subsystems} should call
+     * this. The subsystem is assigned the next dense index, which is how it is represented in the
+     * requirements of commands.
+     *
+     * @param subsystem the subsystem
+     */
+    public void registerSubsystem(ASubsystem subsystem) {
+        subsystem.m_index = m_subsystems.size();
+        m_subsystems.add(subsystem);
+    }
+
+    public void preStartInitialize() {
+        m_runningCommandsSlot = m_opMode.addTelemetrySlot("commands:");
+        // initialize the subsystems
+        for (ASubsystem subsystem : m_subsystems) {
+            subsystem.preStartInitialize(m_opMode);
+        }
+        // Add the default commands
+        for (int i = 0; i < m_subsystems.size(); i++) {
+            ASubsystem subsystem = m_subsystems.get(i);
+            if ((subsystem.getCurrentCommand() == null) && (subsystem.getDefaultCommand() != null)) {
+                _add(subsystem.getDefaultCommand());
+            }
+        }
+        updateTickInterval();
+        m_runningCommandsStale = true;
+    }
+
+    public void postStartInitialize() {
+        for (ASubsystem subsystem : m_subsystems) {
+            subsystem.postStartInitialize();
+        }
+    }
+
+    /**
+     * Called when the op mode is stopped - stop the subsystems. After this the scheduler is no longer returned by
+     * {@link Scheduler#getInstance()} on any thread it is still bound to.
+     */
+    public void stop() {
+        m_stopped = true;
+        for (ASubsystem subsystem : m_subsystems) {
+            subsystem.stop();
+        }
+    }
+
+    /**
+     * Schedule a command to be added for the next commend execution cycle. Commands are added after the currently
+     * scheduled commands execute. This may be called from any thread.
+     *
+     * @param command (not null) The command to be scheduled.
+     */
+    public void add(ACommand command) {
+        if (null != command) {
+            m_additions.submit(command);
+        }
+    }
+
+//    public void addButton(ButtonScheduler button) {
+//        m_buttons.add();
+//    }
+
+    /**
+     * Adds a command immediately to the {@link Scheduler}. This should only be called in the {@link
+     * Scheduler#run()} loop. Any command with conflicting requirements will be removed, unless it is
+     * uninterruptable. Giving <code>null</code> does nothing.
+     *
+     * @param command the {@link ACommand} to add
+     */
+    private void _add(ACommand command) {
+        if (command == null) {
+            return;
+        }
+
+        // Check to make we are not already adding a command
+        if (m_adding) {
+            System.err.println("WARNING: Can not start command from cancel method.  Ignoring:" + command);
+            return;
+        }
+
+        // Only add the command if it is not already running
+        if (!command.m_inRunningList) {
+            // Check that the requirements can be obtained. If a required subsystem is in use check whether
+            // the command using it is interruptable. If none of the required subsystems are in use there is
+            // nothing to check.
+            RequirementSet requirements = command.getRequirements();
+            if (requirements.intersects(m_claimed)) {
+                for (int i = requirements.nextSetBit(0); i >= 0; i = requirements.nextSetBit(i + 1)) {
+                    ACommand current = m_subsystems.get(i).getCurrentCommand();
+                    if (current != null && !current.isInterruptible()) {
+                        // The subsystem is in use by a command that is not interruptable, can't add this new command
+                        return;
+                    }
+                }
+            }
+
+            // We know we can get all the required subsystems for this command, so cancel/remove any commands that
+            // are currently running on those subsystems and reset the current command to this command
+            m_adding = true;
+            for (int i = requirements.nextSetBit(0); i >= 0; i = requirements.nextSetBit(i + 1)) {
+                ASubsystem requirement = m_subsystems.get(i);
+                if (requirement.getCurrentCommand() != null) {
+                    requirement.getCurrentCommand().cancel();
+                    remove(requirement.getCurrentCommand());
+                }
+                requirement.setCurrentCommand(command);
+            }
+            m_claimed.addAll(requirements);
+            m_adding = false;
+
+            // Add this command to the end of the linked list of currently running commands.
+            command.m_previousRunning = m_lastCommand;
+            command.m_nextRunning = null;
+            if (m_firstCommand == null) {
+                m_firstCommand = command;
+            } else {
+                m_lastCommand.m_nextRunning = command;
+            }
+            m_lastCommand = command;
+            command.m_inRunningList = true;
+            if (m_profiling) {
+                command.enableProfiling();
+            }
+
+            m_runningCommandsChanged = true;
+
+            command.startRunning();
+        }
+    }
+
+    /**
+     * Runs a single iteration of the loop. This method should be called often in order to have a
+     * functioning {@link ACommand} system. The loop has these stages:
+     *
+     * <ol>
+     *     <li>Read - the subsystems read their sensors into cached values</li>
+     *     <li>Poll the Buttons</li>
+     *     <li>Execute/Remove the Commands - the commands compute from the cached values</li>
+     *     <li>Add Commands</li>
+     *     <li>Add Defaults</li>
+     *     <li>Write - the subsystems write their actuators</li> </ol>
+     */
+    public void run() {
+        m_runningCommandsChanged = false;
+
+        // Work out when this tick should be finished. If the last tick finished on time this tick started at (about)
+        // the last deadline, otherwise this tick is late and has less time. A tick that starts more than a whole tick
+        // late has no time left, and the schedule restarts from there.
+        long now = m_clock.nanoTime();
+        long tickNanos = m_tickInterval * 1000000L;
+        if (!m_ticking || m_tickDeadline - now > tickNanos) {
+            m_tickDeadline = now + tickNanos;
+            m_ticking = true;
+        } else {
+            m_tickDeadline += tickNanos;
+            if (m_tickDeadline - now < 0) {
+                m_tickDeadline = now;
+            }
+        }
+
+//        // Get button input (going backwards preserves button priority)
+//        if (m_buttons != null) {
+//            for (int i = m_buttons.size() - 1; i >= 0; i--) {
+//                m_buttons.elementAt(i).execute();
+//            }
+//        }
+
+        // Read phase - the subsystems read all their sensors once
+        for (int i = 0; i < m_subsystems.size(); i++) {
+            m_subsystems.get(i).readInputs();
+        }
+
+        // Loop through the commands that are currently on the command list
+        ACommand command = m_firstCommand;
+        while (command != null) {
+            ACommand next = command.m_nextRunning;
+            if (isLate(command)) {
+                command = next;
+                continue;
+            }
+            if (!command.run()) {
+                remove(command);
+                m_runningCommandsChanged = true;
+            }
+            command = next;
+        }
+
+        // Add any commands that have been scheduled for addition
+        for (ACommand addition = m_additions.poll(); addition != null; addition = m_additions.poll()) {
+            _add(addition);
+        }
+
+        // Add in the defaults - NOTE: this is an indexed loop rather than a for-each so no iterator is allocated
+        for (int i = 0; i < m_subsystems.size(); i++) {
+            ASubsystem subsystem = m_subsystems.get(i);
+            if ((subsystem.getCurrentCommand() == null) && (subsystem.getDefaultCommand() != null)) {
+                _add(subsystem.getDefaultCommand());
+            }
+        }
+
+        // Write phase - the subsystems write all their actuators once. This is after the additions because interrupted
+        // commands may have changed actuators (i.e. stopped motors) in end() or interrupted().
+        for (int i = 0; i < m_subsystems.size(); i++) {
+            m_subsystems.get(i).writeOutputs();
+        }
+
+        // Update the tick interval when the running commands have changed - the running commands telemetry is only
+        // built when it is sent, see publishTelemetry()
+        if (m_runningCommandsChanged) {
+            updateTickInterval();
+            m_runningCommandsStale = true;
+        }
+    }
+
+    /**
+     * Decide whether a command should be deferred or skipped because the tick is late. {@link ACommand.Priority#CRITICAL}
+     * commands always run, as do commands that are not due on this tick or have been canceled (so they are removed).
+     * Otherwise, the command is late if the time left in the tick is less than the command's budget. A late
+     * {@link ACommand.Priority#LOW} command is skipped until its next period.
+     *
+     * @param command (not null) The command about to be run.
+     * @return <tt>true</tt> if the command should not be run on this tick; <tt>false</tt> otherwise.
+     */
+    private boolean isLate(ACommand command) {
+        if (command.getPriority() == ACommand.Priority.CRITICAL || command.isCanceled() || !command.isDue()) {
+            return false;
+        }
+        if (m_tickDeadline - m_clock.nanoTime() > command.getBudget()) {
+            command.m_deferred = false;
+            return false;
+        }
+        if (command.getPriority() == ACommand.Priority.LOW) {
+            // skipped for this period - it is not retried on the next tick
+            command.skipped();
+            command.m_skippedCt++;
+            m_skippedCt++;
+            return true;
+        }
+        if (command.m_deferred) {
+            // deferred on the last tick - so it has to run now
+            command.m_deferred = false;
+            return false;
+        }
+        command.m_deferred = true;
+        command.m_deferredCt++;
+        m_deferredCt++;
+        return true;
+    }
+
+    /**
+     * Returns the number of command runs that were deferred to the next tick because the tick was late.
+     *
+     * @return the number of deferred command runs.
+     */
+    public long getDeferredCount() {
+        return m_deferredCt;
+    }
+
+    /**
+     * Returns the number of command runs that were skipped because the tick was late.
+     *
+     * @return the number of skipped command runs.
+     */
+    public long getSkippedCount() {
+        return m_skippedCt;
+    }
+
+    /**
+     * Get the interval between scheduler ticks. This is the period of the fastest running command, or the ideal loop
+     * interval of the op mode if no running command declares a faster period. The op mode should call {@link
+     * Scheduler#run()} at this interval.
+     *
+     * @return The interval (in milliseconds) between scheduler ticks.
+     * @see ACommand#setPeriod(long)
+     */
+    public long getTickInterval() {
+        return m_tickInterval;
+    }
+
+    /**
+     * Recompute the tick interval from the periods of the running commands, and tell the running commands which ticks
+     * they should run on.
+     */
+    private void updateTickInterval() {
+        long idealLoopInterval = m_opMode.getIdealLoopInterval();
+        long tickInterval = idealLoopInterval;
+        for (ACommand command = m_firstCommand; command != null; command = command.m_nextRunning) {
+            tickInterval = Math.min(tickInterval, command.getFastestPeriod(idealLoopInterval));
+        }
+        m_tickInterval = tickInterval;
+        for (ACommand command = m_firstCommand; command != null; command = command.m_nextRunning) {
+            command.setTickInterval(tickInterval, idealLoopInterval);
+        }
+    }
+
+    /**
+     * Publish the scheduler telemetry - the names of the running commands. The op mode calls this just before it sends
+     * the telemetry, which is a few times a second. The names are only built then, and only if the running commands
+     * have changed since they were last published - so commands that start and stop every tick cost nothing in
+     * {@link Scheduler#run()}.
+     */
+    public void publishTelemetry() {
+        if (!m_runningCommandsStale) {
+            return;
+        }
+        m_runningCommandsStale = false;
+        StringBuilder names = m_runningCommandNames;
+        names.setLength(0);
+        for (ACommand command = m_firstCommand; command != null; command = command.m_nextRunning) {
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(command.getName());
+        }
+        m_opMode.publishTelemetry(m_runningCommandsSlot, names.toString());
+    }
+
+    /**
+     * Removes the {@link ACommand} from the {@link Scheduler}.
+     *
+     * @param command the command to remove
+     */
+    void remove(ACommand command) {
+        if (command == null || !command.m_inRunningList) {
+            return;
+        }
+
+        // Unlink the command from the linked list of running commands.
+        if (command.m_previousRunning == null) {
+            m_firstCommand = command.m_nextRunning;
+        } else {
+            command.m_previousRunning.m_nextRunning = command.m_nextRunning;
+        }
+        if (command.m_nextRunning == null) {
+            m_lastCommand = command.m_previousRunning;
+        } else {
+            command.m_nextRunning.m_previousRunning = command.m_previousRunning;
+        }
+        command.m_nextRunning = null;
+        command.m_previousRunning = null;
+        command.m_inRunningList = false;
+
+        // Reset the current command on the required subsystems to null
+        RequirementSet requirements = command.getRequirements();
+        for (int i = requirements.nextSetBit(0); i >= 0; i = requirements.nextSetBit(i + 1)) {
+            m_subsystems.get(i).setCurrentCommand(null);
+        }
+        m_claimed.removeAll(requirements);
+
+        command.removed();
+    }
+
+    /**
+     * Removes all commands.
+     */
+    public void removeAll() {
+        // TODO: Confirm that this works with "uninteruptible" commands
+        while (m_firstCommand != null) {
+            remove(m_firstCommand);
+        }
+    }
+
+}
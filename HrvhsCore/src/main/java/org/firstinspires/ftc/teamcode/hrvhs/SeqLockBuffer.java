@@ -0,0 +1,92 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed set of values published by a single writer thread and read by any number of reader threads without locks
+ * or allocation. This is a sequence lock: the writer makes the sequence odd while it is writing and even when it is
+ * done, and a reader retries if the sequence was odd or changed while it was reading. The writer never waits, and a
+ * reader only spins if it happens to read while the writer is writing (which takes a few nanoseconds).
+ * <p>
+ * The values are stored as <tt>long</tt>; doubles are stored as their raw bits with {@link SeqLockBuffer#set(int,
+ * double)} and recovered with {@link SeqLockBuffer#toDouble(long)}.
+ */
+public final class SeqLockBuffer {
+
+    private final AtomicLong m_sequence = new AtomicLong(0);
+    private final AtomicLongArray m_values;
+
+    /**
+     * Instantiate the SeqLockBuffer.
+     *
+     * @param size The number of values in the buffer.
+     */
+    public SeqLockBuffer(int size) {
+        m_values = new AtomicLongArray(size);
+    }
+
+    /**
+     * Start writing a new set of values. Only one thread may write.
+     */
+    public void beginWrite() {
+        m_sequence.set(m_sequence.get() + 1);
+    }
+
+    /**
+     * Set a value, this must be between {@link SeqLockBuffer#beginWrite()} and {@link SeqLockBuffer#endWrite()}.
+     *
+     * @param index The index of the value.
+     * @param value The value.
+     */
+    public void set(int index, long value) {
+        m_values.set(index, value);
+    }
+
+    /**
+     * Set a value, this must be between {@link SeqLockBuffer#beginWrite()} and {@link SeqLockBuffer#endWrite()}.
+     *
+     * @param index The index of the value.
+     * @param value The value.
+     */
+    public void set(int index, double value) {
+        m_values.set(index, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Finish writing a set of values, which publishes them to the readers.
+     */
+    public void endWrite() {
+        m_sequence.set(m_sequence.get() + 1);
+    }
+
+    /**
+     * Read a consistent set of values - all of the values from the same write.
+     *
+     * @param values (not null) The array the values are read into, at least as long as the buffer.
+     * @return The sequence number of the values read, which only changes when new values have been published.
+     */
+    public long read(long[] values) {
+        while (true) {
+            long sequence = m_sequence.get();
+            if ((sequence & 1) == 0) {
+                for (int i = 0; i < m_values.length(); i++) {
+                    values[i] = m_values.get(i);
+                }
+                if (m_sequence.get() == sequence) {
+                    return sequence;
+                }
+            }
+        }
+    }
+
+    /**
+     * Convert a value stored with {@link SeqLockBuffer#set(int, double)} back to a double.
+     *
+     * @param value The stored value.
+     * @return The double value.
+     */
+    public static double toDouble(long value) {
+        return Double.longBitsToDouble(value);
+    }
+}
@@ -0,0 +1,124 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * A velocity controller for one motor - the power for a target velocity is a feedforward (the power the motor should
+ * need for the target velocity and acceleration) plus a PID correction for the difference between the target and the
+ * measured velocity:
+ * <pre>
+ *     power = kStatic * sign(target) + kV * target + kA * acceleration
+ *             + kP * error + kI * integral(error) + kD * d(error)/dt
+ * </pre>
+ * The feedforward does most of the work, so the PID only has to correct for what the feedforward gets wrong - a low
+ * battery, a heavier load, or one wheel that is stiffer than the others. The power is limited to -1 to 1, and the
+ * integral does not wind up while the power is limited. A target of exactly 0 is a stop - the power is 0 (so the
+ * motor brakes) and the controller is reset.
+ * <p>
+ * The units are whatever the caller uses, as long as the gains match - the drive uses inches per second of wheel
+ * surface speed. This is not thread-safe, it is expected that it is only used on the thread running the velocity
+ * loop.
+ */
+public final class VelocityController {
+
+    private double m_kV = 0.0;
+    private double m_kA = 0.0;
+    private double m_kStatic = 0.0;
+    private double m_kP = 0.0;
+    private double m_kI = 0.0;
+    private double m_kD = 0.0;
+
+    private double m_integral = 0.0;
+    private double m_lastError = 0.0;
+    private boolean m_hasLastError = false;
+    private double m_lastPower = 0.0;
+
+    /**
+     * Set the feedforward gains.
+     *
+     * @param kV      (double) The power per unit of velocity.
+     * @param kA      (double) The power per unit of acceleration.
+     * @param kStatic (double) The power to overcome friction, added in the direction of the target.
+     */
+    public void setFeedforward(double kV, double kA, double kStatic) {
+        m_kV = kV;
+        m_kA = kA;
+        m_kStatic = kStatic;
+    }
+
+    /**
+     * Set the PID gains.
+     *
+     * @param kP (double) The power per unit of velocity error.
+     * @param kI (double) The power per unit of velocity error per second.
+     * @param kD (double) The power per unit of velocity error change per second.
+     */
+    public void setPid(double kP, double kI, double kD) {
+        m_kP = kP;
+        m_kI = kI;
+        m_kD = kD;
+    }
+
+    /**
+     * Reset the integral and derivative state, for example when the controller has not been used for a while.
+     */
+    public void reset() {
+        m_integral = 0.0;
+        m_lastError = 0.0;
+        m_hasLastError = false;
+        m_lastPower = 0.0;
+    }
+
+    /**
+     * Compute the power for a target velocity.
+     *
+     * @param target       (double) The target velocity.
+     * @param acceleration (double) The target acceleration.
+     * @param measured     (double) The measured velocity.
+     * @param dt           (double) The time since the last calculate in seconds, 0 if this is the first.
+     * @return (double) The power, -1.0 to 1.0.
+     */
+    public double calculate(double target, double acceleration, double measured, double dt) {
+        if (target == 0.0) {
+            reset();
+            return 0.0;
+        }
+        double error = target - measured;
+        double derivative = 0.0;
+        double integral = m_integral;
+        if (dt > 0.0) {
+            if (m_hasLastError) {
+                derivative = (error - m_lastError) / dt;
+            }
+            integral += error * dt;
+        }
+        m_lastError = error;
+        m_hasLastError = true;
+
+        double power = m_kStatic * Math.signum(target) + m_kV * target + m_kA * acceleration
+                + m_kP * error + m_kI * integral + m_kD * derivative;
+        if (power > 1.0 || power < -1.0) {
+            // the power is limited - keep the integral unless this error would have wound it further
+            if (Math.signum(error) != Math.signum(power)) {
+                m_integral = integral;
+            }
+            power = Math.max(-1.0, Math.min(1.0, power));
+        } else {
+            m_integral = integral;
+        }
+        m_lastPower = power;
+        return power;
+    }
+
+    /**
+     * @return (double) The power from the last calculate.
+     */
+    public double getLastPower() {
+        return m_lastPower;
+    }
+
+    /**
+     * @return (double) The velocity error of the last calculate.
+     */
+    public double getLastError() {
+        return m_lastError;
+    }
+}
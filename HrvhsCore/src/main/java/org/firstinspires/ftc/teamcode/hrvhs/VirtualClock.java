@@ -0,0 +1,87 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * A clock that only moves when it is told to. Time is advanced explicitly with {@link VirtualClock#advance(long)}, or
+ * by {@link VirtualClock#sleepUntil(long) sleeping}, which jumps straight to the deadline. Installed in the
+ * {@link Scheduler} for off-robot runs, the control loop ticks as fast as the computation allows while every command
+ * sees exactly the tick period pass between ticks - so a 30 second autonomous takes milliseconds and is repeatable.
+ * <p>
+ * The time is volatile so it can be read from any thread, but it should only be advanced by one thread (normally the
+ * thread running the control loop). Another thread that paces itself on the clock uses
+ * {@link VirtualClock#awaitTime(long)}, which waits for that thread to move the clock.
+ */
+public final class VirtualClock extends AClock {
+
+    private volatile long m_now;
+
+    /**
+     * Instantiate the VirtualClock at time 0.
+     */
+    public VirtualClock() {
+        this(0L);
+    }
+
+    /**
+     * Instantiate the VirtualClock.
+     *
+     * @param start The initial time in nanoseconds.
+     */
+    public VirtualClock(long start) {
+        m_now = start;
+    }
+
+    @Override
+    public long nanoTime() {
+        return m_now;
+    }
+
+    /**
+     * Move the clock to the deadline if it is in the future; no real time passes.
+     *
+     * @param deadline The time (from {@link VirtualClock#nanoTime()}) to move to.
+     */
+    @Override
+    public void sleepUntil(long deadline) {
+        if (deadline - m_now > 0) {
+            m_now = deadline;
+        }
+    }
+
+    /**
+     * Wait, in real time, for the thread that owns the clock to move it to the deadline - this never moves the clock,
+     * so a background thread pacing itself on it runs once for every step of the control loop that passes its
+     * deadline.
+     *
+     * @param deadline The time (from {@link VirtualClock#nanoTime()}) to wait until.
+     * @throws InterruptedException Thrown if the thread was interrupted while waiting.
+     */
+    @Override
+    public void awaitTime(long deadline) throws InterruptedException {
+        while (deadline - m_now > 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Advance the clock.
+     *
+     * @param millis The time to advance in milliseconds.
+     * @throws IllegalArgumentException if millis is negative - time never runs backwards.
+     */
+    public void advance(long millis) {
+        advanceNanos(millis * 1000000L);
+    }
+
+    /**
+     * Advance the clock.
+     *
+     * @param nanos The time to advance in nanoseconds.
+     * @throws IllegalArgumentException if nanos is negative - time never runs backwards.
+     */
+    public void advanceNanos(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Time must advance.  Given:" + nanos);
+        }
+        m_now += nanos;
+    }
+}
@@ -0,0 +1,58 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The {@link LogLinearHistogram} at the top of the resolved range - the last resolved bucket ends at
+ * 2<sup>37</sup>-1ns, and the overflow bucket starts at 2<sup>37</sup>ns, so a value just below the overflow is still
+ * reported to within its bucket. A percentile is the upper bound of its bucket (but never more than the largest
+ * value), so recording a much larger value as well shows which bucket the smaller value went in.
+ */
+public class LogLinearHistogramTest {
+
+    // The first value that is not resolved, and a value far above it.
+    private static final long OVERFLOW = 1L << 37;
+    private static final long FAR_ABOVE = 1L << 40;
+
+    /**
+     * Get the median of a value and a much larger value - the upper bound of the bucket the value is in.
+     *
+     * @param value The value.
+     * @return The median in nanoseconds.
+     */
+    private static long lclBucketUpperBound(long value) {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        histogram.record(value);
+        histogram.record(FAR_ABOVE);
+        return histogram.getPercentile(50.0);
+    }
+
+    @Test
+    public void lastResolvedBucketEndsBelowTheOverflow() {
+        // the last resolved bucket is the last eighth of the largest power of two
+        assertEquals(OVERFLOW - 1, lclBucketUpperBound(15L << 33));
+        assertEquals(OVERFLOW - 1, lclBucketUpperBound(OVERFLOW - 1));
+        // the bucket before it ends where it starts
+        assertEquals((15L << 33) - 1, lclBucketUpperBound((15L << 33) - 1));
+    }
+
+    @Test
+    public void overflowStartsAfterTheLastResolvedBucket() {
+        // an overflowed value is only known to be in the overflow bucket, so the median is the largest value
+        assertEquals(FAR_ABOVE, lclBucketUpperBound(OVERFLOW));
+        assertEquals(FAR_ABOVE, lclBucketUpperBound(FAR_ABOVE - 1));
+    }
+
+    @Test
+    public void overflowIsCounted() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        histogram.record(OVERFLOW - 1);
+        histogram.record(OVERFLOW);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(3, histogram.getCount());
+        assertEquals(OVERFLOW - 1, histogram.getPercentile(33.0));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100.0));
+    }
+}
@@ -0,0 +1,81 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The {@link MotionProfile} at the end of a move - the last sample is the end of the move, so the time just before it
+ * must interpolate between the last two samples. When the duration is a whole number of sample periods, the index of
+ * that time can round up to the last sample.
+ */
+public class MotionProfileTest {
+
+    private static final double[] SAMPLE_PERIODS = {0.005, 0.01, 0.02, 0.025, 0.05};
+    private static final double MAX_ACCELERATION = 20.0;
+    private static final double MAX_JERK = 200.0;
+
+    /**
+     * Check a profile just before, at, and after the end of the move.
+     *
+     * @param profile (not null) The profile.
+     */
+    private static void lclCheckEnd(MotionProfile profile) {
+        double duration = profile.getDuration();
+        double distance = profile.getDistance();
+        double justBefore = Math.nextDown(duration);
+        String what = "distance " + distance + ", duration " + duration + ", sample period " +
+                profile.getSamplePeriod();
+        assertEquals(what + ", position just before the end", distance, profile.getPosition(justBefore), 1.0e-6);
+        assertEquals(what + ", velocity just before the end", 0.0, profile.getVelocity(justBefore), 1.0e-6);
+        profile.getAcceleration(justBefore);
+        assertEquals(what + ", position at the end", distance, profile.getPosition(duration), 0.0);
+        assertEquals(what + ", velocity at the end", 0.0, profile.getVelocity(duration), 0.0);
+        assertEquals(what + ", position after the end", distance, profile.getPosition(duration + 1.0), 0.0);
+    }
+
+    @Test
+    public void trapezoidalEnd() {
+        for (double samplePeriod : SAMPLE_PERIODS) {
+            for (int halfInches = 1; halfInches <= 200; halfInches++) {
+                for (int maxVelocity = 4; maxVelocity <= 40; maxVelocity += 4) {
+                    lclCheckEnd(MotionProfile.trapezoidal(halfInches * 0.5, maxVelocity, MAX_ACCELERATION,
+                            samplePeriod));
+                    lclCheckEnd(MotionProfile.trapezoidal(-halfInches * 0.5, maxVelocity, MAX_ACCELERATION,
+                            samplePeriod));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sCurveEnd() {
+        for (double samplePeriod : SAMPLE_PERIODS) {
+            for (int halfInches = 1; halfInches <= 200; halfInches++) {
+                for (int maxVelocity = 4; maxVelocity <= 40; maxVelocity += 4) {
+                    lclCheckEnd(MotionProfile.sCurve(halfInches * 0.5, maxVelocity, MAX_ACCELERATION, MAX_JERK,
+                            samplePeriod));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void wholeNumberOfSamplePeriods() {
+        // 3 inches at 4 in/s and 20 in/s/s takes 0.95 seconds - 190 periods of 5ms, and the time just before the end
+        //  divides to 190
+        MotionProfile profile = MotionProfile.trapezoidal(3.0, 4.0, MAX_ACCELERATION, 0.005);
+        assertEquals("duration", 0.95, profile.getDuration(), 1.0e-12);
+        assertEquals("samples", 191, profile.getSampleCount());
+        assertEquals("index just before the end", 190,
+                (int) (Math.nextDown(profile.getDuration()) / profile.getSamplePeriod()));
+        lclCheckEnd(profile);
+    }
+
+    @Test
+    public void zeroDistance() {
+        MotionProfile profile = MotionProfile.sCurve(0.0, 30.0, MAX_ACCELERATION, MAX_JERK, 0.02);
+        assertEquals("duration", 0.0, profile.getDuration(), 0.0);
+        lclCheckEnd(profile);
+    }
+}
@@ -1,8 +1,10 @@
 package org.firstinspires.ftc.teamcode.commands;
 
+import com.qualcomm.robotcore.hardware.Gamepad;
 import org.firstinspires.ftc.teamcode.hrvhs.ACommand;
 import org.firstinspires.ftc.teamcode.hrvhs.AHrvhsOpMode;
 import org.firstinspires.ftc.teamcode.hrvhs.ASubsystem;
+import org.firstinspires.ftc.teamcode.hrvhs.DriveMath;
 import org.firstinspires.ftc.teamcode.hrvhs.MecanumDriveSubsystem;
 
 import static org.firstinspires.ftc.teamcode.hrvhs.AConstants.STICK_DEAD_BAND;
@@ -37,6 +39,8 @@ public abstract class ADriveSticks extends ACommand {
         super(opMode, name, requirements);
         m_mecDrive = (MecanumDriveSubsystem)requirements[0];
         setInterruptible(true);
+        // the driver feels a deferred tick as lag between the sticks and the robot
+        setPriority(Priority.CRITICAL);
     }
 
     /**
@@ -46,10 +50,11 @@ public abstract class ADriveSticks extends ACommand {
     void lclConditionSticks() {
         // get the raw values - NOTE: when you push the stick forward the value is negative - that is counter-intuitive,
         // so negate those as the raw values.
-        m_rawRightX = m_opMode.gamepad1.right_stick_x;
-        m_rawRightY = -m_opMode.gamepad1.right_stick_y;
-        m_rawLeftX = m_opMode.gamepad1.left_stick_x;
-        m_rawLeftY = -m_opMode.gamepad1.left_stick_y;
+        Gamepad gamepad1 = AHrvhsOpMode.from(m_opMode).gamepad1;
+        m_rawRightX = gamepad1.right_stick_x;
+        m_rawRightY = -gamepad1.right_stick_y;
+        m_rawLeftX = gamepad1.left_stick_x;
+        m_rawLeftY = -gamepad1.left_stick_y;
 
         m_conditionedRightX = lclConditionedStickValue(m_rawRightX, STICK_DEAD_BAND, STICK_SENSITIVITY);
         m_conditionedRightY = lclConditionedStickValue(m_rawRightY, STICK_DEAD_BAND, STICK_SENSITIVITY);
@@ -58,10 +63,7 @@ public abstract class ADriveSticks extends ACommand {
     }
 
     double lclConditionedStickValue(double stickValue, double deadBand, double sensitivity) {
-        if (Math.abs(stickValue) <= deadBand) return 0.0;
-        double sign = (stickValue < 0.0) ? -1.0 : 1.0;
-        double deadbandCorrected = (Math.abs(stickValue) - deadBand) / (1.0 - deadBand);
-        return sign * Math.pow(deadbandCorrected, sensitivity);
+        return DriveMath.conditionedStickValue(stickValue, deadBand, sensitivity);
     }
 
     @Override
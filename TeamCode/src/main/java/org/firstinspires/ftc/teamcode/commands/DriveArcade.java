@@ -1,5 +1,6 @@
 package org.firstinspires.ftc.teamcode.commands;
 
+import com.qualcomm.robotcore.hardware.Gamepad;
 import org.firstinspires.ftc.teamcode.hrvhs.AHrvhsOpMode;
 import org.firstinspires.ftc.teamcode.hrvhs.ASubsystem;
 
@@ -7,7 +8,6 @@ import static org.firstinspires.ftc.teamcode.hrvhs.AConstants.STICK_DEAD_BAND;
 import static org.firstinspires.ftc.teamcode.hrvhs.AConstants.STICK_TURN_SENSITIVITY;
 import static org.firstinspires.ftc.teamcode.hrvhs.AConstants.STICK_FORWARD_SENSITIVITY;
 import static org.firstinspires.ftc.teamcode.hrvhs.AConstants.STICK_SIDEWAYS_SENSITIVITY;
-import static org.firstinspires.ftc.teamcode.hrvhs.AConstants.HEADING_CORRECTION_KP;
 
 public class DriveArcade extends ADriveSticks {
 
@@ -33,9 +33,10 @@ public class DriveArcade extends ADriveSticks {
     protected void execute() {
         // get the raw values - NOTE: when you push the stick forward the value is negative - that is counter-intuitive,
         // so negate those as the raw values.
-        m_rawRightX = m_opMode.gamepad1.right_stick_x;
-        m_rawRightY = -m_opMode.gamepad1.right_stick_y;
-        m_rawLeftX = m_opMode.gamepad1.left_stick_x;
+        Gamepad gamepad1 = AHrvhsOpMode.from(m_opMode).gamepad1;
+        m_rawRightX = gamepad1.right_stick_x;
+        m_rawRightY = -gamepad1.right_stick_y;
+        m_rawLeftX = gamepad1.left_stick_x;
 
         m_conditionedRightX = lclConditionedStickValue(m_rawRightX, STICK_DEAD_BAND, STICK_SIDEWAYS_SENSITIVITY);
         m_conditionedRightY = lclConditionedStickValue(m_rawRightY, STICK_DEAD_BAND, STICK_FORWARD_SENSITIVITY);
@@ -51,7 +52,7 @@ public class DriveArcade extends ADriveSticks {
             }
             double headingError = m_mecDrive.getExpectedHeading() - heading;
             double max = Math.abs(m_conditionedRightY) + Math.abs(m_conditionedRightX);
-            m_mecDrive.setArcadePower(m_conditionedRightY, m_conditionedRightX, max * HEADING_CORRECTION_KP * headingError);
+            m_mecDrive.setArcadePower(m_conditionedRightY, m_conditionedRightX, max * m_mecDrive.getTuning().getHeadingKp() * headingError);
         } else {
             // the robot is turning
             m_bInTurn = true;
@@ -0,0 +1,96 @@
+package org.firstinspires.ftc.teamcode.commands;
+
+import org.firstinspires.ftc.teamcode.hrvhs.ACommand;
+import org.firstinspires.ftc.teamcode.hrvhs.AConstants;
+import org.firstinspires.ftc.teamcode.hrvhs.AHrvhsOpMode;
+import org.firstinspires.ftc.teamcode.hrvhs.ASubsystem;
+import org.firstinspires.ftc.teamcode.hrvhs.MecanumDriveSubsystem;
+import org.firstinspires.ftc.teamcode.hrvhs.MotionProfile;
+
+/**
+ * An autonomous move forward (or backward) a distance, holding the heading. The move follows the drive
+ * {@link MecanumDriveSubsystem#getMoveProfile(double) motion profile}, which is generated (or found in the cache) when
+ * the command is initialized, so every control loop only looks up where the robot should be and sets the
+ * {@link MecanumDriveSubsystem#getProfilePower(MotionProfile, double, double) profile power}. The heading is held with
+ * the heading correction gain of the drive tuning.
+ */
+public class DriveDistance extends ACommand {
+
+    // The move is finished when the profile is finished and the robot is within this many inches of the end, or this
+    // many seconds after the profile is finished if it never gets there.
+    static final double TOLERANCE = 0.5;
+    static final double SETTLE_TIMEOUT = 0.5;
+
+    MecanumDriveSubsystem m_mecDrive;
+    // the length of the move in inches, and the direction, 1.0 forward or -1.0 backward
+    final double m_distance;
+    final double m_direction;
+    // the encoder position (the average of the wheels) at the start of the move
+    double m_startTics;
+    // the profile of the move, set at initialization
+    MotionProfile m_profile;
+
+    /**
+     * Instantiate the DriveDistance command.
+     *
+     * @param opMode       (not null) The op mode for the command - which has access to the input devices
+     *                     the command may require.
+     * @param name         The name of the command for logging/debugging. If <tt>null</tt> the class name
+     *                     is used as the name of the command
+     * @param distance     The distance to move in inches, positive is forward, negative is backward.
+     * @param requirements The subsystems this command requires.
+     */
+    public DriveDistance(AHrvhsOpMode opMode, String name, double distance, ASubsystem... requirements) {
+        super(opMode, name, requirements);
+        m_mecDrive = (MecanumDriveSubsystem)requirements[0];
+        m_distance = Math.abs(distance);
+        m_direction = (distance < 0.0) ? -1.0 : 1.0;
+        // the end of the move is only checked when the command runs - a skipped tick drives past it at the last power
+        setPriority(Priority.CRITICAL);
+    }
+
+    @Override
+    protected void initialize() {
+        m_startTics = lclForwardTics();
+        m_mecDrive.resetExpectedHeading();
+        m_profile = m_mecDrive.getMoveProfile(m_distance);
+    }
+
+    /**
+     * Set the drive power for the current time in the move.
+     */
+    @Override
+    protected void execute() {
+        double power = m_mecDrive.getProfilePower(m_profile, timeSinceInitialized(), lclTraveled());
+        double headingError = m_mecDrive.getExpectedHeading() - m_mecDrive.getHeading();
+        m_mecDrive.setArcadePower(m_direction * power, 0.0,
+                Math.abs(power) * m_mecDrive.getTuning().getHeadingKp() * headingError);
+    }
+
+    @Override
+    protected boolean isFinished() {
+        double time = timeSinceInitialized();
+        if (!m_profile.isFinished(time)) {
+            return false;
+        }
+        return (Math.abs(m_distance - lclTraveled()) <= TOLERANCE)
+                || (time >= m_profile.getDuration() + SETTLE_TIMEOUT);
+    }
+
+    @Override
+    protected void end() {
+        m_mecDrive.setArcadePower(0.0, 0.0, 0.0);
+    }
+
+    /**
+     * @return The distance travelled in the direction of the move, in inches.
+     */
+    private double lclTraveled() {
+        return m_direction * (lclForwardTics() - m_startTics) / AConstants.TICS_PER_INCH_FORWARD;
+    }
+
+    private double lclForwardTics() {
+        return (m_mecDrive.getFrontLeftEncoder() + m_mecDrive.getFrontRightEncoder()
+                + m_mecDrive.getRightRearEncoder() + m_mecDrive.getLeftRearEncoder()) / 4.0;
+    }
+}
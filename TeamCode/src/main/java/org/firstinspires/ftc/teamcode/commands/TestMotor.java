@@ -1,5 +1,6 @@
 package org.firstinspires.ftc.teamcode.commands;
 
+import com.qualcomm.robotcore.hardware.Gamepad;
 import org.firstinspires.ftc.teamcode.hrvhs.ACommand;
 import org.firstinspires.ftc.teamcode.hrvhs.AHrvhsOpMode;
 import org.firstinspires.ftc.teamcode.hrvhs.ASubsystem;
@@ -22,6 +23,7 @@ public class TestMotor  extends ACommand {
         super(opMode, name, requirements);
         m_mecDrive = (MecanumDriveSubsystem)requirements[0];
         setInterruptible(true);
+        setPriority(Priority.CRITICAL);
     }
 
     /**
@@ -30,10 +32,11 @@ public class TestMotor  extends ACommand {
     @Override
     protected void execute() {
 
-        double speedFL = m_opMode.gamepad1.dpad_up ? 1.0 : 0.0;
-        double speedFR = m_opMode.gamepad1.dpad_right ? 1.0 : 0.0;
-        double speedRR = m_opMode.gamepad1.dpad_down ? 1.0 : 0.0;
-        double speedLR = m_opMode.gamepad1.dpad_left ? 1.0 : 0.0;
+        Gamepad gamepad1 = AHrvhsOpMode.from(m_opMode).gamepad1;
+        double speedFL = gamepad1.dpad_up ? 1.0 : 0.0;
+        double speedFR = gamepad1.dpad_right ? 1.0 : 0.0;
+        double speedRR = gamepad1.dpad_down ? 1.0 : 0.0;
+        double speedLR = gamepad1.dpad_left ? 1.0 : 0.0;
         m_mecDrive.setMotorPower(speedFL, speedFR, speedRR, speedLR);
 
     }
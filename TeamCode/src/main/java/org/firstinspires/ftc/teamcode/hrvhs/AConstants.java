@@ -25,11 +25,18 @@ public abstract class AConstants {
     static public DcMotor.Direction LEFT_REAR_DIRECTION = DcMotor.Direction.FORWARD;
 
     // -----------------------------------------------------------------------------------------------
-    // Calibration values for the encoders and for acceleration and deceleration in autonomous
-    // move and turn functions - use the CalibrateTest program to figure out the correct value
-    // for these for your robot.
+    // Calibration values for the encoders in autonomous move and turn functions - drive (or strafe) the robot a
+    // measured distance and divide the change in the average wheel encoder count by the distance to get the correct
+    // value for your robot.
     static public double TICS_PER_INCH_FORWARD = 65.0;
     static public double TICS_PER_INCH_SIDEWAYS = 120.0;
+    // The average encoder tics of the wheels for 1 degree of rotation - this is only used for the heading until the
+    // IMU is calibrated (or if it fails to calibrate), so it is OK if it is only approximately right.
+    static public double TICS_PER_DEGREE_ROTATION = 11.0;
+
+    // The time (in milliseconds) allowed for IMU initialization and calibration after the start, after which the
+    // heading is computed from the encoders.
+    static public long IMU_CALIBRATION_TIMEOUT = 3000;
 
     static public double STICK_SENSITIVITY = 2.0;
     static public double STICK_FORWARD_SENSITIVITY = 2.0;
@@ -38,4 +45,30 @@ public abstract class AConstants {
     static public double STICK_DEAD_BAND = 0.05;
 
     static public double HEADING_CORRECTION_KP = 0.05;
+
+    // The motion profile of autonomous moves (see MotionProfile) - the largest velocity (inches per second),
+    // acceleration (inches per second per second), and jerk (inches per second cubed, 0 for a trapezoidal profile),
+    // and the power added per inch the robot is behind the profile. Use the TuneDrive program to find good values for
+    // these and HEADING_CORRECTION_KP.
+    static public double MOVE_MAX_VELOCITY = 30.0;
+    static public double MOVE_MAX_ACCELERATION = 40.0;
+    static public double MOVE_MAX_JERK = 200.0;
+    static public double MOVE_POSITION_KP = 0.05;
+
+    // The feedforward of the drive - the power for a velocity (per inch per second), for an acceleration (per inch
+    // per second per second), and to overcome friction when moving. Measure these on your robot: drive straight at a
+    // few constant powers (i.e. 0.3, 0.5 and 0.8) and read the steady speed from the odometry. KV is the slope of
+    // power against speed (about 1 over the speed at full power), and KSTATIC is the power where that line meets zero
+    // speed - most robots need 0.03 to 0.1. Then raise KA from 0 until a DriveDistance keeps up with its profile while
+    // it speeds up.
+    static public double DRIVE_KV = 0.026;
+    static public double DRIVE_KA = 0.003;
+    static public double DRIVE_KSTATIC = 0.0;
+
+    // The PID of the wheel velocity control (see MecanumDriveSubsystem.setVelocityControl()) - the power per inch
+    // per second of wheel speed error, per inch of accumulated error, and per inch per second per second of error
+    // change. The feedforward above does most of the work, these correct for the battery and the load.
+    static public double DRIVE_VELOCITY_KP = 0.03;
+    static public double DRIVE_VELOCITY_KI = 0.05;
+    static public double DRIVE_VELOCITY_KD = 0.0;
 }
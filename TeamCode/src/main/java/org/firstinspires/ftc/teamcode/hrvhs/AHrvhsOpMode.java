@@ -3,20 +3,73 @@ package org.firstinspires.ftc.teamcode.hrvhs;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 
 /**
- * This is the base class for an HRVHS op mode for a robot.
+ * This is the base class for an HRVHS op mode for a robot. It is the FTC SDK side of {@link IHrvhsOpMode} - the
+ * command framework sees the op mode only through that interface.
  */
-public abstract class AHrvhsOpMode extends LinearOpMode {
+public abstract class AHrvhsOpMode extends LinearOpMode implements IHrvhsOpMode {
 
     // OK, we are going to try to do a uniform loop interval - as a default lets use the FRC interval of 20ms.
     long m_idealLoopInterval = 20;
     // <tt><rue</tt> if loop time should be reported in telemetry; <tt>false</tt> otherwise
     boolean m_reportLoopTime = false;
+    // <tt><rue</tt> if command execution times should be reported in telemetry; <tt>false</tt> otherwise
+    boolean m_reportCommandTiming = false;
+    // The telemetry aggregator, created at the start of runOpMode()
+    TelemetryAggregator m_telemetryAggregator = null;
+    // The telemetry slot for the loop time, -1 until the loop time is first reported
+    int m_loopTimeSlot = -1;
+    // The telemetry slots for the loop overruns and jitter, and the deferred and skipped command counts, -1 until the
+    // loop time is first reported
+    int m_overrunSlot = -1;
+    int m_jitterP99Slot = -1;
+    int m_jitterMaxSlot = -1;
+    int m_deferredSlot = -1;
+    int m_skippedSlot = -1;
+    // The control loop pacer, which also keeps the loop period and jitter statistics, created at the start of the
+    // control loop
+    LoopTimer m_loopTimer = null;
+    // The time from the start (waitForStart() returning) to the first control tick in milliseconds, -1 until then
+    double m_timeToFirstTick = -1.0;
+    // <tt>true</tt> from the start of the control loop until the op mode stops - set by the lifecycle rather than by
+    //  waitForStart(), so it is the same on the robot and in the SimulationHarness, and readable from any thread
+    private volatile boolean m_controlLoopActive = false;
+    // <tt>true</tt> if the loop timing should be logged to the console; <tt>false</tt> otherwise
+    boolean m_logToConsole = false;
+    // The scheduler for this op mode. It is bound to the constructing thread here - before any subsystem field is
+    // initialized - so the subsystems register with this scheduler rather than another op mode's. That binding is not
+    // removed when construction ends (the subclass fields are initialized after this class's), but it is weak and
+    // ends when the scheduler is stopped, see Scheduler.
+    final Scheduler m_scheduler = lclBindNewScheduler();
     // The tile runner mecanum drive
     protected MecanumDriveSubsystem m_driveSubsystem = new MecanumDriveSubsystem();
 
 
+    private static Scheduler lclBindNewScheduler() {
+        Scheduler scheduler = new Scheduler();
+        Scheduler.bind(scheduler);
+        return scheduler;
+    }
+
+    /**
+     * Get the FTC op mode - for the commands and subsystems in TeamCode that need the gamepads or the hardware map,
+     * which the core only knows as an {@link IHrvhsOpMode}.
+     * @param opMode The op mode of a command or subsystem.
+     * @return The op mode.
+     * @throws IllegalArgumentException if the op mode is not an <tt>AHrvhsOpMode</tt> (i.e. it is a benchmark op
+     * mode).
+     */
+    public static AHrvhsOpMode from(IHrvhsOpMode opMode) {
+        if (!(opMode instanceof AHrvhsOpMode)) {
+            throw new IllegalArgumentException("This needs an AHrvhsOpMode, given: " + opMode);
+        }
+        return (AHrvhsOpMode) opMode;
+    }
+
     /**
-     * Set an 'ideal' loop interval in milliseconds. The default is 20ms asused in FRC code.
+     * Set an 'ideal' loop interval in milliseconds. The default is 20ms asused in FRC code. This is the period of commands
+     * that do not {@link ACommand#setPeriod(long) set a period}. The loop ticks at this interval, or at the period of
+     * the fastest running command if that is shorter - a longer command period never slows the loop down. A tick is
+     * only longer than this when its work overruns the interval (see {@link LoopTimer}).
      * @param idealLoopInterval
      */
     public void setIdealLoopInterval(long idealLoopInterval) {
@@ -27,6 +80,7 @@ public abstract class AHrvhsOpMode extends LinearOpMode {
      * Get the current 'ideal' loop interval in milliseconds.
      * @return The 'ideal' loop interval in milliseconds.
      */
+    @Override
     public long getIdealLoopInterval() {
         return m_idealLoopInterval;
     }
@@ -39,47 +93,235 @@ public abstract class AHrvhsOpMode extends LinearOpMode {
         m_reportLoopTime = reportLoopTime;
     }
 
+    /**
+     * Set whether the time to first tick, and at the end of the op mode the loop timing, the deferred and skipped
+     * command counts, and the telemetry summary, should be logged to the console, the default is <tt>false</tt>.
+     * @param logToConsole <tt>true</tt> if the timing should be logged to the console; <tt>false</tt> otherwise.
+     */
+    public void logToConsole(boolean logToConsole) {
+        m_logToConsole = logToConsole;
+    }
+
+    /**
+     * Set whether the p50/p99/max execution time of each running command should be reported in the telemetry output,
+     * the default is <tt>false</tt>. This turns on {@link Scheduler#setProfiling(boolean) profiling} in the
+     * scheduler.
+     * @param reportCommandTiming <tt>true</tt> if command execution times should be reported in telemetry;
+     *                            <tt>false</tt> otherwise.
+     */
+    public void reportCommandTiming(boolean reportCommandTiming) {
+        m_reportCommandTiming = reportCommandTiming;
+        if (reportCommandTiming) {
+            m_scheduler.setProfiling(true);
+        }
+    }
+
+    /**
+     * Get the telemetry aggregator for this op mode. Commands and subsystems should publish values through slots in the
+     * aggregator rather than calling <tt>telemetry.addData()</tt> every loop - lines added directly to the telemetry
+     * are kept until the next flush, so a line added every loop is sent once for every loop since the last flush. The
+     * aggregator is available from the start of <tt>runOpMode()</tt>, so slots are normally added in
+     * <tt>preStartInitialize()</tt>.
+     * @return The telemetry aggregator for this op mode.
+     */
+    public TelemetryAggregator getTelemetryAggregator() {
+        return m_telemetryAggregator;
+    }
+
+    /**
+     * Get the scheduler that runs this op mode's subsystems and commands.
+     * @return The scheduler for this op mode.
+     */
+    @Override
+    public Scheduler getScheduler() {
+        return m_scheduler;
+    }
+
+    /**
+     * Add a retained telemetry line - this is a slot in the {@link AHrvhsOpMode#getTelemetryAggregator() telemetry
+     * aggregator}.
+     */
+    @Override
+    public int addTelemetrySlot(String caption) {
+        return m_telemetryAggregator.addSlot(caption);
+    }
+
+    @Override
+    public void publishTelemetry(int slot, String value) {
+        m_telemetryAggregator.publish(slot, value);
+    }
+
+    @Override
+    public void addTelemetry(String caption, String format, Object... args) {
+        telemetry.addData(caption, format, args);
+    }
+
+    /**
+     * Get the time from the start of the op mode (<tt>waitForStart()</tt> returning) to the first control tick. This
+     * is the time spent in the post-start initialization, when the robot is not doing anything. It is timed on the
+     * {@link Scheduler#getClock() scheduler clock} and shown in the telemetry as <tt>time to first tick:</tt>.
+     * @return The time to the first control tick in milliseconds, or -1 if the control loop has not started.
+     */
+    public double getTimeToFirstTick() {
+        return m_timeToFirstTick;
+    }
+
+    /**
+     * Test whether the control loop is running. Unlike <tt>opModeIsActive()</tt> this can be called from any thread,
+     * and it does not depend on <tt>waitForStart()</tt>, which is not called off the robot - a background thread
+     * that drives hardware checks this so it stops with the op mode.
+     *
+     * @return <tt>true</tt> from the start of the control loop until the op mode stops or a stop is requested;
+     * <tt>false</tt> otherwise.
+     */
+    public final boolean isControlLoopActive() {
+        return m_controlLoopActive && !isStopRequested();
+    }
+
+    /**
+     * Get the control loop timer. This has the loop period, overrun count and jitter histogram for the op mode.
+     * @return The control loop timer, <tt>null</tt> until the control loop has started.
+     */
+    public LoopTimer getLoopTimer() {
+        return m_loopTimer;
+    }
+
     @Override
     public final void runOpMode() throws InterruptedException {
-        // get the scheduler, it controls how everything runs - set the op mode so the scheduler has
-        // access to state, input, and telemetry.
-        Scheduler scheduler = Scheduler.getInstance();
+        lclPreStart();
+        try {
+            // wait for the start to be processed on the driver station
+            waitForStart();
+            lclStart();
+            while (opModeIsActive()) {
+                lclTick();
+            }
+        } finally {
+            // STOP interrupts this thread, so waitForStart() or the wait for the next tick may throw rather than the
+            // loop ending - the subsystems (and their background threads) must be stopped either way.
+            lclStop();
+        }
+    }
+
+    /**
+     * The lifecycle before the start - called from {@link AHrvhsOpMode#runOpMode()}, or by the
+     * <tt>SimulationHarness</tt> off the robot.
+     */
+    void lclPreStart() {
+        // The telemetry aggregator sends telemetry at a rate decoupled from the control loop.
+        m_telemetryAggregator = new TelemetryAggregator(telemetry);
+        // the scheduler controls how everything runs - bind it to this thread (the op mode may have been constructed
+        // on another thread) so anything created in the initialization uses it, and set the op mode so the scheduler
+        // has access to state, input, and telemetry.
+        Scheduler scheduler = m_scheduler;
+        Scheduler.bind(scheduler);
         scheduler.setOpMode(this);
         // pre-start initialize cycle through the subsystems and add all the default cammands to the
         // scheduled commands.
         preStartInitialize();
         scheduler.preStartInitialize();
+    }
 
-        // wait for the start to be processed on the driver station
-        waitForStart();
+    /**
+     * The lifecycle at the start (after <tt>waitForStart()</tt>) up to the start of the control loop.
+     */
+    void lclStart() {
+        Scheduler scheduler = m_scheduler;
+        AClock clock = scheduler.getClock();
+        long startNano = clock.nanoTime();
 
         // do post-start initialization (gyro initialization is often post-start
         postStartInitialize();
         scheduler.postStartInitialize();
+        // Anything in the post-start initialization delays the robot in autonomous, so show how long it was. It is
+        // timed on the scheduler clock, so a simulated run reports simulated time.
+        m_timeToFirstTick = (clock.nanoTime() - startNano) / 1.0e6;
+        m_telemetryAggregator.publish(m_telemetryAggregator.addSlot("time to first tick:", "%.1f ms"),
+                m_timeToFirstTick);
+        if (m_logToConsole) {
+            System.out.println("time to first control tick: " + m_timeToFirstTick + " ms");
+        }
 
-        // run the control loop - keep track of the loop speed
-        int controlLoopCt = 0;
-        long startTime = System.currentTimeMillis();
-        long loopEndTime = startTime + m_idealLoopInterval;
-        while (opModeIsActive()) {
-            // run the commands
-            scheduler.run();
-            // enforce a uniform loop time
-            controlLoopCt++;
-            long now = System.currentTimeMillis();
-            if (now < loopEndTime) {
-                Thread.sleep(loopEndTime - now);
-                now = System.currentTimeMillis();
-            }
-            loopEndTime = now + m_idealLoopInterval;
+        // start the control loop - the loop timer paces the loop and keeps track of the loop period and jitter
+        m_loopTimer = new LoopTimer(scheduler.getClock());
+        m_loopTimer.start(scheduler.getTickInterval());
+        m_controlLoopActive = true;
+    }
+
+    /**
+     * One pass of the control loop - run the commands, wait for the next tick, and send the telemetry if it is due.
+     *
+     * @throws InterruptedException Thrown if the op mode was stopped while waiting for the next tick.
+     */
+    void lclTick() throws InterruptedException {
+        Scheduler scheduler = m_scheduler;
+        // run the commands
+        scheduler.run();
+        // enforce a uniform loop time - the tick interval is the ideal loop interval unless a running command has
+        // asked for a different period
+        m_loopTimer.waitForNextTick(scheduler.getTickInterval());
+        // and update the telemetry on the robot control phone if it is time to do that
+        long nowNano = scheduler.getClock().nanoTime();
+        if (m_telemetryAggregator.isFlushDue(nowNano)) {
+            // the running commands are only published when they are sent
+            scheduler.publishTelemetry();
             // report the loop time if desired
             if (m_reportLoopTime) {
-                double loopTime = (double) (now - startTime) / controlLoopCt;
-                telemetry.addData("loop time:", "%6.1f ms", loopTime);
+                lclPublishLoopTime(scheduler);
+            }
+            // report the command execution times if desired
+            if (m_reportCommandTiming) {
+                scheduler.addProfileTelemetry();
             }
-            // and update the telemetry on the robot control phone
-            telemetry.update();
+            // lines added directly to the telemetry since the last flush are sent with this one (and then cleared by
+            //  the telemetry update), so nothing added between flushes is lost - see the readme
+            m_telemetryAggregator.flush(nowNano);
+        }
+    }
+
+    /**
+     * The lifecycle after the control loop has ended - or after the op mode was stopped (or failed) before the control
+     * loop started.
+     */
+    void lclStop() {
+        m_controlLoopActive = false;
+        Scheduler scheduler = m_scheduler;
+        try {
+            // stop the subsystems
+            scheduler.stop();
+            // log the loop timing and the effect of late ticks for the match logs
+            if (m_logToConsole && m_loopTimer != null) {
+                System.out.println(m_loopTimer.getSummary());
+                System.out.println("deferred commands: " + scheduler.getDeferredCount()
+                        + ", skipped commands: " + scheduler.getSkippedCount());
+                System.out.println(m_telemetryAggregator.getSummary());
+            }
+        } finally {
+            // the op mode is finished, so do not keep it reachable from this thread
+            Scheduler.bind(null);
+        }
+    }
+
+    /**
+     * Publish the loop timing to the telemetry, the slots are added the first time this is called.
+     * @param scheduler The scheduler, for the deferred and skipped command counts.
+     */
+    private void lclPublishLoopTime(Scheduler scheduler) {
+        if (m_loopTimeSlot < 0) {
+            m_loopTimeSlot = m_telemetryAggregator.addSlot("loop time:", "%6.2f ms");
+            m_overrunSlot = m_telemetryAggregator.addSlot("overruns:", "%.0f");
+            m_jitterP99Slot = m_telemetryAggregator.addSlot("jitter p99:", "%6.3f ms");
+            m_jitterMaxSlot = m_telemetryAggregator.addSlot("jitter max:", "%6.3f ms");
+            m_deferredSlot = m_telemetryAggregator.addSlot("deferred:", "%.0f");
+            m_skippedSlot = m_telemetryAggregator.addSlot("skipped:", "%.0f");
         }
+        LogLinearHistogram jitter = m_loopTimer.getJitter();
+        m_telemetryAggregator.publish(m_loopTimeSlot, m_loopTimer.getMeanPeriod());
+        m_telemetryAggregator.publish(m_overrunSlot, m_loopTimer.getOverrunCount());
+        m_telemetryAggregator.publish(m_jitterP99Slot, jitter.getPercentile(99.0) / 1.0e6);
+        m_telemetryAggregator.publish(m_jitterMaxSlot, jitter.getMax() / 1.0e6);
+        m_telemetryAggregator.publish(m_deferredSlot, scheduler.getDeferredCount());
+        m_telemetryAggregator.publish(m_skippedSlot, scheduler.getSkippedCount());
     }
 
     /**
@@ -0,0 +1,157 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.util.Locale;
+
+/**
+ * The tuning of the drive - the heading correction gain and the motion profile of autonomous moves. The
+ * {@link MecanumDriveSubsystem} starts with the values in {@link AConstants}, but keeps its own copy, so a tuner can
+ * try different values on many simulated robots at the same time without changing the shared constants.
+ * <p>
+ * A tuning is emitted as a constants profile with {@link DriveTuning#toJava(String)} - a method that sets the
+ * constants, to be pasted into <tt>Constants</tt> and called like <tt>Constants.initForMyRobot()</tt>.
+ */
+public class DriveTuning {
+
+    /**
+     * The tunable parameters, with the name of the constant each one is loaded from and the range a tuner searches.
+     */
+    public enum Parameter {
+        HEADING_KP("HEADING_CORRECTION_KP", 0.0, 0.2),
+        MAX_VELOCITY("MOVE_MAX_VELOCITY", 10.0, 36.0),
+        MAX_ACCELERATION("MOVE_MAX_ACCELERATION", 10.0, 100.0),
+        MAX_JERK("MOVE_MAX_JERK", 50.0, 1000.0),
+        POSITION_KP("MOVE_POSITION_KP", 0.0, 0.2);
+
+        private final String m_constant;
+        private final double m_min;
+        private final double m_max;
+
+        Parameter(String constant, double min, double max) {
+            m_constant = constant;
+            m_min = min;
+            m_max = max;
+        }
+
+        /**
+         * @return The name of the {@link AConstants} constant for this parameter.
+         */
+        public String getConstant() {
+            return m_constant;
+        }
+
+        /**
+         * @return The smallest sensible value of this parameter.
+         */
+        public double getMin() {
+            return m_min;
+        }
+
+        /**
+         * @return The largest sensible value of this parameter.
+         */
+        public double getMax() {
+            return m_max;
+        }
+    }
+
+    private final double[] m_values = new double[Parameter.values().length];
+
+    /**
+     * Instantiate a DriveTuning with the current values of the {@link AConstants}.
+     */
+    public DriveTuning() {
+        m_values[Parameter.HEADING_KP.ordinal()] = AConstants.HEADING_CORRECTION_KP;
+        m_values[Parameter.MAX_VELOCITY.ordinal()] = AConstants.MOVE_MAX_VELOCITY;
+        m_values[Parameter.MAX_ACCELERATION.ordinal()] = AConstants.MOVE_MAX_ACCELERATION;
+        m_values[Parameter.MAX_JERK.ordinal()] = AConstants.MOVE_MAX_JERK;
+        m_values[Parameter.POSITION_KP.ordinal()] = AConstants.MOVE_POSITION_KP;
+    }
+
+    /**
+     * Instantiate a copy of a DriveTuning.
+     *
+     * @param tuning (not null) The tuning to be copied.
+     */
+    public DriveTuning(DriveTuning tuning) {
+        System.arraycopy(tuning.m_values, 0, m_values, 0, m_values.length);
+    }
+
+    public double get(Parameter parameter) {
+        return m_values[parameter.ordinal()];
+    }
+
+    public void set(Parameter parameter, double value) {
+        m_values[parameter.ordinal()] = value;
+    }
+
+    public double getHeadingKp() {
+        return m_values[Parameter.HEADING_KP.ordinal()];
+    }
+
+    /**
+     * @return The largest velocity of a move, in inches per second.
+     */
+    public double getMaxVelocity() {
+        return m_values[Parameter.MAX_VELOCITY.ordinal()];
+    }
+
+    /**
+     * @return The largest acceleration of a move, in inches per second per second.
+     */
+    public double getMaxAcceleration() {
+        return m_values[Parameter.MAX_ACCELERATION.ordinal()];
+    }
+
+    /**
+     * @return The largest jerk of a move, in inches per second cubed, 0 for a trapezoidal profile.
+     */
+    public double getMaxJerk() {
+        return m_values[Parameter.MAX_JERK.ordinal()];
+    }
+
+    /**
+     * @return The power added per inch the robot is behind the motion profile.
+     */
+    public double getPositionKp() {
+        return m_values[Parameter.POSITION_KP.ordinal()];
+    }
+
+    /**
+     * Set the {@link AConstants} to this tuning, so drive subsystems instantiated after this use it.
+     */
+    public void apply() {
+        AConstants.HEADING_CORRECTION_KP = getHeadingKp();
+        AConstants.MOVE_MAX_VELOCITY = getMaxVelocity();
+        AConstants.MOVE_MAX_ACCELERATION = getMaxAcceleration();
+        AConstants.MOVE_MAX_JERK = getMaxJerk();
+        AConstants.MOVE_POSITION_KP = getPositionKp();
+    }
+
+    /**
+     * Emit this tuning as a constants profile - the source of a method, like <tt>Constants.initForMyRobot()</tt>,
+     * that sets the constants.
+     *
+     * @param methodName (not null) The name of the method.
+     * @return The source of the method.
+     */
+    public String toJava(String methodName) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("    static void ").append(methodName).append("() {\n");
+        for (Parameter parameter : Parameter.values()) {
+            // NOTE: always a '.' decimal point, this is Java source
+            builder.append(String.format(Locale.US, "        %s = %.4f;\n", parameter.getConstant(), get(parameter)));
+        }
+        builder.append("    }\n");
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Parameter parameter : Parameter.values()) {
+            builder.append((builder.length() == 0) ? "" : ", ");
+            builder.append(parameter.getConstant()).append(String.format("=%.4f", get(parameter)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,275 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import com.qualcomm.hardware.lynx.LynxController;
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.hardware.lynx.LynxNackException;
+import com.qualcomm.hardware.lynx.commands.core.LynxGetBulkInputDataCommand;
+import com.qualcomm.hardware.lynx.commands.core.LynxGetBulkInputDataResponse;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import org.firstinspires.ftc.robotcore.external.navigation.Rotation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A cached snapshot of the encoder positions and velocities of a set of motors. Reading an encoder with
+ * <tt>DcMotor.getCurrentPosition()</tt> is a separate USB round-trip to the Expansion Hub (2-3ms) for every motor. The
+ * snapshot instead fills all of the values for the motors on a hub with one bulk read (a
+ * <tt>LynxGetBulkInputDataCommand</tt>, or {@link IBulkReadHub#bulkRead()} for a motor whose controller is an
+ * {@link IBulkReadHub}) and serves every getter from the cache. Motors that are not on a hub are read individually.
+ * <p>
+ * When the cache is refreshed is controlled by the {@link CacheMode}. The number of hardware transactions is counted
+ * so the savings can be checked on the robot.
+ */
+public class HardwareSnapshot {
+
+    /**
+     * When the snapshot is refreshed from the hardware.
+     */
+    public enum CacheMode {
+        /** No caching, every get reads the motor - one transaction per motor per get. */
+        OFF,
+        /** The snapshot is invalidated at the start of every control loop, and refreshed on the first get. */
+        AUTO,
+        /** The snapshot is only invalidated when {@link HardwareSnapshot#invalidate()} is called. */
+        MANUAL
+    }
+
+    // The motors, and the cached positions and velocities (encoder tics per second) for each.
+    private final DcMotor[] m_motors;
+    private final int[] m_positions;
+    private final int[] m_velocities;
+
+    // The hubs the motors are on, the index of the hub for each motor (-1 if the motor is not on a hub), and the sign
+    //  correction for the motor direction (the bulk data is not corrected for direction like the motor is).
+    private final IBulkReadHub[] m_hubs;
+    private final int[] m_hubIndex;
+    private final int[] m_sign;
+
+    private CacheMode m_cacheMode = CacheMode.AUTO;
+    private boolean m_valid = false;
+    private long m_transactionCt = 0;
+
+    /**
+     * Instantiate the HardwareSnapshot. This should be called after the motors have been setup, because the motor
+     * directions are captured here.
+     *
+     * @param hardwareMap (not null) The hardware map, used to find the Expansion Hubs (a <tt>LynxModule</tt> for each
+     *                    <tt>LynxController</tt>).
+     * @param motors      (not null) The motors in the snapshot, the position of a motor in this list is its index for
+     *                    {@link HardwareSnapshot#getPosition(int)} and {@link HardwareSnapshot#getVelocity(int)}.
+     */
+    public HardwareSnapshot(HardwareMap hardwareMap, DcMotor... motors) {
+        m_motors = motors;
+        m_positions = new int[motors.length];
+        m_velocities = new int[motors.length];
+        m_hubIndex = new int[motors.length];
+        m_sign = new int[motors.length];
+
+        List<LynxModule> allModules = hardwareMap.getAll(LynxModule.class);
+        // the hubs, and the controller or module each one was found from - several motors share a hub
+        List<IBulkReadHub> hubs = new ArrayList<>();
+        List<Object> hubKeys = new ArrayList<>();
+        for (int i = 0; i < motors.length; i++) {
+            DcMotor motor = motors[i];
+            Object key = null;
+            if (motor.getController() instanceof IBulkReadHub) {
+                key = motor.getController();
+            } else if (motor.getController() instanceof LynxController) {
+                LynxController controller = (LynxController) motor.getController();
+                for (LynxModule module : allModules) {
+                    if (module.getSerialNumber().equals(controller.getSerialNumber())) {
+                        key = module;
+                        break;
+                    }
+                }
+            }
+            m_hubIndex[i] = (key == null) ? -1 : hubKeys.indexOf(key);
+            if (key != null && m_hubIndex[i] < 0) {
+                m_hubIndex[i] = hubs.size();
+                hubKeys.add(key);
+                hubs.add((key instanceof IBulkReadHub) ? (IBulkReadHub) key : new LynxHub((LynxModule) key));
+            }
+            // This is the same direction logic the motor uses to correct getCurrentPosition()
+            DcMotorSimple.Direction direction = motor.getDirection();
+            if (motor.getMotorType() != null && motor.getMotorType().getOrientation() == Rotation.CCW) {
+                direction = direction.inverted();
+            }
+            m_sign[i] = (direction == DcMotorSimple.Direction.REVERSE) ? -1 : 1;
+        }
+        m_hubs = hubs.toArray(new IBulkReadHub[hubs.size()]);
+    }
+
+    /**
+     * Set the cache mode. The default is {@link CacheMode#AUTO}.
+     *
+     * @param cacheMode (not null) The cache mode.
+     */
+    public void setCacheMode(CacheMode cacheMode) {
+        m_cacheMode = cacheMode;
+        m_valid = false;
+    }
+
+    public CacheMode getCacheMode() {
+        return m_cacheMode;
+    }
+
+    /**
+     * Called at the start of every control loop (normally in {@link ASubsystem#readInputs()}). In
+     * {@link CacheMode#AUTO} mode this invalidates the snapshot.
+     */
+    public void onLoopStart() {
+        if (m_cacheMode == CacheMode.AUTO) {
+            m_valid = false;
+        }
+    }
+
+    /**
+     * Invalidate the snapshot, the next get will refresh it from the hardware.
+     */
+    public void invalidate() {
+        m_valid = false;
+    }
+
+    /**
+     * Get the encoder position of a motor.
+     *
+     * @param motor The index of the motor in the list given to the constructor.
+     * @return The encoder position, corrected for the motor direction.
+     */
+    public int getPosition(int motor) {
+        if (m_cacheMode == CacheMode.OFF) {
+            m_transactionCt++;
+            return m_motors[motor].getCurrentPosition();
+        }
+        if (!m_valid) {
+            refresh();
+        }
+        return m_positions[motor];
+    }
+
+    /**
+     * Get the encoder velocity of a motor.
+     *
+     * @param motor The index of the motor in the list given to the constructor.
+     * @return The encoder velocity (in encoder tics per second), corrected for the motor direction.
+     */
+    public int getVelocity(int motor) {
+        if (m_cacheMode == CacheMode.OFF) {
+            return lclReadVelocity(motor);
+        }
+        if (!m_valid) {
+            refresh();
+        }
+        return m_velocities[motor];
+    }
+
+    /**
+     * Test whether the hardware reports the velocity of a motor. The velocity is read from the hub bulk data, or from
+     * a <tt>DcMotorEx</tt>; any other motor reports a velocity of 0, and the velocity has to be
+     * computed from the change in position.
+     *
+     * @param motor The index of the motor in the list given to the constructor.
+     * @return <tt>true</tt> if {@link HardwareSnapshot#getVelocity(int)} is the measured velocity of the motor;
+     * <tt>false</tt> if it is always 0.
+     */
+    public boolean hasVelocity(int motor) {
+        return m_hubIndex[motor] >= 0 || m_motors[motor] instanceof DcMotorEx;
+    }
+
+    /**
+     * Get the number of hardware transactions used to read the motors. With caching on, a loop that reads all the
+     * motors on one hub costs one transaction rather than one per motor per read.
+     *
+     * @return The number of hardware transactions.
+     */
+    public long getTransactionCount() {
+        return m_transactionCt;
+    }
+
+    /**
+     * Refresh the snapshot from the hardware - one bulk read per hub, and an individual read for any motor that is not
+     * on a hub (or whose hub did not answer the bulk read - a NACK, a timeout, or firmware that does not support the
+     * command).
+     */
+    protected void refresh() {
+        for (int hub = 0; hub < m_hubs.length; hub++) {
+            m_transactionCt++;
+            boolean read = m_hubs[hub].bulkRead();
+            for (int i = 0; i < m_motors.length; i++) {
+                if (m_hubIndex[i] == hub) {
+                    if (read) {
+                        int port = m_motors[i].getPortNumber();
+                        m_positions[i] = m_sign[i] * m_hubs[hub].getBulkPosition(port);
+                        m_velocities[i] = m_sign[i] * m_hubs[hub].getBulkVelocity(port);
+                    } else {
+                        lclReadMotor(i);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < m_motors.length; i++) {
+            if (m_hubIndex[i] < 0) {
+                lclReadMotor(i);
+            }
+        }
+        m_valid = true;
+    }
+
+    private void lclReadMotor(int motor) {
+        m_transactionCt++;
+        m_positions[motor] = m_motors[motor].getCurrentPosition();
+        m_velocities[motor] = lclReadVelocity(motor);
+    }
+
+    private int lclReadVelocity(int motor) {
+        if (m_motors[motor] instanceof DcMotorEx) {
+            m_transactionCt++;
+            return (int) ((DcMotorEx) m_motors[motor]).getVelocity();
+        }
+        return 0;
+    }
+
+    /**
+     * The bulk read of an Expansion Hub.
+     */
+    private static final class LynxHub implements IBulkReadHub {
+
+        private final LynxModule m_module;
+        private LynxGetBulkInputDataResponse m_response = null;
+
+        LynxHub(LynxModule module) {
+            m_module = module;
+        }
+
+        @Override
+        public boolean bulkRead() {
+            m_response = null;
+            try {
+                // a command is single use - it holds the response to its one transaction, and sending it again does
+                //  not read the hub again - so every read is a new command
+                m_response = new LynxGetBulkInputDataCommand(m_module).sendReceive();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (LynxNackException e) {
+                // fall through to reading the motors individually
+            } catch (RuntimeException e) {
+                // i.e. LynxUnsupportedCommandException or a timeout - fall through to reading the motors individually
+            }
+            return m_response != null;
+        }
+
+        @Override
+        public int getBulkPosition(int port) {
+            return m_response.getEncoder(port);
+        }
+
+        @Override
+        public int getBulkVelocity(int port) {
+            return m_response.getVelocity(port);
+        }
+    }
+}
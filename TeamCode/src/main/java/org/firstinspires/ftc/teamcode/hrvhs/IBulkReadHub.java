@@ -0,0 +1,35 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+/**
+ * A motor controller that can read the encoders of all its motors in one hardware transaction. On the robot this is
+ * an Expansion Hub (a <tt>LynxModule</tt>, which {@link HardwareSnapshot} wraps itself); a motor whose
+ * <tt>getController()</tt> implements this interface is bulk read through it - this is how a simulated hub is used
+ * off the robot.
+ * <p>
+ * The encoder values are in the frame of the motor shaft - not corrected for the motor direction, which is what the
+ * Expansion Hub reports.
+ */
+public interface IBulkReadHub {
+
+    /**
+     * Read the encoder positions and velocities of every motor port in one transaction. The values are held until the
+     * next read.
+     *
+     * @return <tt>true</tt> if the read succeeded; <tt>false</tt> if the hub did not answer, and the motors have to be
+     * read individually.
+     */
+    boolean bulkRead();
+
+    /**
+     * @param port The motor port.
+     * @return The encoder position of the motor in the last {@link IBulkReadHub#bulkRead() bulk read}.
+     */
+    int getBulkPosition(int port);
+
+    /**
+     * @param port The motor port.
+     * @return The encoder velocity of the motor in the last {@link IBulkReadHub#bulkRead() bulk read}, in encoder tics
+     * per second.
+     */
+    int getBulkVelocity(int port);
+}
@@ -0,0 +1,161 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import com.qualcomm.hardware.bosch.BNO055IMU;
+
+/**
+ * This initializes and calibrates an IMU without blocking the control loop. <tt>BNO055IMU.initialize()</tt> takes
+ * hundreds of milliseconds, and the gyro calibration after it an unbounded amount of time - if we waited for both on
+ * the op mode thread the robot would sit still for that part of autonomous. Instead the initialization runs on a
+ * background thread, and the control loop polls the calibration with {@link ImuCalibrator#update(long)}, which is one
+ * quick status read per loop.
+ * <p>
+ * The calibrator is a state machine:
+ * <ul>
+ *     <li>{@link State#IDLE} - not yet started;</li>
+ *     <li>{@link State#INITIALIZING} - <tt>initialize()</tt> is running on the background thread;</li>
+ *     <li>{@link State#CALIBRATING} - initialized, waiting for the gyro to report it is calibrated;</li>
+ *     <li>{@link State#READY} - the IMU can be used;</li>
+ *     <li>{@link State#FAILED} - initialization failed or the timeout expired, the IMU should not be used.</li>
+ * </ul>
+ * The state can be read from any thread, and {@link State#READY} and {@link State#FAILED} are final.
+ * <p>
+ * The timeout and the calibration time are measured on the {@link Scheduler#getClock() scheduler clock}, so off the
+ * robot they are in simulated time. There the initialization can also be run on the calling thread (see
+ * {@link ImuCalibrator#setBackground(boolean)}) so a run does not depend on when a background thread gets scheduled.
+ */
+public class ImuCalibrator implements Runnable {
+
+    /**
+     * The calibration state of the IMU.
+     */
+    public enum State {
+        IDLE, INITIALIZING, CALIBRATING, READY, FAILED
+    }
+
+    private final AClock m_clock;
+    private final BNO055IMU m_imu;
+    private final BNO055IMU.Parameters m_parameters;
+
+    private volatile State m_state = State.IDLE;
+    private long m_timeout = AConstants.IMU_CALIBRATION_TIMEOUT * 1000000L;
+    private boolean m_background = true;
+    private long m_startTime;       // the clock time when the calibration was started
+    private long m_readyTime;       // the clock time when the calibration finished (READY or FAILED)
+
+    /**
+     * Instantiate the ImuCalibrator.
+     *
+     * @param clock      (not null) The clock the timeout and the calibration time are measured on - normally the
+     *                   {@link Scheduler#getClock() scheduler clock}.
+     * @param imu        (not null) The IMU to be initialized and calibrated.
+     * @param parameters (not null) The parameters the IMU is initialized with.
+     */
+    public ImuCalibrator(AClock clock, BNO055IMU imu, BNO055IMU.Parameters parameters) {
+        m_clock = clock;
+        m_imu = imu;
+        m_parameters = parameters;
+    }
+
+    /**
+     * Set the time allowed for initialization and calibration, after which the calibrator goes to
+     * {@link State#FAILED}. The default is {@link AConstants#IMU_CALIBRATION_TIMEOUT}. This must be set before the
+     * calibrator is started.
+     *
+     * @param millis The timeout in milliseconds.
+     */
+    public void setTimeout(long millis) {
+        m_timeout = millis * 1000000L;
+    }
+
+    /**
+     * Set whether {@link ImuCalibrator#start()} initializes the IMU on a background thread. The default is
+     * <tt>true</tt>; <tt>false</tt> initializes it on the calling thread, which is only for a simulated IMU whose
+     * initialization does not take any time. This must be set before the calibrator is started.
+     *
+     * @param background <tt>true</tt> to initialize on a background thread; <tt>false</tt> to initialize on the
+     *                   calling thread.
+     */
+    public void setBackground(boolean background) {
+        m_background = background;
+    }
+
+    /**
+     * Start initializing the IMU - on a background thread, so this returns immediately, unless
+     * {@link ImuCalibrator#setBackground(boolean) background} initialization is off.
+     */
+    public synchronized void start() {
+        if (m_state == State.IDLE) {
+            m_startTime = m_clock.nanoTime();
+            m_state = State.INITIALIZING;
+            if (m_background) {
+                Thread thread = new Thread(this, "ImuCalibrator");
+                thread.setDaemon(true);
+                thread.start();
+            } else {
+                run();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        boolean initialized;
+        try {
+            initialized = m_imu.initialize(m_parameters);
+        } catch (RuntimeException e) {
+            initialized = false;
+        }
+        lclTransition(State.INITIALIZING, initialized ? State.CALIBRATING : State.FAILED);
+    }
+
+    /**
+     * Advance the calibration. This is called from the control loop - when the IMU is initialized it reads the gyro
+     * calibration status, and it checks the timeout.
+     *
+     * @param now The current time from the calibrator clock.
+     * @return The state after the update.
+     */
+    public State update(long now) {
+        State state = m_state;
+        if (state == State.CALIBRATING && m_imu.isGyroCalibrated()) {
+            lclTransition(State.CALIBRATING, State.READY);
+        } else if ((state == State.INITIALIZING || state == State.CALIBRATING) && now - m_startTime > m_timeout) {
+            lclTransition(state, State.FAILED);
+        }
+        return m_state;
+    }
+
+    /**
+     * @return The current calibration state.
+     */
+    public State getState() {
+        return m_state;
+    }
+
+    /**
+     * @return <tt>true</tt> if the IMU is initialized and calibrated; <tt>false</tt> otherwise.
+     */
+    public boolean isReady() {
+        return m_state == State.READY;
+    }
+
+    /**
+     * @return The time from the start until the calibrator was {@link State#READY} or {@link State#FAILED} in
+     * milliseconds, or -1 if it is not yet finished.
+     */
+    public double getCalibrationTime() {
+        State state = m_state;
+        if (state != State.READY && state != State.FAILED) {
+            return -1.0;
+        }
+        return (m_readyTime - m_startTime) / 1.0e6;
+    }
+
+    private synchronized void lclTransition(State from, State to) {
+        // The background thread and the control thread can race at the timeout, whichever is first wins.
+        if (m_state == from) {
+            m_readyTime = m_clock.nanoTime();
+            m_state = to;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import com.qualcomm.hardware.bosch.BNO055IMU;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+
+/**
+ * This samples the heading of the robot from an IMU and tracks complete revolutions, so the heading is a continuous
+ * function from -infinity to +infinity rather than jumping at the -180/180 discontinuity. The heading, angular rate
+ * and the time of the sample are published through a {@link SeqLockBuffer}. The time is from the clock the sampler is
+ * given - the {@link Scheduler#getClock() scheduler clock}, so sample times can be compared with the other times in
+ * the control loop, and off the robot the rate is computed over the simulated time.
+ * <p>
+ * The IMU read is an I2C transaction that is one of the slowest things in the control loop. The sampler can either be
+ * {@link ImuSampler#sample()} sampled from the control thread, or {@link ImuSampler#start() started} on a background
+ * thread that samples at the IMU's native rate. In the background case, the control thread reading the heading never
+ * waits for the IMU.
+ * <p>
+ * Our mental model says clockwise rotation (turning right) is a positive rotation for the power, so the heading and
+ * rate are sign corrected to match.
+ */
+public class ImuSampler implements Runnable {
+
+    // The default interval between background samples - the BNO055 fusion output rate is 100Hz.
+    public static final long DEFAULT_SAMPLE_INTERVAL = 10;
+
+    // The indices of the values in the published buffer.
+    private static final int HEADING = 0;
+    private static final int RATE = 1;
+    private static final int TIMESTAMP = 2;
+
+    private final AClock m_clock;
+    private final BNO055IMU m_imu;
+    private final SeqLockBuffer m_published = new SeqLockBuffer(3);
+    // The reader scratch buffer - only touched by the thread reading the sample (normally the control thread).
+    private final long[] m_read = new long[3];
+
+    // The revolution tracking - only touched by the sampling thread.
+    private int m_headingRevs = 0;          // the complete revolutions of the robot
+    private double m_headingRawLast;        // the last raw heading from the IMU
+    private double m_headingLast;           // the last heading
+    private long m_timestampLast;           // the clock time of the last sample
+
+    // The background sampling thread.
+    private long m_sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+    private volatile boolean m_running = false;
+    private Thread m_thread = null;
+
+    /**
+     * Instantiate the ImuSampler.
+     *
+     * @param clock (not null) The clock the samples are timed, and the background thread paced, on - normally the
+     *              {@link Scheduler#getClock() scheduler clock}.
+     * @param imu   (not null) The initialized IMU.
+     */
+    public ImuSampler(AClock clock, BNO055IMU imu) {
+        m_clock = clock;
+        m_imu = imu;
+    }
+
+    /**
+     * Reset the heading tracking so the current IMU heading is the 0 heading. This must be called (after the IMU is
+     * calibrated) before the sampler is started or sampled.
+     */
+    public void reset() {
+        m_headingRevs = 0;
+        Orientation angles = m_imu.getAngularOrientation();
+        m_headingRawLast = angles.firstAngle;
+        m_headingLast = -m_headingRawLast;
+        m_timestampLast = m_clock.nanoTime();
+        lclPublish(m_headingLast, 0.0, m_timestampLast);
+    }
+
+    /**
+     * Set the interval between background samples. The default is {@link ImuSampler#DEFAULT_SAMPLE_INTERVAL}.
+     *
+     * @param millis The interval between samples in milliseconds.
+     */
+    public void setSampleInterval(long millis) {
+        m_sampleInterval = millis;
+    }
+
+    /**
+     * Start sampling on a background thread, if it is not already running.
+     */
+    public synchronized void start() {
+        if (m_thread == null || !m_thread.isAlive()) {
+            m_running = true;
+            m_thread = new Thread(this, "ImuSampler");
+            m_thread.setDaemon(true);
+            m_thread.start();
+        }
+    }
+
+    /**
+     * Stop sampling on the background thread, and wait for the thread to finish. An IMU read is not cut short, so if
+     * the thread is still in one when the wait ends the sampler is still {@link ImuSampler#isRunning() running} -
+     * the thread ends when the read does, and until then nothing else may sample the IMU.
+     */
+    public synchronized void stop() {
+        if (m_thread != null) {
+            m_running = false;
+            m_thread.interrupt();
+            try {
+                m_thread.join(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!m_thread.isAlive()) {
+                m_thread = null;
+            }
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if the background thread is running, and owns the IMU sampling; <tt>false</tt> otherwise.
+     */
+    public synchronized boolean isRunning() {
+        return m_thread != null && m_thread.isAlive();
+    }
+
+    @Override
+    public void run() {
+        while (m_running && !Thread.currentThread().isInterrupted()) {
+            long start = m_clock.nanoTime();
+            lclSample(true);
+            try {
+                // this thread does not own the clock, so wait for it rather than moving it
+                m_clock.awaitTime(start + m_sampleInterval * 1000000L);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        m_running = false;
+    }
+
+    /**
+     * Sample the IMU on the calling thread. This is how the sampler is used when it is not started on a background
+     * thread. Only the orientation is read (one I2C transaction), and the rate is computed from the change in heading.
+     */
+    public void sample() {
+        lclSample(false);
+    }
+
+    /**
+     * Read the latest published sample. This never waits for the IMU. It must only be called from one thread
+     * (normally the control thread), after which the heading, rate and timestamp getters return the values of that
+     * sample.
+     */
+    public void readSample() {
+        m_published.read(m_read);
+    }
+
+    /**
+     * @return The heading (in degrees) of the sample last read with {@link ImuSampler#readSample()}.
+     */
+    public double getHeading() {
+        return SeqLockBuffer.toDouble(m_read[HEADING]);
+    }
+
+    /**
+     * @return The angular rate (in degrees per second) of the sample last read with {@link ImuSampler#readSample()}.
+     */
+    public double getAngularRate() {
+        return SeqLockBuffer.toDouble(m_read[RATE]);
+    }
+
+    /**
+     * @return The clock time of the sample last read with {@link ImuSampler#readSample()}.
+     */
+    public long getTimestamp() {
+        return m_read[TIMESTAMP];
+    }
+
+    private void lclSample(boolean readRate) {
+        // Any time there is power to the wheels or the robot is bumped the heading
+        // will probably change. The IMU goes from
+        // -180.0 to 180.0. The discontinuity at 180,-180 is a programming headache.
+        // if you rotate through that is takes a bunch of special programming logic
+        // to figure out where you are. Instead, we will monitor going through that
+        // discontinuity and increment a rotation counter so our heading will start
+        // at 0 when the IMU is initialized, and be a continuous function from
+        // -infinity to +infinity.
+        Orientation angles = m_imu.getAngularOrientation();
+        long timestamp = m_clock.nanoTime();
+        double heading_raw = angles.firstAngle;
+        if (m_headingRawLast < -140.0 && heading_raw > 0.0) {
+            m_headingRevs -= 1;
+        } else if (m_headingRawLast > 140.0 && heading_raw < 0.0) {
+            m_headingRevs += 1;
+        }
+        double heading = -(m_headingRevs * 360.0 + heading_raw);
+        double rate;
+        if (readRate) {
+            AngularVelocity velocity = m_imu.getAngularVelocity();
+            rate = -velocity.zRotationRate;
+        } else {
+            long dt = timestamp - m_timestampLast;
+            rate = (dt > 0) ? (heading - m_headingLast) * 1.0e9 / dt : 0.0;
+        }
+        m_headingRawLast = heading_raw;
+        m_headingLast = heading;
+        m_timestampLast = timestamp;
+        lclPublish(heading, rate, timestamp);
+    }
+
+    private void lclPublish(double heading, double rate, long timestamp) {
+        m_published.beginWrite();
+        m_published.set(HEADING, heading);
+        m_published.set(RATE, rate);
+        m_published.set(TIMESTAMP, timestamp);
+        m_published.endWrite();
+    }
+}
@@ -3,7 +3,6 @@ package org.firstinspires.ftc.teamcode.hrvhs;
 import com.qualcomm.hardware.bosch.BNO055IMU;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.HardwareMap;
-import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
 
 public class MecanumDriveSubsystem extends ASubsystem {
 
@@ -17,16 +16,56 @@ public class MecanumDriveSubsystem extends ASubsystem {
     protected DcMotor m_motorRR;    // right rear motor
     protected DcMotor m_motorLR;    // left rear motor
 
+    // The motor powers set by commands - written to the motors in writeOutputs().
     double m_powerFL;
     double m_powerFR;
     double m_powerRR;
     double m_powerLR;
 
+    // The motor powers last written to the motors (NaN until the first write), and the write deduplication settings.
+    //  A power is only written if it differs from the last written power by more than the epsilon. If writes are
+    //  batched, all four motors are written when any one of them changes, so the wheels always change together.
+    double m_writtenFL = Double.NaN;
+    double m_writtenFR = Double.NaN;
+    double m_writtenRR = Double.NaN;
+    double m_writtenLR = Double.NaN;
+    double m_writeEpsilon = 0.001;
+    boolean m_batchWrites = false;
+    long m_writeCt = 0;
+    long m_suppressedWriteCt = 0;
+
+    // The encoder positions and velocities - read from the motors with one bulk read per control loop. These are the
+    //  indices of the motors in the snapshot.
+    protected HardwareSnapshot m_snapshot;
+    static final int SNAPSHOT_FL = 0;
+    static final int SNAPSHOT_FR = 1;
+    static final int SNAPSHOT_RR = 2;
+    static final int SNAPSHOT_LR = 3;
+
     // tracking the heading of the robot
+    protected ImuCalibrator m_imuCalibrator;    // initializes and calibrates the IMU in parallel with the control loop
+    protected ImuSampler m_imuSampler;  // samples the IMU and tracks the complete revolutions of the robot, null until
+                                        //  the IMU is calibrated
+    double m_imuHeadingOffset;      // the encoder heading minus the IMU heading when the IMU became ready, so the
+                                    //  heading is continuous
+    boolean m_asyncImu = false;     // true if the IMU is sampled on a background thread
+    boolean m_backgroundImuInit = true; // true if the IMU is initialized on a background thread
     double m_heading;               // the current heading of the robot
-    int m_headingRevs = 0;          // the complete revolutions of the robot
-    double m_headingRawLast;        // the last raw heading from the IMU
+    double m_angularRate;           // the current angular rate of the robot
+    long m_headingTimestamp;        // the scheduler clock time of the sample for the current heading
     double m_expectedHeading;       // the expected heading of the robot
+    // The field pose, integrated from the encoders and the heading at the start of every control loop
+    protected MecanumOdometry m_odometry;
+    boolean m_odometryEnabled = true;
+    // The heading correction and move profile tuning, from the constants at pre-start unless it was set before then
+    DriveTuning m_tuning = null;
+    // The wheel velocity control - when it is on, the motor powers set by commands are wheel speed targets
+    protected WheelVelocityLoop m_velocityLoop;
+    boolean m_velocityControl = false;
+    boolean m_velocityLoopActive = false;
+    long m_velocityLoopInterval = 0;    // the background loop interval in milliseconds, 0 is the control thread
+    // The wheel powers mixed from tank or arcade inputs, so the mixing does not allocate
+    private final double[] m_mixedPowers = new double[4];
 
     public MecanumDriveSubsystem() {
         super("Mecanum Drive");
@@ -69,32 +108,64 @@ public class MecanumDriveSubsystem extends ASubsystem {
     protected double powerAccelDecel(double current, double target,
                                      double mtrAccelMin, double mtrDecelMin,
                                      double accel, double decel) {
-        if (current <= 0.0) {
-            // Not yet at the expected start. This could happen if there was some robot
-            // motion (was hit or coasting) that confused the sensor/logic. In this
-            // case, move at the minimum power until the caller knows what's happening.
-            return mtrAccelMin;
-        } else if (current >= target) {
-            // Past the expected target. This could happen if there was some robot motion
-            // (was hit or coasting) that confused the sensor/logic. In this case stop.
-            return 0.0;
-        }
-        double mtr_tmp = 1.0;
-        if (current < accel) {
-            // in the acceleration zone
-            mtr_tmp = mtrAccelMin + (1.0 - mtrAccelMin) * (current / accel);
-        }
-        if (current > target - decel) {
-            // in the deceleration zone
-            double mtr_tmp_2 = mtrDecelMin +
-                    (1.0 - mtrDecelMin) * ((target - current) / decel);
-            if (mtr_tmp_2 < mtr_tmp) {
-                // Could also be in the acceleration zone - in this case the deceleration
-                // value is less than the acceleration or the 1.0 default.
-                mtr_tmp = mtr_tmp_2;
+        return DriveMath.powerAccelDecel(current, target, mtrAccelMin, mtrDecelMin, accel, decel);
+    }
+
+    /**
+     * Get the motion profile for an autonomous move, using the {@link MecanumDriveSubsystem#getTuning() tuning} of
+     * this drive, sampled at the ideal loop interval of the op mode. Profiles come from the shared
+     * {@link MotionProfileCache}, so a move that has been made before is not generated again.
+     *
+     * @param distance (double) The length of the move in inches, negative is backward.
+     * @return (MotionProfile) The profile of the move.
+     */
+    public MotionProfile getMoveProfile(double distance) {
+        long interval = Math.max(1L, m_opMode.getIdealLoopInterval());
+        return MotionProfileCache.getInstance().get(distance, m_tuning.getMaxVelocity(),
+                m_tuning.getMaxAcceleration(), m_tuning.getMaxJerk(), interval / 1000.0);
+    }
+
+    /**
+     * Get the power to follow a motion profile - the feedforward for the velocity and acceleration of the profile
+     * ({@link AConstants#DRIVE_KV}, {@link AConstants#DRIVE_KA}, {@link AConstants#DRIVE_KSTATIC}), plus the
+     * position gain of the {@link MecanumDriveSubsystem#getTuning() tuning} times how far the robot is behind the
+     * profile. When the wheels are {@link MecanumDriveSubsystem#setVelocityControl(boolean) velocity controlled} the
+     * acceleration and static feedforward are left to the {@link WheelVelocityLoop}, so the power is only the
+     * velocity of the profile plus the position correction.
+     *
+     * @param profile (MotionProfile, not null) The profile of the move.
+     * @param time (double) The time since the start of the move in seconds.
+     * @param current (double) The current position in the move in inches.
+     * @return (double) Returns the power that will be in the range of -1.0 to 1.0
+     */
+    public double getProfilePower(MotionProfile profile, double time, double current) {
+        double velocity = profile.getVelocity(time);
+        double power = AConstants.DRIVE_KV * velocity + m_tuning.getPositionKp() * (profile.getPosition(time) - current);
+        if (!m_velocityControl) {
+            power += AConstants.DRIVE_KA * profile.getAcceleration(time);
+            if (velocity != 0.0) {
+                power += Math.signum(velocity) * AConstants.DRIVE_KSTATIC;
             }
         }
-        return mtr_tmp;
+        return Math.max(-1.0, Math.min(1.0, power));
+    }
+
+    /**
+     * Set the heading correction and move profile tuning. The default is the tuning in the {@link AConstants} at
+     * pre-start initialization.
+     *
+     * @param tuning (DriveTuning, not null) The tuning, which is copied.
+     */
+    public void setTuning(DriveTuning tuning) {
+        m_tuning = new DriveTuning(tuning);
+    }
+
+    /**
+     * @return (DriveTuning) The heading correction and move profile tuning, <tt>null</tt> before pre-start
+     * initialization unless it has been set.
+     */
+    public DriveTuning getTuning() {
+        return m_tuning;
     }
 
     /**
@@ -102,12 +173,16 @@ public class MecanumDriveSubsystem extends ASubsystem {
      * <tt>AHrvhsOpMode</tt> and initialize them for use. Setup IMUs, etc. This should be called from
      * the <tt>runOpMode</tt> method of your Op Mode before the waitForStart().
      *
-     * @param opMode (AHrvhsOpMode, readonly) The liner operation mode this traction is being used in.
+     * @param opMode (AHrvhsOpMode, readonly) The liner operation mode this traction is being used in - this subsystem
+     *               only works in an <tt>AHrvhsOpMode</tt>, which has the hardware map.
      */
     @Override
-    public void preStartInitialize(AHrvhsOpMode opMode) {
-        this.m_opMode = opMode;
-        HardwareMap hardware_map = opMode.hardwareMap;
+    public void preStartInitialize(IHrvhsOpMode opMode) {
+        this.m_opMode = AHrvhsOpMode.from(opMode);
+        HardwareMap hardware_map = m_opMode.hardwareMap;
+        if (m_tuning == null) {
+            m_tuning = new DriveTuning();
+        }
 
         // find the primary IMU
         m_imu = hardware_map.get(BNO055IMU.class, AConstants.CONFIG_IMU);
@@ -125,6 +200,12 @@ public class MecanumDriveSubsystem extends ASubsystem {
         lclMotorSetup(m_motorFR, AConstants.FRONT_RIGHT_DIRECTION, run_mode, at_zero_power);
         lclMotorSetup(m_motorRR, AConstants.RIGHT_REAR_DIRECTION, run_mode, at_zero_power);
         lclMotorSetup(m_motorLR, AConstants.LEFT_REAR_DIRECTION, run_mode, at_zero_power);
+
+        // the encoder cache - NOTE: the order of the motors must match the SNAPSHOT_ indices
+        m_snapshot = new HardwareSnapshot(hardware_map, m_motorFL, m_motorFR, m_motorRR, m_motorLR);
+
+        // the odometry - the pose is 0, 0, 0 at the first control loop unless it is set before then
+        m_odometry = new MecanumOdometry(AConstants.TICS_PER_INCH_FORWARD, AConstants.TICS_PER_INCH_SIDEWAYS);
     }
 
     /**
@@ -132,6 +213,11 @@ public class MecanumDriveSubsystem extends ASubsystem {
      * start because of gyro precession, which will change orientation over time and can cause real problems if
      * there is a long delay between robot initialization and the start of play. This should be called after the
      * waitForStart().
+     * <p>
+     * The IMU initialization and calibration is started here, but does not block - it proceeds in parallel with the
+     * control loop. Until the IMU is {@link MecanumDriveSubsystem#isImuReady() ready} the heading is computed from
+     * the encoders, and if the IMU does not calibrate within {@link AConstants#IMU_CALIBRATION_TIMEOUT} the heading
+     * stays encoder-only.
      */
     @Override
     public void postStartInitialize() {
@@ -141,48 +227,394 @@ public class MecanumDriveSubsystem extends ASubsystem {
         imu_params.accelUnit = BNO055IMU.AccelUnit.METERS_PERSEC_PERSEC;
         imu_params.calibrationDataFile = "BNO055IMUCalibration.json";
         imu_params.loggingEnabled = false;
-        m_imu.initialize(imu_params);
         //imu_0.startAccelerationIntegration(new Position(), new Velocity(), 100);
-        while (true) {
-            if (m_imu.isGyroCalibrated()) {
-                break;
+        m_imuCalibrator = new ImuCalibrator(m_opMode.getScheduler().getClock(), m_imu, imu_params);
+        m_imuCalibrator.setBackground(m_backgroundImuInit);
+        m_imuCalibrator.start();
+        // initialize the heading tracking
+        lclReadHeading();
+        // the wheel velocity loop - on a background thread it needs its own encoder snapshot, and the thread is only
+        //  started (in writeOutputs()) while the velocity control is on
+        if (m_velocityLoopInterval > 0) {
+            m_velocityLoop = new WheelVelocityLoop(m_opMode, m_opMode.getScheduler().getClock(),
+                    new HardwareSnapshot(m_opMode.hardwareMap, m_motorFL, m_motorFR, m_motorRR, m_motorLR),
+                    m_motorFL, m_motorFR, m_motorRR, m_motorLR);
+            m_velocityLoop.setLoopInterval(m_velocityLoopInterval);
+        } else {
+            m_velocityLoop = new WheelVelocityLoop(m_opMode, m_opMode.getScheduler().getClock(), m_snapshot,
+                    m_motorFL, m_motorFR, m_motorRR, m_motorLR);
+        }
+    }
+
+    /**
+     * Stop the background IMU sampling and the background velocity loop if they were started.
+     */
+    @Override
+    public void stop() {
+        if (m_imuSampler != null) {
+            m_imuSampler.stop();
+        }
+        if (m_velocityLoop != null) {
+            m_velocityLoop.stop();
+        }
+    }
+
+    /**
+     * Set whether the IMU should be sampled on a background thread at the IMU's native rate. When it is, reading the
+     * heading in the control loop never waits for the IMU I2C transaction. The default is <tt>false</tt>, which
+     * samples the IMU in {@link MecanumDriveSubsystem#readInputs()}. This must be set before
+     * {@link MecanumDriveSubsystem#postStartInitialize()}.
+     *
+     * @param asyncImu (boolean) <tt>true</tt> if the IMU should be sampled on a background thread; <tt>false</tt>
+     *                 otherwise.
+     */
+    public void setAsyncImu(boolean asyncImu) {
+        m_asyncImu = asyncImu;
+    }
+
+    /**
+     * Set whether the IMU is initialized on a background thread. The default is <tt>true</tt> - on the robot the
+     * initialization takes hundreds of milliseconds, and must not hold up the control loop. The
+     * <tt>SimulationHarness</tt> turns it off, because the simulated IMU initializes instantly and the calibration is
+     * then driven by the control loop on the simulated clock, so a run is repeatable. This must be set before
+     * {@link MecanumDriveSubsystem#postStartInitialize()}.
+     *
+     * @param backgroundImuInit (boolean) <tt>true</tt> if the IMU should be initialized on a background thread;
+     *                          <tt>false</tt> if it should be initialized on the control thread.
+     */
+    public void setBackgroundImuInitialization(boolean backgroundImuInit) {
+        m_backgroundImuInit = backgroundImuInit;
+    }
+
+    /**
+     * Set whether the drive wheels are velocity controlled. When they are, the motor powers set by
+     * {@link MecanumDriveSubsystem#setArcadePower(double, double, double)},
+     * {@link MecanumDriveSubsystem#SetTankPower(double, double, double)}, and
+     * {@link MecanumDriveSubsystem#setMotorPower(double, double, double, double)} are wheel speed targets rather than
+     * raw powers - a power is the fraction of the full power speed (1 over {@link AConstants#DRIVE_KV}), and the
+     * {@link WheelVelocityLoop} adjusts the actual power so the wheel goes that speed whatever the battery voltage or
+     * the load. Commands do not change, they get the speed they asked for rather than a speed that sags. The default
+     * is <tt>false</tt>, the powers are written to the motors.
+     *
+     * @param velocityControl (boolean) <tt>true</tt> if the wheels should be velocity controlled; <tt>false</tt>
+     *                        otherwise.
+     */
+    public void setVelocityControl(boolean velocityControl) {
+        if (velocityControl && !(AConstants.DRIVE_KV > 0.0)) {
+            throw new IllegalStateException("DRIVE_KV must be calibrated before the velocity control is used.");
+        }
+        m_velocityControl = velocityControl;
+    }
+
+    /**
+     * @return (boolean) <tt>true</tt> if the drive wheels are velocity controlled; <tt>false</tt> otherwise.
+     */
+    public boolean isVelocityControl() {
+        return m_velocityControl;
+    }
+
+    /**
+     * Set the interval of the velocity loop. With an interval the loop runs on a background thread, with its own
+     * encoder reads, that many milliseconds apart - faster than the control loop, so the wheels respond to a change
+     * in the load between control loops. The default is 0, which updates the velocity loop once per control loop on
+     * the control thread, with the encoder snapshot of the control loop. This must be set before
+     * {@link MecanumDriveSubsystem#postStartInitialize()}, and only matters when the velocity control is on. Use 0 in
+     * the <tt>SimulationHarness</tt>, which only moves the simulated robot between control loops. The background
+     * thread only runs while the velocity control is on, and it writes the motors instead of the control thread; it
+     * stops, and sets the motors to 0 power, when the velocity control is turned off or the op mode stops.
+     *
+     * @param millis (long) The interval between velocity loop updates in milliseconds, or 0 for the control thread.
+     */
+    public void setVelocityLoopInterval(long millis) {
+        m_velocityLoopInterval = millis;
+    }
+
+    /**
+     * @return (WheelVelocityLoop) The wheel velocity loop, <tt>null</tt> before
+     * {@link MecanumDriveSubsystem#postStartInitialize()}.
+     */
+    public WheelVelocityLoop getVelocityLoop() {
+        return m_velocityLoop;
+    }
+
+    /**
+     * @return (boolean) <tt>true</tt> if the IMU is calibrated and the heading comes from the IMU; <tt>false</tt> if
+     * the heading is being computed from the encoders, either because the IMU is still calibrating or because it
+     * failed to calibrate.
+     */
+    public boolean isImuReady() {
+        return m_imuSampler != null;
+    }
+
+    /**
+     * @return (ImuCalibrator.State) The IMU calibration state, <tt>null</tt> before
+     * {@link MecanumDriveSubsystem#postStartInitialize()}.
+     */
+    public ImuCalibrator.State getImuState() {
+        return (m_imuCalibrator == null) ? null : m_imuCalibrator.getState();
+    }
+
+    /**
+     * @return (ImuCalibrator) The IMU calibrator, <tt>null</tt> before
+     * {@link MecanumDriveSubsystem#postStartInitialize()}.
+     */
+    public ImuCalibrator getImuCalibrator() {
+        return m_imuCalibrator;
+    }
+
+    /**
+     * Read all of the sensors once at the start of the control loop. The heading getter returns the value read here.
+     * The encoder snapshot is invalidated (in {@link HardwareSnapshot.CacheMode#AUTO} mode), and the first encoder get
+     * in the loop refreshes all the encoders with one bulk read. Then the odometry is updated with the encoders and
+     * heading, unless it is disabled.
+     */
+    @Override
+    public void readInputs() {
+        m_snapshot.onLoopStart();
+        lclReadHeading();
+        if (m_odometryEnabled) {
+            lclUpdateOdometry();
+        }
+    }
+
+    /**
+     * Integrate the move since the last control loop into the odometry, and read the pose back for the commands.
+     */
+    private void lclUpdateOdometry() {
+        m_odometry.update(m_opMode.getScheduler().getClock().nanoTime(),
+                m_snapshot.getPosition(SNAPSHOT_FL), m_snapshot.getPosition(SNAPSHOT_FR),
+                m_snapshot.getPosition(SNAPSHOT_RR), m_snapshot.getPosition(SNAPSHOT_LR), m_heading);
+        m_odometry.readPose();
+    }
+
+    /**
+     * Get the odometry. The pose getters (<tt>getX()</tt>, <tt>getY()</tt>, ...) return the pose at the start of this
+     * control loop, and should only be used from the control thread; other threads should use
+     * {@link MecanumOdometry#getPose()}. Use {@link MecanumOdometry#setPose(double, double, double)} (from the control
+     * thread) to set the start pose on the field.
+     *
+     * @return (MecanumOdometry) The odometry, <tt>null</tt> before pre-start initialization.
+     */
+    public MecanumOdometry getOdometry() {
+        return m_odometry;
+    }
+
+    /**
+     * Set whether the odometry is updated at the start of every control loop. The update reads all four encoders,
+     * which is one bulk read, so an op mode that never reads the encoders or the pose can save that read by disabling
+     * it. The default is <tt>true</tt>.
+     *
+     * @param odometryEnabled (boolean) <tt>true</tt> if the odometry should be updated; <tt>false</tt> otherwise.
+     */
+    public void setOdometryEnabled(boolean odometryEnabled) {
+        m_odometryEnabled = odometryEnabled;
+    }
+
+    /**
+     * Get the encoder snapshot for the drive motors. Use this to change the {@link HardwareSnapshot.CacheMode}, to
+     * {@link HardwareSnapshot#invalidate() invalidate} the snapshot in {@link HardwareSnapshot.CacheMode#MANUAL} mode,
+     * or to get the number of hardware transactions.
+     *
+     * @return The encoder snapshot for the drive motors.
+     */
+    public HardwareSnapshot getSnapshot() {
+        return m_snapshot;
+    }
+
+    /**
+     * Write the motor powers set by the commands at the end of the control loop. Every write is a USB transaction
+     * to the hub, so a power is only written when it has changed from the last written power by more than the write
+     * epsilon (or changed to exactly 0.0). When the driver is holding the stick still this suppresses almost all of
+     * the writes.
+     * <p>
+     * When the wheels are {@link MecanumDriveSubsystem#setVelocityControl(boolean) velocity controlled} the powers are
+     * converted to wheel speed targets for the {@link WheelVelocityLoop}, which writes the motors. Only one thread
+     * writes the motors - while the velocity loop runs on its background thread nothing is written here, and the
+     * thread is stopped before the powers are written here again.
+     */
+    @Override
+    public void writeOutputs() {
+        if (m_velocityControl) {
+            double scale = 1.0 / AConstants.DRIVE_KV;
+            m_velocityLoop.setTargets(m_powerFL * scale, m_powerFR * scale, m_powerRR * scale, m_powerLR * scale);
+            if (m_velocityLoopInterval > 0) {
+                m_velocityLoop.start();
+            } else {
+                m_velocityLoop.update();
             }
+            m_velocityLoopActive = true;
+            return;
         }
-        // initialize the heading tracking
-        m_headingRevs = 0;
-        Orientation angles = m_imu.getAngularOrientation();
-        m_headingRawLast = angles.firstAngle;
-        m_heading = -m_headingRawLast;
+        if (m_velocityLoopActive) {
+            // the velocity loop was writing the motors, so the last written powers are unknown until it has stopped
+            m_velocityLoop.disable();
+            if (m_velocityLoopInterval > 0) {
+                m_velocityLoop.stop();
+                m_velocityLoopActive = m_velocityLoop.isRunning();
+            } else {
+                m_velocityLoop.update();
+                m_velocityLoopActive = m_velocityLoop.isActive();
+            }
+            m_writtenFL = m_writtenFR = m_writtenRR = m_writtenLR = Double.NaN;
+            if (m_velocityLoopActive) {
+                // the background thread has not finished yet, it still owns the motors
+                return;
+            }
+        }
+        boolean changedFL = lclPowerChanged(m_powerFL, m_writtenFL);
+        boolean changedFR = lclPowerChanged(m_powerFR, m_writtenFR);
+        boolean changedRR = lclPowerChanged(m_powerRR, m_writtenRR);
+        boolean changedLR = lclPowerChanged(m_powerLR, m_writtenLR);
+        if (m_batchWrites && (changedFL || changedFR || changedRR || changedLR)) {
+            changedFL = changedFR = changedRR = changedLR = true;
+        }
+        if (lclWritePower(m_motorFL, changedFL, m_powerFL)) {
+            m_writtenFL = m_powerFL;
+        }
+        if (lclWritePower(m_motorFR, changedFR, m_powerFR)) {
+            m_writtenFR = m_powerFR;
+        }
+        if (lclWritePower(m_motorRR, changedRR, m_powerRR)) {
+            m_writtenRR = m_powerRR;
+        }
+        if (lclWritePower(m_motorLR, changedLR, m_powerLR)) {
+            m_writtenLR = m_powerLR;
+        }
+    }
+
+    /**
+     * Write a power to a motor if it has changed, and count the write or suppressed write.
+     *
+     * @param motor   (DcMotor) The motor.
+     * @param changed (boolean) <tt>true</tt> if the power should be written; <tt>false</tt> otherwise.
+     * @param power   (double) The power.
+     * @return (boolean) <tt>true</tt> if the power was written; <tt>false</tt> otherwise.
+     */
+    private boolean lclWritePower(DcMotor motor, boolean changed, double power) {
+        if (changed) {
+            motor.setPower(power);
+            m_writeCt++;
+        } else {
+            m_suppressedWriteCt++;
+        }
+        return changed;
     }
 
     /**
-     * Sample the IMU and get the current heading.
+     * Test whether a power has changed enough that it should be written.
+     *
+     * @param power   (double) The power set by the commands.
+     * @param written (double) The power last written to the motor.
+     * @return (boolean) <tt>true</tt> if the power should be written; <tt>false</tt> otherwise.
+     */
+    private boolean lclPowerChanged(double power, double written) {
+        return Math.abs(power - written) > m_writeEpsilon || (power == 0.0 && written != 0.0) || Double.isNaN(written);
+    }
+
+    /**
+     * Set the smallest change in motor power that will be written to the motor. The default is 0.001.
+     *
+     * @param writeEpsilon (double) The smallest change in power that will be written.
+     */
+    public void setWriteEpsilon(double writeEpsilon) {
+        m_writeEpsilon = writeEpsilon;
+    }
+
+    /**
+     * Set whether the motor writes are batched. When batched, all four motors are written when any one of them has
+     * changed so the wheels always change together; otherwise, only the motors that changed are written. The default
+     * is <tt>false</tt>.
+     *
+     * @param batchWrites (boolean) <tt>true</tt> if writes should be batched; <tt>false</tt> otherwise.
+     */
+    public void setBatchWrites(boolean batchWrites) {
+        m_batchWrites = batchWrites;
+    }
+
+    /**
+     * @return (long) The number of motor power writes sent to the hardware.
+     */
+    public long getWriteCount() {
+        return m_writeCt;
+    }
+
+    /**
+     * @return (long) The number of motor power writes suppressed because the power had not changed.
+     */
+    public long getSuppressedWriteCount() {
+        return m_suppressedWriteCt;
+    }
+
+    /**
+     * Get the current heading, as sampled from the IMU at the start of this control loop (or the latest background
+     * sample at the start of this control loop). Until the IMU is ready this is the heading from the encoders.
      *
      * @return Returns the current robot heading.
      */
     public double getHeading() {
-        // Any time there is power to the wheels or the robot is bumped the heading
-        // will probably change. The IMU goes from
-        // -180.0 to 180.0. The discontinuity at 180,-180 is a programming headache.
-        // if you rotate through that is takes a bunch of special programming logic
-        // to figure out where you are. Instead, we will monitor going through that
-        // discontinuity and increment a rotation counter so our heading will start
-        // at 0 when the IMU is initialized, and be a continuous function from
-        // -infinity to +infinity.
-        Orientation angles = m_imu.getAngularOrientation();
-        double heading_raw = angles.firstAngle;
-        if (m_headingRawLast < -140.0 && heading_raw > 0.0) {
-            m_headingRevs -= 1;
-        } else if (m_headingRawLast > 140.0 && heading_raw < 0.0) {
-            m_headingRevs += 1;
-        }
-        // Our mental model says clockwise rotation (turning right) is a positive
-        // rotation for the power, so we will sign correct heading to match.
-        m_heading = -(m_headingRevs * 360.0 + heading_raw);
-        m_headingRawLast = heading_raw;
         return m_heading;
     }
 
+    /**
+     * @return Returns the current angular rate of the robot in degrees per second, clockwise positive.
+     */
+    public double getAngularRate() {
+        return m_angularRate;
+    }
+
+    /**
+     * @return Returns the {@link Scheduler#getClock() scheduler clock} time of the sample for the current heading - the
+     * same time base as the odometry and pose estimator times.
+     */
+    public long getHeadingTimestamp() {
+        return m_headingTimestamp;
+    }
+
+    /**
+     * Update the current heading. Until the IMU is calibrated this advances the calibration and computes the heading
+     * from the encoders. Once the IMU is calibrated, sample the IMU unless it is being sampled on a background thread,
+     * then read the latest sample.
+     */
+    protected void lclReadHeading() {
+        if (m_imuSampler == null) {
+            if (m_imuCalibrator.update(m_opMode.getScheduler().getClock().nanoTime()) != ImuCalibrator.State.READY) {
+                lclReadEncoderHeading();
+                return;
+            }
+            // The IMU just became ready - start tracking from the IMU, offset so the heading does not jump.
+            lclReadEncoderHeading();
+            m_imuSampler = new ImuSampler(m_opMode.getScheduler().getClock(), m_imu);
+            m_imuSampler.reset();
+            m_imuSampler.readSample();
+            m_imuHeadingOffset = m_heading - m_imuSampler.getHeading();
+            if (m_asyncImu) {
+                m_imuSampler.start();
+            }
+        }
+        if (!m_imuSampler.isRunning()) {
+            m_imuSampler.sample();
+        }
+        m_imuSampler.readSample();
+        m_heading = m_imuHeadingOffset + m_imuSampler.getHeading();
+        m_angularRate = m_imuSampler.getAngularRate();
+        m_headingTimestamp = m_imuSampler.getTimestamp();
+    }
+
+    /**
+     * Compute the heading from the encoders. Clockwise rotation drives the left wheels forward and the right wheels
+     * backward, so the rotation is the difference of the sides. This comes from the encoder snapshot, so it costs
+     * nothing extra if a command reads the encoders anyway.
+     */
+    private void lclReadEncoderHeading() {
+        int left = m_snapshot.getPosition(SNAPSHOT_FL) + m_snapshot.getPosition(SNAPSHOT_LR);
+        int right = m_snapshot.getPosition(SNAPSHOT_FR) + m_snapshot.getPosition(SNAPSHOT_RR);
+        int leftRate = m_snapshot.getVelocity(SNAPSHOT_FL) + m_snapshot.getVelocity(SNAPSHOT_LR);
+        int rightRate = m_snapshot.getVelocity(SNAPSHOT_FR) + m_snapshot.getVelocity(SNAPSHOT_RR);
+        m_heading = (left - right) / (4.0 * AConstants.TICS_PER_DEGREE_ROTATION);
+        m_angularRate = (leftRate - rightRate) / (4.0 * AConstants.TICS_PER_DEGREE_ROTATION);
+        m_headingTimestamp = m_opMode.getScheduler().getClock().nanoTime();
+    }
+
     public double getExpectedHeading() {
         return m_expectedHeading;
     }
@@ -196,47 +628,23 @@ public class MecanumDriveSubsystem extends ASubsystem {
     }
 
     public void SetTankPower(double left, double right, double sideways) {
-        // figure out if the right and left values need to be scaled. If you have full X and full Y, then the sum
-        // could be greater than 1.
-        double scale = 1.0;
-        double maxLeft = Math.abs(left) + Math.abs(sideways);
-        double maxRight = Math.abs(right) + Math.abs(sideways);
-        if (maxLeft > maxRight) {
-            if (maxLeft > 1.0) {
-                scale = 1.0 / maxLeft;
-            }
-        } else {
-            if (maxRight > 1.0) {
-                scale = 1.0 / maxRight;
-            }
-        }
-        // Now apply the scaled power.
-        double powerRF = scale * (right - sideways);
-        double powerRR = scale * (right + sideways);
-        double powerFL = scale * (left + sideways);
-        double powerLR = scale * (left - sideways);
-        // set the power to each of the motors
-        setMotorPower(powerFL, powerRF, powerRR, powerLR);
+        DriveMath.tankPower(left, right, sideways, m_mixedPowers);
+        lclSetMixedPowers();
     }
 
     public void setArcadePower(double forward, double sideways, double rotate) {
-        // OK, so the maximum-minimum is the sum of the absolute values of forward, side, and turn
-        double scale = 1.0;
-        double max = Math.abs(forward) + Math.abs(sideways) + Math.abs(rotate);
-        if (max > 1.0) {
-            scale = 1.0 / max;
-        }
-        // Compute the power for each of the motors
-        double powerRF = scale * (forward - sideways - rotate);
-        double powerRR = scale * (forward + sideways - rotate);
-        double powerFL = scale * (forward + sideways + rotate);
-        double powerLR = scale * (forward - sideways + rotate);
-        // set the power to each of the motors
-        setMotorPower(powerFL, powerRF, powerRR, powerLR);
+        DriveMath.arcadePower(forward, sideways, rotate, m_mixedPowers);
+        lclSetMixedPowers();
+    }
+
+    private void lclSetMixedPowers() {
+        setMotorPower(m_mixedPowers[DriveMath.FRONT_LEFT], m_mixedPowers[DriveMath.FRONT_RIGHT],
+                m_mixedPowers[DriveMath.RIGHT_REAR], m_mixedPowers[DriveMath.LEFT_REAR]);
     }
 
     /**
-     * Explicitly set the power for each of the motors.
+     * Explicitly set the power for each of the motors. The power is written to the motors at the end of the control
+     * loop.
      *
      * @param powerFL (double) The power for the left-front motor.
      * @param powerRF (double) The power for the right-front motor.
@@ -244,10 +652,10 @@ public class MecanumDriveSubsystem extends ASubsystem {
      * @param powerLR (double) The power for the left-rear motor.
      */
     public void setMotorPower(double powerFL, double powerRF, double powerRR, double powerLR) {
-        m_motorFL.setPower(m_powerFL = powerFL);
-        m_motorFR.setPower(m_powerFR = powerRF);
-        m_motorRR.setPower(m_powerRR = powerRR);
-        m_motorLR.setPower(m_powerLR = powerLR);
+        m_powerFL = powerFL;
+        m_powerFR = powerRF;
+        m_powerRR = powerRR;
+        m_powerLR = powerLR;
     }
 
     public double getFrontLeftPower() { return m_powerFL; }
@@ -258,11 +666,11 @@ public class MecanumDriveSubsystem extends ASubsystem {
 
     public double getLeftRearPower() { return m_powerLR; }
 
-    public int getFrontLeftEncoder() { return m_motorFL.getCurrentPosition(); }
+    public int getFrontLeftEncoder() { return m_snapshot.getPosition(SNAPSHOT_FL); }
 
-    public int getFrontRightEncoder() { return m_motorFR.getCurrentPosition(); }
+    public int getFrontRightEncoder() { return m_snapshot.getPosition(SNAPSHOT_FR); }
 
-    public int getRightRearEncoder() { return m_motorRR.getCurrentPosition(); }
+    public int getRightRearEncoder() { return m_snapshot.getPosition(SNAPSHOT_RR); }
 
-    public int getLeftRearEncoder() { return m_motorLR.getCurrentPosition(); }
+    public int getLeftRearEncoder() { return m_snapshot.getPosition(SNAPSHOT_LR); }
 }
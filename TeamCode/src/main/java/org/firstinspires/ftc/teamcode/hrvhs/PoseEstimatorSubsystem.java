@@ -0,0 +1,323 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.firstinspires.ftc.robotcore.external.matrices.OpenGLMatrix;
+
+/**
+ * The field pose of the robot estimated by a {@link PoseEstimator} (an extended Kalman filter) from the wheel
+ * encoders, the IMU heading, and vision fixes. At the start of every control loop the change in the drive encoders
+ * is the predict, and once the IMU is calibrated the drive heading is a heading update. Vision fixes are added from
+ * the vision thread with {@link PoseEstimatorSubsystem#addVisionFix(double, double, double, long)} or
+ * {@link PoseEstimatorSubsystem#addVuforiaFix(OpenGLMatrix, long)} and applied at the start of the next control
+ * loop.
+ * <p>
+ * A vision fix describes where the robot was when the camera frame was captured, which is 50-150ms before the fix
+ * arrives. Every control loop is recorded in a {@link PoseHistory}, and a fix is applied at its capture time, then the
+ * moves since are replayed - so the latency does not pull the estimate back to where the robot was.
+ * <p>
+ * The pose is in the field frame of the {@link Pose}, so for vision fixes to make sense the start pose on the field
+ * must be {@link PoseEstimatorSubsystem#setPose(double, double, double) set}. The Vuforia field frame (<tt>Y</tt> to
+ * the left, counter-clockwise rotation) is converted to it.
+ * <p>
+ * This subsystem reads the drive encoders and heading, so it must be constructed after the drive subsystem (i.e.
+ * declared after <tt>m_driveSubsystem</tt>, which is always true for an op mode field) so the drive reads its inputs
+ * first. Nothing is allocated in the control loop.
+ */
+public class PoseEstimatorSubsystem extends ASubsystem {
+
+    // Vuforia reports in millimeters
+    static final double MM_PER_INCH = 25.4;
+    // The default number of control loops in the history - 640ms at the ideal loop interval.
+    public static final int DEFAULT_HISTORY = 32;
+
+    // The indices of the values in the vision fix and published buffers.
+    private static final int X = 0;
+    private static final int Y = 1;
+    private static final int HEADING = 2;
+    private static final int VELOCITY_X = 3;
+    private static final int VELOCITY_Y = 4;
+    private static final int ANGULAR_RATE = 5;
+    private static final int TIMESTAMP = 6;
+    private static final int SIZE = 7;
+    // The index of the capture time in the vision fix buffer.
+    private static final int FIX_TIMESTAMP = 3;
+
+    protected final MecanumDriveSubsystem m_drive;
+    protected final PoseEstimator m_estimator = new PoseEstimator();
+    protected final PoseHistory m_history;
+    // The scheduler this subsystem is registered with, whose clock times the control loops and the fixes.
+    private final Scheduler m_scheduler;
+
+    // The measurement errors (standard deviations) of the IMU heading and the vision fixes
+    double m_imuHeadingStdDev = 1.0;
+    double m_visionPositionStdDev = 2.0;
+    double m_visionHeadingStdDev = 4.0;
+
+    // The encoders and time at the last predict, and the field heading minus the drive heading
+    private boolean m_started = false;
+    private int m_lastFL;
+    private int m_lastFR;
+    private int m_lastRR;
+    private int m_lastLR;
+    private long m_lastTimestamp;
+    private double m_headingOffset = 0.0;
+
+    // The vision fix mailbox - written by the vision thread, read on the control thread.
+    private final SeqLockBuffer m_visionFix = new SeqLockBuffer(4);
+    private final long[] m_visionRead = new long[4];
+    private long m_visionSequence = 0;
+    private long m_staleFixCt = 0;
+
+    // The published estimate for other threads.
+    private final SeqLockBuffer m_published = new SeqLockBuffer(SIZE);
+
+    /**
+     * Instantiate the PoseEstimatorSubsystem.
+     *
+     * @param drive (MecanumDriveSubsystem, not null) The drive, which provides the encoders and the heading.
+     */
+    public PoseEstimatorSubsystem(MecanumDriveSubsystem drive) {
+        this(drive, DEFAULT_HISTORY);
+    }
+
+    /**
+     * Instantiate the PoseEstimatorSubsystem.
+     *
+     * @param drive           (MecanumDriveSubsystem, not null) The drive, which provides the encoders and the heading.
+     * @param historyCapacity (int) The number of control loops in the history - a fix captured before the oldest is
+     *                        discarded.
+     */
+    public PoseEstimatorSubsystem(MecanumDriveSubsystem drive, int historyCapacity) {
+        super("Pose Estimator");
+        m_drive = drive;
+        m_history = new PoseHistory(historyCapacity);
+        m_scheduler = Scheduler.getInstance();
+    }
+
+    /**
+     * Set the pose, normally the start position on the field before the start. This must be called from the
+     * control thread.
+     *
+     * @param x       (double) The x position in inches.
+     * @param y       (double) The y position in inches.
+     * @param heading (double) The heading in degrees, clockwise positive.
+     */
+    public void setPose(double x, double y, double heading) {
+        m_estimator.setPose(x, y, heading, 0.5, 1.0);
+        m_headingOffset = heading - m_drive.getHeading();
+        m_history.clear();
+    }
+
+    /**
+     * Set the measurement errors. The defaults are 1 degree for the IMU heading, and 2 inches and 4 degrees for a
+     * vision fix.
+     *
+     * @param imuHeadingStdDev     (double) The standard deviation of the IMU heading in degrees.
+     * @param visionPositionStdDev (double) The standard deviation of a vision fix position in inches.
+     * @param visionHeadingStdDev  (double) The standard deviation of a vision fix heading in degrees.
+     */
+    public void setMeasurementError(double imuHeadingStdDev, double visionPositionStdDev,
+                                    double visionHeadingStdDev) {
+        m_imuHeadingStdDev = imuHeadingStdDev;
+        m_visionPositionStdDev = visionPositionStdDev;
+        m_visionHeadingStdDev = visionHeadingStdDev;
+    }
+
+    /**
+     * @return (AClock) The clock the capture times of the vision fixes are measured with - the scheduler clock.
+     */
+    public AClock getClock() {
+        return m_scheduler.getClock();
+    }
+
+    /**
+     * Add a vision fix from a camera frame captured now, see
+     * {@link PoseEstimatorSubsystem#addVisionFix(double, double, double, long)}.
+     *
+     * @param x       (double) The x position in inches.
+     * @param y       (double) The y position in inches.
+     * @param heading (double) The heading in degrees, clockwise positive.
+     */
+    public void addVisionFix(double x, double y, double heading) {
+        addVisionFix(x, y, heading, m_scheduler.getClock().nanoTime());
+    }
+
+    /**
+     * Add a vision fix, which is applied at the start of the next control loop, at the time the frame was captured.
+     * This may be called from any one thread (normally the vision thread), and never waits for the control thread.
+     * If several fixes are added between control loops only the last is applied.
+     *
+     * @param x           (double) The x position in inches.
+     * @param y           (double) The y position in inches.
+     * @param heading     (double) The heading in degrees, clockwise positive.
+     * @param captureTime (long) The {@link PoseEstimatorSubsystem#getClock() clock} time the camera frame was
+     *                    captured in nanoseconds. If the pipeline does not report it, use the time the result
+     *                    arrived less the measured pipeline latency.
+     */
+    public void addVisionFix(double x, double y, double heading, long captureTime) {
+        m_visionFix.beginWrite();
+        m_visionFix.set(X, x);
+        m_visionFix.set(Y, y);
+        m_visionFix.set(HEADING, heading);
+        m_visionFix.set(FIX_TIMESTAMP, captureTime);
+        m_visionFix.endWrite();
+    }
+
+    /**
+     * Add a Vuforia fix from a camera frame captured now, see
+     * {@link PoseEstimatorSubsystem#addVuforiaFix(OpenGLMatrix, long)}.
+     *
+     * @param robotLocation (OpenGLMatrix) The robot location on the field, <tt>null</tt> (no new location) is
+     *                      ignored.
+     */
+    public void addVuforiaFix(OpenGLMatrix robotLocation) {
+        addVuforiaFix(robotLocation, m_scheduler.getClock().nanoTime());
+    }
+
+    /**
+     * Add a Vuforia fix - the robot location from <tt>VuforiaTrackableDefaultListener.getUpdatedRobotLocation()</tt>.
+     * The location is read in place (no vectors or orientations are allocated), converted from millimeters, and the
+     * heading is the rotation about the field Z axis. See {@link PoseEstimatorSubsystem#addVisionFix(double, double,
+     * double, long)}.
+     *
+     * @param robotLocation (OpenGLMatrix) The robot location on the field, <tt>null</tt> (no new location) is
+     *                      ignored.
+     * @param captureTime   (long) The {@link PoseEstimatorSubsystem#getClock() clock} time the camera frame was
+     *                      captured in nanoseconds.
+     */
+    public void addVuforiaFix(OpenGLMatrix robotLocation, long captureTime) {
+        if (robotLocation == null) {
+            return;
+        }
+        double x = robotLocation.get(0, 3) / MM_PER_INCH;
+        double y = robotLocation.get(1, 3) / MM_PER_INCH;
+        double yaw = Math.toDegrees(Math.atan2(robotLocation.get(1, 0), robotLocation.get(0, 0)));
+        addVisionFix(x, -y, -yaw, captureTime);
+    }
+
+    /**
+     * Predict from the change in the drive encoders, then update with the IMU heading, record the control loop in
+     * the history, apply any new vision fix at its capture time, and publish the estimate.
+     */
+    @Override
+    public void readInputs() {
+        int fl = m_drive.getFrontLeftEncoder();
+        int fr = m_drive.getFrontRightEncoder();
+        int rr = m_drive.getRightRearEncoder();
+        int lr = m_drive.getLeftRearEncoder();
+        long timestamp = m_scheduler.getClock().nanoTime();
+        double forward = 0.0;
+        double sideways = 0.0;
+        double rotation = 0.0;
+        if (m_started) {
+            int dFL = fl - m_lastFL;
+            int dFR = fr - m_lastFR;
+            int dRR = rr - m_lastRR;
+            int dLR = lr - m_lastLR;
+            forward = (dFL + dFR + dRR + dLR) / (4.0 * AConstants.TICS_PER_INCH_FORWARD);
+            sideways = (dFL - dFR + dRR - dLR) / (4.0 * AConstants.TICS_PER_INCH_SIDEWAYS);
+            rotation = (dFL - dFR - dRR + dLR) / (4.0 * AConstants.TICS_PER_DEGREE_ROTATION);
+        }
+        double lastHeading = m_estimator.getHeading();
+        m_estimator.predict(forward, sideways, rotation);
+        long dt = timestamp - m_lastTimestamp;
+        double velocityX = 0.0;
+        double velocityY = 0.0;
+        double angularRate = 0.0;
+        if (m_started && dt > 0) {
+            double perSecond = 1.0e9 / dt;
+            double cos = Math.cos(Math.toRadians(lastHeading));
+            double sin = Math.sin(Math.toRadians(lastHeading));
+            velocityX = (forward * cos - sideways * sin) * perSecond;
+            velocityY = (forward * sin + sideways * cos) * perSecond;
+            angularRate = (m_estimator.getHeading() - lastHeading) * perSecond;
+        }
+        m_started = true;
+        m_lastFL = fl;
+        m_lastFR = fr;
+        m_lastRR = rr;
+        m_lastLR = lr;
+        m_lastTimestamp = timestamp;
+
+        // the drive heading is only independent of the encoders once the IMU is ready
+        double heading = Double.NaN;
+        if (m_drive.isImuReady()) {
+            heading = m_drive.getHeading() + m_headingOffset;
+            m_estimator.updateHeading(heading, m_imuHeadingStdDev);
+        }
+        m_history.record(timestamp, forward, sideways, rotation, heading, m_imuHeadingStdDev, m_estimator);
+
+        long sequence = m_visionFix.read(m_visionRead);
+        if (sequence != m_visionSequence) {
+            m_visionSequence = sequence;
+            long captureTime = m_visionRead[FIX_TIMESTAMP];
+            if (m_history.find(captureTime) < 0) {
+                m_staleFixCt++;
+            } else {
+                m_history.correct(m_estimator, captureTime, SeqLockBuffer.toDouble(m_visionRead[X]),
+                        SeqLockBuffer.toDouble(m_visionRead[Y]), SeqLockBuffer.toDouble(m_visionRead[HEADING]),
+                        m_visionPositionStdDev, m_visionHeadingStdDev);
+            }
+        }
+
+        m_published.beginWrite();
+        m_published.set(X, m_estimator.getX());
+        m_published.set(Y, m_estimator.getY());
+        m_published.set(HEADING, m_estimator.getHeading());
+        m_published.set(VELOCITY_X, velocityX);
+        m_published.set(VELOCITY_Y, velocityY);
+        m_published.set(ANGULAR_RATE, angularRate);
+        m_published.set(TIMESTAMP, timestamp);
+        m_published.endWrite();
+    }
+
+    /**
+     * @return (double) The estimated x position in inches. Only use this from the control thread.
+     */
+    public double getX() {
+        return m_estimator.getX();
+    }
+
+    /**
+     * @return (double) The estimated y position in inches. Only use this from the control thread.
+     */
+    public double getY() {
+        return m_estimator.getY();
+    }
+
+    /**
+     * @return (double) The estimated heading in degrees, clockwise positive. Only use this from the control thread.
+     */
+    public double getHeading() {
+        return m_estimator.getHeading();
+    }
+
+    /**
+     * Get the latest published estimate. This may be called from any thread.
+     *
+     * @return (Pose) The estimate at the start of the latest control loop.
+     */
+    public Pose getPose() {
+        long[] values = new long[SIZE];
+        m_published.read(values);
+        return new Pose(SeqLockBuffer.toDouble(values[X]), SeqLockBuffer.toDouble(values[Y]),
+                SeqLockBuffer.toDouble(values[HEADING]), SeqLockBuffer.toDouble(values[VELOCITY_X]),
+                SeqLockBuffer.toDouble(values[VELOCITY_Y]), SeqLockBuffer.toDouble(values[ANGULAR_RATE]),
+                values[TIMESTAMP]);
+    }
+
+    /**
+     * @return (long) The number of vision fixes discarded because they were captured before the oldest control loop
+     * in the history.
+     */
+    public long getStaleFixCount() {
+        return m_staleFixCt;
+    }
+
+    /**
+     * @return (PoseEstimator) The filter, for the covariance and the update counts. Only use this from the control
+     * thread.
+     */
+    public PoseEstimator getEstimator() {
+        return m_estimator;
+    }
+}
@@ -0,0 +1,259 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/**
+ * This collects the values commands and subsystems want to show on the driver station and sends them at a rate that
+ * is decoupled from the control loop. The control loop runs at 50Hz (or faster), but nobody can read telemetry that
+ * fast and every <tt>addData()</tt> and <tt>update()</tt> is string formatting and Wi-Fi Direct traffic.
+ * <p>
+ * A value is published into a slot, which is a retained telemetry line added (usually in <tt>preStartInitialize()</tt>)
+ * with {@link TelemetryAggregator#addSlot(String, String) addSlot()}. Publishing a value only stores it in a
+ * preallocated array, so it is cheap to do every loop. When a {@link TelemetryAggregator#flush(long) flush} is due,
+ * only the slots whose value changed since the last flush are formatted, and then the telemetry is updated.
+ * <p>
+ * There are counters of the values published and the lines actually formatted so the savings can be reported - see
+ * {@link TelemetryAggregator#getSummary()}. The savings are measured against formatting and sending a line for every
+ * value published (what a plain FTC op mode does with <tt>addData()</tt> and <tt>update()</tt> every loop): every
+ * publish that is not formatted is a line string that was not allocated, and the bytes saved are the characters of
+ * the lines those publishes would have sent, less the characters the flushes actually sent.
+ * <p>
+ * This is not thread-safe, it is expected that values are published on the control thread.
+ */
+public final class TelemetryAggregator {
+
+    // The default interval between flushes in milliseconds - this matches the default telemetry transmission interval.
+    public static final long DEFAULT_FLUSH_INTERVAL = 250;
+
+    private final Telemetry m_telemetry;
+
+    // The slots, preallocated and grown (outside the control loop) in addSlot() as needed.
+    private int m_slotCt = 0;
+    private Telemetry.Item[] m_items = new Telemetry.Item[16];
+    private String[] m_captions = new String[16];
+    private String[] m_formats = new String[16];
+    private double[] m_values = new double[16];
+    private String[] m_strings = new String[16];
+    private boolean[] m_changed = new boolean[16];
+    // The values published to each slot since the last flush, and the length of the line (caption and value) when the
+    //  slot was last formatted.
+    private int[] m_publishedSinceFlush = new int[16];
+    private int[] m_lineLengths = new int[16];
+
+    // Flush timing in nanoseconds, the first flush is due immediately.
+    private long m_flushInterval = DEFAULT_FLUSH_INTERVAL * 1000000L;
+    private long m_nextFlush;
+    private long m_firstFlush;
+    private long m_lastFlush;
+
+    // Counters for reporting the savings.
+    private long m_publishedCt = 0;
+    private long m_formattedCt = 0;
+    private long m_flushCt = 0;
+    // The characters sent in the flushes - an update sends every retained line - and the characters the published
+    //  values would have sent as one line per publish.
+    private long m_sentChars = 0;
+    private long m_publishedChars = 0;
+
+    /**
+     * Instantiate the TelemetryAggregator.
+     *
+     * @param telemetry (not null) The op mode telemetry.
+     */
+    public TelemetryAggregator(Telemetry telemetry) {
+        m_telemetry = telemetry;
+    }
+
+    /**
+     * Set the interval between flushes. The default is {@link TelemetryAggregator#DEFAULT_FLUSH_INTERVAL}.
+     *
+     * @param millis The interval between flushes in milliseconds.
+     */
+    public void setFlushInterval(long millis) {
+        m_flushInterval = millis * 1000000L;
+    }
+
+    /**
+     * Add a slot for a numeric value. This allocates the telemetry line, so it should be called during initialization
+     * rather than in the control loop.
+     *
+     * @param caption (not null) The caption for the telemetry line.
+     * @param format  The format for the value, i.e. <tt>"%6.1f ms"</tt>, or <tt>null</tt> for a string value.
+     * @return The slot to publish values to.
+     */
+    public int addSlot(String caption, String format) {
+        if (m_slotCt == m_items.length) {
+            grow(m_slotCt * 2);
+        }
+        int slot = m_slotCt++;
+        m_items[slot] = m_telemetry.addData(caption, "");
+        m_items[slot].setRetained(true);
+        m_captions[slot] = caption;
+        m_formats[slot] = format;
+        m_values[slot] = Double.NaN;
+        m_strings[slot] = null;
+        m_changed[slot] = false;
+        m_publishedSinceFlush[slot] = 0;
+        m_lineLengths[slot] = caption.length();
+        return slot;
+    }
+
+    /**
+     * Add a slot for a string value. This allocates the telemetry line, so it should be called during initialization
+     * rather than in the control loop.
+     *
+     * @param caption (not null) The caption for the telemetry line.
+     * @return The slot to publish values to.
+     */
+    public int addSlot(String caption) {
+        return addSlot(caption, null);
+    }
+
+    /**
+     * Publish a numeric value.
+     *
+     * @param slot  The slot returned by {@link TelemetryAggregator#addSlot(String, String)}.
+     * @param value The value.
+     */
+    public void publish(int slot, double value) {
+        m_publishedCt++;
+        m_publishedSinceFlush[slot]++;
+        if (Double.doubleToLongBits(value) != Double.doubleToLongBits(m_values[slot])) {
+            m_values[slot] = value;
+            m_changed[slot] = true;
+        }
+    }
+
+    /**
+     * Publish a string value. The value is compared by reference, so publishing the same string instance every loop
+     * costs nothing.
+     *
+     * @param slot  The slot returned by {@link TelemetryAggregator#addSlot(String)}.
+     * @param value The value.
+     */
+    public void publish(int slot, String value) {
+        m_publishedCt++;
+        m_publishedSinceFlush[slot]++;
+        if (value != m_strings[slot]) {
+            m_strings[slot] = value;
+            m_changed[slot] = true;
+        }
+    }
+
+    /**
+     * Test whether a flush is due.
+     *
+     * @param now The current time from the {@link Scheduler#getClock() scheduler clock}.
+     * @return <tt>true</tt> if a flush is due; <tt>false</tt> otherwise.
+     */
+    public boolean isFlushDue(long now) {
+        return m_flushCt == 0 || now - m_nextFlush >= 0;
+    }
+
+    /**
+     * Format the lines whose value changed since the last flush and update the telemetry.
+     *
+     * @param now The current time from the {@link Scheduler#getClock() scheduler clock}.
+     */
+    public void flush(long now) {
+        for (int slot = 0; slot < m_slotCt; slot++) {
+            if (m_changed[slot]) {
+                m_changed[slot] = false;
+                m_formattedCt++;
+                String value = (m_formats[slot] == null) ?
+                        m_strings[slot] : String.format(m_formats[slot], m_values[slot]);
+                m_items[slot].setValue(value);
+                m_lineLengths[slot] = m_captions[slot].length() + ((value == null) ? 0 : value.length());
+            }
+            // every publish since the last flush would have been a line sent, the flush sends the line once
+            m_publishedChars += (long) m_publishedSinceFlush[slot] * m_lineLengths[slot];
+            m_publishedSinceFlush[slot] = 0;
+            m_sentChars += m_lineLengths[slot];
+        }
+        m_telemetry.update();
+        if (m_flushCt == 0) {
+            m_firstFlush = now;
+        }
+        m_flushCt++;
+        m_lastFlush = now;
+        m_nextFlush = now + m_flushInterval;
+    }
+
+    /**
+     * @return The number of values that have been published.
+     */
+    public long getPublishedCount() {
+        return m_publishedCt;
+    }
+
+    /**
+     * @return The number of lines that have been formatted - the values published minus this is the formatting work
+     * that was saved.
+     */
+    public long getFormattedCount() {
+        return m_formattedCt;
+    }
+
+    /**
+     * @return The number of telemetry updates that have been sent.
+     */
+    public long getFlushCount() {
+        return m_flushCt;
+    }
+
+    /**
+     * @return The number of line strings that were not allocated - the values published that were never formatted.
+     */
+    public long getAllocationsSaved() {
+        return m_publishedCt - m_formattedCt;
+    }
+
+    /**
+     * @return The number of bytes (characters of the telemetry lines) that were not sent - the lines the published
+     * values would have sent one by one, less the lines the flushes sent.
+     */
+    public long getBytesSaved() {
+        return m_publishedChars - m_sentChars;
+    }
+
+    /**
+     * @return A one line summary of the telemetry traffic for the logs - the values published, the lines formatted,
+     * and the updates sent, per second between the first and the last flush, and the line allocations and bytes that
+     * were saved per second.
+     */
+    public String getSummary() {
+        double seconds = (m_lastFlush - m_firstFlush) / 1.0e9;
+        double perSecond = (seconds > 0.0) ? 1.0 / seconds : 0.0;
+        return String.format("telemetry published/formatted/sent: %d/%d/%d, per second: %.1f/%.1f/%.1f, " +
+                        "saved per second: %.1f allocations, %.0f bytes",
+                m_publishedCt, m_formattedCt, m_flushCt, m_publishedCt * perSecond, m_formattedCt * perSecond,
+                m_flushCt * perSecond, getAllocationsSaved() * perSecond, getBytesSaved() * perSecond);
+    }
+
+    private void grow(int capacity) {
+        Telemetry.Item[] items = new Telemetry.Item[capacity];
+        String[] captions = new String[capacity];
+        String[] formats = new String[capacity];
+        double[] values = new double[capacity];
+        String[] strings = new String[capacity];
+        boolean[] changed = new boolean[capacity];
+        int[] publishedSinceFlush = new int[capacity];
+        int[] lineLengths = new int[capacity];
+        System.arraycopy(m_items, 0, items, 0, m_slotCt);
+        System.arraycopy(m_captions, 0, captions, 0, m_slotCt);
+        System.arraycopy(m_formats, 0, formats, 0, m_slotCt);
+        System.arraycopy(m_values, 0, values, 0, m_slotCt);
+        System.arraycopy(m_strings, 0, strings, 0, m_slotCt);
+        System.arraycopy(m_changed, 0, changed, 0, m_slotCt);
+        System.arraycopy(m_publishedSinceFlush, 0, publishedSinceFlush, 0, m_slotCt);
+        System.arraycopy(m_lineLengths, 0, lineLengths, 0, m_slotCt);
+        m_items = items;
+        m_captions = captions;
+        m_formats = formats;
+        m_values = values;
+        m_strings = strings;
+        m_changed = changed;
+        m_publishedSinceFlush = publishedSinceFlush;
+        m_lineLengths = lineLengths;
+    }
+}
@@ -0,0 +1,306 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/**
+ * The closed-loop velocity control of the drive wheels - a {@link VelocityController} for each wheel, driving the
+ * wheel toward a target surface speed (inches per second) with the feedforward from {@link AConstants#DRIVE_KV},
+ * {@link AConstants#DRIVE_KA}, and {@link AConstants#DRIVE_KSTATIC}, and the PID from
+ * {@link AConstants#DRIVE_VELOCITY_KP}, {@link AConstants#DRIVE_VELOCITY_KI}, and {@link AConstants#DRIVE_VELOCITY_KD}.
+ * The measured wheel speeds come from the {@link HardwareSnapshot} - the velocity the hub reports if it reports one,
+ * otherwise the change in position since the last update.
+ * <p>
+ * The targets are set from the control thread, and published through a {@link SeqLockBuffer}. The loop can either be
+ * {@link WheelVelocityLoop#update() updated} from the control thread after the targets are set, or
+ * {@link WheelVelocityLoop#start() started} on a background thread that runs faster than the control loop (every 5ms
+ * rather than every 20ms, for example) so the wheels respond to a change in load between control loops. On a
+ * background thread the loop must have its own snapshot, because a snapshot is not thread-safe. The target
+ * acceleration for the feedforward is the change in the target velocity between control loops.
+ * <p>
+ * The background thread owns the motors while it runs - nothing else should set their power until it is
+ * {@link WheelVelocityLoop#stop() stopped}. It stops itself when it is interrupted or the op mode control loop is no
+ * longer {@link AHrvhsOpMode#isControlLoopActive() active}, and it always sets the motors to 0 power when it stops, so
+ * the wheels cannot keep driving after the op mode is stopped or the control thread has died.
+ * <p>
+ * The background thread is paced on the same clock the time between updates is measured on. Off the robot that is
+ * the {@link VirtualClock} the control loop moves, so the loop runs (at most) once for every control loop step that
+ * passes its next update time, rather than on the wall clock.
+ */
+public class WheelVelocityLoop implements Runnable {
+
+    // The default interval between background updates.
+    public static final long DEFAULT_LOOP_INTERVAL = 5;
+
+    // The number of wheels, and the indices of the values in the published targets - the velocities are 0 to 3, the
+    //  accelerations 4 to 7.
+    private static final int WHEELS = 4;
+    private static final int ACCELERATION = 4;
+    private static final int ENABLED = 8;
+
+    private final AHrvhsOpMode m_opMode;
+    private final AClock m_clock;
+    private final HardwareSnapshot m_snapshot;
+    private final DcMotor[] m_motors;
+    private final VelocityController[] m_controllers = new VelocityController[WHEELS];
+
+    private final SeqLockBuffer m_targets = new SeqLockBuffer(9);
+    // The target tracking - only touched by the thread setting the targets (normally the control thread).
+    private final double[] m_lastTargets = new double[WHEELS];
+    private long m_lastTargetTime = 0;
+    private boolean m_hasLastTargets = false;
+
+    // The loop state - only touched by the thread running the loop.
+    private final long[] m_read = new long[9];
+    private final int[] m_lastPositions = new int[WHEELS];
+    private final double[] m_measured = new double[WHEELS];
+    private final double[] m_written = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+    private long m_lastUpdateTime = 0;
+    private boolean m_hasLastUpdate = false;
+    private volatile boolean m_active = false;
+    private long m_updateCt = 0;
+
+    // The background thread.
+    private long m_loopInterval = DEFAULT_LOOP_INTERVAL;
+    private volatile boolean m_running = false;
+    private Thread m_thread = null;
+
+    /**
+     * Instantiate the WheelVelocityLoop.
+     *
+     * @param opMode   (AHrvhsOpMode, not null) The op mode the loop runs in, the background thread stops when its
+     *                 control loop is no longer active.
+     * @param clock    (AClock, not null) The clock the time between updates is measured, and the background thread
+     *                 paced, on.
+     * @param snapshot (HardwareSnapshot, not null) The encoder snapshot of the motors, in the same order as the
+     *                 motors. This must only be used by the thread running the loop.
+     * @param motors   (DcMotor, not null) The front left, front right, right rear, and left rear motors.
+     */
+    public WheelVelocityLoop(AHrvhsOpMode opMode, AClock clock, HardwareSnapshot snapshot, DcMotor... motors) {
+        if (motors.length != WHEELS) {
+            throw new IllegalArgumentException("The velocity loop needs the 4 drive motors.");
+        }
+        m_opMode = opMode;
+        m_clock = clock;
+        m_snapshot = snapshot;
+        m_motors = motors;
+        for (int i = 0; i < WHEELS; i++) {
+            VelocityController controller = new VelocityController();
+            controller.setFeedforward(AConstants.DRIVE_KV, AConstants.DRIVE_KA, AConstants.DRIVE_KSTATIC);
+            controller.setPid(AConstants.DRIVE_VELOCITY_KP, AConstants.DRIVE_VELOCITY_KI,
+                    AConstants.DRIVE_VELOCITY_KD);
+            m_controllers[i] = controller;
+        }
+    }
+
+    /**
+     * Get the controller of a wheel, to change its gains. This must be done before the loop is started.
+     *
+     * @param wheel (int) The wheel - 0 front left, 1 front right, 2 right rear, 3 left rear.
+     * @return (VelocityController) The controller.
+     */
+    public VelocityController getController(int wheel) {
+        return m_controllers[wheel];
+    }
+
+    /**
+     * Set the target wheel speeds. Call this from the control thread once per control loop.
+     *
+     * @param velocityFL (double) The front left wheel speed, inches per second.
+     * @param velocityFR (double) The front right wheel speed, inches per second.
+     * @param velocityRR (double) The right rear wheel speed, inches per second.
+     * @param velocityLR (double) The left rear wheel speed, inches per second.
+     */
+    public void setTargets(double velocityFL, double velocityFR, double velocityRR, double velocityLR) {
+        long now = m_clock.nanoTime();
+        double dt = m_hasLastTargets ? (now - m_lastTargetTime) / 1.0e9 : 0.0;
+        SeqLockBuffer targets = m_targets;
+        targets.beginWrite();
+        lclSetTarget(0, velocityFL, dt);
+        lclSetTarget(1, velocityFR, dt);
+        lclSetTarget(2, velocityRR, dt);
+        lclSetTarget(3, velocityLR, dt);
+        targets.set(ENABLED, 1L);
+        targets.endWrite();
+        m_lastTargetTime = now;
+        m_hasLastTargets = true;
+    }
+
+    private void lclSetTarget(int wheel, double velocity, double dt) {
+        double acceleration = (dt > 0.0) ? (velocity - m_lastTargets[wheel]) / dt : 0.0;
+        m_targets.set(wheel, velocity);
+        m_targets.set(ACCELERATION + wheel, acceleration);
+        m_lastTargets[wheel] = velocity;
+    }
+
+    /**
+     * Stop controlling the wheels, so the motor powers can be set directly again. Call this from the control thread.
+     * The next {@link WheelVelocityLoop#setTargets(double, double, double, double)} starts controlling them again.
+     */
+    public void disable() {
+        m_targets.beginWrite();
+        m_targets.set(ENABLED, 0L);
+        m_targets.endWrite();
+        m_hasLastTargets = false;
+        for (int i = 0; i < WHEELS; i++) {
+            m_lastTargets[i] = 0.0;
+        }
+    }
+
+    /**
+     * Set the interval between background updates. The default is {@link WheelVelocityLoop#DEFAULT_LOOP_INTERVAL}.
+     *
+     * @param millis The interval between updates in milliseconds.
+     */
+    public void setLoopInterval(long millis) {
+        m_loopInterval = millis;
+    }
+
+    /**
+     * Start updating on a background thread, if it is not already running. From here until
+     * {@link WheelVelocityLoop#stop()} the background thread owns the motors.
+     */
+    public synchronized void start() {
+        if (m_thread == null || !m_thread.isAlive()) {
+            m_running = true;
+            m_thread = new Thread(this, "WheelVelocityLoop");
+            m_thread.setDaemon(true);
+            m_thread.start();
+        }
+    }
+
+    /**
+     * Stop updating on the background thread, and wait for the thread to set the motors to 0 power and finish.
+     */
+    public synchronized void stop() {
+        if (m_thread != null) {
+            m_running = false;
+            m_thread.interrupt();
+            try {
+                m_thread.join(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!m_thread.isAlive()) {
+                m_thread = null;
+            }
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if the background thread is running, and owns the motors; <tt>false</tt> otherwise.
+     */
+    public synchronized boolean isRunning() {
+        return m_thread != null && m_thread.isAlive();
+    }
+
+    @Override
+    public void run() {
+        try {
+            // Thread.interrupted() clears the interrupt, so the writes that stop the motors are not aborted by it
+            while (m_running && !Thread.interrupted() && m_opMode.isControlLoopActive()) {
+                lclRunOnce();
+            }
+        } catch (InterruptedException e) {
+            // stopped while sleeping
+        } finally {
+            m_running = false;
+            lclStopMotors();
+        }
+    }
+
+    private void lclRunOnce() throws InterruptedException {
+        long start = m_clock.nanoTime();
+        // the snapshot is only used by this thread, so refresh it for every update
+        m_snapshot.invalidate();
+        update();
+        // pace on the clock update() measures on - this thread does not own the clock, so wait for it rather than
+        //  moving it
+        m_clock.awaitTime(start + m_loopInterval * 1000000L);
+    }
+
+    /**
+     * Set all the motors to 0 power and reset the controllers - the last thing the background thread does. Every
+     * motor is stopped even if stopping another one failed.
+     */
+    private void lclStopMotors() {
+        for (int i = 0; i < WHEELS; i++) {
+            m_controllers[i].reset();
+            try {
+                m_motors[i].setPower(0.0);
+                m_written[i] = 0.0;
+            } catch (RuntimeException e) {
+                m_written[i] = Double.NaN;
+            }
+        }
+        m_hasLastUpdate = false;
+        m_active = false;
+    }
+
+    /**
+     * Update the wheel powers for the latest targets and the measured wheel speeds, on the calling thread. This is
+     * how the loop is used when it is not started on a background thread - the snapshot is whatever the control loop
+     * has read.
+     */
+    public void update() {
+        m_targets.read(m_read);
+        if (m_read[ENABLED] == 0L) {
+            if (m_active) {
+                for (int i = 0; i < WHEELS; i++) {
+                    m_controllers[i].reset();
+                    m_written[i] = Double.NaN;
+                }
+                m_hasLastUpdate = false;
+                m_active = false;
+            }
+            return;
+        }
+        m_active = true;
+        long now = m_clock.nanoTime();
+        double dt = m_hasLastUpdate ? (now - m_lastUpdateTime) / 1.0e9 : 0.0;
+        double ticsPerInch = AConstants.TICS_PER_INCH_FORWARD;
+        for (int i = 0; i < WHEELS; i++) {
+            int position = m_snapshot.getPosition(i);
+            if (m_snapshot.hasVelocity(i)) {
+                m_measured[i] = m_snapshot.getVelocity(i) / ticsPerInch;
+            } else if (dt > 0.0) {
+                m_measured[i] = (position - m_lastPositions[i]) / ticsPerInch / dt;
+            }
+            m_lastPositions[i] = position;
+            double power = m_controllers[i].calculate(SeqLockBuffer.toDouble(m_read[i]),
+                    SeqLockBuffer.toDouble(m_read[ACCELERATION + i]), m_measured[i], dt);
+            double written = m_written[i];
+            if (Math.abs(power - written) > 0.001 || (power == 0.0 && written != 0.0) || Double.isNaN(written)) {
+                m_motors[i].setPower(power);
+                m_written[i] = power;
+            }
+        }
+        m_lastUpdateTime = now;
+        m_hasLastUpdate = true;
+        m_updateCt++;
+    }
+
+    /**
+     * Get the measured speed of a wheel at the last update. This must only be called from the thread running the loop.
+     *
+     * @param wheel (int) The wheel - 0 front left, 1 front right, 2 right rear, 3 left rear.
+     * @return (double) The wheel speed in inches per second.
+     */
+    public double getMeasuredVelocity(int wheel) {
+        return m_measured[wheel];
+    }
+
+    /**
+     * @return <tt>true</tt> if the loop is controlling the wheels; <tt>false</tt> once it has seen the
+     * {@link WheelVelocityLoop#disable() disable} and will not write the motors again until the next targets.
+     */
+    public boolean isActive() {
+        return m_active;
+    }
+
+    /**
+     * @return (long) The number of updates that controlled the wheels.
+     */
+    public long getUpdateCount() {
+        return m_updateCt;
+    }
+}
@@ -0,0 +1,53 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.firstinspires.ftc.teamcode.commands.DriveDistance;
+import org.firstinspires.ftc.teamcode.hrvhs.AHrvhsOpMode;
+import org.firstinspires.ftc.teamcode.hrvhs.DriveTuner;
+import org.firstinspires.ftc.teamcode.hrvhs.DriveTuning;
+
+/**
+ * Tune the heading correction and move profile constants against the simulated drivetrain - run this on a workstation
+ * (not the robot), it uses all the cores. The robot constants from {@link Constants#initForMyRobot()} are used, and
+ * the result is printed as a constants profile to paste into {@link Constants} and call after
+ * <tt>initForMyRobot()</tt>.
+ */
+public class TuneDrive {
+
+    // The move that is tuned - forward 4 feet (2 tiles)
+    static final double DISTANCE = 48.0;
+
+    /**
+     * The op mode the tuner runs - one autonomous move forward. This is not annotated, so it is not listed on the
+     * driver station.
+     */
+    public static class MoveOpMode extends AHrvhsOpMode {
+
+        @Override
+        protected void preStartInitialize() {
+            // initialize the constants for my robot
+            Constants.initForMyRobot();
+        }
+
+        @Override
+        protected void postStartInitialize() {
+            new DriveDistance(this, "Tuning Move", DISTANCE, m_driveSubsystem).start();
+        }
+    }
+
+    public static void main(String[] args) {
+        Constants.initForMyRobot();
+        DriveTuner tuner = new DriveTuner(MoveOpMode.class, DISTANCE);
+        DriveTuning current = new DriveTuning();
+        System.out.println("current: " + current);
+        System.out.println("         " + tuner.evaluate(current));
+        long start = System.nanoTime();
+        DriveTuning best = tuner.tune();
+        System.out.println("tuned:   " + best);
+        System.out.println("         " + tuner.getBestScore());
+        System.out.println(String.format("%.1f s on %d cores", (System.nanoTime() - start) / 1.0e9,
+                Runtime.getRuntime().availableProcessors()));
+        System.out.println();
+        System.out.println("    // tuned by TuneDrive - " + tuner.getBestScore());
+        System.out.print(best.toJava("initTunedDrive"));
+    }
+}
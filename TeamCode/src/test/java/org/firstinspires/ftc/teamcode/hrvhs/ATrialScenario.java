@@ -0,0 +1,140 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.firstinspires.ftc.teamcode.hrvhs.sim.GamepadScript;
+import org.firstinspires.ftc.teamcode.hrvhs.sim.MecanumPhysics;
+
+import java.util.Random;
+
+/**
+ * A scenario for the {@link MonteCarloEvaluator} - the op mode to run, how each trial is randomized, and what counts
+ * as reaching the target. Override {@link ATrialScenario#isAtTarget(SimulationHarness)} to say when the robot has
+ * done its job, and set the nominal start pose and the spread of the randomized values.
+ * <p>
+ * By default each trial randomizes:
+ * <ul>
+ *     <li>the start pose - the nominal pose plus gaussian error in position and heading;</li>
+ *     <li>the sensor noise - encoder and IMU noise uniform from 0 to the maximum, and gaussian IMU drift;</li>
+ *     <li>the battery voltage - uniform between the minimum and maximum.</li>
+ * </ul>
+ * Override {@link ATrialScenario#randomize(SimulationHarness, Random)} to randomize anything else. One scenario is
+ * shared by all the trials, which run concurrently, so the scenario must not keep any per-trial state. For the same
+ * reason trials must not change the {@link AConstants}, which are shared by every simulated robot in the process.
+ */
+public abstract class ATrialScenario {
+
+    private double m_startX = 0.0;
+    private double m_startY = 0.0;
+    private double m_startHeading = 0.0;
+    private double m_positionError = 0.5;       // inches, standard deviation
+    private double m_headingError = 2.0;        // degrees, standard deviation
+    private double m_maxEncoderNoise = 0.5;     // tics per step, standard deviation
+    private double m_maxImuNoise = 0.1;         // degrees, standard deviation
+    private double m_imuDrift = 0.005;          // degrees per second, standard deviation
+    private double m_minVoltage = 12.0;
+    private double m_maxVoltage = 13.8;
+    private double m_timeLimit = 30.0;          // seconds
+
+    /**
+     * @return The op mode class run in every trial, which must have a public no-argument constructor.
+     */
+    public abstract Class<? extends AHrvhsOpMode> getOpModeClass();
+
+    /**
+     * Test whether the robot has reached the target. This is called after every control loop tick, the first tick
+     * it returns <tt>true</tt> ends the trial as a success.
+     *
+     * @param harness (not null) The harness running the trial - the {@link SimulationHarness#getPhysics() physics}
+     *                has the true pose, the {@link SimulationHarness#getOpMode() op mode} has what the robot thinks.
+     * @return <tt>true</tt> if the robot has reached the target; <tt>false</tt> otherwise.
+     */
+    public abstract boolean isAtTarget(SimulationHarness harness);
+
+    /**
+     * Create the gamepad script for a trial. The default leaves the gamepads centered, which is what an autonomous
+     * op mode sees.
+     *
+     * @return The gamepad script.
+     */
+    public GamepadScript createGamepadScript() {
+        return new GamepadScript();
+    }
+
+    /**
+     * Randomize a trial. This is called before the op mode is instantiated.
+     *
+     * @param harness (not null) The harness for the trial.
+     * @param random  (not null) The random number generator for the trial, seeded from the trial number so the
+     *                trial can be repeated.
+     */
+    public void randomize(SimulationHarness harness, Random random) {
+        MecanumPhysics physics = harness.getPhysics();
+        physics.setSeed(random.nextLong());
+        physics.setPose(m_startX + random.nextGaussian() * m_positionError,
+                m_startY + random.nextGaussian() * m_positionError,
+                m_startHeading + random.nextGaussian() * m_headingError);
+        physics.setNoise(random.nextDouble() * m_maxEncoderNoise, random.nextDouble() * m_maxImuNoise,
+                random.nextGaussian() * m_imuDrift);
+        physics.setBatteryVoltage(m_minVoltage + random.nextDouble() * (m_maxVoltage - m_minVoltage));
+    }
+
+    /**
+     * Set the nominal start pose, the default is the origin, heading 0.
+     *
+     * @param x       (double) The x (forward) position in inches.
+     * @param y       (double) The y (right) position in inches.
+     * @param heading (double) The heading in degrees, clockwise positive.
+     */
+    public void setStartPose(double x, double y, double heading) {
+        m_startX = x;
+        m_startY = y;
+        m_startHeading = heading;
+    }
+
+    /**
+     * Set the start pose error, the defaults are 0.5 inches and 2.0 degrees.
+     *
+     * @param positionError (double) The standard deviation of the x and y start position in inches.
+     * @param headingError  (double) The standard deviation of the start heading in degrees.
+     */
+    public void setStartPoseError(double positionError, double headingError) {
+        m_positionError = positionError;
+        m_headingError = headingError;
+    }
+
+    /**
+     * Set the sensor noise, the defaults are 0.5 tics, 0.1 degrees, and 0.005 degrees per second.
+     *
+     * @param maxEncoderNoise (double) The maximum encoder noise, in tics per physics step, standard deviation.
+     * @param maxImuNoise     (double) The maximum IMU yaw noise, in degrees, standard deviation.
+     * @param imuDrift        (double) The standard deviation of the IMU drift, in degrees per second.
+     */
+    public void setSensorNoise(double maxEncoderNoise, double maxImuNoise, double imuDrift) {
+        m_maxEncoderNoise = maxEncoderNoise;
+        m_maxImuNoise = maxImuNoise;
+        m_imuDrift = imuDrift;
+    }
+
+    /**
+     * Set the battery voltage range, the default is 12.0 to 13.8 volts.
+     *
+     * @param minVoltage (double) The minimum battery voltage.
+     * @param maxVoltage (double) The maximum battery voltage.
+     */
+    public void setBatteryVoltage(double minVoltage, double maxVoltage) {
+        m_minVoltage = minVoltage;
+        m_maxVoltage = maxVoltage;
+    }
+
+    /**
+     * Set the time allowed to reach the target, the default is 30 seconds (the autonomous period).
+     *
+     * @param seconds (double) The time limit in (virtual) seconds.
+     */
+    public void setTimeLimit(double seconds) {
+        m_timeLimit = seconds;
+    }
+
+    public double getTimeLimit() {
+        return m_timeLimit;
+    }
+}
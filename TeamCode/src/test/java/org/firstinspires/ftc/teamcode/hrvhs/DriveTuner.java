@@ -0,0 +1,333 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.firstinspires.ftc.teamcode.hrvhs.sim.MecanumPhysics;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * An offline tuner for the {@link DriveTuning} - the heading correction gain and the move profile. It runs an op mode
+ * that makes one autonomous move (forward a known distance with the {@link AHrvhsOpMode#m_driveSubsystem drive
+ * subsystem}) in the {@link SimulationHarness}, and scores each candidate tuning on:
+ * <ul>
+ *     <li><b>settle time</b> - the time until the robot is within the tolerance of the target and stays there (the
+ *     time limit if it never gets there);</li>
+ *     <li><b>overshoot</b> - how far past the target the robot went, in inches;</li>
+ *     <li><b>heading drift</b> - the largest heading error during the move, in degrees.</li>
+ * </ul>
+ * The score is the settle time plus the weighted overshoot and drift, lower is better. Every candidate is run in the
+ * same set of randomized conditions (wheel efficiency mismatch, battery voltage, and sensor noise), so candidates are
+ * compared on the same robots, and the score is the average over the conditions.
+ * <p>
+ * The search is a shrinking random search - every round evaluates a set of candidates around the best so far, in
+ * parallel on a fork-join pool, then halves the search range. Each candidate is an independent simulated robot, so
+ * all the cores of a workstation are used.
+ */
+public class DriveTuner {
+
+    /**
+     * The score of a tuning - the averages over the conditions of the settle time, overshoot, and heading drift.
+     */
+    public static final class Score {
+        private final double m_settleTime;
+        private final double m_overshoot;
+        private final double m_drift;
+        private final double m_total;
+
+        Score(double settleTime, double overshoot, double drift, double total) {
+            m_settleTime = settleTime;
+            m_overshoot = overshoot;
+            m_drift = drift;
+            m_total = total;
+        }
+
+        /**
+         * @return The settle time in seconds.
+         */
+        public double getSettleTime() {
+            return m_settleTime;
+        }
+
+        /**
+         * @return The overshoot in inches.
+         */
+        public double getOvershoot() {
+            return m_overshoot;
+        }
+
+        /**
+         * @return The heading drift in degrees.
+         */
+        public double getDrift() {
+            return m_drift;
+        }
+
+        /**
+         * @return The total score, lower is better.
+         */
+        public double getTotal() {
+            return m_total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("score: %.3f, settle: %.2f s, overshoot: %.2f in, drift: %.2f deg",
+                    m_total, m_settleTime, m_overshoot, m_drift);
+        }
+    }
+
+    private final Class<? extends AHrvhsOpMode> m_opModeClass;
+    private final double m_distance;
+    private final double[] m_min = new double[DriveTuning.Parameter.values().length];
+    private final double[] m_max = new double[DriveTuning.Parameter.values().length];
+    private int m_rounds = 6;
+    private int m_candidates = 32;
+    private int m_conditions = 4;
+    private double m_timeLimit = 6.0;           // seconds
+    private double m_tolerance = 0.5;           // inches
+    private double m_overshootWeight = 1.0;     // seconds per inch
+    private double m_driftWeight = 0.5;         // seconds per degree
+    private long m_seed = 0;
+
+    private DriveTuning m_best = null;
+    private Score m_bestScore = null;
+
+    /**
+     * Instantiate the DriveTuner.
+     *
+     * @param opModeClass (not null) The op mode that makes the move. It must have a public no-argument constructor,
+     *                    and move with its {@link AHrvhsOpMode#m_driveSubsystem drive subsystem}, which is given the
+     *                    candidate tuning after pre-start initialization.
+     * @param distance    (double) The distance the op mode moves forward, in inches.
+     */
+    public DriveTuner(Class<? extends AHrvhsOpMode> opModeClass, double distance) {
+        m_opModeClass = opModeClass;
+        m_distance = distance;
+        for (DriveTuning.Parameter parameter : DriveTuning.Parameter.values()) {
+            m_min[parameter.ordinal()] = parameter.getMin();
+            m_max[parameter.ordinal()] = parameter.getMax();
+        }
+    }
+
+    /**
+     * Set the range searched for a parameter, the default is the {@link DriveTuning.Parameter#getMin() min} to
+     * {@link DriveTuning.Parameter#getMax() max} of the parameter. Set the min and max to the same value to hold a
+     * parameter constant.
+     *
+     * @param parameter (not null) The parameter.
+     * @param min       (double) The smallest value to try.
+     * @param max       (double) The largest value to try.
+     */
+    public void setRange(DriveTuning.Parameter parameter, double min, double max) {
+        m_min[parameter.ordinal()] = min;
+        m_max[parameter.ordinal()] = max;
+    }
+
+    /**
+     * Set the size of the search, the defaults are 6 rounds of 32 candidates, each evaluated in 4 conditions.
+     *
+     * @param rounds     (int) The number of rounds.
+     * @param candidates (int) The number of candidates evaluated in each round.
+     * @param conditions (int) The number of randomized conditions each candidate is evaluated in.
+     */
+    public void setSearch(int rounds, int candidates, int conditions) {
+        m_rounds = rounds;
+        m_candidates = candidates;
+        m_conditions = conditions;
+    }
+
+    /**
+     * Set how a move is scored, the defaults are a 6 second time limit, a 0.5 inch tolerance, 1 second per inch of
+     * overshoot, and 0.5 seconds per degree of drift.
+     *
+     * @param timeLimit       (double) The time allowed for the move, in seconds.
+     * @param tolerance       (double) The distance from the target that is settled, in inches.
+     * @param overshootWeight (double) The seconds of score per inch of overshoot.
+     * @param driftWeight     (double) The seconds of score per degree of heading drift.
+     */
+    public void setScoring(double timeLimit, double tolerance, double overshootWeight, double driftWeight) {
+        m_timeLimit = timeLimit;
+        m_tolerance = tolerance;
+        m_overshootWeight = overshootWeight;
+        m_driftWeight = driftWeight;
+    }
+
+    /**
+     * Set the seed the conditions and the candidates are derived from, the default is 0.
+     *
+     * @param seed (long) The seed.
+     */
+    public void setSeed(long seed) {
+        m_seed = seed;
+    }
+
+    /**
+     * Run the search on a new fork-join pool with a thread for every core, starting from the tuning in the
+     * {@link AConstants}.
+     *
+     * @return The best tuning found.
+     */
+    public DriveTuning tune() {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return tune(pool, new DriveTuning());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Run the search.
+     *
+     * @param pool  (not null) The pool the candidates are evaluated on.
+     * @param start (not null) The tuning to start from, i.e. the current constants. The result is never worse than
+     *              this.
+     * @return The best tuning found.
+     */
+    public DriveTuning tune(ForkJoinPool pool, DriveTuning start) {
+        Random random = new Random(m_seed);
+        DriveTuning.Parameter[] parameters = DriveTuning.Parameter.values();
+        m_best = new DriveTuning(start);
+        m_bestScore = evaluate(m_best);
+        double width = 1.0;     // the fraction of each range searched this round
+        for (int round = 0; round < m_rounds; round++) {
+            DriveTuning[] candidates = new DriveTuning[m_candidates];
+            for (int i = 0; i < m_candidates; i++) {
+                DriveTuning candidate = new DriveTuning(m_best);
+                for (DriveTuning.Parameter parameter : parameters) {
+                    int p = parameter.ordinal();
+                    double range = (m_max[p] - m_min[p]) * width;
+                    // the first round samples the whole range, then around the best so far
+                    double center = (round == 0) ? (m_min[p] + m_max[p]) / 2.0 : m_best.get(parameter);
+                    double value = center + (random.nextDouble() - 0.5) * range;
+                    candidate.set(parameter, Math.max(m_min[p], Math.min(m_max[p], value)));
+                }
+                candidates[i] = candidate;
+            }
+            Score[] scores = new Score[m_candidates];
+            pool.invoke(new CandidateTask(candidates, scores, 0, m_candidates));
+            for (int i = 0; i < m_candidates; i++) {
+                if (scores[i].getTotal() < m_bestScore.getTotal()) {
+                    m_best = candidates[i];
+                    m_bestScore = scores[i];
+                }
+            }
+            width /= 2.0;
+        }
+        return new DriveTuning(m_best);
+    }
+
+    /**
+     * @return The best tuning found by the last search, <tt>null</tt> if there has been no search.
+     */
+    public DriveTuning getBest() {
+        return (m_best == null) ? null : new DriveTuning(m_best);
+    }
+
+    /**
+     * @return The score of the best tuning found by the last search, <tt>null</tt> if there has been no search.
+     */
+    public Score getBestScore() {
+        return m_bestScore;
+    }
+
+    /**
+     * Score a tuning in all of the conditions, on the calling thread.
+     *
+     * @param tuning (not null) The tuning to be scored.
+     * @return The score.
+     */
+    public Score evaluate(DriveTuning tuning) {
+        double settleTime = 0.0;
+        double overshoot = 0.0;
+        double drift = 0.0;
+        double[] result = new double[3];
+        for (int condition = 0; condition < m_conditions; condition++) {
+            lclRunMove(tuning, condition, result);
+            settleTime += result[0];
+            overshoot += result[1];
+            drift += result[2];
+        }
+        settleTime /= m_conditions;
+        overshoot /= m_conditions;
+        drift /= m_conditions;
+        return new Score(settleTime, overshoot, drift,
+                settleTime + m_overshootWeight * overshoot + m_driftWeight * drift);
+    }
+
+    /**
+     * Run the move with a tuning in one condition.
+     *
+     * @param tuning    The tuning.
+     * @param condition The condition number - the same condition is the same robot for every tuning.
+     * @param result    Set to the settle time, overshoot, and drift.
+     */
+    private void lclRunMove(DriveTuning tuning, int condition, double[] result) {
+        SimulationHarness harness = new SimulationHarness();
+        harness.setLogging(false);
+        Random random = new Random(m_seed + condition * 0x9E3779B97F4A7C15L);
+        MecanumPhysics physics = harness.getPhysics();
+        physics.setSeed(random.nextLong());
+        physics.setWheelEfficiency(0.9 + 0.1 * random.nextDouble(), 0.9 + 0.1 * random.nextDouble(),
+                0.9 + 0.1 * random.nextDouble(), 0.9 + 0.1 * random.nextDouble());
+        physics.setBatteryVoltage(12.0 + 1.8 * random.nextDouble());
+        physics.setNoise(0.5 * random.nextDouble(), 0.1 * random.nextDouble(), 0.005 * random.nextGaussian());
+        AHrvhsOpMode opMode = harness.init(m_opModeClass);
+        opMode.m_driveSubsystem.setTuning(tuning);
+        harness.start();
+        double settleTime = 0.0;
+        double maxX = 0.0;
+        double drift = 0.0;
+        try {
+            while (harness.getTime() < m_timeLimit) {
+                harness.tick();
+                double x = physics.getX();
+                maxX = Math.max(maxX, x);
+                drift = Math.max(drift, Math.abs(physics.getHeading()));
+                if (Math.abs(x - m_distance) > m_tolerance) {
+                    settleTime = harness.getTime();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tuning was interrupted.", e);
+        } finally {
+            harness.stop();
+        }
+        result[0] = settleTime;
+        result[1] = Math.max(0.0, maxX - m_distance);
+        result[2] = drift;
+    }
+
+    /**
+     * The fork-join task for a range of candidates - it splits in half until the range is one candidate, then scores
+     * it.
+     */
+    private class CandidateTask extends RecursiveAction {
+        private final DriveTuning[] m_tunings;
+        private final Score[] m_scores;
+        private final int m_from;
+        private final int m_to;
+
+        CandidateTask(DriveTuning[] tunings, Score[] scores, int from, int to) {
+            m_tunings = tunings;
+            m_scores = scores;
+            m_from = from;
+            m_to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_to - m_from <= 1) {
+                for (int i = m_from; i < m_to; i++) {
+                    m_scores[i] = evaluate(m_tunings[i]);
+                }
+                return;
+            }
+            int middle = (m_from + m_to) >>> 1;
+            invokeAll(new CandidateTask(m_tunings, m_scores, m_from, middle),
+                    new CandidateTask(m_tunings, m_scores, middle, m_to));
+        }
+    }
+}
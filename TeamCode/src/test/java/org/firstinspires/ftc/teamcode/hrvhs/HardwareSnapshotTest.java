@@ -0,0 +1,133 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import org.firstinspires.ftc.teamcode.hrvhs.sim.SimDcMotor;
+import org.firstinspires.ftc.teamcode.hrvhs.sim.SimHub;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The {@link HardwareSnapshot} of four motors on a {@link SimHub} where every transaction takes {@link #LATENCY} ms of
+ * (virtual) time - however many times the motors are read in a control loop, the snapshot reads the hub once, with
+ * one bulk read; with caching off every read is a transaction. The time the reads take is the simulated loop time the
+ * caching saves.
+ */
+public class HardwareSnapshotTest {
+
+    private static final int MOTORS = 4;
+    private static final int LOOPS = 50;
+    // the times each motor is read in a loop - by the drive, and by the commands and other subsystems
+    private static final int READS = 3;
+    private static final long LATENCY = 2;
+    private static final double LOOP_SECONDS = 0.02;
+
+    private VirtualClock m_clock;
+    private SimHub m_hub;
+    private SimDcMotor[] m_motors;
+    private HardwareSnapshot m_snapshot;
+
+    @Before
+    public void setUp() {
+        m_clock = new VirtualClock();
+        m_hub = new SimHub(m_clock);
+        m_hub.setLatency(LATENCY);
+        HardwareMap hardwareMap = new HardwareMap(null);
+        hardwareMap.put("hub", m_hub);
+        m_motors = new SimDcMotor[MOTORS];
+        for (int motor = 0; motor < MOTORS; motor++) {
+            m_motors[motor] = new SimDcMotor("motor " + motor, motor);
+            m_motors[motor].setPower(0.25 * (motor + 1));
+            m_hub.addMotor(m_motors[motor]);
+            hardwareMap.put("motor " + motor, m_motors[motor]);
+        }
+        // the right side is reversed, like the drive
+        m_motors[1].setDirection(DcMotorSimple.Direction.REVERSE);
+        m_motors[2].setDirection(DcMotorSimple.Direction.REVERSE);
+        m_snapshot = new HardwareSnapshot(hardwareMap, m_motors);
+    }
+
+    /**
+     * Run control loops - start the loop, read every motor {@link #READS} times, and move the motors.
+     *
+     * @return The (virtual) time in nanoseconds spent reading the motors.
+     */
+    private long lclRunLoops() {
+        long readTime = 0;
+        for (int loop = 0; loop < LOOPS; loop++) {
+            long start = m_clock.nanoTime();
+            m_snapshot.onLoopStart();
+            for (int read = 0; read < READS; read++) {
+                for (int motor = 0; motor < MOTORS; motor++) {
+                    m_snapshot.getPosition(motor);
+                    m_snapshot.getVelocity(motor);
+                }
+            }
+            readTime += m_clock.nanoTime() - start;
+            for (SimDcMotor motor : m_motors) {
+                motor.step(LOOP_SECONDS);
+            }
+            m_clock.advanceNanos((long) (LOOP_SECONDS * 1.0e9));
+        }
+        return readTime;
+    }
+
+    @Test
+    public void oneTransactionPerLoop() {
+        long readTime = lclRunLoops();
+        assertEquals("hub transactions", (long) LOOPS, m_hub.getTransactionCount());
+        assertEquals("snapshot transactions", (long) LOOPS, m_snapshot.getTransactionCount());
+        assertEquals("read time per loop", LATENCY * 1000000L, readTime / LOOPS);
+    }
+
+    @Test
+    public void everyReadWithCachingOff() {
+        long cachedReadTime = lclRunLoops();
+        m_snapshot.setCacheMode(HardwareSnapshot.CacheMode.OFF);
+        long cachedTransactions = m_hub.getTransactionCount();
+        long readTime = lclRunLoops();
+        // every position read is a transaction - the simulated motors are not a DcMotorEx, so have no velocity read
+        long perLoop = (long) MOTORS * READS;
+        assertEquals("hub transactions", perLoop * LOOPS, m_hub.getTransactionCount() - cachedTransactions);
+        assertEquals("read time per loop", perLoop * LATENCY * 1000000L, readTime / LOOPS);
+        assertEquals("simulated loop time saved", perLoop * cachedReadTime, readTime);
+    }
+
+    @Test
+    public void freshValuesEveryLoop() {
+        for (int loop = 0; loop < LOOPS; loop++) {
+            m_snapshot.onLoopStart();
+            for (int motor = 0; motor < MOTORS; motor++) {
+                SimDcMotor simMotor = m_motors[motor];
+                // the hub reports the shaft frame, and the snapshot corrects it for the motor direction
+                int sign = (simMotor.getDirection() == DcMotor.Direction.REVERSE) ? -1 : 1;
+                assertEquals("position of motor " + motor + " in loop " + loop,
+                        sign * (int) Math.round(simMotor.getShaftPosition()), m_snapshot.getPosition(motor));
+                assertEquals("velocity of motor " + motor + " in loop " + loop,
+                        sign * (int) Math.round(simMotor.getShaftVelocity()), m_snapshot.getVelocity(motor));
+                assertTrue("the snapshot has the velocity", m_snapshot.hasVelocity(motor));
+            }
+            for (SimDcMotor motor : m_motors) {
+                motor.step(LOOP_SECONDS);
+            }
+        }
+        assertTrue("the motors moved", m_snapshot.getPosition(MOTORS - 1) > 0);
+    }
+
+    @Test
+    public void manualRefreshOnlyWhenInvalidated() {
+        m_snapshot.setCacheMode(HardwareSnapshot.CacheMode.MANUAL);
+        m_snapshot.getPosition(0);
+        long start = m_hub.getTransactionCount();
+        lclRunLoops();
+        assertEquals("transactions without an invalidate", 0L, m_hub.getTransactionCount() - start);
+        m_snapshot.invalidate();
+        m_snapshot.getPosition(0);
+        m_snapshot.getPosition(1);
+        assertEquals("transactions after an invalidate", 1L, m_hub.getTransactionCount() - start);
+    }
+}
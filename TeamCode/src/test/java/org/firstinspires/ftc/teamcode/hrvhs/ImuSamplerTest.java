@@ -0,0 +1,188 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import org.firstinspires.ftc.teamcode.hrvhs.sim.SimImu;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The {@link ImuSampler} on a {@link SimImu} - the heading is sign corrected and continuous through the -180/180
+ * discontinuity, and when sampling in the background the heading the control thread reads is never older than a few
+ * sample intervals. With a {@link SimImu#setLatency(long) slow IMU} the control thread still never waits for a read,
+ * the samples it reads are seen to be stale, and the sampler is only stopped once its thread is out of the read.
+ */
+public class ImuSamplerTest {
+
+    // The background sample interval, and the oldest a sample may be when it is read. The limit is generous because
+    //  the test machine may be busy - a stale sampler is hundreds of milliseconds behind, or never updates.
+    private static final long SAMPLE_INTERVAL = 5;
+    private static final long MAX_AGE = 100;
+    // The read latency of a slow IMU - longer than MAX_AGE, and than the time stop() waits for the thread.
+    private static final long SLOW_LATENCY = 2 * MAX_AGE;
+
+    // The clock the sampler is timed on - real time, because the background sampling is a real thread.
+    private final AClock m_clock = new RealTimeClock();
+    private SimImu m_imu;
+    private ImuSampler m_sampler;
+
+    @Before
+    public void setUp() {
+        m_imu = new SimImu(m_clock);
+        m_sampler = new ImuSampler(m_clock, m_imu.getDevice());
+        m_sampler.reset();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        lclStopAndWait();
+    }
+
+    /**
+     * Stop the sampler, and wait for its thread to end - a slow read outlasts the wait in a single stop().
+     */
+    private void lclStopAndWait() throws InterruptedException {
+        long deadline = System.nanoTime() + 10 * SLOW_LATENCY * 1000000L;
+        m_sampler.stop();
+        while (m_sampler.isRunning() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(1);
+            m_sampler.stop();
+        }
+    }
+
+    /**
+     * @return The age in milliseconds of the sample last read.
+     */
+    private long lclAge() {
+        return (m_clock.nanoTime() - m_sampler.getTimestamp()) / 1000000L;
+    }
+
+    @Test
+    public void sampleOnCallingThread() {
+        m_imu.setYaw(30.0);
+        long before = m_clock.nanoTime();
+        m_sampler.sample();
+        m_sampler.readSample();
+        assertEquals("heading", -30.0, m_sampler.getHeading(), 1.0e-3);
+        assertTrue("the timestamp is the time of the sample", m_sampler.getTimestamp() - before >= 0);
+    }
+
+    @Test
+    public void timedOnTheSamplerClock() {
+        // off the robot the sampler is given the virtual clock, and the samples are on the simulated time
+        VirtualClock clock = new VirtualClock(1000000000L);
+        ImuSampler sampler = new ImuSampler(clock, m_imu.getDevice());
+        m_imu.setYaw(0.0);
+        sampler.reset();
+        clock.advance(20);
+        m_imu.setYaw(-2.0);
+        sampler.sample();
+        sampler.readSample();
+        assertEquals("timestamp", 1020000000L, sampler.getTimestamp());
+        assertEquals("rate over the simulated time", 100.0, sampler.getAngularRate(), 1.0e-6);
+    }
+
+    @Test
+    public void headingContinuousThroughDiscontinuity() {
+        double[] yaws = {90.0, 170.0, 190.0, 270.0, 370.0, 450.0, 350.0, 190.0, 170.0, 0.0, -170.0, -190.0, -270.0, -360.0, -450.0};
+        for (double yaw : yaws) {
+            m_imu.setYaw(yaw);
+            m_sampler.sample();
+            m_sampler.readSample();
+            assertEquals("heading at yaw " + yaw, -yaw, m_sampler.getHeading(), 1.0e-3);
+        }
+    }
+
+    @Test
+    public void backgroundSamplesAreFresh() throws InterruptedException {
+        m_sampler.setSampleInterval(SAMPLE_INTERVAL);
+        m_sampler.start();
+        assertTrue("running", m_sampler.isRunning());
+        for (int i = 1; i <= 20; i++) {
+            double yaw = i * 10.0;
+            m_imu.setYaw(yaw);
+            m_imu.setYawRate(yaw);
+            // the new yaw is seen within a few sample intervals
+            long deadline = System.nanoTime() + MAX_AGE * 1000000L;
+            m_sampler.readSample();
+            while (Math.abs(m_sampler.getHeading() + yaw) > 1.0e-3 && System.nanoTime() - deadline < 0) {
+                Thread.sleep(1);
+                m_sampler.readSample();
+            }
+            assertEquals("heading", -yaw, m_sampler.getHeading(), 1.0e-3);
+            assertEquals("rate", -yaw, m_sampler.getAngularRate(), 1.0e-3);
+            long age = lclAge();
+            assertTrue("the sample is " + age + "ms old", age <= MAX_AGE);
+        }
+        m_sampler.stop();
+        assertFalse("stopped", m_sampler.isRunning());
+    }
+
+    @Test
+    public void controlThreadNeverWaitsForTheImu() throws InterruptedException {
+        m_imu.setLatency(SLOW_LATENCY);
+        // sampling on the control thread waits for the read
+        long start = System.nanoTime();
+        m_sampler.sample();
+        assertTrue("sampling waits for the IMU", System.nanoTime() - start >= SLOW_LATENCY * 1000000L);
+
+        // reading the background samples never does, however long the reads they overlap take
+        m_sampler.setSampleInterval(SAMPLE_INTERVAL);
+        m_sampler.start();
+        long reads = m_imu.getReadCount();
+        long longest = 0;
+        start = System.nanoTime();
+        while (System.nanoTime() - start < 3 * SLOW_LATENCY * 1000000L) {
+            long readStart = System.nanoTime();
+            m_sampler.readSample();
+            longest = Math.max(longest, System.nanoTime() - readStart);
+            Thread.sleep(1);
+        }
+        assertTrue("the IMU was read in the background", m_imu.getReadCount() - reads >= 2);
+        assertTrue("the longest read of a sample took " + longest / 1000000L + "ms",
+                longest < SLOW_LATENCY * 1000000L / 2);
+    }
+
+    @Test
+    public void staleSamplesAreDetected() throws InterruptedException {
+        m_imu.setLatency(SLOW_LATENCY);
+        m_sampler.setSampleInterval(SAMPLE_INTERVAL);
+        m_sampler.start();
+        // a background sample is only published once the angular velocity read after the orientation read has
+        //  answered, so once the sample from the reset has aged an IMU slower than MAX_AGE can only give stale samples
+        Thread.sleep(MAX_AGE + SAMPLE_INTERVAL);
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < 3 * SLOW_LATENCY * 1000000L) {
+            m_sampler.readSample();
+            long age = lclAge();
+            assertTrue("the sample is " + age + "ms old, and not detected as stale", age > MAX_AGE);
+            Thread.sleep(SAMPLE_INTERVAL);
+        }
+    }
+
+    @Test
+    public void stoppedOnlyWhenTheThreadEnds() throws InterruptedException {
+        m_imu.setLatency(SLOW_LATENCY);
+        long reads = m_imu.getReadCount();
+        m_sampler.start();
+        // wait for the thread to be in a read, which outlasts the wait in stop()
+        while (m_imu.getReadCount() == reads) {
+            Thread.sleep(1);
+        }
+        m_sampler.stop();
+        assertTrue("still running while the thread is in a read", m_sampler.isRunning());
+        m_sampler.start();
+        int samplerThreads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("ImuSampler")) {
+                samplerThreads++;
+            }
+        }
+        assertEquals("sampler threads", 1, samplerThreads);
+        lclStopAndWait();
+        assertFalse("stopped once the read finished", m_sampler.isRunning());
+    }
+}
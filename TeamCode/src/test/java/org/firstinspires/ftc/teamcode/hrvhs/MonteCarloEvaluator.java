@@ -0,0 +1,210 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs many randomized trials of a {@link ATrialScenario} in the {@link SimulationHarness} to find out how robust an
+ * op mode is - how often it reaches the target, and how long it takes, when the start pose, sensor noise, and battery
+ * voltage vary the way they do on the field.
+ * <p>
+ * Every trial is an independent simulated robot - its own harness, op mode, and {@link Scheduler} - so the trials run
+ * concurrently on a fork-join pool, using all the cores of a workstation. The trials are split into batches, each
+ * batch fills its own {@link MonteCarloReport}, and the reports are added together as the batches join. Each trial is
+ * seeded from the evaluator seed and the trial number, so a failed trial can be repeated (i.e. in the debugger) with
+ * {@link MonteCarloEvaluator#runTrial(int)}. A typical use:
+ * <pre>
+ *     MonteCarloEvaluator evaluator = new MonteCarloEvaluator(new MyScenario());
+ *     evaluator.setTrials(1000);
+ *     MonteCarloReport report = evaluator.run();
+ *     System.out.println(report.getSummary());
+ * </pre>
+ */
+public class MonteCarloEvaluator {
+
+    private final ATrialScenario m_scenario;
+    private int m_trials = 1000;
+    private int m_batchSize = 8;
+    private long m_seed = 0;
+
+    /**
+     * Instantiate the MonteCarloEvaluator.
+     *
+     * @param scenario (not null) The scenario to be evaluated.
+     */
+    public MonteCarloEvaluator(ATrialScenario scenario) {
+        m_scenario = scenario;
+    }
+
+    /**
+     * Set the number of trials, the default is 1000.
+     *
+     * @param trials (int) The number of trials.
+     */
+    public void setTrials(int trials) {
+        m_trials = trials;
+    }
+
+    /**
+     * Set the number of trials run sequentially by one fork-join task, the default is 8.
+     *
+     * @param batchSize (int) The batch size, at least 1.
+     */
+    public void setBatchSize(int batchSize) {
+        m_batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Set the seed the trial seeds are derived from, the default is 0.
+     *
+     * @param seed (long) The seed.
+     */
+    public void setSeed(long seed) {
+        m_seed = seed;
+    }
+
+    /**
+     * Run the trials on a new fork-join pool with a thread for every core.
+     *
+     * @return The aggregate report of the trials.
+     */
+    public MonteCarloReport run() {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return run(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Run the trials on a fork-join pool.
+     *
+     * @param pool (not null) The pool to run the trials on.
+     * @return The aggregate report of the trials.
+     */
+    public MonteCarloReport run(ForkJoinPool pool) {
+        return pool.invoke(new TrialTask(0, m_trials));
+    }
+
+    /**
+     * Run one trial on the calling thread - this repeats the trial exactly as it was run by {@link
+     * MonteCarloEvaluator#run()}.
+     *
+     * @param trial (int) The trial number.
+     * @return The report of the trial.
+     */
+    public MonteCarloReport runTrial(int trial) {
+        MonteCarloReport report = new MonteCarloReport();
+        lclRunTrial(trial, report);
+        return report;
+    }
+
+    private void lclRunTrial(int trial, MonteCarloReport report) {
+        SimulationHarness harness = new SimulationHarness();
+        harness.setLogging(false);
+        m_scenario.randomize(harness, new Random(m_seed + trial * 0x9E3779B97F4A7C15L));
+        harness.setGamepadScript(m_scenario.createGamepadScript());
+        boolean started = false;
+        try {
+            harness.init(m_scenario.getOpModeClass());
+            harness.start();
+            started = true;
+            double timeLimit = m_scenario.getTimeLimit();
+            double timeToTarget = -1.0;
+            while (harness.getTime() < timeLimit) {
+                harness.tick();
+                if (m_scenario.isAtTarget(harness)) {
+                    timeToTarget = harness.getTime();
+                    break;
+                }
+            }
+            if (timeToTarget >= 0.0) {
+                report.recordSuccess(timeToTarget);
+            } else {
+                report.recordFailure(trial);
+            }
+        } catch (InterruptedException e) {
+            // the pool is shutting down - stop here rather than recording the trial
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Trial " + trial + " was interrupted.", e);
+        } catch (RuntimeException e) {
+            report.recordError(trial, e);
+        } finally {
+            if (started) {
+                try {
+                    harness.stop();
+                } catch (RuntimeException e) {
+                    report.recordError(trial, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The fork-join task for a range of trials - it splits in half until the range is a batch, then runs the batch.
+     */
+    private class TrialTask extends RecursiveTask<MonteCarloReport> {
+        private final int m_from;
+        private final int m_to;
+
+        TrialTask(int from, int to) {
+            m_from = from;
+            m_to = to;
+        }
+
+        @Override
+        protected MonteCarloReport compute() {
+            if (m_to - m_from <= m_batchSize) {
+                MonteCarloReport report = new MonteCarloReport();
+                for (int trial = m_from; trial < m_to; trial++) {
+                    lclRunTrial(trial, report);
+                }
+                return report;
+            }
+            int middle = (m_from + m_to) >>> 1;
+            TrialTask left = new TrialTask(m_from, middle);
+            TrialTask right = new TrialTask(middle, m_to);
+            left.fork();
+            MonteCarloReport report = right.compute();
+            MonteCarloReport leftReport = left.join();
+            // keep the failed trials in order
+            leftReport.add(report);
+            return leftReport;
+        }
+    }
+
+    /**
+     * Evaluate a scenario from the command line: <tt>MonteCarloEvaluator &lt;scenario class&gt; [trials] [seed]</tt>.
+     *
+     * @param args The scenario class name (which must have a public no-argument constructor), and optionally the
+     *             number of trials, default 1000, and the seed, default 0.
+     * @throws Exception Thrown if the scenario cannot be loaded.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("usage: MonteCarloEvaluator <scenario class> [trials] [seed]");
+            return;
+        }
+        ATrialScenario scenario = Class.forName(args[0]).asSubclass(ATrialScenario.class).newInstance();
+        MonteCarloEvaluator evaluator = new MonteCarloEvaluator(scenario);
+        if (args.length > 1) {
+            evaluator.setTrials(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            evaluator.setSeed(Long.parseLong(args[2]));
+        }
+        long start = System.nanoTime();
+        MonteCarloReport report = evaluator.run();
+        System.out.println(report.getSummary());
+        System.out.println(String.format("%.3f s real time on %d cores",
+                (System.nanoTime() - start) / 1.0e9, Runtime.getRuntime().availableProcessors()));
+        if (!report.getFailedTrials().isEmpty()) {
+            System.out.println("failed trials: " + report.getFailedTrials());
+        }
+        if (report.getFirstError() != null) {
+            System.out.println("first error: " + report.getFirstError());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The aggregate result of a set of {@link MonteCarloEvaluator} trials - the success rate, the distribution of the time
+ * to reach the target, and the numbers of the trials that failed (so they can be re-run one at a time with
+ * {@link MonteCarloEvaluator#runTrial(int)}). A trial that threw an exception is counted as an error, which is a
+ * failure too.
+ * <p>
+ * Each fork-join task fills its own report, and the reports are {@link MonteCarloReport#add(MonteCarloReport) added}
+ * together when the tasks join, so this is not thread-safe.
+ */
+public final class MonteCarloReport {
+
+    private final LogLinearHistogram m_timeToTarget = new LogLinearHistogram();
+    private final List<Integer> m_failedTrials = new ArrayList<>();
+    private int m_trialCt = 0;
+    private int m_successCt = 0;
+    private int m_errorCt = 0;
+    private String m_firstError = null;
+
+    /**
+     * Record a trial that reached the target.
+     *
+     * @param timeToTarget (double) The (virtual) time to reach the target in seconds.
+     */
+    void recordSuccess(double timeToTarget) {
+        m_trialCt++;
+        m_successCt++;
+        m_timeToTarget.record((long) (timeToTarget * 1.0e9));
+    }
+
+    /**
+     * Record a trial that did not reach the target in the time limit.
+     *
+     * @param trial (int) The trial number.
+     */
+    void recordFailure(int trial) {
+        m_trialCt++;
+        m_failedTrials.add(trial);
+    }
+
+    /**
+     * Record a trial that threw an exception.
+     *
+     * @param trial (int) The trial number.
+     * @param error (not null) The exception.
+     */
+    void recordError(int trial, RuntimeException error) {
+        recordFailure(trial);
+        m_errorCt++;
+        if (m_firstError == null) {
+            m_firstError = "trial " + trial + ": " + error;
+        }
+    }
+
+    /**
+     * Add the trials of another report to this one.
+     *
+     * @param other (not null) The report to be added.
+     */
+    void add(MonteCarloReport other) {
+        m_timeToTarget.add(other.m_timeToTarget);
+        m_failedTrials.addAll(other.m_failedTrials);
+        m_trialCt += other.m_trialCt;
+        m_successCt += other.m_successCt;
+        m_errorCt += other.m_errorCt;
+        if (m_firstError == null) {
+            m_firstError = other.m_firstError;
+        }
+    }
+
+    public int getTrialCount() {
+        return m_trialCt;
+    }
+
+    public int getSuccessCount() {
+        return m_successCt;
+    }
+
+    /**
+     * @return The number of trials that threw an exception.
+     */
+    public int getErrorCount() {
+        return m_errorCt;
+    }
+
+    /**
+     * @return The first exception thrown by a trial, as a message, or <tt>null</tt> if there were none.
+     */
+    public String getFirstError() {
+        return m_firstError;
+    }
+
+    /**
+     * @return The fraction of the trials that reached the target, 0.0 to 1.0.
+     */
+    public double getSuccessRate() {
+        return (m_trialCt == 0) ? 0.0 : (double) m_successCt / m_trialCt;
+    }
+
+    /**
+     * @return The histogram of the time to reach the target of the successful trials, in nanoseconds.
+     */
+    public LogLinearHistogram getTimeToTarget() {
+        return m_timeToTarget;
+    }
+
+    /**
+     * @return The numbers of the trials that failed, in order.
+     */
+    public List<Integer> getFailedTrials() {
+        return Collections.unmodifiableList(m_failedTrials);
+    }
+
+    /**
+     * @return A summary of the report - the success rate and the time to target distribution.
+     */
+    public String getSummary() {
+        return String.format("trials: %d, success: %.1f%%, errors: %d, time to target mean/p50/p90/p99/max: "
+                        + "%.2f/%.2f/%.2f/%.2f/%.2f s",
+                m_trialCt, getSuccessRate() * 100.0, m_errorCt, m_timeToTarget.getMean() / 1.0e9,
+                m_timeToTarget.getPercentile(50.0) / 1.0e9, m_timeToTarget.getPercentile(90.0) / 1.0e9,
+                m_timeToTarget.getPercentile(99.0) / 1.0e9, m_timeToTarget.getMax() / 1.0e9);
+    }
+}
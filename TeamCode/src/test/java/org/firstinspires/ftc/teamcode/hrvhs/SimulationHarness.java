@@ -0,0 +1,277 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import org.firstinspires.ftc.teamcode.hrvhs.sim.GamepadScript;
+import org.firstinspires.ftc.teamcode.hrvhs.sim.HeadlessTelemetry;
+import org.firstinspires.ftc.teamcode.hrvhs.sim.MecanumPhysics;
+import org.firstinspires.ftc.teamcode.hrvhs.sim.SimDcMotor;
+import org.firstinspires.ftc.teamcode.hrvhs.sim.SimHub;
+import org.firstinspires.ftc.teamcode.hrvhs.sim.SimImu;
+
+/**
+ * Runs an {@link AHrvhsOpMode} on a plain JVM with no phone or Expansion Hub. The harness provides the op mode with
+ * a hardware map of {@link SimDcMotor simulated motors} on a {@link SimHub simulated hub} (so the drive bulk reads
+ * them, and the {@link SimHub#setLatency(long) latency} of reading the hardware can be simulated) and a
+ * {@link SimImu simulated IMU} (with the names in {@link AConstants}), {@link HeadlessTelemetry}, and gamepads driven
+ * by a {@link GamepadScript}. It drives the real {@link Scheduler} and op mode lifecycle - pre-start initialization,
+ * start, the control loop, and stop - the same way <tt>runOpMode()</tt> does on the robot.
+ * <p>
+ * Time is a {@link VirtualClock}, so the control loop runs as fast as the computation allows while the commands see
+ * the normal tick period - a 30 second autonomous takes milliseconds. Between ticks the {@link MecanumPhysics}
+ * drivetrain model is advanced by the time that passed, which moves the robot and updates the encoders and IMU. The
+ * drive initializes the IMU on the control thread rather than a background thread, so the IMU calibration is driven
+ * by the control loop on the virtual clock too.
+ * <p>
+ * The op mode is instantiated by the harness, and has its own {@link Scheduler}, so any number of harnesses can run
+ * at the same time as long as each one is only used from one thread - the {@link MonteCarloEvaluator} runs one per
+ * trial on a fork-join pool. A typical use:
+ * <pre>
+ *     SimulationHarness harness = new SimulationHarness();
+ *     harness.setGamepadScript(new GamepadScript().gamepad1(0.0, 0.0f, 0.0f, 0.0f, -1.0f));
+ *     harness.init(DriveTemplate.class);
+ *     harness.start();
+ *     harness.run(30.0);
+ *     harness.stop();
+ * </pre>
+ */
+public class SimulationHarness {
+
+    private final VirtualClock m_clock = new VirtualClock();
+    private final HardwareMap m_hardwareMap = new HardwareMap(null);
+    private final HeadlessTelemetry m_telemetry = new HeadlessTelemetry();
+    private final SimDcMotor[] m_motors;
+    private final SimHub m_hub = new SimHub(m_clock);
+    private final SimImu m_imu = new SimImu(m_clock);
+    private final MecanumPhysics m_physics;
+    private GamepadScript m_script = new GamepadScript();
+    private boolean m_logging = true;
+
+    private AHrvhsOpMode m_opMode = null;
+    private long m_startTime;       // the clock time of the start
+    private long m_lastStep;        // the clock time the simulation was last stepped
+    private long m_realTime = 0;    // the real nanoseconds spent running the control loop
+
+    /**
+     * Instantiate the SimulationHarness.
+     */
+    public SimulationHarness() {
+        // the motors, in the same order as the MecanumDriveSubsystem snapshot
+        m_motors = new SimDcMotor[]{
+                new SimDcMotor(AConstants.CONFIG_FRONT_LEFT, 0),
+                new SimDcMotor(AConstants.CONFIG_FRONT_RIGHT, 1),
+                new SimDcMotor(AConstants.CONFIG_RIGHT_REAR, 2),
+                new SimDcMotor(AConstants.CONFIG_LEFT_REAR, 3)};
+        for (SimDcMotor motor : m_motors) {
+            m_hub.addMotor(motor);
+        }
+        m_hardwareMap.put("Expansion Hub", m_hub);
+        m_hardwareMap.put(AConstants.CONFIG_FRONT_LEFT, m_motors[0]);
+        m_hardwareMap.put(AConstants.CONFIG_FRONT_RIGHT, m_motors[1]);
+        m_hardwareMap.put(AConstants.CONFIG_RIGHT_REAR, m_motors[2]);
+        m_hardwareMap.put(AConstants.CONFIG_LEFT_REAR, m_motors[3]);
+        m_hardwareMap.put(AConstants.CONFIG_IMU, (HardwareDevice) m_imu.getDevice());
+        m_physics = new MecanumPhysics(m_motors[0], m_motors[1], m_motors[2], m_motors[3], m_imu);
+    }
+
+    /**
+     * Set the gamepad script. The default script leaves the gamepads centered.
+     *
+     * @param script (not null) The gamepad script.
+     */
+    public void setGamepadScript(GamepadScript script) {
+        m_script = script;
+    }
+
+    /**
+     * Set whether the op mode logs its loop timing to the console, the default is <tt>true</tt>. Turn this off when
+     * running many trials.
+     *
+     * @param logging <tt>true</tt> if the op mode should log to the console; <tt>false</tt> otherwise.
+     */
+    public void setLogging(boolean logging) {
+        m_logging = logging;
+    }
+
+    /**
+     * Instantiate the op mode and run the lifecycle up to the start - this is what happens when init is pushed on the
+     * driver station. The op mode scheduler is given the virtual clock.
+     *
+     * @param opModeClass (not null) The op mode class, which must have a public no-argument constructor.
+     * @param <T>         The op mode type.
+     * @return The op mode.
+     * @throws IllegalArgumentException if the op mode could not be instantiated.
+     */
+    public <T extends AHrvhsOpMode> T init(Class<T> opModeClass) {
+        T opMode;
+        try {
+            opMode = opModeClass.newInstance();
+        } catch (InstantiationException e) {
+            throw new IllegalArgumentException("Cannot instantiate " + opModeClass.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot instantiate " + opModeClass.getName(), e);
+        } finally {
+            // the op mode binds its scheduler to this thread while it is constructed - unbind it, the pre-start binds
+            // it again and the stop unbinds it, so nothing is left bound if the construction fails or the op mode is
+            // never stopped
+            Scheduler.bind(null);
+        }
+        opMode.getScheduler().setClock(m_clock);
+        opMode.logToConsole(m_logging);
+        opMode.hardwareMap = m_hardwareMap;
+        opMode.telemetry = m_telemetry.getTelemetry();
+        opMode.gamepad1 = new Gamepad();
+        opMode.gamepad2 = new Gamepad();
+        opMode.m_driveSubsystem.setBackgroundImuInitialization(false);
+        m_opMode = opMode;
+        boolean initialized = false;
+        try {
+            opMode.lclPreStart();
+            initialized = true;
+        } finally {
+            if (!initialized) {
+                // stop anything the initialization started, and unbind the scheduler
+                opMode.lclStop();
+            }
+        }
+        return opMode;
+    }
+
+    /**
+     * Start the op mode - this is what happens when start is pushed on the driver station.
+     */
+    public void start() {
+        m_startTime = m_clock.nanoTime();
+        m_lastStep = m_startTime;
+        m_script.apply(0.0, m_opMode.gamepad1, m_opMode.gamepad2);
+        m_opMode.lclStart();
+    }
+
+    /**
+     * Run one pass of the control loop, then step the simulation by the time that passed.
+     *
+     * @throws InterruptedException Thrown if the thread was interrupted.
+     */
+    public void tick() throws InterruptedException {
+        long realStart = System.nanoTime();
+        m_script.apply(getTime(), m_opMode.gamepad1, m_opMode.gamepad2);
+        m_opMode.lclTick();
+        long now = m_clock.nanoTime();
+        step((now - m_lastStep) / 1.0e9);
+        m_lastStep = now;
+        m_realTime += System.nanoTime() - realStart;
+    }
+
+    /**
+     * Run the control loop for a time.
+     *
+     * @param seconds The (virtual) time to run in seconds.
+     * @throws InterruptedException Thrown if the thread was interrupted.
+     */
+    public void run(double seconds) throws InterruptedException {
+        long end = m_clock.nanoTime() + (long) (seconds * 1.0e9);
+        while (m_clock.nanoTime() - end < 0) {
+            tick();
+        }
+    }
+
+    /**
+     * Stop the op mode - this is what happens when stop is pushed on the driver station.
+     */
+    public void stop() {
+        m_opMode.lclStop();
+    }
+
+    /**
+     * Step the simulated hardware - advance the drivetrain model. Override this to simulate other hardware.
+     *
+     * @param dt The time step in seconds.
+     */
+    protected void step(double dt) {
+        m_physics.advance(dt);
+    }
+
+    /**
+     * @return The (virtual) time since the start in seconds.
+     */
+    public double getTime() {
+        return (m_clock.nanoTime() - m_startTime) / 1.0e9;
+    }
+
+    /**
+     * @return The real time spent running the control loop in seconds.
+     */
+    public double getRealTime() {
+        return m_realTime / 1.0e9;
+    }
+
+    public VirtualClock getClock() {
+        return m_clock;
+    }
+
+    public HardwareMap getHardwareMap() {
+        return m_hardwareMap;
+    }
+
+    public HeadlessTelemetry getTelemetry() {
+        return m_telemetry;
+    }
+
+    /**
+     * @return The simulated drive motors - front left, front right, right rear, left rear.
+     */
+    public SimDcMotor[] getMotors() {
+        return m_motors;
+    }
+
+    /**
+     * @return The simulated hub the drive motors are on.
+     */
+    public SimHub getHub() {
+        return m_hub;
+    }
+
+    public SimImu getImu() {
+        return m_imu;
+    }
+
+    /**
+     * @return The drivetrain model - use this to set the model parameters and starting pose, and to read the pose.
+     */
+    public MecanumPhysics getPhysics() {
+        return m_physics;
+    }
+
+    public AHrvhsOpMode getOpMode() {
+        return m_opMode;
+    }
+
+    /**
+     * Run an op mode from the command line: <tt>SimulationHarness &lt;op mode class&gt; [seconds]</tt>. The right
+     * stick of gamepad 1 (forward/sideways in arcade drive) is pushed forward for the first half of the run, then the
+     * left stick (turn) is pushed right. The loop timing is printed at the end.
+     *
+     * @param args The op mode class name, and optionally the (virtual) run time in seconds, default 30.
+     * @throws Exception Thrown if the op mode cannot be loaded or run.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("usage: SimulationHarness <op mode class> [seconds]");
+            return;
+        }
+        Class<? extends AHrvhsOpMode> opModeClass = Class.forName(args[0]).asSubclass(AHrvhsOpMode.class);
+        double seconds = (args.length > 1) ? Double.parseDouble(args[1]) : 30.0;
+        SimulationHarness harness = new SimulationHarness();
+        harness.setGamepadScript(new GamepadScript()
+                .gamepad1(0.0, 0.0f, 0.0f, 0.0f, -1.0f)
+                .gamepad1(seconds / 2.0, 1.0f, 0.0f, 0.0f, 0.0f));
+        harness.init(opModeClass);
+        harness.start();
+        harness.run(seconds);
+        harness.stop();
+        MecanumPhysics physics = harness.getPhysics();
+        System.out.println(String.format("simulated %.1f s in %.3f s real time, pose: %.1f, %.1f in, %.1f deg",
+                harness.getTime(), harness.getRealTime(), physics.getX(), physics.getY(), physics.getHeading()));
+    }
+}
@@ -0,0 +1,131 @@
+package org.firstinspires.ftc.teamcode.hrvhs;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The {@link WheelVelocityLoop} on its background thread, run in the {@link SimulationHarness} - only one thread
+ * writes the drive motors, and the motors are stopped whenever the background thread stops.
+ */
+public class WheelVelocityLoopTest {
+
+    private static final double POWER = 0.5;
+    // The ticks run in the setup, and the real time in milliseconds between ticks.
+    private static final int SETUP_TICKS = 10;
+    private static final long TICK_SLEEP = 5;
+
+    /**
+     * Drive forward at {@link WheelVelocityLoopTest#POWER}, velocity controlled on a background thread.
+     */
+    public static class DriveForward extends AHrvhsOpMode {
+        @Override
+        protected void preStartInitialize() {
+            m_driveSubsystem.setVelocityControl(true);
+            m_driveSubsystem.setVelocityLoopInterval(5);
+        }
+
+        @Override
+        protected void postStartInitialize() {
+            new ACommand(this, "drive forward", m_driveSubsystem) {
+                @Override
+                protected void execute() {
+                    m_driveSubsystem.setArcadePower(POWER, 0.0, 0.0);
+                }
+
+                @Override
+                protected boolean isFinished() {
+                    return false;
+                }
+            }.start();
+        }
+    }
+
+    private SimulationHarness m_harness;
+    private MecanumDriveSubsystem m_drive;
+    private WheelVelocityLoop m_loop;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        m_harness = new SimulationHarness();
+        m_harness.setLogging(false);
+        m_drive = m_harness.init(DriveForward.class).m_driveSubsystem;
+        m_harness.start();
+        lclRunLoops(SETUP_TICKS, TICK_SLEEP);
+        m_loop = m_drive.getVelocityLoop();
+        assertTrue("the loop runs on its thread", m_loop.isRunning());
+    }
+
+    @After
+    public void tearDown() {
+        m_harness.stop();
+    }
+
+    /**
+     * Run control loops, sleeping between them so the background thread gets to see every step of the clock.
+     *
+     * @param loops The number of control loops.
+     * @param sleep The real time between loops in milliseconds.
+     */
+    private void lclRunLoops(int loops, long sleep) throws InterruptedException {
+        for (int loop = 0; loop < loops; loop++) {
+            m_harness.tick();
+            Thread.sleep(sleep);
+        }
+    }
+
+    private void lclAssertPowers(double power) {
+        DcMotor[] motors = {m_drive.m_motorFL, m_drive.m_motorFR, m_drive.m_motorRR, m_drive.m_motorLR};
+        for (DcMotor motor : motors) {
+            assertEquals("motor power", power, motor.getPower(), 0.0);
+        }
+    }
+
+    @Test
+    public void stoppedBeforeRawPower() throws InterruptedException {
+        m_drive.setVelocityControl(false);
+        m_harness.tick();
+        assertFalse("the loop stopped", m_loop.isRunning());
+        lclAssertPowers(POWER);
+        m_drive.setVelocityControl(true);
+        lclRunLoops(1, TICK_SLEEP);
+        assertTrue("the loop restarted", m_loop.isRunning());
+    }
+
+    @Test
+    public void pacedOnTheSimulationClock() throws InterruptedException {
+        // 20 real milliseconds between 20ms control loops would be 4 updates a loop paced on the wall clock - on the
+        //  virtual clock it is one, because the loop interval (5ms) passes once per control loop step
+        int loops = 10;
+        lclRunLoops(loops, 4 * TICK_SLEEP);
+        m_harness.stop();
+        long updates = m_loop.getUpdateCount();
+        assertTrue("the loop updated", updates > 0);
+        assertTrue("at most one update per control loop, " + updates + " updates",
+                updates <= SETUP_TICKS + loops + 1);
+    }
+
+    @Test
+    public void motorsStoppedWhenTheOpModeStops() {
+        m_harness.stop();
+        assertFalse("the loop stopped", m_loop.isRunning());
+        lclAssertPowers(0.0);
+    }
+
+    @Test
+    public void motorsStoppedWhenInterrupted() throws InterruptedException {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("WheelVelocityLoop")) {
+                thread.interrupt();
+                thread.join(1000);
+            }
+        }
+        assertFalse("the loop stopped", m_loop.isRunning());
+        lclAssertPowers(0.0);
+    }
+}
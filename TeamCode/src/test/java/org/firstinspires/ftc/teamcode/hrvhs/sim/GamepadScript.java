@@ -0,0 +1,100 @@
+package org.firstinspires.ftc.teamcode.hrvhs.sim;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scripted gamepad input for running op modes off the robot. The script is a list of stick positions, each starting
+ * at a time (in seconds from the start of the op mode) and held until the next one for the same gamepad. Override
+ * {@link GamepadScript#apply(double, Gamepad, Gamepad)} for anything else - buttons, triggers, or sticks computed
+ * from the time.
+ * <p>
+ * The stick values are the raw gamepad values, so pushing a stick forward is a negative y.
+ */
+public class GamepadScript {
+
+    private final List<Step> m_steps = new ArrayList<>();
+
+    /**
+     * Add a step for the sticks of gamepad 1.
+     *
+     * @param seconds The time the step starts, in seconds from the start of the op mode. Steps must be added in time
+     *                order.
+     * @param leftX   The left stick x.
+     * @param leftY   The left stick y.
+     * @param rightX  The right stick x.
+     * @param rightY  The right stick y.
+     * @return This script, so steps can be chained.
+     */
+    public GamepadScript gamepad1(double seconds, float leftX, float leftY, float rightX, float rightY) {
+        return lclAdd(new Step(1, seconds, leftX, leftY, rightX, rightY));
+    }
+
+    /**
+     * Add a step for the sticks of gamepad 2.
+     *
+     * @param seconds The time the step starts, in seconds from the start of the op mode. Steps must be added in time
+     *                order.
+     * @param leftX   The left stick x.
+     * @param leftY   The left stick y.
+     * @param rightX  The right stick x.
+     * @param rightY  The right stick y.
+     * @return This script, so steps can be chained.
+     */
+    public GamepadScript gamepad2(double seconds, float leftX, float leftY, float rightX, float rightY) {
+        return lclAdd(new Step(2, seconds, leftX, leftY, rightX, rightY));
+    }
+
+    /**
+     * Set the gamepads for a time. This is called before every control loop.
+     *
+     * @param seconds  The time in seconds from the start of the op mode.
+     * @param gamepad1 (not null) Gamepad 1 of the op mode.
+     * @param gamepad2 (not null) Gamepad 2 of the op mode.
+     */
+    public void apply(double seconds, Gamepad gamepad1, Gamepad gamepad2) {
+        // steps are in time order, so the last step that has started for each gamepad wins
+        for (int i = 0; i < m_steps.size(); i++) {
+            Step step = m_steps.get(i);
+            if (step.m_seconds > seconds) {
+                break;
+            }
+            step.apply((step.m_gamepad == 1) ? gamepad1 : gamepad2);
+        }
+    }
+
+    private GamepadScript lclAdd(Step step) {
+        if (!m_steps.isEmpty() && m_steps.get(m_steps.size() - 1).m_seconds > step.m_seconds) {
+            throw new IllegalArgumentException("Steps must be added in time order.  Given:" + step.m_seconds);
+        }
+        m_steps.add(step);
+        return this;
+    }
+
+    private static class Step {
+        private final int m_gamepad;
+        private final double m_seconds;
+        private final float m_leftX;
+        private final float m_leftY;
+        private final float m_rightX;
+        private final float m_rightY;
+
+        Step(int gamepad, double seconds, float leftX, float leftY, float rightX, float rightY) {
+            m_gamepad = gamepad;
+            m_seconds = seconds;
+            m_leftX = leftX;
+            m_leftY = leftY;
+            m_rightX = rightX;
+            m_rightY = rightY;
+        }
+
+        void apply(Gamepad gamepad) {
+            gamepad.left_stick_x = m_leftX;
+            gamepad.left_stick_y = m_leftY;
+            gamepad.right_stick_x = m_rightX;
+            gamepad.right_stick_y = m_rightY;
+        }
+    }
+}
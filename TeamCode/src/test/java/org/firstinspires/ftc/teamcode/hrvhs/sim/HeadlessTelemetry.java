@@ -0,0 +1,186 @@
+package org.firstinspires.ftc.teamcode.hrvhs.sim;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A <tt>Telemetry</tt> for running op modes off the robot. Nothing is sent anywhere - the latest value of every line
+ * is kept so it can be checked, and the updates are counted.
+ * <p>
+ * Like <tt>BNO055IMU</tt>, <tt>Telemetry</tt> is a big interface that changes between SDK versions, so the telemetry
+ * is a dynamic proxy that handles the data lines and answers everything else with defaults.
+ */
+public class HeadlessTelemetry {
+
+    private final Telemetry m_telemetry;
+    // The lines by caption, and whether each is retained across clear().
+    private final Map<String, String> m_lines = new LinkedHashMap<>();
+    private final Map<String, Boolean> m_retained = new LinkedHashMap<>();
+    private long m_updateCt = 0;
+
+    /**
+     * Instantiate the HeadlessTelemetry.
+     */
+    public HeadlessTelemetry() {
+        m_telemetry = (Telemetry) Proxy.newProxyInstance(HeadlessTelemetry.class.getClassLoader(),
+                new Class[]{Telemetry.class}, new TelemetryHandler());
+    }
+
+    /**
+     * @return The telemetry to give the op mode.
+     */
+    public Telemetry getTelemetry() {
+        return m_telemetry;
+    }
+
+    /**
+     * Get the latest value of a line.
+     *
+     * @param caption (not null) The caption of the line.
+     * @return The value of the line, <tt>null</tt> if there is no such line.
+     */
+    public synchronized String getValue(String caption) {
+        return m_lines.get(caption);
+    }
+
+    /**
+     * @return A copy of all the lines, caption to value, in the order they were added.
+     */
+    public synchronized Map<String, String> getLines() {
+        return new LinkedHashMap<>(m_lines);
+    }
+
+    /**
+     * @return The number of times the telemetry was updated - the number of transmissions on the robot.
+     */
+    public synchronized long getUpdateCount() {
+        return m_updateCt;
+    }
+
+    private synchronized void lclSetValue(String caption, Object[] args) {
+        String value;
+        if (args == null || args.length == 0) {
+            value = "";
+        } else if (args.length == 1) {
+            value = String.valueOf(args[0]);
+        } else {
+            value = String.format((String) args[0], (Object[]) args[1]);
+        }
+        m_lines.put(caption, value);
+        if (!m_retained.containsKey(caption)) {
+            m_retained.put(caption, Boolean.FALSE);
+        }
+    }
+
+    private synchronized void lclClear(boolean all) {
+        for (Map.Entry<String, Boolean> entry : new LinkedHashMap<>(m_retained).entrySet()) {
+            if (all || !entry.getValue()) {
+                m_lines.remove(entry.getKey());
+                m_retained.remove(entry.getKey());
+            }
+        }
+    }
+
+    private synchronized void lclUpdate() {
+        m_updateCt++;
+    }
+
+    private static Object lclDefaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0.0;
+        } else if (type == float.class) {
+            return 0.0f;
+        }
+        return null;
+    }
+
+    /**
+     * Handles the <tt>Telemetry</tt> methods.
+     */
+    private class TelemetryHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("addData")) {
+                String caption = (String) args[0];
+                Object[] valueArgs = new Object[args.length - 1];
+                System.arraycopy(args, 1, valueArgs, 0, valueArgs.length);
+                lclSetValue(caption, valueArgs);
+                return lclItem(caption);
+            } else if (name.equals("addLine")) {
+                return Proxy.newProxyInstance(HeadlessTelemetry.class.getClassLoader(),
+                        new Class[]{Telemetry.Line.class}, this);
+            } else if (name.equals("update")) {
+                lclUpdate();
+                return Boolean.TRUE;
+            } else if (name.equals("clear")) {
+                lclClear(false);
+                return null;
+            } else if (name.equals("clearAll")) {
+                lclClear(true);
+                return null;
+            } else if (name.equals("toString")) {
+                return "HeadlessTelemetry";
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            return lclDefaultValue(method.getReturnType());
+        }
+
+        private Telemetry.Item lclItem(String caption) {
+            return (Telemetry.Item) Proxy.newProxyInstance(HeadlessTelemetry.class.getClassLoader(),
+                    new Class[]{Telemetry.Item.class}, new ItemHandler(caption));
+        }
+    }
+
+    /**
+     * Handles the <tt>Telemetry.Item</tt> methods for one line.
+     */
+    private class ItemHandler implements InvocationHandler {
+        private final String m_caption;
+
+        ItemHandler(String caption) {
+            m_caption = caption;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("setValue")) {
+                lclSetValue(m_caption, args);
+                return proxy;
+            } else if (name.equals("setRetained")) {
+                synchronized (HeadlessTelemetry.this) {
+                    m_retained.put(m_caption, Boolean.TRUE.equals(args[0]));
+                }
+                return proxy;
+            } else if (name.equals("getCaption")) {
+                return m_caption;
+            } else if (name.equals("isRetained")) {
+                synchronized (HeadlessTelemetry.this) {
+                    return Boolean.TRUE.equals(m_retained.get(m_caption));
+                }
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (method.getReturnType().isInstance(proxy)) {
+                return proxy;
+            }
+            return lclDefaultValue(method.getReturnType());
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package org.firstinspires.ftc.teamcode.hrvhs.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+import org.firstinspires.ftc.teamcode.hrvhs.AConstants;
+
+import java.util.Random;
+
+/**
+ * A lightweight model of a mecanum drivetrain for running op modes off the robot. It takes the powers the op mode
+ * wrote to the four {@link SimDcMotor drive motors}, moves the chassis, and produces the encoder tics and IMU yaw the
+ * op mode reads back.
+ * <p>
+ * The model works in encoder tics, which is what the calibration constants already describe - 1 inch forward is
+ * {@link AConstants#TICS_PER_INCH_FORWARD} on every wheel, 1 inch sideways is {@link AConstants#TICS_PER_INCH_SIDEWAYS}
+ * (front left and right rear forward, the others backward), and 1 degree clockwise is
+ * {@link AConstants#TICS_PER_DEGREE_ROTATION} (the left wheels forward, the right wheels backward). Every fixed
+ * time step:
+ * <ul>
+ *     <li><b>saturation</b> - the commanded wheel speed is the power (clipped to -1.0 to 1.0) times the free speed,
+ *     scaled by the battery voltage and the wheel efficiency;</li>
+ *     <li>the commanded wheel speeds are resolved into forward, sideways, and rotation chassis speeds, and the chassis
+ *     speeds approach them with a first order lag (the motor and robot inertia);</li>
+ *     <li><b>traction</b> - the chassis acceleration is limited to what the wheels can push before they slip;</li>
+ *     <li><b>slip</b> - the wheels spin faster (or slower) than the chassis moves by a fraction of the speed the
+ *     chassis has not reached, so the encoders over-read when accelerating hard;</li>
+ *     <li><b>noise</b> - gaussian noise on every encoder step, and gaussian noise plus a constant drift on the IMU
+ *     yaw.</li>
+ * </ul>
+ * The pose is in inches in the field frame, with x forward and y to the right at heading 0. The heading is in
+ * degrees, clockwise positive - the same as the {@link org.firstinspires.ftc.teamcode.hrvhs.MecanumDriveSubsystem}.
+ * <p>
+ * The motor mounting is taken from the direction constants in {@link AConstants}, so an op mode that sets the motor
+ * directions wrong drives the simulated robot the wrong way, just like the real one. The model allocates nothing per
+ * step, and runs thousands of times faster than real time.
+ */
+public class MecanumPhysics {
+
+    // The indices of the wheels - the same order as the MecanumDriveSubsystem snapshot.
+    private static final int FL = 0;
+    private static final int FR = 1;
+    private static final int RR = 2;
+    private static final int LR = 3;
+
+    // The chassis motion per wheel (in tics) for forward, sideways (right), and rotation (clockwise) motion.
+    private static final double[] FORWARD = {1.0, 1.0, 1.0, 1.0};
+    private static final double[] SIDEWAYS = {1.0, -1.0, 1.0, -1.0};
+    private static final double[] ROTATION = {1.0, -1.0, -1.0, 1.0};
+
+    /**
+     * The battery voltage the free speed is specified at.
+     */
+    public static final double NOMINAL_VOLTAGE = 12.0;
+
+    private final SimDcMotor[] m_motors;
+    private final SimImu m_imu;
+    // +1 if positive shaft rotation drives the wheel forward, -1 if it drives the wheel backward
+    private final double[] m_mountSign = new double[4];
+
+    // The model parameters.
+    private double m_timeStep = 0.001;                          // seconds
+    private double m_freeSpeed = SimDcMotor.DEFAULT_FREE_SPEED; // wheel tics per second at full power
+    private double m_batteryVoltage = NOMINAL_VOLTAGE;          // volts
+    private final double[] m_efficiency = {1.0, 1.0, 1.0, 1.0}; // fraction of the free speed each wheel reaches
+    private double m_timeConstant = 0.1;                        // seconds
+    private double m_maxAcceleration = 100.0;                   // inches per second per second
+    private double m_slip = 0.05;                               // fraction of the unreached speed that is wheel spin
+    private double m_encoderNoise = 0.0;                        // tics per step, standard deviation
+    private double m_imuNoise = 0.05;                           // degrees, standard deviation
+    private double m_imuDrift = 0.001;                          // degrees per second
+    private final Random m_random = new Random(0);
+
+    // The state - chassis speeds in tics per second, wheel positions in tics, and the pose.
+    private double m_forwardSpeed = 0.0;
+    private double m_sidewaysSpeed = 0.0;
+    private double m_rotationSpeed = 0.0;
+    private final double[] m_wheelPosition = new double[4];
+    private final double[] m_wheelSpeed = new double[4];
+    private final double[] m_wheelCommand = new double[4];
+    private double m_x = 0.0;
+    private double m_y = 0.0;
+    private double m_heading = 0.0;
+    private double m_time = 0.0;        // seconds
+    private double m_pending = 0.0;     // seconds not yet stepped
+    private long m_stepCt = 0;
+
+    /**
+     * Instantiate the MecanumPhysics.
+     *
+     * @param motorFL (not null) The front left motor.
+     * @param motorFR (not null) The front right motor.
+     * @param motorRR (not null) The right rear motor.
+     * @param motorLR (not null) The left rear motor.
+     * @param imu     (not null) The IMU.
+     */
+    public MecanumPhysics(SimDcMotor motorFL, SimDcMotor motorFR, SimDcMotor motorRR, SimDcMotor motorLR,
+                          SimImu imu) {
+        m_motors = new SimDcMotor[]{motorFL, motorFR, motorRR, motorLR};
+        m_imu = imu;
+        lclUpdateMounting();
+        lclPublish();
+    }
+
+    /**
+     * Read the motor mounting from the direction constants. The op mode sets its constants in pre-start
+     * initialization (i.e. <tt>Constants.initForMyRobot()</tt>), after the model is created, so this is done every
+     * time the model is advanced.
+     */
+    private void lclUpdateMounting() {
+        m_mountSign[FL] = lclMountSign(AConstants.FRONT_LEFT_DIRECTION);
+        m_mountSign[FR] = lclMountSign(AConstants.FRONT_RIGHT_DIRECTION);
+        m_mountSign[RR] = lclMountSign(AConstants.RIGHT_REAR_DIRECTION);
+        m_mountSign[LR] = lclMountSign(AConstants.LEFT_REAR_DIRECTION);
+    }
+
+    private static double lclMountSign(DcMotorSimple.Direction direction) {
+        return (direction == DcMotorSimple.Direction.REVERSE) ? -1.0 : 1.0;
+    }
+
+    /**
+     * Set the fixed time step. The default is 0.001 seconds.
+     *
+     * @param seconds The time step in seconds.
+     */
+    public void setTimeStep(double seconds) {
+        if (seconds <= 0.0) {
+            throw new IllegalArgumentException("Time step must be positive.  Given:" + seconds);
+        }
+        m_timeStep = seconds;
+    }
+
+    /**
+     * Set the wheel speed at full power. The default is {@link SimDcMotor#DEFAULT_FREE_SPEED}.
+     *
+     * @param ticsPerSecond The free speed in encoder tics per second.
+     */
+    public void setFreeSpeed(double ticsPerSecond) {
+        m_freeSpeed = ticsPerSecond;
+    }
+
+    /**
+     * Set the fraction of the free speed each wheel reaches - the mismatch of real motors, gearboxes, and rollers. A
+     * mismatch makes the robot turn when it should drive straight, which is what the heading correction is for. The
+     * default is 1.0 for every wheel.
+     *
+     * @param frontLeft  The front left wheel efficiency.
+     * @param frontRight The front right wheel efficiency.
+     * @param rightRear  The right rear wheel efficiency.
+     * @param leftRear   The left rear wheel efficiency.
+     */
+    public void setWheelEfficiency(double frontLeft, double frontRight, double rightRear, double leftRear) {
+        m_efficiency[FL] = frontLeft;
+        m_efficiency[FR] = frontRight;
+        m_efficiency[RR] = rightRear;
+        m_efficiency[LR] = leftRear;
+    }
+
+    /**
+     * Set the battery voltage. The motor speed is proportional to the voltage, so the free speed is scaled by the
+     * voltage over {@link MecanumPhysics#NOMINAL_VOLTAGE} - a low battery drives the robot slower for the same power.
+     * The default is the nominal voltage.
+     *
+     * @param volts The battery voltage.
+     */
+    public void setBatteryVoltage(double volts) {
+        m_batteryVoltage = volts;
+    }
+
+    /**
+     * Set the time constant of the chassis response to a change in power. The default is 0.1 seconds.
+     *
+     * @param seconds The time constant in seconds.
+     */
+    public void setTimeConstant(double seconds) {
+        m_timeConstant = seconds;
+    }
+
+    /**
+     * Set the largest acceleration the wheels can give the chassis before they slip. The default is 100 inches per
+     * second per second.
+     *
+     * @param inchesPerSecondSquared The traction limit in inches per second per second.
+     */
+    public void setMaxAcceleration(double inchesPerSecondSquared) {
+        m_maxAcceleration = inchesPerSecondSquared;
+    }
+
+    /**
+     * Set the wheel slip - the fraction of the difference between the commanded and actual wheel speed that shows up
+     * as wheel spin in the encoders. The default is 0.05.
+     *
+     * @param slip The slip fraction, 0.0 (the encoders follow the chassis exactly) to 1.0 (the encoders follow the
+     *             command).
+     */
+    public void setSlip(double slip) {
+        m_slip = slip;
+    }
+
+    /**
+     * Set the sensor noise.
+     *
+     * @param encoderNoise The standard deviation of the noise added to every encoder step in tics, default 0.0.
+     * @param imuNoise     The standard deviation of the noise on the IMU yaw in degrees, default 0.05.
+     * @param imuDrift     The IMU yaw drift in degrees per second, default 0.001.
+     */
+    public void setNoise(double encoderNoise, double imuNoise, double imuDrift) {
+        m_encoderNoise = encoderNoise;
+        m_imuNoise = imuNoise;
+        m_imuDrift = imuDrift;
+    }
+
+    /**
+     * Set the seed of the noise, so a run can be repeated exactly. The default seed is 0.
+     *
+     * @param seed The seed.
+     */
+    public void setSeed(long seed) {
+        m_random.setSeed(seed);
+    }
+
+    /**
+     * Place the robot. This does not change the encoders, and the chassis is stopped.
+     *
+     * @param x       The x position in inches.
+     * @param y       The y position in inches.
+     * @param heading The heading in degrees, clockwise positive.
+     */
+    public void setPose(double x, double y, double heading) {
+        m_x = x;
+        m_y = y;
+        m_heading = heading;
+        m_forwardSpeed = 0.0;
+        m_sidewaysSpeed = 0.0;
+        m_rotationSpeed = 0.0;
+        lclPublish();
+    }
+
+    /**
+     * Advance the model by a time, in as many fixed steps as fit. Any remainder is carried to the next call, so the
+     * model always steps at the fixed time step whatever the control loop period is.
+     *
+     * @param dt The time to advance in seconds.
+     */
+    public void advance(double dt) {
+        lclUpdateMounting();
+        m_pending += dt;
+        while (m_pending >= m_timeStep) {
+            step();
+            m_pending -= m_timeStep;
+        }
+        lclPublish();
+    }
+
+    /**
+     * Advance the model by one fixed time step.
+     */
+    public void step() {
+        double dt = m_timeStep;
+        double freeSpeed = m_freeSpeed * (m_batteryVoltage / NOMINAL_VOLTAGE);
+        // saturation - the commanded wheel speeds, in the wheel frame
+        for (int i = 0; i < 4; i++) {
+            double power = Math.max(-1.0, Math.min(1.0, m_mountSign[i] * m_motors[i].getAppliedPower()));
+            m_wheelCommand[i] = power * freeSpeed * m_efficiency[i];
+        }
+        // resolve the wheel commands into chassis speeds, and move toward them with a lag and a traction limit
+        double alpha = (m_timeConstant > 0.0) ? Math.min(1.0, dt / m_timeConstant) : 1.0;
+        m_forwardSpeed = lclApproach(m_forwardSpeed, lclResolve(FORWARD), alpha,
+                m_maxAcceleration * AConstants.TICS_PER_INCH_FORWARD * dt);
+        m_sidewaysSpeed = lclApproach(m_sidewaysSpeed, lclResolve(SIDEWAYS), alpha,
+                m_maxAcceleration * AConstants.TICS_PER_INCH_SIDEWAYS * dt);
+        // the rotation traction limit is the same wheel surface acceleration as forward
+        m_rotationSpeed = lclApproach(m_rotationSpeed, lclResolve(ROTATION), alpha,
+                m_maxAcceleration * AConstants.TICS_PER_INCH_FORWARD * dt);
+        // the wheels follow the chassis, plus the slip and the noise
+        for (int i = 0; i < 4; i++) {
+            double chassis = FORWARD[i] * m_forwardSpeed + SIDEWAYS[i] * m_sidewaysSpeed
+                    + ROTATION[i] * m_rotationSpeed;
+            double wheel = chassis + m_slip * (m_wheelCommand[i] - chassis);
+            m_wheelSpeed[i] = wheel;
+            m_wheelPosition[i] += wheel * dt;
+            if (m_encoderNoise > 0.0) {
+                m_wheelPosition[i] += m_random.nextGaussian() * m_encoderNoise;
+            }
+        }
+        // integrate the pose
+        double forward = m_forwardSpeed / AConstants.TICS_PER_INCH_FORWARD;
+        double sideways = m_sidewaysSpeed / AConstants.TICS_PER_INCH_SIDEWAYS;
+        double headingRadians = Math.toRadians(m_heading);
+        double cos = Math.cos(headingRadians);
+        double sin = Math.sin(headingRadians);
+        m_x += (forward * cos - sideways * sin) * dt;
+        m_y += (forward * sin + sideways * cos) * dt;
+        m_heading += m_rotationSpeed / AConstants.TICS_PER_DEGREE_ROTATION * dt;
+        m_time += dt;
+        m_stepCt++;
+    }
+
+    /**
+     * Resolve the wheel commands into the chassis speed along one motion - the average of the wheel commands
+     * projected onto that motion.
+     */
+    private double lclResolve(double[] motion) {
+        return (motion[FL] * m_wheelCommand[FL] + motion[FR] * m_wheelCommand[FR]
+                + motion[RR] * m_wheelCommand[RR] + motion[LR] * m_wheelCommand[LR]) / 4.0;
+    }
+
+    private static double lclApproach(double current, double target, double alpha, double maxChange) {
+        // Snap to the target when close - an exponential decay toward 0 would otherwise end in denormal numbers, which
+        // are very slow arithmetic.
+        if (Math.abs(target - current) < 1.0e-6) {
+            return target;
+        }
+        double change = (target - current) * alpha;
+        if (change > maxChange) {
+            change = maxChange;
+        } else if (change < -maxChange) {
+            change = -maxChange;
+        }
+        return current + change;
+    }
+
+    /**
+     * Write the wheel positions and speeds to the motors and the yaw to the IMU.
+     */
+    private void lclPublish() {
+        for (int i = 0; i < 4; i++) {
+            m_motors[i].setShaftPosition(m_mountSign[i] * m_wheelPosition[i]);
+            m_motors[i].setShaftVelocity(m_mountSign[i] * m_wheelSpeed[i]);
+        }
+        double noise = (m_imuNoise > 0.0) ? m_random.nextGaussian() * m_imuNoise : 0.0;
+        // the IMU is counter-clockwise positive
+        m_imu.setYaw(-(m_heading + m_imuDrift * m_time) + noise);
+        m_imu.setYawRate(-(m_rotationSpeed / AConstants.TICS_PER_DEGREE_ROTATION + m_imuDrift));
+    }
+
+    /**
+     * @return The x position in inches.
+     */
+    public double getX() {
+        return m_x;
+    }
+
+    /**
+     * @return The y position in inches.
+     */
+    public double getY() {
+        return m_y;
+    }
+
+    /**
+     * @return The heading in degrees, clockwise positive.
+     */
+    public double getHeading() {
+        return m_heading;
+    }
+
+    /**
+     * @return The forward speed in inches per second.
+     */
+    public double getForwardSpeed() {
+        return m_forwardSpeed / AConstants.TICS_PER_INCH_FORWARD;
+    }
+
+    /**
+     * @return The sideways (right) speed in inches per second.
+     */
+    public double getSidewaysSpeed() {
+        return m_sidewaysSpeed / AConstants.TICS_PER_INCH_SIDEWAYS;
+    }
+
+    /**
+     * @return The rotation speed in degrees per second, clockwise positive.
+     */
+    public double getRotationSpeed() {
+        return m_rotationSpeed / AConstants.TICS_PER_DEGREE_ROTATION;
+    }
+
+    /**
+     * @return The simulated time in seconds.
+     */
+    public double getTime() {
+        return m_time;
+    }
+
+    /**
+     * @return The number of fixed steps taken.
+     */
+    public long getStepCount() {
+        return m_stepCt;
+    }
+}
@@ -0,0 +1,268 @@
+package org.firstinspires.ftc.teamcode.hrvhs.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+/**
+ * A simulated <tt>DcMotor</tt> for running op modes off the robot. It behaves like the SDK motor as far as the op mode
+ * can tell: the direction flips both the power and the encoder, <tt>STOP_AND_RESET_ENCODER</tt> zeros the encoder,
+ * and the power is clipped to -1.0 to 1.0.
+ * <p>
+ * The simulation side works in the shaft frame - the frame of the motor with no direction reversal. By default the
+ * motor spins freely at {@link SimDcMotor#getAppliedPower() applied power} times the free speed when it is
+ * {@link SimDcMotor#step(double) stepped}. A drivetrain model instead reads the applied power and
+ * {@link SimDcMotor#setShaftPosition(double) sets} the shaft position and velocity.
+ * <p>
+ * A motor can be put on a {@link SimHub}, which is then its controller - it is bulk read through the hub, and every
+ * encoder read of the motor is a transaction with the hub.
+ * <p>
+ * This is not thread-safe, it is expected that the op mode and the simulation run on the same thread.
+ */
+public class SimDcMotor implements DcMotor {
+
+    // The default free speed in encoder tics per second - roughly a TileRunner drive motor.
+    public static final double DEFAULT_FREE_SPEED = 2500.0;
+
+    private final String m_name;
+    private final int m_port;
+
+    // The op mode side of the motor.
+    private Direction m_direction = Direction.FORWARD;
+    private RunMode m_mode = RunMode.RUN_WITHOUT_ENCODER;
+    private ZeroPowerBehavior m_zeroPowerBehavior = ZeroPowerBehavior.BRAKE;
+    private MotorConfigurationType m_motorType = null;
+    private double m_power = 0.0;
+    private int m_targetPosition = 0;
+
+    // The simulation side of the motor, in the shaft frame.
+    private double m_freeSpeed = DEFAULT_FREE_SPEED;
+    private double m_shaftPosition = 0.0;   // encoder tics
+    private double m_shaftVelocity = 0.0;   // encoder tics per second
+    private double m_encoderZero = 0.0;     // the shaft position at the last encoder reset
+
+    private SimHub m_hub = null;
+
+    /**
+     * Instantiate the SimDcMotor.
+     *
+     * @param name (not null) The name of the motor in the configuration.
+     * @param port The port of the motor on its (imaginary) controller.
+     */
+    public SimDcMotor(String name, int port) {
+        m_name = name;
+        m_port = port;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // The simulation side
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return The power actually driving the shaft - the power corrected for the direction, and 0 while the encoder is
+     * being reset.
+     */
+    public double getAppliedPower() {
+        if (m_mode == RunMode.STOP_AND_RESET_ENCODER) {
+            return 0.0;
+        }
+        return (m_direction == Direction.REVERSE) ? -m_power : m_power;
+    }
+
+    /**
+     * @return The shaft position in encoder tics (not corrected for direction, and not affected by encoder resets).
+     */
+    public double getShaftPosition() {
+        return m_shaftPosition;
+    }
+
+    /**
+     * Set the shaft position, this is how a drivetrain model moves the motor.
+     *
+     * @param tics The shaft position in encoder tics.
+     */
+    public void setShaftPosition(double tics) {
+        m_shaftPosition = tics;
+    }
+
+    /**
+     * @return The shaft velocity in encoder tics per second (not corrected for direction).
+     */
+    public double getShaftVelocity() {
+        return m_shaftVelocity;
+    }
+
+    /**
+     * Set the shaft velocity, a drivetrain model sets this with the shaft position.
+     *
+     * @param ticsPerSecond The shaft velocity in encoder tics per second.
+     */
+    public void setShaftVelocity(double ticsPerSecond) {
+        m_shaftVelocity = ticsPerSecond;
+    }
+
+    /**
+     * @return The encoder position in tics since the last reset, not corrected for direction - what the hub reports.
+     */
+    double getEncoderPosition() {
+        return m_shaftPosition - m_encoderZero;
+    }
+
+    void setHub(SimHub hub) {
+        m_hub = hub;
+    }
+
+    /**
+     * Set the speed of the motor at full power when it is spinning freely.
+     *
+     * @param ticsPerSecond The free speed in encoder tics per second.
+     */
+    public void setFreeSpeed(double ticsPerSecond) {
+        m_freeSpeed = ticsPerSecond;
+    }
+
+    /**
+     * Spin the motor freely for a time step.
+     *
+     * @param dt The time step in seconds.
+     */
+    public void step(double dt) {
+        m_shaftVelocity = getAppliedPower() * m_freeSpeed;
+        m_shaftPosition += m_shaftVelocity * dt;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // DcMotor
+    // -----------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public void setDirection(Direction direction) {
+        m_direction = direction;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return m_direction;
+    }
+
+    @Override
+    public void setPower(double power) {
+        m_power = Math.max(-1.0, Math.min(1.0, power));
+    }
+
+    @Override
+    public double getPower() {
+        return m_power;
+    }
+
+    @Override
+    public void setMode(RunMode mode) {
+        m_mode = mode;
+        if (mode == RunMode.STOP_AND_RESET_ENCODER) {
+            m_encoderZero = m_shaftPosition;
+            m_power = 0.0;
+        }
+    }
+
+    @Override
+    public RunMode getMode() {
+        return m_mode;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        if (m_hub != null) {
+            m_hub.transaction();
+        }
+        double position = getEncoderPosition();
+        return (int) Math.round((m_direction == Direction.REVERSE) ? -position : position);
+    }
+
+    @Override
+    public void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        m_zeroPowerBehavior = zeroPowerBehavior;
+    }
+
+    @Override
+    public ZeroPowerBehavior getZeroPowerBehavior() {
+        return m_zeroPowerBehavior;
+    }
+
+    @Override
+    @Deprecated
+    public void setPowerFloat() {
+        m_zeroPowerBehavior = ZeroPowerBehavior.FLOAT;
+        m_power = 0.0;
+    }
+
+    @Override
+    public boolean getPowerFloat() {
+        return m_zeroPowerBehavior == ZeroPowerBehavior.FLOAT && m_power == 0.0;
+    }
+
+    @Override
+    public void setTargetPosition(int position) {
+        m_targetPosition = position;
+    }
+
+    @Override
+    public int getTargetPosition() {
+        return m_targetPosition;
+    }
+
+    @Override
+    public boolean isBusy() {
+        return false;
+    }
+
+    @Override
+    public MotorConfigurationType getMotorType() {
+        return m_motorType;
+    }
+
+    @Override
+    public void setMotorType(MotorConfigurationType motorType) {
+        m_motorType = motorType;
+    }
+
+    @Override
+    public DcMotorController getController() {
+        return m_hub;
+    }
+
+    @Override
+    public int getPortNumber() {
+        return m_port;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated DC Motor";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "simulated; " + m_name + "; port " + m_port;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+        m_direction = Direction.FORWARD;
+        m_power = 0.0;
+    }
+
+    @Override
+    public void close() {
+        m_power = 0.0;
+    }
+}
@@ -0,0 +1,218 @@
+package org.firstinspires.ftc.teamcode.hrvhs.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+import org.firstinspires.ftc.teamcode.hrvhs.IBulkReadHub;
+import org.firstinspires.ftc.teamcode.hrvhs.VirtualClock;
+
+/**
+ * A simulated Expansion Hub for {@link SimDcMotor simulated motors}. The motors on the hub report it as their
+ * controller, so a {@link org.firstinspires.ftc.teamcode.hrvhs.HardwareSnapshot HardwareSnapshot} reads all of them
+ * with one {@link SimHub#bulkRead() bulk read}, like it does on the robot.
+ * <p>
+ * Every read of the hub - a bulk read, or an encoder read of one of its motors - is a transaction, and each
+ * transaction moves the {@link VirtualClock} on by the {@link SimHub#setLatency(long) latency}, the way a USB round
+ * trip to the hub takes 2-3ms on the robot. So the cost of reading the hardware shows up in the simulated loop time.
+ * The default latency is 0. Writes (motor power) are not counted.
+ * <p>
+ * This is not thread-safe, it is expected that the op mode and the simulation run on the same thread.
+ */
+public class SimHub implements DcMotorController, IBulkReadHub {
+
+    // The number of motor ports on an Expansion Hub.
+    public static final int PORTS = 4;
+
+    private final VirtualClock m_clock;
+    private final SimDcMotor[] m_motors = new SimDcMotor[PORTS];
+    // The encoder positions and velocities in the last bulk read, in the shaft frame.
+    private final int[] m_positions = new int[PORTS];
+    private final int[] m_velocities = new int[PORTS];
+
+    private long m_latency = 0;     // nanoseconds per transaction
+    private long m_transactionCt = 0;
+
+    /**
+     * Instantiate the SimHub.
+     *
+     * @param clock (not null) The clock the transaction latency is taken from.
+     */
+    public SimHub(VirtualClock clock) {
+        m_clock = clock;
+    }
+
+    /**
+     * Put a motor on the hub, at its port.
+     *
+     * @param motor (not null) The motor.
+     * @return This hub, so motors can be chained.
+     */
+    public SimHub addMotor(SimDcMotor motor) {
+        m_motors[motor.getPortNumber()] = motor;
+        motor.setHub(this);
+        return this;
+    }
+
+    /**
+     * Set the time each transaction takes. The default is 0.
+     *
+     * @param millis The transaction latency in milliseconds.
+     */
+    public void setLatency(long millis) {
+        m_latency = millis * 1000000L;
+    }
+
+    /**
+     * @return The number of transactions (reads) with the hub.
+     */
+    public long getTransactionCount() {
+        return m_transactionCt;
+    }
+
+    /**
+     * One transaction with the hub - count it, and wait out the latency.
+     */
+    void transaction() {
+        m_transactionCt++;
+        if (m_latency > 0) {
+            m_clock.advanceNanos(m_latency);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // IBulkReadHub
+    // -----------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public boolean bulkRead() {
+        transaction();
+        for (int port = 0; port < PORTS; port++) {
+            SimDcMotor motor = m_motors[port];
+            m_positions[port] = (motor == null) ? 0 : (int) Math.round(motor.getEncoderPosition());
+            m_velocities[port] = (motor == null) ? 0 : (int) Math.round(motor.getShaftVelocity());
+        }
+        return true;
+    }
+
+    @Override
+    public int getBulkPosition(int port) {
+        return m_positions[port];
+    }
+
+    @Override
+    public int getBulkVelocity(int port) {
+        return m_velocities[port];
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // DcMotorController
+    // -----------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public void setMotorType(int motor, MotorConfigurationType motorType) {
+        m_motors[motor].setMotorType(motorType);
+    }
+
+    @Override
+    public MotorConfigurationType getMotorType(int motor) {
+        return m_motors[motor].getMotorType();
+    }
+
+    @Override
+    public void setMotorMode(int motor, DcMotor.RunMode mode) {
+        m_motors[motor].setMode(mode);
+    }
+
+    @Override
+    public DcMotor.RunMode getMotorMode(int motor) {
+        return m_motors[motor].getMode();
+    }
+
+    @Override
+    public void setMotorPower(int motor, double power) {
+        m_motors[motor].setPower(power);
+    }
+
+    @Override
+    public double getMotorPower(int motor) {
+        return m_motors[motor].getPower();
+    }
+
+    @Override
+    public boolean isBusy(int motor) {
+        return m_motors[motor].isBusy();
+    }
+
+    @Override
+    public void setMotorZeroPowerBehavior(int motor, DcMotor.ZeroPowerBehavior zeroPowerBehavior) {
+        m_motors[motor].setZeroPowerBehavior(zeroPowerBehavior);
+    }
+
+    @Override
+    public DcMotor.ZeroPowerBehavior getMotorZeroPowerBehavior(int motor) {
+        return m_motors[motor].getZeroPowerBehavior();
+    }
+
+    @Override
+    public boolean getMotorPowerFloat(int motor) {
+        return m_motors[motor].getPowerFloat();
+    }
+
+    @Override
+    public void setMotorTargetPosition(int motor, int position) {
+        m_motors[motor].setTargetPosition(position);
+    }
+
+    @Override
+    public int getMotorTargetPosition(int motor) {
+        return m_motors[motor].getTargetPosition();
+    }
+
+    @Override
+    public int getMotorCurrentPosition(int motor) {
+        return m_motors[motor].getCurrentPosition();
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode(int motor) {
+        m_motors[motor].resetDeviceConfigurationForOpMode();
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated Expansion Hub";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "simulated";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+        for (SimDcMotor motor : m_motors) {
+            if (motor != null) {
+                motor.resetDeviceConfigurationForOpMode();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (SimDcMotor motor : m_motors) {
+            if (motor != null) {
+                motor.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.firstinspires.ftc.teamcode.hrvhs.sim;
+
+import com.qualcomm.hardware.bosch.BNO055IMU;
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+import org.firstinspires.ftc.teamcode.hrvhs.AClock;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A simulated <tt>BNO055IMU</tt> for running op modes off the robot. The simulation sets the yaw and yaw rate, and
+ * the op mode reads them through the {@link SimImu#getDevice() device}.
+ * <p>
+ * <tt>BNO055IMU</tt> is a big interface that changes between SDK versions, and the framework only uses a handful of
+ * it - initialization, calibration status, orientation and angular velocity. So the device is a dynamic proxy that
+ * simulates those methods, and answers everything else with 0, <tt>false</tt> or <tt>null</tt>.
+ * <p>
+ * Like the real IMU the yaw is in degrees, counter-clockwise positive, in the range -180 to 180.
+ * <p>
+ * The calibration time, and the acquisition time of the orientation and angular velocity, are on the clock the IMU is
+ * given - the harness {@link org.firstinspires.ftc.teamcode.hrvhs.VirtualClock VirtualClock}, so when the IMU
+ * reports it is calibrated depends only on the simulated time, not on how fast the simulation runs.
+ * <p>
+ * A read of the orientation or angular velocity is an I2C transaction on the real IMU, which blocks the reading thread
+ * for a few milliseconds. The {@link SimImu#setLatency(long) latency} simulates that in real time rather than on the
+ * clock, because the IMU may be read by a background thread that does not own the clock.
+ */
+public class SimImu implements InvocationHandler {
+
+    private final AClock m_clock;
+    private final BNO055IMU m_device;
+
+    private volatile double m_yaw = 0.0;        // degrees, counter-clockwise positive, not wrapped
+    private volatile double m_yawRate = 0.0;    // degrees per second, counter-clockwise positive
+    private volatile boolean m_initialized = false;
+    private BNO055IMU.Parameters m_parameters = null;
+    private long m_calibrationTime = 0;         // nanoseconds from initialization to calibrated
+    private long m_initializedTime;
+    private volatile long m_latency = 0;        // real nanoseconds per read
+    private final AtomicLong m_readCt = new AtomicLong();
+
+    /**
+     * Instantiate the SimImu.
+     *
+     * @param clock (not null) The clock the calibration time is measured on.
+     */
+    public SimImu(AClock clock) {
+        m_clock = clock;
+        m_device = (BNO055IMU) Proxy.newProxyInstance(SimImu.class.getClassLoader(),
+                new Class[]{BNO055IMU.class, HardwareDevice.class}, this);
+    }
+
+    /**
+     * @return The simulated device. This is also a <tt>HardwareDevice</tt>, so it can be put in a hardware map.
+     */
+    public BNO055IMU getDevice() {
+        return m_device;
+    }
+
+    /**
+     * Set the yaw - the simulation does this every step.
+     *
+     * @param degrees The yaw in degrees, counter-clockwise positive. This does not need to be wrapped to -180 to 180.
+     */
+    public void setYaw(double degrees) {
+        m_yaw = degrees;
+    }
+
+    /**
+     * @return The yaw in degrees, counter-clockwise positive, not wrapped.
+     */
+    public double getYaw() {
+        return m_yaw;
+    }
+
+    /**
+     * Set the yaw rate - the simulation does this every step.
+     *
+     * @param degreesPerSecond The yaw rate in degrees per second, counter-clockwise positive.
+     */
+    public void setYawRate(double degreesPerSecond) {
+        m_yawRate = degreesPerSecond;
+    }
+
+    /**
+     * Set how long after initialization the gyro reports it is calibrated. The default is 0.
+     *
+     * @param millis The calibration time in milliseconds, on the IMU clock.
+     */
+    public void setCalibrationTime(long millis) {
+        m_calibrationTime = millis * 1000000L;
+    }
+
+    /**
+     * Set the time each read of the orientation or angular velocity blocks the reading thread, like the I2C
+     * transaction of the real IMU. The default is 0. The read is not cut short by an interrupt.
+     *
+     * @param millis The read latency in milliseconds, real time.
+     */
+    public void setLatency(long millis) {
+        m_latency = millis * 1000000L;
+    }
+
+    /**
+     * @return The number of reads of the orientation and angular velocity that have been started.
+     */
+    public long getReadCount() {
+        return m_readCt.get();
+    }
+
+    /**
+     * One read of the IMU - count it, and block for the latency. An interrupt does not end the read, it is passed on
+     * when the read is finished.
+     */
+    private void lclRead() {
+        m_readCt.incrementAndGet();
+        long latency = m_latency;
+        if (latency <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + latency;
+        boolean interrupted = false;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            try {
+                Thread.sleep(remaining / 1000000L, (int) (remaining % 1000000L));
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("initialize")) {
+            m_parameters = (BNO055IMU.Parameters) args[0];
+            m_initializedTime = m_clock.nanoTime();
+            m_initialized = true;
+            return Boolean.TRUE;
+        } else if (name.equals("getParameters")) {
+            return m_parameters;
+        } else if (name.equals("isGyroCalibrated")) {
+            return m_initialized && m_clock.nanoTime() - m_initializedTime >= m_calibrationTime;
+        } else if (name.equals("getAngularOrientation")) {
+            lclRead();
+            double yaw = m_yaw - 360.0 * Math.floor((m_yaw + 180.0) / 360.0);
+            if (args != null && args.length == 3 && args[2] == AngleUnit.RADIANS) {
+                return new Orientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.RADIANS,
+                        (float) Math.toRadians(yaw), 0.0f, 0.0f, m_clock.nanoTime());
+            }
+            return new Orientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.DEGREES, (float) yaw, 0.0f, 0.0f,
+                    m_clock.nanoTime());
+        } else if (name.equals("getAngularVelocity")) {
+            lclRead();
+            return new AngularVelocity(AngleUnit.DEGREES, 0.0f, 0.0f, (float) m_yawRate, m_clock.nanoTime());
+        } else if (name.equals("getDeviceName")) {
+            return "Simulated BNO055 IMU";
+        } else if (name.equals("getConnectionInfo")) {
+            return "simulated";
+        } else if (name.equals("toString")) {
+            return "SimImu";
+        } else if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        } else if (name.equals("equals")) {
+            return proxy == args[0];
+        }
+        return lclDefaultValue(method.getReturnType());
+    }
+
+    private static Object lclDefaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0.0;
+        } else if (type == float.class) {
+            return 0.0f;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == char.class) {
+            return (char) 0;
+        }
+        return null;
+    }
+}